@@ -2,6 +2,11 @@ package com.leadlet.config;
 
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 /**
  * Properties specific to JHipster.
  * <p>
@@ -10,4 +15,633 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 @ConfigurationProperties(prefix = "application", ignoreUnknownFields = false)
 public class ApplicationProperties {
 
+    private final Search search = new Search();
+
+    private final Rollup rollup = new Rollup();
+
+    public Search getSearch() {
+        return search;
+    }
+
+    public Rollup getRollup() {
+        return rollup;
+    }
+
+    public static class Rollup {
+
+        /**
+         * Rows the totals of a stage are spread over, writes to deals of the same stage lock different rows.
+         */
+        private int stripes = 8;
+
+        /**
+         * When the rollups are compared with the deals and repaired.
+         */
+        private String cron = "0 0 4 * * ?";
+
+        public int getStripes() {
+            return stripes;
+        }
+
+        public void setStripes(int stripes) {
+            this.stripes = stripes;
+        }
+
+        public String getCron() {
+            return cron;
+        }
+
+        public void setCron(String cron) {
+            this.cron = cron;
+        }
+    }
+
+    public static class Search {
+
+        private final Outbox outbox = new Outbox();
+
+        private final Bulk bulk = new Bulk();
+
+        private final Reconcile reconcile = new Reconcile();
+
+        private final Reindex reindex = new Reindex();
+
+        private final Jobs jobs = new Jobs();
+
+        private final Routing routing = new Routing();
+
+        private final Guard guard = new Guard();
+
+        private final Hydration hydration = new Hydration();
+
+        private final FacetCache facetCache = new FacetCache();
+
+        public Outbox getOutbox() {
+            return outbox;
+        }
+
+        public Bulk getBulk() {
+            return bulk;
+        }
+
+        public Reconcile getReconcile() {
+            return reconcile;
+        }
+
+        public Reindex getReindex() {
+            return reindex;
+        }
+
+        public Jobs getJobs() {
+            return jobs;
+        }
+
+        public Routing getRouting() {
+            return routing;
+        }
+
+        public Guard getGuard() {
+            return guard;
+        }
+
+        public Hydration getHydration() {
+            return hydration;
+        }
+
+        public FacetCache getFacetCache() {
+            return facetCache;
+        }
+
+        public static class Outbox {
+
+            /**
+             * Maximum number of outbox rows claimed at once.
+             */
+            private int batchSize = 500;
+
+            /**
+             * Safety polling interval in milliseconds, the dispatcher is normally woken up on commit.
+             */
+            private long pollInterval = 30000;
+
+            /**
+             * How long claimed rows belong to a worker in milliseconds, after that other nodes may pick them up again.
+             */
+            private long leaseDuration = 60000;
+
+            /**
+             * Milliseconds the dispatcher waits after a commit before draining, so that bursts of changes to the
+             * same entity (e.g. stage moves on the board) are indexed once.
+             */
+            private long coalesceWindow = 250;
+
+            /**
+             * Attempts after which a row rejected by Elasticsearch is dead lettered.
+             */
+            private int maxAttempts = 10;
+
+            /**
+             * Number of referencing documents enqueued at once when a copied field (e.g. a source name) changes.
+             */
+            private int cascadePageSize = 1000;
+
+            /**
+             * Milliseconds between two pages of such a cascade, so a popular source does not flood the cluster.
+             */
+            private long cascadeDelay = 1000;
+
+            /**
+             * Delay before the first retry in milliseconds, doubled on every further attempt.
+             */
+            private long initialBackoff = 1000;
+
+            /**
+             * Upper bound of the retry delay in milliseconds.
+             */
+            private long maxBackoff = 300000;
+
+            public int getBatchSize() {
+                return batchSize;
+            }
+
+            public void setBatchSize(int batchSize) {
+                this.batchSize = batchSize;
+            }
+
+            public long getPollInterval() {
+                return pollInterval;
+            }
+
+            public void setPollInterval(long pollInterval) {
+                this.pollInterval = pollInterval;
+            }
+
+            public long getLeaseDuration() {
+                return leaseDuration;
+            }
+
+            public void setLeaseDuration(long leaseDuration) {
+                this.leaseDuration = leaseDuration;
+            }
+
+            public long getCoalesceWindow() {
+                return coalesceWindow;
+            }
+
+            public void setCoalesceWindow(long coalesceWindow) {
+                this.coalesceWindow = coalesceWindow;
+            }
+
+            public int getMaxAttempts() {
+                return maxAttempts;
+            }
+
+            public void setMaxAttempts(int maxAttempts) {
+                this.maxAttempts = maxAttempts;
+            }
+
+            public int getCascadePageSize() {
+                return cascadePageSize;
+            }
+
+            public void setCascadePageSize(int cascadePageSize) {
+                this.cascadePageSize = cascadePageSize;
+            }
+
+            public long getCascadeDelay() {
+                return cascadeDelay;
+            }
+
+            public void setCascadeDelay(long cascadeDelay) {
+                this.cascadeDelay = cascadeDelay;
+            }
+
+            public long getInitialBackoff() {
+                return initialBackoff;
+            }
+
+            public void setInitialBackoff(long initialBackoff) {
+                this.initialBackoff = initialBackoff;
+            }
+
+            public long getMaxBackoff() {
+                return maxBackoff;
+            }
+
+            public void setMaxBackoff(long maxBackoff) {
+                this.maxBackoff = maxBackoff;
+            }
+        }
+
+        public static class Bulk {
+
+            /**
+             * Number of bulk requests which may be in flight at the same time.
+             */
+            private int concurrentRequests = 4;
+
+            /**
+             * Actions per bulk request to start with, adapted between min and max actions at runtime.
+             */
+            private int initialActions = 500;
+
+            private int minActions = 50;
+
+            private int maxActions = 5000;
+
+            /**
+             * A bulk request is flushed once its estimated size exceeds this many bytes.
+             */
+            private long maxBytes = 5 * 1024 * 1024;
+
+            /**
+             * Buffered actions are flushed after this many milliseconds even if the batch is not full.
+             */
+            private long flushInterval = 1000;
+
+            /**
+             * Bulk latency in milliseconds above which the batch size is reduced.
+             */
+            private long targetLatency = 1000;
+
+            public int getConcurrentRequests() {
+                return concurrentRequests;
+            }
+
+            public void setConcurrentRequests(int concurrentRequests) {
+                this.concurrentRequests = concurrentRequests;
+            }
+
+            public int getInitialActions() {
+                return initialActions;
+            }
+
+            public void setInitialActions(int initialActions) {
+                this.initialActions = initialActions;
+            }
+
+            public int getMinActions() {
+                return minActions;
+            }
+
+            public void setMinActions(int minActions) {
+                this.minActions = minActions;
+            }
+
+            public int getMaxActions() {
+                return maxActions;
+            }
+
+            public void setMaxActions(int maxActions) {
+                this.maxActions = maxActions;
+            }
+
+            public long getMaxBytes() {
+                return maxBytes;
+            }
+
+            public void setMaxBytes(long maxBytes) {
+                this.maxBytes = maxBytes;
+            }
+
+            public long getFlushInterval() {
+                return flushInterval;
+            }
+
+            public void setFlushInterval(long flushInterval) {
+                this.flushInterval = flushInterval;
+            }
+
+            public long getTargetLatency() {
+                return targetLatency;
+            }
+
+            public void setTargetLatency(long targetLatency) {
+                this.targetLatency = targetLatency;
+            }
+        }
+
+        public static class Reconcile {
+
+            /**
+             * When the scheduled reconciliation runs.
+             */
+            private String cron = "0 30 3 * * ?";
+
+            /**
+             * Id ranges holding at most this many documents on both sides are compared id by id instead of
+             * being split further.
+             */
+            private int leafSize = 500;
+
+            /**
+             * Milliseconds to wait between two range comparisons, each costs one database and one search query.
+             */
+            private long probeDelay = 20;
+
+            /**
+             * Maximum number of documents one run enqueues for re-index or delete.
+             */
+            private int maxRepairs = 20000;
+
+            /**
+             * Zone the database stores modification times in, the JVM default when empty.
+             */
+            private String timeZone = "";
+
+            public String getCron() {
+                return cron;
+            }
+
+            public void setCron(String cron) {
+                this.cron = cron;
+            }
+
+            public int getLeafSize() {
+                return leafSize;
+            }
+
+            public void setLeafSize(int leafSize) {
+                this.leafSize = leafSize;
+            }
+
+            public long getProbeDelay() {
+                return probeDelay;
+            }
+
+            public void setProbeDelay(long probeDelay) {
+                this.probeDelay = probeDelay;
+            }
+
+            public int getMaxRepairs() {
+                return maxRepairs;
+            }
+
+            public void setMaxRepairs(int maxRepairs) {
+                this.maxRepairs = maxRepairs;
+            }
+
+            public String getTimeZone() {
+                return timeZone;
+            }
+
+            public void setTimeZone(String timeZone) {
+                this.timeZone = timeZone;
+            }
+        }
+
+        public static class Reindex {
+
+            /**
+             * Number of id ranges a full rebuild is split into, they are streamed in parallel.
+             */
+            private int partitions = 4;
+
+            /**
+             * Rows read from the database and sent to the bulk indexer at once by every partition.
+             */
+            private int pageSize = 1000;
+
+            /**
+             * Milliseconds a running job belongs to its node without a heartbeat, it can be resumed elsewhere after.
+             */
+            private long leaseDuration = 60000;
+
+            /**
+             * Milliseconds between two heartbeats of the jobs running on a node.
+             */
+            private long heartbeatInterval = 10000;
+
+            public int getPartitions() {
+                return partitions;
+            }
+
+            public void setPartitions(int partitions) {
+                this.partitions = partitions;
+            }
+
+            public int getPageSize() {
+                return pageSize;
+            }
+
+            public void setPageSize(int pageSize) {
+                this.pageSize = pageSize;
+            }
+
+            public long getLeaseDuration() {
+                return leaseDuration;
+            }
+
+            public void setLeaseDuration(long leaseDuration) {
+                this.leaseDuration = leaseDuration;
+            }
+
+            public long getHeartbeatInterval() {
+                return heartbeatInterval;
+            }
+
+            public void setHeartbeatInterval(long heartbeatInterval) {
+                this.heartbeatInterval = heartbeatInterval;
+            }
+        }
+
+        public static class Jobs {
+
+            /**
+             * Threads running rebuilds, index moves and reconciliations, apart from the threads indexing the outbox.
+             */
+            private int poolSize = 4;
+
+            /**
+             * Jobs waiting for a thread at most, more are refused.
+             */
+            private int queueCapacity = 16;
+
+            public int getPoolSize() {
+                return poolSize;
+            }
+
+            public void setPoolSize(int poolSize) {
+                this.poolSize = poolSize;
+            }
+
+            public int getQueueCapacity() {
+                return queueCapacity;
+            }
+
+            public void setQueueCapacity(int queueCapacity) {
+                this.queueCapacity = queueCapacity;
+            }
+        }
+
+        public static class Routing {
+
+            /**
+             * Number of routing keys the documents of large accounts are spread over, by account id. Every other
+             * account lives on the one shard its id routes to.
+             */
+            private Map<Long, Integer> partitions = new HashMap<>();
+
+            public Map<Long, Integer> getPartitions() {
+                return partitions;
+            }
+
+            public void setPartitions(Map<Long, Integer> partitions) {
+                this.partitions = partitions;
+            }
+        }
+
+        public static class Guard {
+
+            /**
+             * Maximum number of clauses in a query string.
+             */
+            private int maxClauses = 64;
+
+            /**
+             * Maximum number of facets computed in one search.
+             */
+            private int maxFacets = 20;
+
+            /**
+             * Fields too large to run fuzzy queries on, a fuzzy term without a field searches all default fields and
+             * is always refused.
+             */
+            private List<String> largeFields = new ArrayList<>();
+
+            /**
+             * Budget of the accounts without one of their own.
+             */
+            private final Budget budget = new Budget();
+
+            /**
+             * Budgets of single accounts, by account id.
+             */
+            private Map<Long, Budget> budgets = new HashMap<>();
+
+            public int getMaxClauses() {
+                return maxClauses;
+            }
+
+            public void setMaxClauses(int maxClauses) {
+                this.maxClauses = maxClauses;
+            }
+
+            public int getMaxFacets() {
+                return maxFacets;
+            }
+
+            public void setMaxFacets(int maxFacets) {
+                this.maxFacets = maxFacets;
+            }
+
+            public List<String> getLargeFields() {
+                return largeFields;
+            }
+
+            public void setLargeFields(List<String> largeFields) {
+                this.largeFields = largeFields;
+            }
+
+            public Budget getBudget() {
+                return budget;
+            }
+
+            public Map<Long, Budget> getBudgets() {
+                return budgets;
+            }
+
+            public void setBudgets(Map<Long, Budget> budgets) {
+                this.budgets = budgets;
+            }
+
+            public static class Budget {
+
+                /**
+                 * Time in milliseconds a search may take on a shard before it returns what it has collected.
+                 */
+                private long timeout = 2000;
+
+                /**
+                 * Documents a search in index order or a count collects on a shard at most.
+                 */
+                private int terminateAfter = 100000;
+
+                public long getTimeout() {
+                    return timeout;
+                }
+
+                public void setTimeout(long timeout) {
+                    this.timeout = timeout;
+                }
+
+                public int getTerminateAfter() {
+                    return terminateAfter;
+                }
+
+                public void setTerminateAfter(int terminateAfter) {
+                    this.terminateAfter = terminateAfter;
+                }
+            }
+        }
+
+        public static class Hydration {
+
+            /**
+             * Ids per {@code in} query when search hits are loaded from the database.
+             */
+            private int chunkSize = 500;
+
+            public int getChunkSize() {
+                return chunkSize;
+            }
+
+            public void setChunkSize(int chunkSize) {
+                this.chunkSize = chunkSize;
+            }
+        }
+
+        public static class FacetCache {
+
+            /**
+             * Maximum number of facet results kept on a node, the least recently used ones are evicted first.
+             */
+            private long maxEntries = 1000;
+
+            /**
+             * Seconds a facet result is kept at most. Writes indexed by other nodes are only seen once it expires.
+             */
+            private long timeToLiveSeconds = 300;
+
+            /**
+             * Milliseconds until a write is visible to searches, the refresh interval of the indices. Facets are not
+             * cached for this long after a write.
+             */
+            private long refreshInterval = 1000;
+
+            public long getMaxEntries() {
+                return maxEntries;
+            }
+
+            public void setMaxEntries(long maxEntries) {
+                this.maxEntries = maxEntries;
+            }
+
+            public long getTimeToLiveSeconds() {
+                return timeToLiveSeconds;
+            }
+
+            public void setTimeToLiveSeconds(long timeToLiveSeconds) {
+                this.timeToLiveSeconds = timeToLiveSeconds;
+            }
+
+            public long getRefreshInterval() {
+                return refreshInterval;
+            }
+
+            public void setRefreshInterval(long refreshInterval) {
+                this.refreshInterval = refreshInterval;
+            }
+        }
+    }
 }
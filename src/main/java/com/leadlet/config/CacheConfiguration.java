@@ -1,6 +1,7 @@
 package com.leadlet.config;
 
 import com.leadlet.domain.Contact;
+import com.leadlet.service.search.SearchFacetCache;
 import io.github.jhipster.config.JHipsterProperties;
 import org.ehcache.config.builders.CacheConfigurationBuilder;
 import org.ehcache.config.builders.ResourcePoolsBuilder;
@@ -22,7 +23,9 @@ public class CacheConfiguration {
 
     private final javax.cache.configuration.Configuration<Object, Object> jcacheConfiguration;
 
-    public CacheConfiguration(JHipsterProperties jHipsterProperties) {
+    private final javax.cache.configuration.Configuration<Object, Object> facetCacheConfiguration;
+
+    public CacheConfiguration(JHipsterProperties jHipsterProperties, ApplicationProperties applicationProperties) {
         JHipsterProperties.Cache.Ehcache ehcache =
             jHipsterProperties.getCache().getEhcache();
 
@@ -31,6 +34,13 @@ public class CacheConfiguration {
                 ResourcePoolsBuilder.heap(ehcache.getMaxEntries()))
                 .withExpiry(Expirations.timeToLiveExpiration(Duration.of(ehcache.getTimeToLiveSeconds(), TimeUnit.SECONDS)))
                 .build());
+
+        ApplicationProperties.Search.FacetCache facetCache = applicationProperties.getSearch().getFacetCache();
+        facetCacheConfiguration = Eh107Configuration.fromEhcacheCacheConfiguration(
+            CacheConfigurationBuilder.newCacheConfigurationBuilder(Object.class, Object.class,
+                ResourcePoolsBuilder.heap(facetCache.getMaxEntries()))
+                .withExpiry(Expirations.timeToLiveExpiration(Duration.of(facetCache.getTimeToLiveSeconds(), TimeUnit.SECONDS)))
+                .build());
     }
 
     @Bean
@@ -63,6 +73,7 @@ public class CacheConfiguration {
             cm.createCache(com.leadlet.domain.DealSource.class.getName(), jcacheConfiguration);
             cm.createCache(com.leadlet.domain.LostReason.class.getName(), jcacheConfiguration);
             cm.createCache(com.leadlet.domain.ActivityType.class.getName(), jcacheConfiguration);
+            cm.createCache(SearchFacetCache.CACHE, facetCacheConfiguration);
             // jhipster-needle-ehcache-add-entry
         };
     }
@@ -15,7 +15,7 @@ import java.util.Objects;
 @Entity
 @Table(name = "activity")
 @Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE)
-public class Activity extends AbstractSearchableEntity implements Serializable {
+public class Activity extends AbstractAuditingEntity implements Serializable {
 
     private static final long serialVersionUID = 1L;
 
@@ -0,0 +1,168 @@
+package com.leadlet.domain;
+
+import com.leadlet.domain.enumeration.CurrencyType;
+
+import javax.persistence.*;
+import javax.validation.constraints.NotNull;
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * Number and potential value of the deals in a stage in one currency, kept up to date with every deal write.
+ * <p>
+ * The totals of a stage are spread over several stripes, each deal is counted in the stripe of its id, so writes to
+ * the deals of one stage lock different rows. The totals are the sums over all stripes.
+ */
+@Entity
+@Table(name = "deal_stage_rollup")
+public class DealStageRollup implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @NotNull
+    @Column(name = "app_account_id", nullable = false)
+    private Long appAccountId;
+
+    @NotNull
+    @Column(name = "pipeline_id", nullable = false)
+    private Long pipelineId;
+
+    @NotNull
+    @Column(name = "stage_id", nullable = false)
+    private Long stageId;
+
+    /**
+     * Empty for the deals without a currency.
+     */
+    @Enumerated(EnumType.STRING)
+    @Column(name = "currency")
+    private CurrencyType currency;
+
+    @NotNull
+    @Column(name = "stripe", nullable = false)
+    private Integer stripe;
+
+    @NotNull
+    @Column(name = "deal_count", nullable = false)
+    private Long dealCount = 0L;
+
+    @NotNull
+    @Column(name = "value_sum", nullable = false)
+    private Double valueSum = 0.0;
+
+    public DealStageRollup() {
+    }
+
+    public DealStageRollup(Long appAccountId, Long pipelineId, Long stageId, CurrencyType currency, Integer stripe,
+                           Long dealCount, Double valueSum) {
+        this.appAccountId = appAccountId;
+        this.pipelineId = pipelineId;
+        this.stageId = stageId;
+        this.currency = currency;
+        this.stripe = stripe;
+        this.dealCount = dealCount;
+        this.valueSum = valueSum;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getAppAccountId() {
+        return appAccountId;
+    }
+
+    public void setAppAccountId(Long appAccountId) {
+        this.appAccountId = appAccountId;
+    }
+
+    public Long getPipelineId() {
+        return pipelineId;
+    }
+
+    public void setPipelineId(Long pipelineId) {
+        this.pipelineId = pipelineId;
+    }
+
+    public Long getStageId() {
+        return stageId;
+    }
+
+    public void setStageId(Long stageId) {
+        this.stageId = stageId;
+    }
+
+    public CurrencyType getCurrency() {
+        return currency;
+    }
+
+    public void setCurrency(CurrencyType currency) {
+        this.currency = currency;
+    }
+
+    public Integer getStripe() {
+        return stripe;
+    }
+
+    public void setStripe(Integer stripe) {
+        this.stripe = stripe;
+    }
+
+    public Long getDealCount() {
+        return dealCount;
+    }
+
+    public void setDealCount(Long dealCount) {
+        this.dealCount = dealCount;
+    }
+
+    public Double getValueSum() {
+        return valueSum;
+    }
+
+    public void setValueSum(Double valueSum) {
+        this.valueSum = valueSum;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        DealStageRollup rollup = (DealStageRollup) o;
+        if (rollup.getId() == null || getId() == null) {
+            return false;
+        }
+        return Objects.equals(getId(), rollup.getId());
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(getId());
+    }
+
+    @Override
+    public String toString() {
+        return "DealStageRollup{" +
+            "id=" + getId() +
+            ", appAccountId=" + getAppAccountId() +
+            ", pipelineId=" + getPipelineId() +
+            ", stageId=" + getStageId() +
+            ", currency='" + getCurrency() + "'" +
+            ", stripe=" + getStripe() +
+            ", dealCount=" + getDealCount() +
+            ", valueSum=" + getValueSum() +
+            "}";
+    }
+}
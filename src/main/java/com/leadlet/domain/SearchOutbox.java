@@ -0,0 +1,248 @@
+package com.leadlet.domain;
+
+import com.leadlet.domain.enumeration.SearchEntityType;
+import com.leadlet.domain.enumeration.SearchOperation;
+import com.leadlet.domain.enumeration.SyncStatus;
+
+import javax.persistence.*;
+import javax.validation.constraints.NotNull;
+import java.io.Serializable;
+import java.time.Instant;
+import java.util.Objects;
+
+/**
+ * A pending change of a searchable entity, written in the same transaction as the change itself
+ * and drained into Elasticsearch by the outbox dispatcher.
+ */
+@Entity
+@Table(name = "search_outbox")
+public class SearchOutbox implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @NotNull
+    @Enumerated(EnumType.STRING)
+    @Column(name = "entity_type", nullable = false, length = 32)
+    private SearchEntityType entityType;
+
+    @NotNull
+    @Column(name = "entity_id", nullable = false)
+    private Long entityId;
+
+    @Column(name = "app_account_id")
+    private Long appAccountId;
+
+    @NotNull
+    @Enumerated(EnumType.STRING)
+    @Column(name = "operation", nullable = false, length = 16)
+    private SearchOperation operation = SearchOperation.INDEX;
+
+    /**
+     * The changed fields as a JSON object for {@link SearchOperation#UPDATE}, the
+     * {@link com.leadlet.domain.enumeration.SearchReference} for {@link SearchOperation#CASCADE}.
+     */
+    @Column(name = "payload", length = 2000)
+    private String payload;
+
+    /**
+     * Id of the last referencing entity enqueued by a {@link SearchOperation#CASCADE}.
+     */
+    @Column(name = "cursor_id")
+    private Long cursorId;
+
+    @NotNull
+    @Column(name = "created_date", nullable = false)
+    private Instant createdDate = Instant.now();
+
+    @NotNull
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 32)
+    private SyncStatus status = SyncStatus.NOT_SYNCED;
+
+    @Column(name = "claimed_by", length = 64)
+    private String claimedBy;
+
+    @Column(name = "lease_until")
+    private Instant leaseUntil;
+
+    @NotNull
+    @Column(name = "attempts", nullable = false)
+    private Integer attempts = 0;
+
+    @Column(name = "next_attempt_date")
+    private Instant nextAttemptDate;
+
+    @Column(name = "last_error", length = 2000)
+    private String lastError;
+
+    public SearchOutbox() {
+    }
+
+    public SearchOutbox(SearchEntityType entityType, Long entityId, Long appAccountId) {
+        this.entityType = entityType;
+        this.entityId = entityId;
+        this.appAccountId = appAccountId;
+    }
+
+    public SearchOutbox(SearchEntityType entityType, Long entityId, Long appAccountId, SearchOperation operation) {
+        this(entityType, entityId, appAccountId);
+        this.operation = operation;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public SearchEntityType getEntityType() {
+        return entityType;
+    }
+
+    public SearchOutbox setEntityType(SearchEntityType entityType) {
+        this.entityType = entityType;
+        return this;
+    }
+
+    public Long getEntityId() {
+        return entityId;
+    }
+
+    public SearchOutbox setEntityId(Long entityId) {
+        this.entityId = entityId;
+        return this;
+    }
+
+    public Long getAppAccountId() {
+        return appAccountId;
+    }
+
+    public SearchOutbox setAppAccountId(Long appAccountId) {
+        this.appAccountId = appAccountId;
+        return this;
+    }
+
+    public SearchOperation getOperation() {
+        return operation;
+    }
+
+    public SearchOutbox setOperation(SearchOperation operation) {
+        this.operation = operation;
+        return this;
+    }
+
+    public String getPayload() {
+        return payload;
+    }
+
+    public SearchOutbox setPayload(String payload) {
+        this.payload = payload;
+        return this;
+    }
+
+    public Long getCursorId() {
+        return cursorId;
+    }
+
+    public SearchOutbox setCursorId(Long cursorId) {
+        this.cursorId = cursorId;
+        return this;
+    }
+
+    public Instant getCreatedDate() {
+        return createdDate;
+    }
+
+    public SearchOutbox setCreatedDate(Instant createdDate) {
+        this.createdDate = createdDate;
+        return this;
+    }
+
+    public SyncStatus getStatus() {
+        return status;
+    }
+
+    public SearchOutbox setStatus(SyncStatus status) {
+        this.status = status;
+        return this;
+    }
+
+    public String getClaimedBy() {
+        return claimedBy;
+    }
+
+    public SearchOutbox setClaimedBy(String claimedBy) {
+        this.claimedBy = claimedBy;
+        return this;
+    }
+
+    public Instant getLeaseUntil() {
+        return leaseUntil;
+    }
+
+    public SearchOutbox setLeaseUntil(Instant leaseUntil) {
+        this.leaseUntil = leaseUntil;
+        return this;
+    }
+
+    public Integer getAttempts() {
+        return attempts;
+    }
+
+    public SearchOutbox setAttempts(Integer attempts) {
+        this.attempts = attempts;
+        return this;
+    }
+
+    public Instant getNextAttemptDate() {
+        return nextAttemptDate;
+    }
+
+    public SearchOutbox setNextAttemptDate(Instant nextAttemptDate) {
+        this.nextAttemptDate = nextAttemptDate;
+        return this;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public SearchOutbox setLastError(String lastError) {
+        this.lastError = lastError;
+        return this;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof SearchOutbox)) return false;
+        SearchOutbox that = (SearchOutbox) o;
+        return Objects.equals(id, that.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id);
+    }
+
+    @Override
+    public String toString() {
+        return "SearchOutbox{" +
+            "id=" + id +
+            ", entityType=" + entityType +
+            ", entityId=" + entityId +
+            ", appAccountId=" + appAccountId +
+            ", operation=" + operation +
+            ", status=" + status +
+            ", claimedBy='" + claimedBy + '\'' +
+            ", attempts=" + attempts +
+            ", nextAttemptDate=" + nextAttemptDate +
+            '}';
+    }
+}
@@ -0,0 +1,269 @@
+package com.leadlet.domain;
+
+import com.leadlet.domain.enumeration.SearchEntityType;
+import com.leadlet.domain.enumeration.SearchReindexStatus;
+
+import javax.persistence.*;
+import javax.validation.constraints.NotNull;
+import java.io.Serializable;
+import java.time.Instant;
+import java.util.Objects;
+
+/**
+ * A full rebuild of one search index from the database, for all accounts or a single one. The work is split into
+ * {@link SearchReindexPartition}s by id range.
+ * <p>
+ * Only one job of an index runs at a time: a running job holds its entity type in {@code running_entity_type},
+ * whose unique constraint refuses a second one.
+ */
+@Entity
+@Table(name = "search_reindex_job")
+public class SearchReindexJob implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @NotNull
+    @Enumerated(EnumType.STRING)
+    @Column(name = "entity_type", nullable = false, length = 32)
+    private SearchEntityType entityType;
+
+    /**
+     * The account to rebuild, all accounts when empty.
+     */
+    @Column(name = "app_account_id")
+    private Long appAccountId;
+
+    /**
+     * The physical index the job fills before the alias is moved to it, empty to write through the alias.
+     */
+    @Column(name = "target")
+    private String target;
+
+    /**
+     * The entity type while the job runs, empty otherwise.
+     */
+    @Enumerated(EnumType.STRING)
+    @Column(name = "running_entity_type", length = 32, unique = true)
+    private SearchEntityType runningEntityType;
+
+    @NotNull
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 32)
+    private SearchReindexStatus status = SearchReindexStatus.PENDING;
+
+    @NotNull
+    @Column(name = "total", nullable = false)
+    private Long total = 0L;
+
+    /**
+     * Documents already processed when the job was last (re)started, to compute its throughput.
+     */
+    @NotNull
+    @Column(name = "start_processed", nullable = false)
+    private Long startProcessed = 0L;
+
+    @NotNull
+    @Column(name = "created_date", nullable = false)
+    private Instant createdDate = Instant.now();
+
+    @Column(name = "started_date")
+    private Instant startedDate;
+
+    @Column(name = "finished_date")
+    private Instant finishedDate;
+
+    /**
+     * Renewed by the node running the job, another node may take a running job over once this is older than the
+     * lease.
+     */
+    @Column(name = "heartbeat_date")
+    private Instant heartbeatDate;
+
+    /**
+     * Refresh interval of the index before the job, restored when it ends. Empty for the default.
+     */
+    @Column(name = "refresh_interval", length = 32)
+    private String refreshInterval;
+
+    /**
+     * Replica count of the index before the job, restored when it ends. Empty for the default.
+     */
+    @Column(name = "number_of_replicas", length = 32)
+    private String numberOfReplicas;
+
+    @Column(name = "last_error", length = 2000)
+    private String lastError;
+
+    public SearchReindexJob() {
+    }
+
+    public SearchReindexJob(SearchEntityType entityType, Long appAccountId) {
+        this.entityType = entityType;
+        this.appAccountId = appAccountId;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public SearchEntityType getEntityType() {
+        return entityType;
+    }
+
+    public SearchReindexJob setEntityType(SearchEntityType entityType) {
+        this.entityType = entityType;
+        return this;
+    }
+
+    public Long getAppAccountId() {
+        return appAccountId;
+    }
+
+    public SearchReindexJob setAppAccountId(Long appAccountId) {
+        this.appAccountId = appAccountId;
+        return this;
+    }
+
+    public String getTarget() {
+        return target;
+    }
+
+    public SearchReindexJob setTarget(String target) {
+        this.target = target;
+        return this;
+    }
+
+    public SearchEntityType getRunningEntityType() {
+        return runningEntityType;
+    }
+
+    public SearchReindexJob setRunningEntityType(SearchEntityType runningEntityType) {
+        this.runningEntityType = runningEntityType;
+        return this;
+    }
+
+    public SearchReindexStatus getStatus() {
+        return status;
+    }
+
+    public SearchReindexJob setStatus(SearchReindexStatus status) {
+        this.status = status;
+        return this;
+    }
+
+    public Long getTotal() {
+        return total;
+    }
+
+    public SearchReindexJob setTotal(Long total) {
+        this.total = total;
+        return this;
+    }
+
+    public Long getStartProcessed() {
+        return startProcessed;
+    }
+
+    public SearchReindexJob setStartProcessed(Long startProcessed) {
+        this.startProcessed = startProcessed;
+        return this;
+    }
+
+    public Instant getCreatedDate() {
+        return createdDate;
+    }
+
+    public SearchReindexJob setCreatedDate(Instant createdDate) {
+        this.createdDate = createdDate;
+        return this;
+    }
+
+    public Instant getStartedDate() {
+        return startedDate;
+    }
+
+    public SearchReindexJob setStartedDate(Instant startedDate) {
+        this.startedDate = startedDate;
+        return this;
+    }
+
+    public Instant getFinishedDate() {
+        return finishedDate;
+    }
+
+    public SearchReindexJob setFinishedDate(Instant finishedDate) {
+        this.finishedDate = finishedDate;
+        return this;
+    }
+
+    public Instant getHeartbeatDate() {
+        return heartbeatDate;
+    }
+
+    public SearchReindexJob setHeartbeatDate(Instant heartbeatDate) {
+        this.heartbeatDate = heartbeatDate;
+        return this;
+    }
+
+    public String getRefreshInterval() {
+        return refreshInterval;
+    }
+
+    public SearchReindexJob setRefreshInterval(String refreshInterval) {
+        this.refreshInterval = refreshInterval;
+        return this;
+    }
+
+    public String getNumberOfReplicas() {
+        return numberOfReplicas;
+    }
+
+    public SearchReindexJob setNumberOfReplicas(String numberOfReplicas) {
+        this.numberOfReplicas = numberOfReplicas;
+        return this;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public SearchReindexJob setLastError(String lastError) {
+        this.lastError = lastError;
+        return this;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof SearchReindexJob)) return false;
+        SearchReindexJob that = (SearchReindexJob) o;
+        return Objects.equals(id, that.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id);
+    }
+
+    @Override
+    public String toString() {
+        return "SearchReindexJob{" +
+            "id=" + id +
+            ", entityType=" + entityType +
+            ", appAccountId=" + appAccountId +
+            ", target='" + target + "'" +
+            ", status=" + status +
+            ", total=" + total +
+            ", startedDate=" + startedDate +
+            ", finishedDate=" + finishedDate +
+            '}';
+    }
+}
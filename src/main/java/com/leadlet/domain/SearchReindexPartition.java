@@ -0,0 +1,157 @@
+package com.leadlet.domain;
+
+import com.leadlet.domain.enumeration.SearchReindexStatus;
+
+import javax.persistence.*;
+import javax.validation.constraints.NotNull;
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * One id range of a {@link SearchReindexJob}. The cursor is the last id whose page was fully acknowledged by
+ * Elasticsearch, a resumed job continues after it.
+ */
+@Entity
+@Table(name = "search_reindex_partition")
+public class SearchReindexPartition implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @NotNull
+    @Column(name = "job_id", nullable = false)
+    private Long jobId;
+
+    @NotNull
+    @Column(name = "from_id", nullable = false)
+    private Long fromId;
+
+    @NotNull
+    @Column(name = "to_id", nullable = false)
+    private Long toId;
+
+    @Column(name = "cursor_id")
+    private Long cursorId;
+
+    @NotNull
+    @Column(name = "processed", nullable = false)
+    private Long processed = 0L;
+
+    @NotNull
+    @Column(name = "failed", nullable = false)
+    private Long failed = 0L;
+
+    @NotNull
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 32)
+    private SearchReindexStatus status = SearchReindexStatus.PENDING;
+
+    public SearchReindexPartition() {
+    }
+
+    public SearchReindexPartition(Long jobId, Long fromId, Long toId) {
+        this.jobId = jobId;
+        this.fromId = fromId;
+        this.toId = toId;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getJobId() {
+        return jobId;
+    }
+
+    public SearchReindexPartition setJobId(Long jobId) {
+        this.jobId = jobId;
+        return this;
+    }
+
+    public Long getFromId() {
+        return fromId;
+    }
+
+    public SearchReindexPartition setFromId(Long fromId) {
+        this.fromId = fromId;
+        return this;
+    }
+
+    public Long getToId() {
+        return toId;
+    }
+
+    public SearchReindexPartition setToId(Long toId) {
+        this.toId = toId;
+        return this;
+    }
+
+    public Long getCursorId() {
+        return cursorId;
+    }
+
+    public SearchReindexPartition setCursorId(Long cursorId) {
+        this.cursorId = cursorId;
+        return this;
+    }
+
+    public Long getProcessed() {
+        return processed;
+    }
+
+    public SearchReindexPartition setProcessed(Long processed) {
+        this.processed = processed;
+        return this;
+    }
+
+    public Long getFailed() {
+        return failed;
+    }
+
+    public SearchReindexPartition setFailed(Long failed) {
+        this.failed = failed;
+        return this;
+    }
+
+    public SearchReindexStatus getStatus() {
+        return status;
+    }
+
+    public SearchReindexPartition setStatus(SearchReindexStatus status) {
+        this.status = status;
+        return this;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof SearchReindexPartition)) return false;
+        SearchReindexPartition that = (SearchReindexPartition) o;
+        return Objects.equals(id, that.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id);
+    }
+
+    @Override
+    public String toString() {
+        return "SearchReindexPartition{" +
+            "id=" + id +
+            ", jobId=" + jobId +
+            ", fromId=" + fromId +
+            ", toId=" + toId +
+            ", cursorId=" + cursorId +
+            ", processed=" + processed +
+            ", status=" + status +
+            '}';
+    }
+}
@@ -1,8 +1,8 @@
 package com.leadlet.domain.enumeration;
 
 /**
- * The ActivityType enumeration.
+ * The FacetType enumeration.
  */
 public enum FacetType {
-    TERMS
+    TERMS, RANGE, HISTOGRAM, DATE_HISTOGRAM, PERCENTILES, STATS
 }
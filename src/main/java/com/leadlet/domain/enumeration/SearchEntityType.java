@@ -0,0 +1,29 @@
+package com.leadlet.domain.enumeration;
+
+import com.leadlet.config.SearchConstants;
+
+/**
+ * The SearchEntityType enumeration.
+ */
+public enum SearchEntityType {
+    DEAL(SearchConstants.DEAL_INDEX, SearchConstants.DEAL_TYPE),
+    ACTIVITY(SearchConstants.ACTIVITY_INDEX, SearchConstants.ACTIVITY_TYPE),
+    TIMELINE(SearchConstants.TIMELINE_INDEX, SearchConstants.TIMELINE_TYPE),
+    USER(SearchConstants.USER_INDEX, SearchConstants.USER_TYPE);
+
+    private final String index;
+    private final String type;
+
+    SearchEntityType(String index, String type) {
+        this.index = index;
+        this.type = type;
+    }
+
+    public String getIndex() {
+        return index;
+    }
+
+    public String getType() {
+        return type;
+    }
+}
@@ -6,5 +6,6 @@ package com.leadlet.domain.enumeration;
 public enum SearchFilterType {
     EQUALS,
     CONTAINS,
-    IN
+    IN,
+    RANGE
 }
@@ -0,0 +1,11 @@
+package com.leadlet.domain.enumeration;
+
+/**
+ * The SearchOperation enumeration.
+ */
+public enum SearchOperation {
+    INDEX,
+    UPDATE,
+    DELETE,
+    CASCADE
+}
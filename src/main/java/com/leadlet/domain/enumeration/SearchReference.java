@@ -0,0 +1,35 @@
+package com.leadlet.domain.enumeration;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The SearchReference enumeration: entities whose names are copied into the documents of other indices, either as
+ * a searchable field or inside the list view of the document.
+ */
+public enum SearchReference {
+    CONTACT(SearchEntityType.DEAL, SearchEntityType.ACTIVITY),
+    AGENT(SearchEntityType.DEAL, SearchEntityType.ACTIVITY),
+    SOURCE(SearchEntityType.DEAL),
+    CHANNEL(SearchEntityType.DEAL),
+    LOST_REASON(SearchEntityType.DEAL),
+    PRODUCT(SearchEntityType.DEAL),
+    STAGE(SearchEntityType.DEAL),
+    PIPELINE(SearchEntityType.DEAL),
+    DEAL(SearchEntityType.ACTIVITY),
+    ACTIVITY_TYPE(SearchEntityType.ACTIVITY);
+
+    private final List<SearchEntityType> entityTypes;
+
+    SearchReference(SearchEntityType... entityTypes) {
+        this.entityTypes = Collections.unmodifiableList(Arrays.asList(entityTypes));
+    }
+
+    /**
+     * @return the types of the documents which have to be rebuilt when the referenced entity changes
+     */
+    public List<SearchEntityType> getEntityTypes() {
+        return entityTypes;
+    }
+}
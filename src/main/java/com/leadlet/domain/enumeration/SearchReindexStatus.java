@@ -0,0 +1,12 @@
+package com.leadlet.domain.enumeration;
+
+/**
+ * The SearchReindexStatus enumeration.
+ */
+public enum SearchReindexStatus {
+    PENDING,
+    RUNNING,
+    COMPLETED,
+    FAILED,
+    CANCELLED
+}
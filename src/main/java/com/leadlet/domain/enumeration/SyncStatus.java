@@ -1,7 +1,7 @@
 package com.leadlet.domain.enumeration;
 
 /**
- * The ActivityType enumeration.
+ * The indexing status of a search outbox row.
  */
 public enum SyncStatus {
     NOT_SYNCED,
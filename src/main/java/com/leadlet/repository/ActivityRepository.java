@@ -1,15 +1,13 @@
 package com.leadlet.repository;
 
 import com.leadlet.domain.Activity;
-import com.leadlet.domain.enumeration.SyncStatus;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
-import java.time.Instant;
 import java.util.List;
 
 
@@ -31,12 +29,50 @@ public interface ActivityRepository extends JpaRepository<Activity, Long> {
 
     Page<Activity> findByDeal_Id(Long id, Pageable page);
 
-    Page<Activity> findAllBySyncStatusAndCreatedDateLessThan(SyncStatus syncStatus, Instant maxDate, Pageable page);
+    /**
+     * Loads the entities behind search hits, or of a batch of index documents, with the associations their list DTOs
+     * show. Distinct since the joined collections repeat every entity once per element.
+     */
+    @EntityGraph(attributePaths = {"type", "deal", "contact", "contact.phones", "agent", "agent.authorities", "appAccount"})
+    List<Activity> findDistinctByIdIn(List<Long> ids);
 
-    @Modifying
-    @Query("update #{#entityName} activity set activity.syncStatus = ?1 where activity.id in ?2")
-    void updateActivitiesStatus(SyncStatus syncStatus, List<Long> ids);
+    /**
+     * Count, {@link com.leadlet.service.search.SearchRangeDigest checksum} and id bounds of the account's rows in
+     * an id range, of all accounts when the account is null.
+     */
+    @Query("select count(activity.id), sum(mod((activity.id * 31 + coalesce(year(activity.lastModifiedDate), 0)) * 1000003 + " +
+        "coalesce((((month(activity.lastModifiedDate) * 31 + day(activity.lastModifiedDate)) * 24 + hour(activity.lastModifiedDate)) * 60 + " +
+        "minute(activity.lastModifiedDate)) * 60 + second(activity.lastModifiedDate), 0), 1000000007)), min(activity.id), max(activity.id) " +
+        "from #{#entityName} activity where (?1 is null or activity.appAccount.id = ?1) and activity.id between ?2 and ?3")
+    List<Object[]> findSearchDigest(Long appAccountId, Long fromId, Long toId);
 
-    List<Activity> findAllByIdIn(List<Long> ids);
+    @Query("select activity.id, activity.lastModifiedDate from #{#entityName} activity " +
+        "where activity.appAccount.id = ?1 and activity.id between ?2 and ?3")
+    List<Object[]> findSearchVersions(Long appAccountId, Long fromId, Long toId);
+
+    @Query("select activity.id from #{#entityName} activity where (?1 is null or activity.appAccount.id = ?1) " +
+        "and activity.id > ?2 and activity.id <= ?3 order by activity.id asc")
+    List<Long> findIdsForReindex(Long appAccountId, Long afterId, Long toId, Pageable pageable);
+
+    @Query("select activity.id from #{#entityName} activity where activity.deal.id in ?1")
+    List<Long> findIdsByDealIdIn(List<Long> dealIds);
+
+    @Query("select activity.id from #{#entityName} activity where activity.contact.id in ?1")
+    List<Long> findIdsByContactIdIn(List<Long> contactIds);
+
+    @Query("select activity.id from #{#entityName} activity where activity.agent.id = ?1")
+    List<Long> findIdsByAgentId(Long agentId);
+
+    @Query("select activity.id from #{#entityName} activity where activity.type.id = ?1 and activity.id > ?2 order by activity.id asc")
+    List<Long> findIdsByTypeIdAfter(Long typeId, Long afterId, Pageable page);
+
+    @Query("select activity.id from #{#entityName} activity where activity.deal.id = ?1 and activity.id > ?2 order by activity.id asc")
+    List<Long> findIdsByDealIdAfter(Long dealId, Long afterId, Pageable page);
+
+    @Query("select activity.id from #{#entityName} activity where activity.contact.id = ?1 and activity.id > ?2 order by activity.id asc")
+    List<Long> findIdsByContactIdAfter(Long contactId, Long afterId, Pageable page);
+
+    @Query("select activity.id from #{#entityName} activity where activity.agent.id = ?1 and activity.id > ?2 order by activity.id asc")
+    List<Long> findIdsByAgentIdAfter(Long agentId, Long afterId, Pageable page);
 
 }
@@ -5,6 +5,7 @@ import org.springframework.stereotype.Repository;
 
 import org.springframework.data.jpa.repository.*;
 
+import java.util.List;
 import java.util.Optional;
 
 
@@ -16,4 +17,7 @@ import java.util.Optional;
 public interface AppAccountRepository extends JpaRepository<AppAccount,Long> {
     Optional<AppAccount> findOneByName(String name);
     AppAccount findOneById(Long id);
+
+    @Query("select appAccount.id from AppAccount appAccount order by appAccount.id")
+    List<Long> findAllIds();
 }
@@ -5,6 +5,7 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -20,4 +21,7 @@ public interface ContactRepository extends JpaRepository<Contact,Long> ,  JpaSpe
     Contact findOneByIdAndAppAccount_Id(Long id, Long appAccountId);
     void deleteByIdAndAppAccount_Id(Long id, Long appAccountId);
     void deleteByIdInAndAppAccount_Id(List<Long> idList, Long appAccountId);
+
+    @Query("select contact.id from #{#entityName} contact where contact.id in ?1 and contact.appAccount.id = ?2")
+    List<Long> findIdsByIdInAndAppAccount_Id(List<Long> idList, Long appAccountId);
 }
@@ -1,16 +1,14 @@
 package com.leadlet.repository;
 
 import com.leadlet.domain.Deal;
-import com.leadlet.domain.enumeration.SyncStatus;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
-import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
-import java.time.Instant;
 import java.util.List;
 
 
@@ -32,15 +30,75 @@ public interface DealRepository extends JpaRepository<Deal, Long>, JpaSpecificat
 
     Page<Deal> findAllByAppAccount_IdAndDealSource_Id(Long appAccountId, Long sourceId, Pageable page);
 
-    @Query("select sum(deal.dealValue.potentialValue) from #{#entityName} deal where deal.appAccount.id = ?1 and deal.stage.id = ?2")
-    Double calculateDealTotalByStageId(Long id, Long stageId);
+    /**
+     * @return {@code pipeline id, stage id, currency, number of deals, sum of the potential values} of every stage
+     * of the account with deals, by currency, the values of deals without one counted as zero
+     */
+    @Query("select deal.pipeline.id, deal.stage.id, deal.dealValue.currency, count(deal.id), " +
+        "sum(coalesce(deal.dealValue.potentialValue, 0.0)) from #{#entityName} deal where deal.appAccount.id = ?1 " +
+        "group by deal.pipeline.id, deal.stage.id, deal.dealValue.currency")
+    List<Object[]> findRollupTotalsByAppAccountId(Long appAccountId);
 
-    List<Deal> findAllByIdIn(List<Long> ids);
+    /**
+     * Loads the entities behind search hits, or of a batch of index documents, with the associations their list DTOs
+     * show. Distinct since the joined collections repeat every entity once per element.
+     */
+    @EntityGraph(attributePaths = {"stage", "pipeline", "contact", "contact.phones", "agent", "agent.authorities", "dealSource",
+        "dealChannel", "lostReason", "products", "appAccount"})
+    List<Deal> findDistinctByIdIn(List<Long> ids);
 
-    Page<Deal> findAllBySyncStatusAndCreatedDateLessThan(SyncStatus syncStatus, Instant maxDate, Pageable page);
+    /**
+     * Count, {@link com.leadlet.service.search.SearchRangeDigest checksum} and id bounds of the account's rows in
+     * an id range, of all accounts when the account is null.
+     */
+    @Query("select count(deal.id), sum(mod((deal.id * 31 + coalesce(year(deal.lastModifiedDate), 0)) * 1000003 + " +
+        "coalesce((((month(deal.lastModifiedDate) * 31 + day(deal.lastModifiedDate)) * 24 + hour(deal.lastModifiedDate)) * 60 + " +
+        "minute(deal.lastModifiedDate)) * 60 + second(deal.lastModifiedDate), 0), 1000000007)), min(deal.id), max(deal.id) " +
+        "from #{#entityName} deal where (?1 is null or deal.appAccount.id = ?1) and deal.id between ?2 and ?3")
+    List<Object[]> findSearchDigest(Long appAccountId, Long fromId, Long toId);
 
-    @Modifying
-    @Query("update #{#entityName} deal set deal.syncStatus = ?1 where deal.id in ?2")
-    void updateDealsStatus(SyncStatus syncStatus, List<Long> ids);
+    @Query("select deal.id, deal.lastModifiedDate from #{#entityName} deal " +
+        "where deal.appAccount.id = ?1 and deal.id between ?2 and ?3")
+    List<Object[]> findSearchVersions(Long appAccountId, Long fromId, Long toId);
+
+    @Query("select deal.id from #{#entityName} deal where (?1 is null or deal.appAccount.id = ?1) " +
+        "and deal.id > ?2 and deal.id <= ?3 order by deal.id asc")
+    List<Long> findIdsForReindex(Long appAccountId, Long afterId, Long toId, Pageable pageable);
+
+    @Query("select deal.id from #{#entityName} deal where deal.contact.id in ?1")
+    List<Long> findIdsByContactIdIn(List<Long> contactIds);
+
+    @Query("select deal.id from #{#entityName} deal where deal.stage.id = ?1")
+    List<Long> findIdsByStageId(Long stageId);
+
+    @Query("select deal.id from #{#entityName} deal where deal.pipeline.id = ?1")
+    List<Long> findIdsByPipelineId(Long pipelineId);
+
+    @Query("select deal.id from #{#entityName} deal where deal.agent.id = ?1")
+    List<Long> findIdsByAgentId(Long agentId);
+
+    @Query("select deal.id from #{#entityName} deal where deal.contact.id = ?1 and deal.id > ?2 order by deal.id asc")
+    List<Long> findIdsByContactIdAfter(Long contactId, Long afterId, Pageable page);
+
+    @Query("select deal.id from #{#entityName} deal where deal.agent.id = ?1 and deal.id > ?2 order by deal.id asc")
+    List<Long> findIdsByAgentIdAfter(Long agentId, Long afterId, Pageable page);
+
+    @Query("select deal.id from #{#entityName} deal where deal.dealSource.id = ?1 and deal.id > ?2 order by deal.id asc")
+    List<Long> findIdsBySourceIdAfter(Long sourceId, Long afterId, Pageable page);
+
+    @Query("select deal.id from #{#entityName} deal where deal.dealChannel.id = ?1 and deal.id > ?2 order by deal.id asc")
+    List<Long> findIdsByChannelIdAfter(Long channelId, Long afterId, Pageable page);
+
+    @Query("select deal.id from #{#entityName} deal where deal.lostReason.id = ?1 and deal.id > ?2 order by deal.id asc")
+    List<Long> findIdsByLostReasonIdAfter(Long lostReasonId, Long afterId, Pageable page);
+
+    @Query("select deal.id from #{#entityName} deal join deal.products product where product.id = ?1 and deal.id > ?2 order by deal.id asc")
+    List<Long> findIdsByProductIdAfter(Long productId, Long afterId, Pageable page);
+
+    @Query("select deal.id from #{#entityName} deal where deal.stage.id = ?1 and deal.id > ?2 order by deal.id asc")
+    List<Long> findIdsByStageIdAfter(Long stageId, Long afterId, Pageable page);
+
+    @Query("select deal.id from #{#entityName} deal where deal.pipeline.id = ?1 and deal.id > ?2 order by deal.id asc")
+    List<Long> findIdsByPipelineIdAfter(Long pipelineId, Long afterId, Pageable page);
 
 }
@@ -0,0 +1,57 @@
+package com.leadlet.repository;
+
+import com.leadlet.domain.DealStageRollup;
+import com.leadlet.domain.enumeration.CurrencyType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+
+/**
+ * Spring Data JPA repository for the DealStageRollup entity.
+ */
+@SuppressWarnings("unused")
+@Repository
+public interface DealStageRollupRepository extends JpaRepository<DealStageRollup, Long> {
+
+    @Query("select rollup.id from #{#entityName} rollup where rollup.appAccountId = ?1 and rollup.pipelineId = ?2 " +
+        "and rollup.stageId = ?3 and (rollup.currency = ?4 or (?4 is null and rollup.currency is null)) " +
+        "and rollup.stripe = ?5 order by rollup.id asc")
+    List<Long> findIds(Long appAccountId, Long pipelineId, Long stageId, CurrencyType currency, Integer stripe,
+                       Pageable pageable);
+
+    @Modifying
+    @Query("update #{#entityName} rollup set rollup.dealCount = rollup.dealCount + ?2, " +
+        "rollup.valueSum = rollup.valueSum + ?3 where rollup.id = ?1")
+    int add(Long id, Long dealCount, Double valueSum);
+
+    /**
+     * @return {@code stage id, currency, number of deals, sum of the potential values} of every stage of the
+     * pipeline with deals, by currency, as {@link DealRepository#findRollupTotalsByAppAccountId} counts them
+     */
+    @Query("select rollup.stageId, rollup.currency, sum(rollup.dealCount), sum(rollup.valueSum) " +
+        "from #{#entityName} rollup where rollup.appAccountId = ?1 and rollup.pipelineId = ?2 " +
+        "group by rollup.stageId, rollup.currency having sum(rollup.dealCount) <> 0")
+    List<Object[]> findStageTotalsByPipelineId(Long appAccountId, Long pipelineId);
+
+    /**
+     * @return {@code pipeline id, stage id, currency, number of deals, sum of the potential values} of every
+     * rollup of the account, over all stripes
+     */
+    @Query("select rollup.pipelineId, rollup.stageId, rollup.currency, sum(rollup.dealCount), sum(rollup.valueSum) " +
+        "from #{#entityName} rollup where rollup.appAccountId = ?1 " +
+        "group by rollup.pipelineId, rollup.stageId, rollup.currency")
+    List<Object[]> findTotalsByAppAccountId(Long appAccountId);
+
+    @Modifying
+    @Query("delete from #{#entityName} rollup where rollup.appAccountId = ?1 and rollup.stageId = ?2")
+    int deleteByAppAccountIdAndStageId(Long appAccountId, Long stageId);
+
+    @Modifying
+    @Query("delete from #{#entityName} rollup where rollup.appAccountId = ?1 and rollup.pipelineId = ?2")
+    int deleteByAppAccountIdAndPipelineId(Long appAccountId, Long pipelineId);
+}
@@ -0,0 +1,63 @@
+package com.leadlet.repository;
+
+import com.leadlet.domain.SearchOutbox;
+import com.leadlet.domain.enumeration.SyncStatus;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+
+
+/**
+ * Spring Data JPA repository for the SearchOutbox entity.
+ */
+@SuppressWarnings("unused")
+@Repository
+public interface SearchOutboxRepository extends JpaRepository<SearchOutbox, Long> {
+
+    /**
+     * Keyset scan for rows which are pending and due, or claimed by a worker whose lease has expired.
+     */
+    @Query("select outbox.id from #{#entityName} outbox where outbox.id > ?1 " +
+        "and ((outbox.status = ?2 and (outbox.nextAttemptDate is null or outbox.nextAttemptDate <= ?4)) " +
+        "or (outbox.status = ?3 and outbox.leaseUntil < ?4)) order by outbox.id asc")
+    List<Long> findClaimableIds(Long afterId, SyncStatus pending, SyncStatus claimed, Instant now, Pageable page);
+
+    /**
+     * Claims the given rows unless another worker got them first, the claimable condition is re-checked by the update.
+     */
+    @Modifying
+    @Query("update #{#entityName} outbox set outbox.status = ?3, outbox.claimedBy = ?5, outbox.leaseUntil = ?6 " +
+        "where outbox.id in ?1 and ((outbox.status = ?2 and (outbox.nextAttemptDate is null or outbox.nextAttemptDate <= ?4)) " +
+        "or (outbox.status = ?3 and outbox.leaseUntil < ?4))")
+    int claim(List<Long> ids, SyncStatus pending, SyncStatus claimed, Instant now, String claimedBy, Instant leaseUntil);
+
+    List<SearchOutbox> findAllByClaimedByOrderByIdAsc(String claimedBy);
+
+    @Modifying
+    @Query("delete from #{#entityName} outbox where outbox.claimedBy = ?1")
+    int deleteAllByClaimedBy(String claimedBy);
+
+    @Modifying
+    @Query("update #{#entityName} outbox set outbox.status = ?2, outbox.claimedBy = null, outbox.leaseUntil = null " +
+        "where outbox.claimedBy = ?1")
+    int release(String claimedBy, SyncStatus pending);
+
+    Page<SearchOutbox> findAllByStatus(SyncStatus status, Pageable pageable);
+
+    @Modifying
+    @Query("update #{#entityName} outbox set outbox.status = ?2, outbox.attempts = 0, outbox.nextAttemptDate = null " +
+        "where outbox.status = ?1 and outbox.id in ?3")
+    int replay(SyncStatus failed, SyncStatus pending, List<Long> ids);
+
+    @Modifying
+    @Query("update #{#entityName} outbox set outbox.status = ?2, outbox.attempts = 0, outbox.nextAttemptDate = null " +
+        "where outbox.status = ?1")
+    int replayAll(SyncStatus failed, SyncStatus pending);
+
+}
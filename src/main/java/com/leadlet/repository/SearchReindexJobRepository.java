@@ -0,0 +1,41 @@
+package com.leadlet.repository;
+
+import com.leadlet.domain.SearchReindexJob;
+import com.leadlet.domain.enumeration.SearchEntityType;
+import com.leadlet.domain.enumeration.SearchReindexStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.Collection;
+
+
+/**
+ * Spring Data JPA repository for the SearchReindexJob entity.
+ */
+@SuppressWarnings("unused")
+@Repository
+public interface SearchReindexJobRepository extends JpaRepository<SearchReindexJob, Long> {
+
+    long countByEntityTypeAndStatus(SearchEntityType entityType, SearchReindexStatus status);
+
+    SearchReindexJob findFirstByTargetAndStatusNotOrderByIdDesc(String target, SearchReindexStatus status);
+
+    /**
+     * Renews the lease of the given jobs while they run.
+     */
+    @Modifying
+    @Query("update #{#entityName} job set job.heartbeatDate = ?2 where job.id in ?1 and job.status = ?3")
+    int heartbeat(Collection<Long> ids, Instant now, SearchReindexStatus running);
+
+    /**
+     * Takes a running job over from a node which stopped renewing its lease, unless another node got it first, the
+     * expired condition is re-checked by the update.
+     */
+    @Modifying
+    @Query("update #{#entityName} job set job.heartbeatDate = ?2 where job.id = ?1 and job.status = ?4 " +
+        "and (job.heartbeatDate is null or job.heartbeatDate < ?3)")
+    int takeOver(Long id, Instant now, Instant expiredBefore, SearchReindexStatus running);
+}
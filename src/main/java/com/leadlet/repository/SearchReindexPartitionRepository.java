@@ -0,0 +1,29 @@
+package com.leadlet.repository;
+
+import com.leadlet.domain.SearchReindexPartition;
+import com.leadlet.domain.enumeration.SearchReindexStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+
+/**
+ * Spring Data JPA repository for the SearchReindexPartition entity.
+ */
+@SuppressWarnings("unused")
+@Repository
+public interface SearchReindexPartitionRepository extends JpaRepository<SearchReindexPartition, Long> {
+
+    List<SearchReindexPartition> findAllByJobIdOrderByFromIdAsc(Long jobId);
+
+    List<SearchReindexPartition> findAllByJobIdAndStatusNot(Long jobId, SearchReindexStatus status);
+
+    /**
+     * Processed and failed documents of the given jobs, as {@code job id, processed, failed} rows.
+     */
+    @Query("select reindexPartition.jobId, sum(reindexPartition.processed), sum(reindexPartition.failed) " +
+        "from #{#entityName} reindexPartition where reindexPartition.jobId in ?1 group by reindexPartition.jobId")
+    List<Object[]> sumProgressByJobIdIn(List<Long> jobIds);
+}
@@ -1,15 +1,13 @@
 package com.leadlet.repository;
 
 import com.leadlet.domain.Timeline;
-import com.leadlet.domain.enumeration.SyncStatus;
-import org.springframework.data.domain.Page;
+import com.leadlet.service.dto.TimelineSearchIndexDTO;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
-import java.time.Instant;
 import java.util.List;
 
 /**
@@ -19,12 +17,39 @@ import java.util.List;
 @Repository
 public interface TimelineRepository extends JpaRepository<Timeline, Long> {
 
+    /**
+     * Loads the entities behind search hits with the associations their list DTOs show.
+     */
+    @EntityGraph(attributePaths = {"contact", "deal", "agent"})
     List<Timeline> findAllByIdIn(List<Long> ids);
 
-    Page<Timeline> findAllBySyncStatusAndCreatedDateLessThan(SyncStatus syncStatus, Instant maxDate, Pageable page);
+    @Query("select new com.leadlet.service.dto.TimelineSearchIndexDTO(timeline.id, timeline.createdDate, " +
+        "timeline.lastModifiedDate, timeline.contact.id, timeline.agent.id, timeline.deal.id, timeline.type, " +
+        "timeline.content, timeline.appAccount.id) from #{#entityName} timeline where timeline.id in ?1")
+    List<TimelineSearchIndexDTO> findSearchIndexRowsByIdIn(List<Long> ids);
 
-    @Modifying
-    @Query("update #{#entityName} timeline set timeline.syncStatus = ?1 where deal.id in ?2")
-    void updateTimelinesStatus(SyncStatus syncStatus, List<Long> ids);
+    /**
+     * Count, {@link com.leadlet.service.search.SearchRangeDigest checksum} and id bounds of the account's rows in
+     * an id range, of all accounts when the account is null.
+     */
+    @Query("select count(timeline.id), sum(mod((timeline.id * 31 + coalesce(year(timeline.lastModifiedDate), 0)) * 1000003 + " +
+        "coalesce((((month(timeline.lastModifiedDate) * 31 + day(timeline.lastModifiedDate)) * 24 + hour(timeline.lastModifiedDate)) * 60 + " +
+        "minute(timeline.lastModifiedDate)) * 60 + second(timeline.lastModifiedDate), 0), 1000000007)), min(timeline.id), max(timeline.id) " +
+        "from #{#entityName} timeline where (?1 is null or timeline.appAccount.id = ?1) and timeline.id between ?2 and ?3")
+    List<Object[]> findSearchDigest(Long appAccountId, Long fromId, Long toId);
+
+    @Query("select timeline.id, timeline.lastModifiedDate from #{#entityName} timeline " +
+        "where timeline.appAccount.id = ?1 and timeline.id between ?2 and ?3")
+    List<Object[]> findSearchVersions(Long appAccountId, Long fromId, Long toId);
+
+    @Query("select timeline.id from #{#entityName} timeline where (?1 is null or timeline.appAccount.id = ?1) " +
+        "and timeline.id > ?2 and timeline.id <= ?3 order by timeline.id asc")
+    List<Long> findIdsForReindex(Long appAccountId, Long afterId, Long toId, Pageable pageable);
+
+    @Query("select timeline.id from #{#entityName} timeline where timeline.deal.id in ?1")
+    List<Long> findIdsByDealIdIn(List<Long> dealIds);
+
+    @Query("select timeline.id from #{#entityName} timeline where timeline.contact.id in ?1")
+    List<Long> findIdsByContactIdIn(List<Long> contactIds);
 
 }
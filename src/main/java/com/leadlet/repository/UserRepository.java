@@ -1,7 +1,6 @@
 package com.leadlet.repository;
 
 import com.leadlet.domain.User;
-import com.leadlet.domain.enumeration.SyncStatus;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.*;
@@ -40,12 +39,30 @@ public interface UserRepository extends JpaRepository<User, Long>, JpaSpecificat
     Optional<User> findOneWithAuthoritiesByLogin(String login);
 
     Page<User> findAllByLoginNotAndAppAccount_Id(Pageable pageable, String login, Long appAccountId);
-    List<User> findAllByIdIn(List<Long> ids);
 
-    Page<User> findAllBySyncStatusAndCreatedDateLessThan(SyncStatus syncStatus, Instant maxDate, Pageable page);
-
-    @Modifying
-    @Query("update #{#entityName} user set user.syncStatus = ?1 where user.id in ?2")
-    void updateUsersStatus(SyncStatus syncStatus, List<Long> ids);
+    /**
+     * Loads the entities behind search hits, or of a batch of index documents, with the associations their list DTOs
+     * show. Distinct since the joined collections repeat every entity once per element.
+     */
+    @EntityGraph(attributePaths = {"authorities", "appAccount"})
+    List<User> findDistinctByIdIn(List<Long> ids);
+
+    /**
+     * Count, {@link com.leadlet.service.search.SearchRangeDigest checksum} and id bounds of the account's rows in
+     * an id range, of all accounts when the account is null.
+     */
+    @Query("select count(user.id), sum(mod((user.id * 31 + coalesce(year(user.lastModifiedDate), 0)) * 1000003 + " +
+        "coalesce((((month(user.lastModifiedDate) * 31 + day(user.lastModifiedDate)) * 24 + hour(user.lastModifiedDate)) * 60 + " +
+        "minute(user.lastModifiedDate)) * 60 + second(user.lastModifiedDate), 0), 1000000007)), min(user.id), max(user.id) " +
+        "from #{#entityName} user where (?1 is null or user.appAccount.id = ?1) and user.id between ?2 and ?3")
+    List<Object[]> findSearchDigest(Long appAccountId, Long fromId, Long toId);
+
+    @Query("select user.id, user.lastModifiedDate from #{#entityName} user " +
+        "where user.appAccount.id = ?1 and user.id between ?2 and ?3")
+    List<Object[]> findSearchVersions(Long appAccountId, Long fromId, Long toId);
+
+    @Query("select user.id from #{#entityName} user where (?1 is null or user.appAccount.id = ?1) " +
+        "and user.id > ?2 and user.id <= ?3 order by user.id asc")
+    List<Long> findIdsForReindex(Long appAccountId, Long afterId, Long toId, Pageable pageable);
 
 }
@@ -0,0 +1,26 @@
+package com.leadlet.scheduled;
+
+import com.leadlet.service.DealRollupService;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Recomputes the deal totals of every stage on schedule and repairs the rollups which drifted from the deals, e.g.
+ * after deals were written without the services.
+ */
+@Profile({"prod", "dev"})
+@Service
+public class DealRollupVerifyJob {
+
+    private final DealRollupService dealRollupService;
+
+    public DealRollupVerifyJob(DealRollupService dealRollupService) {
+        this.dealRollupService = dealRollupService;
+    }
+
+    @Scheduled(cron = "${application.rollup.cron:0 0 4 * * ?}")
+    public void verify() {
+        dealRollupService.verify();
+    }
+}
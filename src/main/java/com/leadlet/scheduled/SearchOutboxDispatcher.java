@@ -0,0 +1,374 @@
+package com.leadlet.scheduled;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.leadlet.config.ApplicationProperties;
+import com.leadlet.domain.SearchOutbox;
+import com.leadlet.domain.enumeration.SearchEntityType;
+import com.leadlet.domain.enumeration.SearchOperation;
+import com.leadlet.service.SearchOutboxService;
+import com.leadlet.service.search.BulkIndexer;
+import com.leadlet.service.search.SearchFacetCache;
+import com.leadlet.service.search.SearchIndexManager;
+import com.leadlet.service.search.SearchIndexWriter;
+import com.leadlet.service.search.SearchOutboxBatch;
+import com.leadlet.service.search.SearchOutboxEvent;
+import com.leadlet.service.search.SearchOutboxResult;
+import com.leadlet.service.search.SearchRouting;
+import org.apache.commons.lang3.StringUtils;
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.DocWriteResponse;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.delete.DeleteRequest;
+import org.elasticsearch.action.update.UpdateRequest;
+import org.elasticsearch.rest.RestStatus;
+import org.elasticsearch.script.Script;
+import org.elasticsearch.script.ScriptType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Drains the search outbox into Elasticsearch.
+ * <p>
+ * Every committed write wakes the dispatcher up, the scheduled poll is only a safety net for wake ups
+ * lost on restart. A drain starts a short coalescing window after the first signal, so a burst of commits
+ * touching the same entity produces a single document.
+ * <p>
+ * The actions of all claimed batches go through the {@link BulkIndexer}, so a claim does not wait for the bulk
+ * responses of the previous one; a claim is completed once all of its actions have been answered. The indexer
+ * keeps the actions of one document in order, so the latest state wins.
+ * <p>
+ * Rows of one entity collapse into a single action: a delete if the latest row is one, a partial update if all
+ * rows are partial updates (the document is rebuilt when it turns out to be missing), a full index otherwise.
+ * Cascade rows are not sent themselves, they enqueue the next page of documents referencing a changed entity.
+ * <p>
+ * While an index is moved to a new physical index every action is also sent to the new one, see
+ * {@link SearchIndexManager}.
+ * <p>
+ * Once the actions of a claim are answered the cached facets of the accounts they belong to are dropped, see
+ * {@link SearchFacetCache}.
+ * <p>
+ * Several nodes may drain the outbox at the same time: every batch is claimed with a lease under a
+ * node specific token first, so a row is indexed by one node only unless that node dies and its lease expires.
+ * <p>
+ * The bulk response is checked per item: 429/503 rejections are retried with backoff, other rejections
+ * are kept as {@code FAILED} dead letters which can be replayed through the management API.
+ * <p>
+ * Documents are versioned by the last modification time of their entity, so the order in which nodes and retries
+ * deliver them does not matter: a stale full document is rejected with a version conflict, a stale partial update
+ * turns into a no-op. Both are harmless and only counted in the {@code staleWrites} meter.
+ */
+@Profile({"prod", "dev"})
+@Service
+public class SearchOutboxDispatcher {
+
+    private final Logger log = LoggerFactory.getLogger(SearchOutboxDispatcher.class);
+
+    private final BulkIndexer bulkIndexer;
+    private final SearchIndexManager searchIndexManager;
+    private final SearchRouting searchRouting;
+    private final SearchFacetCache searchFacetCache;
+    private final SearchOutboxService searchOutboxService;
+    private final Map<SearchEntityType, SearchIndexWriter> writers = new EnumMap<>(SearchEntityType.class);
+    private final Executor taskExecutor;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final ApplicationProperties.Search.Outbox properties;
+
+    private static final TypeReference<Map<String, Object>> PAYLOAD_TYPE = new TypeReference<Map<String, Object>>() {
+    };
+
+    /**
+     * Applies a partial update unless the document already holds a newer version.
+     */
+    private static final String PARTIAL_UPDATE_SCRIPT = "if (ctx._source.version != null && params.doc.version != null " +
+        "&& ctx._source.version > params.doc.version) { ctx.op = 'none' } else { ctx._source.putAll(params.doc) }";
+
+    private static final int UPDATE_RETRIES_ON_CONFLICT = 3;
+
+    private static final Set<RestStatus> RETRYABLE_STATUSES = EnumSet.of(RestStatus.TOO_MANY_REQUESTS,
+        RestStatus.SERVICE_UNAVAILABLE);
+
+    private final String workerId;
+    private final AtomicLong claimSequence = new AtomicLong();
+
+    private final Meter staleWrites;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicBoolean pending = new AtomicBoolean();
+
+    public SearchOutboxDispatcher(BulkIndexer bulkIndexer, SearchIndexManager searchIndexManager,
+                                  SearchRouting searchRouting, SearchFacetCache searchFacetCache,
+                                  SearchOutboxService searchOutboxService,
+                                  List<SearchIndexWriter> writers, @Qualifier("taskExecutor") Executor taskExecutor,
+                                  PlatformTransactionManager transactionManager, ApplicationProperties applicationProperties,
+                                  ObjectMapper objectMapper, MetricRegistry metricRegistry) {
+        this.bulkIndexer = bulkIndexer;
+        this.searchIndexManager = searchIndexManager;
+        this.searchRouting = searchRouting;
+        this.searchFacetCache = searchFacetCache;
+        this.searchOutboxService = searchOutboxService;
+        this.taskExecutor = taskExecutor;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.properties = applicationProperties.getSearch().getOutbox();
+        for (SearchIndexWriter writer : writers) {
+            this.writers.put(writer.getEntityType(), writer);
+        }
+        this.workerId = workerId();
+        this.staleWrites = metricRegistry.meter(MetricRegistry.name(SearchOutboxDispatcher.class, "staleWrites"));
+    }
+
+    private static String workerId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            host = "unknown";
+        }
+        String suffix = UUID.randomUUID().toString().substring(0, 8);
+        return StringUtils.left(host, 64 - suffix.length() - 12) + "-" + suffix;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOutboxEvent(SearchOutboxEvent event) {
+        signal();
+    }
+
+    @Scheduled(fixedDelayString = "${application.search.outbox.poll-interval:30000}")
+    public void poll() {
+        signal();
+    }
+
+    /**
+     * Request a drain. Signals arriving while a drain is running are folded into one more pass.
+     */
+    public void signal() {
+        pending.set(true);
+        if (running.compareAndSet(false, true)) {
+            taskExecutor.execute(this::drainLoop);
+        }
+    }
+
+    private void drainLoop() {
+        try {
+            while (pending.get()) {
+                // signals arriving during the window fold into this pass, rows of the same entity collapse into one action
+                Thread.sleep(properties.getCoalesceWindow());
+                pending.set(false);
+                drain();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.error("Search outbox drain failed, rows are kept for the next pass", e);
+        } finally {
+            running.set(false);
+        }
+        // a signal may have arrived between the last check and releasing the flag
+        if (pending.get()) {
+            signal();
+        }
+    }
+
+    private void drain() throws IOException {
+        // the keyset position skips rows other nodes claimed, expired leases are picked up again on the next pass
+        Long afterId = 0L;
+        try {
+            while (true) {
+                String claimToken = workerId + "-" + claimSequence.incrementAndGet();
+                SearchOutboxBatch batch = searchOutboxService.claim(claimToken, afterId, properties.getBatchSize());
+                if (batch.isExhausted()) {
+                    return;
+                }
+                afterId = batch.getLastScannedId();
+                if (batch.getRows().isEmpty()) {
+                    continue;
+                }
+
+                List<List<Long>> actionRows = new ArrayList<>();
+                Map<String, Set<Long>> written = new HashMap<>();
+                List<DocWriteRequest<?>> actions;
+                try {
+                    List<SearchOutbox> rows = new ArrayList<>(batch.getRows().size());
+                    for (SearchOutbox outbox : batch.getRows()) {
+                        if (outbox.getOperation() == SearchOperation.CASCADE) {
+                            searchOutboxService.cascade(claimToken, outbox.getId());
+                        } else {
+                            rows.add(outbox);
+                            written.computeIfAbsent(outbox.getEntityType().getIndex(), index -> new HashSet<>())
+                                .add(outbox.getAppAccountId());
+                        }
+                    }
+                    actions = buildActions(rows, actionRows);
+                } catch (IOException | RuntimeException e) {
+                    searchOutboxService.release(claimToken);
+                    throw e;
+                }
+
+                List<CompletableFuture<BulkItemResponse>> responses = new ArrayList<>(actions.size());
+                for (DocWriteRequest<?> action : actions) {
+                    List<DocWriteRequest<?>> copies = searchIndexManager.migrationCopies(action);
+                    searchRouting.adapt(action);
+                    responses.add(bulkIndexer.add(action));
+                    for (DocWriteRequest<?> copy : copies) {
+                        bulkIndexer.add(copy);
+                    }
+                }
+                // completing runs a transaction, keep it off the http client threads
+                CompletableFuture.allOf(responses.toArray(new CompletableFuture<?>[0]))
+                    .whenCompleteAsync((ignored, e) -> complete(claimToken, responses, actionRows, written), taskExecutor);
+            }
+        } finally {
+            bulkIndexer.flush();
+        }
+    }
+
+    /**
+     * @param written the accounts whose documents were written, by index, their cached facets are dropped
+     */
+    private void complete(String claimToken, List<CompletableFuture<BulkItemResponse>> responses, List<List<Long>> actionRows,
+                          Map<String, Set<Long>> written) {
+        written.forEach((index, appAccountIds) -> appAccountIds.forEach(appAccountId ->
+            searchFacetCache.invalidate(index, appAccountId)));
+        try {
+            searchOutboxService.complete(claimToken, collect(responses, actionRows));
+        } catch (Exception e) {
+            log.error("Could not complete search outbox claim {}, its rows are picked up again after the lease expires",
+                claimToken, e);
+        }
+    }
+
+    /**
+     * Map the per item outcome back to the outbox rows. Rejections caused by an overloaded cluster and bulk
+     * requests which failed as a whole are retried, everything else the cluster refuses is dead lettered.
+     * A version conflict of a full document means a newer version is already indexed, the row is done.
+     */
+    private SearchOutboxResult collect(List<CompletableFuture<BulkItemResponse>> responses, List<List<Long>> actionRows) {
+        SearchOutboxResult result = new SearchOutboxResult();
+        for (int i = 0; i < responses.size(); i++) {
+            String retryReason = null;
+            String failureReason = null;
+            boolean reindex = false;
+            try {
+                BulkItemResponse item = responses.get(i).join();
+                if (item.isFailed()) {
+                    if (item.getOpType() == DocWriteRequest.OpType.UPDATE && item.getFailure().getStatus() == RestStatus.NOT_FOUND) {
+                        reindex = true;
+                    } else if (item.getOpType() == DocWriteRequest.OpType.INDEX && item.getFailure().getStatus() == RestStatus.CONFLICT) {
+                        staleWrites.mark();
+                        log.debug("Skipped stale version of {}/{}", item.getIndex(), item.getId());
+                    } else if (RETRYABLE_STATUSES.contains(item.getFailure().getStatus())) {
+                        retryReason = item.getFailureMessage();
+                    } else {
+                        failureReason = item.getFailureMessage();
+                    }
+                } else if (item.getResponse().getResult() == DocWriteResponse.Result.NOOP) {
+                    staleWrites.mark();
+                }
+            } catch (CompletionException e) {
+                retryReason = String.valueOf(e.getCause());
+            }
+
+            for (Long outboxId : actionRows.get(i)) {
+                if (reindex) {
+                    result.reindex(outboxId);
+                } else if (retryReason != null) {
+                    result.retry(outboxId, retryReason);
+                } else if (failureReason != null) {
+                    result.fail(outboxId, failureReason);
+                }
+            }
+        }
+        if (!result.isEmpty()) {
+            log.warn("Search outbox batch had {} retryable and {} failed rows", result.getRetries().size(),
+                result.getFailures().size());
+        }
+        return result;
+    }
+
+    /**
+     * @param actionRows filled with the outbox row ids behind every returned action, by position
+     */
+    private List<DocWriteRequest<?>> buildActions(List<SearchOutbox> batch, List<List<Long>> actionRows) throws IOException {
+        // several changes of the same entity collapse into one action, rows come ordered by id so the last one is the latest
+        Map<SearchEntityType, Map<Long, List<SearchOutbox>>> rowsByEntity = new EnumMap<>(SearchEntityType.class);
+        for (SearchOutbox outbox : batch) {
+            rowsByEntity.computeIfAbsent(outbox.getEntityType(), type -> new LinkedHashMap<>())
+                .computeIfAbsent(outbox.getEntityId(), id -> new ArrayList<>())
+                .add(outbox);
+        }
+
+        List<DocWriteRequest<?>> actions = new ArrayList<>();
+        Map<SearchEntityType, Map<Long, List<Long>>> indexRows = new EnumMap<>(SearchEntityType.class);
+        for (Map.Entry<SearchEntityType, Map<Long, List<SearchOutbox>>> entry : rowsByEntity.entrySet()) {
+            SearchEntityType type = entry.getKey();
+            for (Map.Entry<Long, List<SearchOutbox>> entity : entry.getValue().entrySet()) {
+                List<SearchOutbox> rows = entity.getValue();
+                List<Long> rowIds = rows.stream().map(SearchOutbox::getId).collect(Collectors.toList());
+                String id = String.valueOf(entity.getKey());
+                String routing = searchRouting.route(rows.get(rows.size() - 1).getAppAccountId(), entity.getKey());
+
+                if (rows.get(rows.size() - 1).getOperation() == SearchOperation.DELETE) {
+                    actions.add(new DeleteRequest(type.getIndex(), type.getType(), id).routing(routing));
+                    actionRows.add(rowIds);
+                } else if (rows.stream().allMatch(outbox -> outbox.getOperation() == SearchOperation.UPDATE)) {
+                    Map<String, Object> fields = new HashMap<>();
+                    for (SearchOutbox outbox : rows) {
+                        fields.putAll(objectMapper.readValue(outbox.getPayload(), PAYLOAD_TYPE));
+                    }
+                    actions.add(new UpdateRequest(type.getIndex(), type.getType(), id)
+                        .routing(routing)
+                        .script(new Script(ScriptType.INLINE, "painless", PARTIAL_UPDATE_SCRIPT,
+                            Collections.singletonMap("doc", fields)))
+                        .retryOnConflict(UPDATE_RETRIES_ON_CONFLICT));
+                    actionRows.add(rowIds);
+                } else {
+                    indexRows.computeIfAbsent(type, key -> new LinkedHashMap<>()).put(entity.getKey(), rowIds);
+                }
+            }
+        }
+        if (indexRows.isEmpty()) {
+            return actions;
+        }
+
+        try {
+            return transactionTemplate.execute(status -> {
+                for (Map.Entry<SearchEntityType, Map<Long, List<Long>>> entry : indexRows.entrySet()) {
+                    try {
+                        for (DocWriteRequest<?> action : writers.get(entry.getKey()).write(new ArrayList<>(entry.getValue().keySet()))) {
+                            actions.add(action);
+                            actionRows.add(entry.getValue().get(Long.valueOf(action.id())));
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+                return actions;
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.leadlet.scheduled;
+
+import com.leadlet.service.SearchReconcileService;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Runs the reconciliation of the search indices with the database on schedule. A run overlapping with one
+ * started through the management API is skipped.
+ */
+@Profile({"prod", "dev"})
+@Service
+public class SearchReconcileJob {
+
+    private final SearchReconcileService searchReconcileService;
+
+    public SearchReconcileJob(SearchReconcileService searchReconcileService) {
+        this.searchReconcileService = searchReconcileService;
+    }
+
+    @Scheduled(cron = "${application.search.reconcile.cron:0 30 3 * * ?}")
+    public void reconcile() {
+        searchReconcileService.reconcile();
+    }
+}
@@ -0,0 +1,25 @@
+package com.leadlet.scheduled;
+
+import com.leadlet.service.SearchReindexService;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Renews the lease of the search index rebuilds running on this node, so no other node resumes them meanwhile.
+ */
+@Profile({"prod", "dev"})
+@Service
+public class SearchReindexHeartbeatJob {
+
+    private final SearchReindexService searchReindexService;
+
+    public SearchReindexHeartbeatJob(SearchReindexService searchReindexService) {
+        this.searchReindexService = searchReindexService;
+    }
+
+    @Scheduled(fixedDelayString = "${application.search.reindex.heartbeat-interval:10000}")
+    public void heartbeat() {
+        searchReindexService.heartbeat();
+    }
+}
@@ -1,6 +1,7 @@
 package com.leadlet.service;
 
 import com.leadlet.service.dto.ActivityDTO;
+import com.leadlet.service.dto.SearchQueryDTO;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
@@ -42,6 +43,6 @@ public interface ActivityService {
      */
     void delete(Long id);
 
-    Page<ActivityDTO> search(String filter, Pageable pageable) throws IOException;
+    Page<ActivityDTO> search(SearchQueryDTO searchQuery, Pageable pageable, String cursor) throws IOException;
 
 }
@@ -0,0 +1,44 @@
+package com.leadlet.service;
+
+import com.leadlet.domain.Deal;
+import com.leadlet.domain.DealValue;
+
+/**
+ * Service Interface for keeping the deal totals of every stage, see {@link com.leadlet.domain.DealStageRollup}.
+ * <p>
+ * The writes join the transaction of the deal write which causes them.
+ */
+public interface DealRollupService {
+
+    /**
+     * Count a deal which has just been saved.
+     */
+    void dealCreated(Deal deal);
+
+    /**
+     * Stop counting a deal which is about to be deleted.
+     */
+    void dealDeleted(Deal deal);
+
+    /**
+     * Move a deal to its new stage or value, to be called with the deal as it is stored before it changes.
+     */
+    void dealChanged(Deal deal, Long pipelineId, Long stageId, DealValue dealValue);
+
+    /**
+     * Drop the totals of a stage whose deals are deleted along with it.
+     */
+    void stageDeleted(Long appAccountId, Long stageId);
+
+    /**
+     * Drop the totals of the stages of a pipeline whose deals are deleted along with it.
+     */
+    void pipelineDeleted(Long appAccountId, Long pipelineId);
+
+    /**
+     * Recompute the totals of every account from its deals and repair the rollups which differ.
+     *
+     * @return the number of repaired totals, -1 when another verification is already in progress
+     */
+    int verify();
+}
@@ -2,6 +2,10 @@ package com.leadlet.service;
 
 import com.leadlet.service.dto.DealDTO;
 import com.leadlet.service.dto.DetailedDealDTO;
+import com.leadlet.service.dto.FacetDefinitionDTO;
+import com.leadlet.service.dto.SearchQueryDTO;
+import com.leadlet.service.dto.StageBoardDTO;
+import com.leadlet.service.search.FacetedPage;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
@@ -54,5 +58,42 @@ public interface DealService {
      */
     void delete(Long id);
 
-    Page<DetailedDealDTO> query(String searchQuery, Pageable pageable) throws IOException;
+    /**
+     * Search the deals of the current account.
+     *
+     * @param searchQuery the filters and query string, all deals when null
+     * @param pageable    the pagination information
+     * @param cursor      the next cursor of the previous page, the page number of the pageable is used when null
+     * @param exactTotal  whether the page needs the exact number of matches, newest first searches are cheaper without
+     * @return the page of deals
+     */
+    Page<DetailedDealDTO> query(SearchQueryDTO searchQuery, Pageable pageable, String cursor, boolean exactTotal) throws IOException;
+
+    /**
+     * Search the deals of the current account like {@link #query(SearchQueryDTO, Pageable, String, boolean)} and
+     * compute the facets of the search with it.
+     *
+     * @param facets the facets of the view
+     * @return the page of deals with the facets
+     */
+    FacetedPage<DetailedDealDTO> query(SearchQueryDTO searchQuery, Pageable pageable, String cursor, boolean exactTotal,
+                                       List<FacetDefinitionDTO> facets) throws IOException;
+
+    /**
+     * Get the board of a pipeline of the current account in one search and one query.
+     *
+     * @param pipelineId the pipeline
+     * @param size       the number of deals per stage, at most 100
+     * @return every stage of the pipeline with its first deals by priority, the number of its deals and their
+     * potential value by currency
+     */
+    List<StageBoardDTO> getBoard(Long pipelineId, int size) throws IOException;
+
+    /**
+     * Get the next deals of a stage of a board.
+     *
+     * @param cursor the next cursor of the stage on the board or of the previous page, the first deals when null
+     * @return the page of deals by priority
+     */
+    Page<DetailedDealDTO> getBoardDeals(Long pipelineId, Long stageId, int size, String cursor) throws IOException;
 }
@@ -1,24 +1,81 @@
 package com.leadlet.service;
 
-import com.leadlet.domain.Activity;
-import com.leadlet.domain.Deal;
-import com.leadlet.domain.Timeline;
 import com.leadlet.service.dto.FacetDTO;
+import com.leadlet.service.dto.FacetDefinitionDTO;
+import com.leadlet.service.dto.SearchQueryDTO;
+import com.leadlet.service.search.CursorPage;
+import com.leadlet.service.search.FacetedPage;
 import org.springframework.data.domain.Pageable;
-import org.springframework.data.util.Pair;
 
 import java.io.IOException;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
+/**
+ * Service Interface for searching the indices. Every search is limited to the account of the current user.
+ */
 public interface ElasticsearchService {
 
-    FacetDTO getFieldTerms(String id, String index, String fieldName , String q) throws IOException;
-    FacetDTO getFieldRange(String id, String index, String fieldName , String q) throws IOException;
+    FacetDTO getFieldTerms(String id, String index, String fieldName , SearchQueryDTO query) throws IOException;
+    FacetDTO getFieldRange(String id, String index, String fieldName , SearchQueryDTO query) throws IOException;
 
-    Pair<List<Long>, Long> getEntityIds(String index, String query, Pageable pageable)  throws IOException;
+    /**
+     * Compute all facets of a view in one search which returns no documents.
+     *
+     * @param query  the search the facets count, all documents when null
+     * @param facets the facets, their ids have to be unique. A facet counts the documents matching the selections of
+     *               the other facets, not its own.
+     * @return the facets in the order of their definitions
+     */
+    List<FacetDTO> getFacets(String index, SearchQueryDTO query, List<FacetDefinitionDTO> facets) throws IOException;
 
-    void indexDeal(Deal deal) throws IOException ;
-    void indexTimeline(Timeline timeline) throws IOException ;
-    void indexActivity(Activity activity) throws IOException ;
+    CursorPage<Long> getEntityIds(String index, SearchQueryDTO query, Pageable pageable)  throws IOException;
+
+    /**
+     * Search the ids of a page of documents. The deal and timeline indices are sorted by account and newest first,
+     * a search in that order stops collecting on every shard once the page is full unless the exact total is needed.
+     *
+     * @param cursor     the next cursor of the previous page, null for the page number of the pageable
+     * @param exactTotal whether to count all matching documents, otherwise the total of a search in index order only
+     *                   tells whether there is a next page
+     * @return the ids with the total and the cursor of the next page
+     */
+    CursorPage<Long> getEntityIds(String index, SearchQueryDTO query, Pageable pageable, String cursor,
+                                  boolean exactTotal) throws IOException;
+
+    /**
+     * Search a page of documents like {@link #getEntityIds(String, SearchQueryDTO, Pageable, String, boolean)}, for
+     * list endpoints which build their DTOs from the documents.
+     *
+     * @param fields the source fields to return, the id is always included
+     * @return the sources of the hits with the total and the cursor of the next page
+     */
+    CursorPage<Map<String, Object>> getSources(String index, SearchQueryDTO query, Pageable pageable, String cursor,
+                                               boolean exactTotal, String... fields) throws IOException;
+
+    /**
+     * Search a page of documents like {@link #getSources(String, SearchQueryDTO, Pageable, String, boolean, String...)}
+     * and compute the facets of the search like {@link #getFacets} in the same request to the cluster. When values
+     * are selected in the facets they filter the hits only, and the page and the facets come from one search.
+     */
+    FacetedPage<Map<String, Object>> getSources(String index, SearchQueryDTO query, Pageable pageable, String cursor,
+                                                boolean exactTotal, List<FacetDefinitionDTO> facets,
+                                                String... fields) throws IOException;
+
+    /**
+     * Search the first documents of several groups in one search, e.g. the deals of every stage of a board.
+     *
+     * @param groupField the keyword field the documents are grouped by
+     * @param groups     the values of the groups
+     * @param pageable   the number of documents per group and their order, the id comes last
+     * @param fields     the source fields to return, the id is always included
+     * @return the first page of every group with documents by its value, the total is the number of documents in the
+     * group and the next cursor continues it with {@link #getSources(String, SearchQueryDTO, Pageable, String,
+     * boolean, String...)} in the same order
+     */
+    Map<String, CursorPage<Map<String, Object>>> getGroupSources(String index, SearchQueryDTO query, String groupField,
+                                                                 Collection<String> groups, Pageable pageable,
+                                                                 String... fields) throws IOException;
 
 }
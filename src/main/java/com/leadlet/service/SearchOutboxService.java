@@ -0,0 +1,148 @@
+package com.leadlet.service;
+
+import com.leadlet.domain.SearchOutbox;
+import com.leadlet.domain.enumeration.SearchEntityType;
+import com.leadlet.domain.enumeration.SearchReference;
+import com.leadlet.service.search.SearchOutboxBatch;
+import com.leadlet.service.search.SearchOutboxResult;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Service Interface for recording changes of searchable entities in the search outbox.
+ */
+public interface SearchOutboxService {
+
+    /**
+     * Record that an entity has to be (re)indexed. Must be called inside the transaction that changes the entity,
+     * the dispatcher is woken up once that transaction commits.
+     *
+     * @param entityType   the type of the changed entity
+     * @param entityId     the id of the changed entity
+     * @param appAccountId the account the entity belongs to
+     */
+    void enqueue(SearchEntityType entityType, Long entityId, Long appAccountId);
+
+    /**
+     * Record that only some fields of an indexed entity changed, they are sent as a partial update
+     * instead of rebuilding the whole document.
+     *
+     * @param entityType   the type of the changed entity
+     * @param entityId     the id of the changed entity
+     * @param appAccountId the account the entity belongs to
+     * @param fields       the changed fields by their name in the index, including the new {@code version} so the
+     *                     update is skipped when the document already holds a newer one
+     */
+    void enqueueUpdate(SearchEntityType entityType, Long entityId, Long appAccountId, Map<String, Object> fields);
+
+    /**
+     * Record that entities are deleted. Deleting deals also removes the documents of their activities and
+     * timelines, like the database does.
+     *
+     * @param entityType   the type of the deleted entities
+     * @param entityIds    the ids of the deleted entities
+     * @param appAccountId the account the entities belong to
+     */
+    void enqueueDelete(SearchEntityType entityType, List<Long> entityIds, Long appAccountId);
+
+    /**
+     * Record the documents removed together with contacts: their deals, activities and timelines.
+     * Must be called before the contacts are deleted.
+     *
+     * @param contactIds   the ids of the contacts about to be deleted
+     * @param appAccountId the account the contacts belong to
+     */
+    void enqueueContactDelete(List<Long> contactIds, Long appAccountId);
+
+    /**
+     * Record the documents removed together with a stage: its deals. Must be called before the stage is deleted.
+     *
+     * @param stageId      the id of the stage about to be deleted
+     * @param appAccountId the account the stage belongs to
+     */
+    void enqueueStageDelete(Long stageId, Long appAccountId);
+
+    /**
+     * Record the documents removed together with a pipeline: its deals. Must be called before the pipeline is deleted.
+     *
+     * @param pipelineId   the id of the pipeline about to be deleted
+     * @param appAccountId the account the pipeline belongs to
+     */
+    void enqueuePipelineDelete(Long pipelineId, Long appAccountId);
+
+    /**
+     * Record the documents removed together with a user: the user, the deals and activities assigned to it.
+     * Must be called before the user is deleted.
+     *
+     * @param userId       the id of the user about to be deleted
+     * @param appAccountId the account the user belongs to
+     */
+    void enqueueUserDelete(Long userId, Long appAccountId);
+
+    /**
+     * Record that a referenced entity changed a field which is copied into other documents, e.g. a renamed source.
+     * The referencing documents are enqueued in throttled pages by the dispatcher, so the calling request does not
+     * wait for them.
+     *
+     * @param reference    the kind of the changed entity
+     * @param referenceId  the id of the changed entity
+     * @param appAccountId the account the entity belongs to
+     */
+    void enqueueCascade(SearchReference reference, Long referenceId, Long appAccountId);
+
+    /**
+     * Enqueue the next page of documents referencing the entity of a claimed {@code CASCADE} row, in its own
+     * transaction. The row is rescheduled after the cascade delay while there are more pages, and removed after
+     * the last one.
+     *
+     * @param claimToken the token the row was claimed with
+     * @param outboxId   the id of the cascade row
+     */
+    void cascade(String claimToken, Long outboxId);
+
+    /**
+     * Atomically claim the next rows after the given id, in its own transaction.
+     *
+     * @param claimToken the worker specific token stamped on the claimed rows
+     * @param afterId    keyset position, only rows with a greater id are claimed
+     * @param limit      maximum number of rows to claim
+     * @return the claimed rows, possibly empty when other workers won all of them
+     */
+    SearchOutboxBatch claim(String claimToken, Long afterId, int limit);
+
+    /**
+     * Finish a claim: rows to retry are rescheduled with an exponential backoff, failed rows (and rows which ran out
+     * of attempts) are kept as dead letters with their reason, all other rows were indexed and are removed.
+     *
+     * @param claimToken the token used when claiming
+     * @param result     the per row outcome of indexing the batch
+     */
+    void complete(String claimToken, SearchOutboxResult result);
+
+    /**
+     * Give the rows of a claim back without waiting for the lease to expire.
+     *
+     * @param claimToken the token used when claiming
+     */
+    void release(String claimToken);
+
+    /**
+     * Get the rows which could not be indexed.
+     *
+     * @param pageable the pagination information
+     * @return the list of dead lettered rows
+     */
+    Page<SearchOutbox> findAllFailed(Pageable pageable);
+
+    /**
+     * Put dead lettered rows back into the queue, the last error is kept until they succeed.
+     *
+     * @param ids the ids of the rows to replay, all failed rows when empty
+     * @return the number of replayed rows
+     */
+    int replay(List<Long> ids);
+
+}
@@ -0,0 +1,24 @@
+package com.leadlet.service;
+
+import com.leadlet.service.dto.SearchReconcileReportDTO;
+
+import java.util.Optional;
+
+/**
+ * Service Interface for comparing the search indices with the database and repairing the differences.
+ */
+public interface SearchReconcileService {
+
+    /**
+     * Compare every index of every account with the database and enqueue the documents which are missing, stale
+     * or left over in the search outbox. Blocks until the run is over.
+     *
+     * @return the report of the run, empty when another run is already in progress
+     */
+    Optional<SearchReconcileReportDTO> reconcile();
+
+    /**
+     * @return the report of the running or the last finished reconciliation of this node
+     */
+    Optional<SearchReconcileReportDTO> getLastReport();
+}
@@ -0,0 +1,87 @@
+package com.leadlet.service;
+
+import com.leadlet.domain.enumeration.SearchEntityType;
+import com.leadlet.domain.enumeration.SearchReindexStatus;
+import com.leadlet.service.dto.SearchReindexJobDTO;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Service Interface for rebuilding search indices from the database.
+ */
+public interface SearchReindexService {
+
+    /**
+     * @return whether a rebuild of the index is running, only one may run at a time since it changes index settings
+     */
+    boolean isRunning(SearchEntityType entityType);
+
+    /**
+     * Create a rebuild job and start it in the background.
+     *
+     * @param entityType   the index to rebuild
+     * @param appAccountId the account to rebuild, all accounts when {@code null}
+     * @return the created job
+     * @throws IllegalStateException if a rebuild of the index is already running
+     */
+    SearchReindexJobDTO start(SearchEntityType entityType, Long appAccountId);
+
+    /**
+     * Fill the fresh physical index an index is moved to from the database, see
+     * {@link com.leadlet.service.search.SearchIndexManager}. An unfinished job filling the same index is resumed
+     * instead of starting over, also a running one whose node stopped renewing its lease.
+     *
+     * @param entityType the index to rebuild
+     * @param target     the physical index to fill
+     * @return the running job
+     * @throws IllegalStateException if a rebuild of the index is already running, on this node or another one
+     */
+    SearchReindexJobDTO migrate(SearchEntityType entityType, String target);
+
+    /**
+     * Continue a job which failed, was cancelled or whose node went down, after the last completed page of
+     * every partition. A job still running elsewhere is only taken over once its node stopped renewing its lease.
+     *
+     * @param id the id of the job
+     * @return the job
+     * @throws IllegalStateException if the job runs on another node
+     */
+    SearchReindexJobDTO resume(Long id);
+
+    /**
+     * Renew the lease of the jobs running on this node.
+     */
+    void heartbeat();
+
+    /**
+     * Stop a job running on this node after the pages in flight.
+     *
+     * @param id the id of the job
+     * @return the job
+     */
+    SearchReindexJobDTO cancel(Long id);
+
+    /**
+     * @param id the id of the job
+     * @return the status the job ends with, completed when a job running on this node ends and right away otherwise
+     */
+    CompletableFuture<SearchReindexStatus> whenFinished(Long id);
+
+    /**
+     * Get all the jobs.
+     *
+     * @param pageable the pagination information
+     * @return the list of jobs with their progress
+     */
+    Page<SearchReindexJobDTO> findAll(Pageable pageable);
+
+    /**
+     * Get one job with its progress.
+     *
+     * @param id the id of the job
+     * @return the job, null when there is none
+     */
+    SearchReindexJobDTO findOne(Long id);
+}
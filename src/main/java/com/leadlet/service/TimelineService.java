@@ -3,6 +3,7 @@ package com.leadlet.service;
 import com.leadlet.domain.Activity;
 import com.leadlet.domain.Deal;
 import com.leadlet.domain.Note;
+import com.leadlet.service.dto.SearchQueryDTO;
 import com.leadlet.service.dto.TimelineDTO;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -15,7 +16,16 @@ import java.util.List;
  */
 public interface TimelineService {
 
-    Page<TimelineDTO> query(String searchQuery, Pageable pageable) throws IOException;
+    /**
+     * Search the timelines of the current account.
+     *
+     * @param searchQuery the filters and query string, all timelines when null
+     * @param pageable    the pagination information
+     * @param cursor      the next cursor of the previous page, the page number of the pageable is used when null
+     * @param exactTotal  whether the page needs the exact number of matches, newest first searches are cheaper without
+     * @return the page of timelines
+     */
+    Page<TimelineDTO> query(SearchQueryDTO searchQuery, Pageable pageable, String cursor, boolean exactTotal) throws IOException;
 
     void noteCreated(Note note) throws IOException;
 
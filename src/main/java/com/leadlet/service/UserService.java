@@ -4,27 +4,31 @@ import com.leadlet.config.Constants;
 import com.leadlet.domain.AppAccount;
 import com.leadlet.domain.Authority;
 import com.leadlet.domain.User;
+import com.leadlet.domain.enumeration.SearchEntityType;
+import com.leadlet.domain.enumeration.SearchReference;
 import com.leadlet.repository.AppAccountRepository;
 import com.leadlet.repository.AuthorityRepository;
 import com.leadlet.repository.UserRepository;
 import com.leadlet.security.AuthoritiesConstants;
 import com.leadlet.security.SecurityUtils;
+import com.leadlet.service.dto.SearchQueryDTO;
 import com.leadlet.service.dto.UserDTO;
 import com.leadlet.service.dto.UserUpdateDTO;
 import com.leadlet.service.mapper.UserMapper;
 import com.leadlet.service.util.RandomUtil;
 import com.leadlet.web.rest.vm.ManagedUserVM;
+import com.leadlet.service.search.CursorPage;
+import com.leadlet.service.search.SearchHydrator;
+import com.leadlet.service.search.SearchViews;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
-import org.springframework.data.util.Pair;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.util.StringUtils;
 
 import java.io.IOException;
 import java.time.Instant;
@@ -53,15 +57,26 @@ public class UserService {
 
     private final ElasticsearchService elasticsearchService;
 
+    private final SearchOutboxService searchOutboxService;
+
+    private final SearchViews searchViews;
+
+    private final SearchHydrator searchHydrator;
+
     public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder, AuthorityRepository authorityRepository,
                        AppAccountRepository appAccountRepository, UserMapper userMapper,
-                       ElasticsearchService elasticsearchService) {
+                       ElasticsearchService elasticsearchService, SearchOutboxService searchOutboxService,
+                       SearchViews searchViews,
+                       SearchHydrator searchHydrator) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
         this.authorityRepository = authorityRepository;
         this.appAccountRepository = appAccountRepository;
         this.userMapper = userMapper;
         this.elasticsearchService = elasticsearchService;
+        this.searchOutboxService = searchOutboxService;
+        this.searchViews = searchViews;
+        this.searchHydrator = searchHydrator;
     }
 
     public Optional<User> activateRegistration(String key) {
@@ -126,6 +141,7 @@ public class UserService {
         newUser.setActivated(true);
 
         newUser = userRepository.save(newUser);
+        searchOutboxService.enqueue(SearchEntityType.USER, newUser.getId(), newAppAccount.getId());
 
         return newUser;
     }
@@ -156,6 +172,7 @@ public class UserService {
         user.setActivated(true);
         user.setAppAccount(SecurityUtils.getCurrentUserAppAccountReference());
         userRepository.save(user);
+        searchOutboxService.enqueue(SearchEntityType.USER, user.getId(), user.getAppAccount().getId());
         log.debug("Created Information for User: {}", user);
         return user;
     }
@@ -170,10 +187,10 @@ public class UserService {
      */
     public void updateUser(String firstName, String lastName, String langKey, String imageUrl) {
         userRepository.findOneByLogin(SecurityUtils.getCurrentUserLogin()).ifPresent(user -> {
-            user.setFirstName(firstName);
-            user.setLastName(lastName);
+            changeName(user, firstName, lastName);
             user.setLangKey(langKey);
             user.setImageUrl(imageUrl);
+            searchOutboxService.enqueue(SearchEntityType.USER, user.getId(), user.getAppAccount().getId());
             log.debug("Changed Information for User: {}", user);
         });
     }
@@ -189,8 +206,7 @@ public class UserService {
             .findOneByIdAndAppAccount_Id(userDTO.getId(), SecurityUtils.getCurrentUserAppAccountId()))
             .map(user -> {
                 user.setLogin(userDTO.getLogin());
-                user.setFirstName(userDTO.getFirstName());
-                user.setLastName(userDTO.getLastName());
+                changeName(user, userDTO.getFirstName(), userDTO.getLastName());
                 user.setImageUrl(userDTO.getImageUrl());
                 user.setActivated(userDTO.isActivated());
                 user.setLangKey(userDTO.getLangKey());
@@ -199,6 +215,7 @@ public class UserService {
                 userDTO.getAuthorities().forEach(
                     authority -> managedAuthorities.add(authorityRepository.findOne(authority.getName()))
                 );
+                searchOutboxService.enqueue(SearchEntityType.USER, user.getId(), user.getAppAccount().getId());
                 log.debug("Changed Information for User: {}", user);
                 return user;
             })
@@ -209,25 +226,37 @@ public class UserService {
         return Optional.of(userRepository
             .findOneByIdAndAppAccount_Id(userUpdateDTO.getId(), SecurityUtils.getCurrentUserAppAccountId()))
             .map(user -> {
-                user.setFirstName(userUpdateDTO.getFirstName());
-                user.setLastName(userUpdateDTO.getLastName());
+                changeName(user, userUpdateDTO.getFirstName(), userUpdateDTO.getLastName());
                 user.setPhone(userUpdateDTO.getPhone());
                 if(userUpdateDTO.getPassword() != null){
                     user.setPassword( passwordEncoder.encode(userUpdateDTO.getPassword()));
                 }else{
                     user.setPassword(user.getPassword());
                 }
+                searchOutboxService.enqueue(SearchEntityType.USER, user.getId(), user.getAppAccount().getId());
 
                 return user;
             })
             .map(UserUpdateDTO::new);
     }
 
+    /**
+     * The agent name is copied into the deal documents, so a new name re-indexes the deals of the user.
+     */
+    private void changeName(User user, String firstName, String lastName) {
+        if (!Objects.equals(user.getFirstName(), firstName) || !Objects.equals(user.getLastName(), lastName)) {
+            searchOutboxService.enqueueCascade(SearchReference.AGENT, user.getId(), user.getAppAccount().getId());
+        }
+        user.setFirstName(firstName);
+        user.setLastName(lastName);
+    }
+
     public void deleteUser(Long id) {
         User user =
         userRepository.findOneByIdAndAppAccount_Id(id,SecurityUtils.getCurrentUserAppAccountId());
 
         if(user != null){
+            searchOutboxService.enqueueUserDelete(id, user.getAppAccount().getId());
             userRepository.delete(id);
             log.debug("Deleted User: {}", user);
         }
@@ -278,6 +307,7 @@ public class UserService {
         List<User> users = userRepository.findAllByActivatedIsFalseAndCreatedDateBefore(Instant.now().minus(3, ChronoUnit.DAYS));
         for (User user : users) {
             log.debug("Deleting not activated user {}", user.getLogin());
+            searchOutboxService.enqueueUserDelete(user.getId(), user.getAppAccount().getId());
             userRepository.delete(user);
         }
     }
@@ -315,39 +345,14 @@ public class UserService {
         return userMapper.toDto(user);
     }
 
-    public Page<UserDTO> search(String searchQuery, Pageable pageable) throws IOException {
-        String appAccountFilter = "app_account_id:" + SecurityUtils.getCurrentUserAppAccountId();
-        if(StringUtils.isEmpty(searchQuery)){
-            searchQuery = appAccountFilter;
-        }else {
-            searchQuery += " AND " + appAccountFilter;
-        }
-
-        Pair<List<Long>, Long> response = elasticsearchService.getEntityIds("leadlet-user", searchQuery, pageable);
-
-        Page<UserDTO> deals = new PageImpl<UserDTO>(userRepository.findAllByIdIn(response.getFirst()).stream()
-            .map(userMapper::toDto).collect(Collectors.toList()),
-            pageable,
-            response.getSecond());
-
-
-        List<UserDTO> unsorted = userRepository.findAllByIdIn(response.getFirst()).stream()
-            .map(userMapper::toDto).collect(Collectors.toList());
-        List<Long> sortedIds = response.getFirst();
-
-        // we are getting ids from ES sorted but JPA returns result not sorted
-        // below code-piece sorts the returned DTOs to have same sort with ids.
-        Collections.sort(unsorted,  new Comparator<UserDTO>() {
-            public int compare(UserDTO left, UserDTO right) {
-                return Integer.compare(sortedIds.indexOf(left.getId()), sortedIds.indexOf(right.getId()));
-            }
-        } );
-
-        Page<UserDTO> dealDTOS = new PageImpl<UserDTO>(unsorted,
-            pageable,
-            response.getSecond());
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public Page<UserDTO> search(SearchQueryDTO searchQuery, Pageable pageable, String cursor) throws IOException {
 
-        return dealDTOS;
+        CursorPage<Map<String, Object>> response = elasticsearchService.getSources("leadlet-user", searchQuery, pageable,
+            cursor, true, SearchViews.VIEW);
 
+        List<UserDTO> users = searchViews.read(response.getContent(), UserDTO.class,
+            ids -> searchHydrator.hydrate(ids, userRepository::findDistinctByIdIn, User::getId, userMapper::toDto));
+        return response.withContent(users);
     }
 }
@@ -2,13 +2,14 @@ package com.leadlet.service.dto;
 
 
 import com.leadlet.domain.Activity;
-import com.leadlet.domain.ActivityType;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentFactory;
 
 import java.io.IOException;
 import java.io.Serializable;
+import java.time.Instant;
 import java.util.Date;
+import java.util.Map;
 
 /**
  * A DTO for the Deal entity.
@@ -18,7 +19,7 @@ public class ActivitySearchIndexDTO implements Serializable {
     private Long id;
     private Date createdDate;
     private Date startDate;
-    private ActivityType activityType;
+    private String activityType;
     private String title;
     private Long contactId;
     private Long dealId;
@@ -26,6 +27,8 @@ public class ActivitySearchIndexDTO implements Serializable {
     private Long appAccountId;
 
     private boolean isDone;
+    private long version;
+    private Map<String, Object> view;
 
     public ActivitySearchIndexDTO(){
 
@@ -36,14 +39,14 @@ public class ActivitySearchIndexDTO implements Serializable {
         this.id = activity.getId();
         this.createdDate = new Date(activity.getCreatedDate().toEpochMilli());
         this.startDate = new Date(activity.getStart().toEpochMilli());
-        this.activityType = activity.getType();
+        this.activityType = activity.getType() != null ? activity.getType().getName() : null;
         this.title = activity.getTitle();
         this.isDone = activity.isDone();
         this.contactId = activity.getContact() == null ? null : activity.getContact().getId() ;
         this.dealId = activity.getDeal() == null ? null : activity.getDeal().getId() ;
         this.agentId = activity.getAgent() == null ? null : activity.getAgent().getId() ;
         this.appAccountId = activity.getAppAccount().getId();
-
+        this.version = toVersion(activity.getLastModifiedDate());
     }
 
     public Long getId() {
@@ -73,11 +76,11 @@ public class ActivitySearchIndexDTO implements Serializable {
         return this;
     }
 
-    public ActivityType getActivityType() {
+    public String getActivityType() {
         return activityType;
     }
 
-    public ActivitySearchIndexDTO setActivityType(ActivityType activityType) {
+    public ActivitySearchIndexDTO setActivityType(String activityType) {
         this.activityType = activityType;
         return this;
     }
@@ -136,6 +139,25 @@ public class ActivitySearchIndexDTO implements Serializable {
         return this;
     }
 
+    /**
+     * External version of the document, the last modification time in milliseconds.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * The DTO of the list endpoint, see {@link com.leadlet.service.search.SearchViews}.
+     */
+    public Map<String, Object> getView() {
+        return view;
+    }
+
+    public ActivitySearchIndexDTO setView(Map<String, Object> view) {
+        this.view = view;
+        return this;
+    }
+
     public XContentBuilder getBuilder() throws IOException {
 
         XContentBuilder builder = XContentFactory.jsonBuilder();
@@ -144,19 +166,25 @@ public class ActivitySearchIndexDTO implements Serializable {
             builder.field("id", getId());
             builder.timeField("created_date", getCreatedDate());
             builder.field("start_date", getStartDate());
-            builder.field("activity_type", getActivityType().getName());
+            builder.field("activity_type", getActivityType());
             builder.field("title", getTitle());
             builder.field("is_done", isDone());
             builder.field("contact_id", getContactId());
             builder.field("deal_id", getDealId());
             builder.field("agent_id", getAgentId());
             builder.field("app_account_id", getAppAccountId());
+            builder.field("version", getVersion());
+            if (getView() != null) {
+                builder.field("view", getView());
+            }
 
         }
         builder.endObject();
 
         return builder;
     }
-}
-
 
+    private static long toVersion(Instant lastModifiedDate) {
+        return lastModifiedDate != null ? lastModifiedDate.toEpochMilli() : 0L;
+    }
+}
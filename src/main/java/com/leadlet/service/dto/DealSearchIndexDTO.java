@@ -3,6 +3,7 @@ package com.leadlet.service.dto;
 
 import com.leadlet.domain.Deal;
 import com.leadlet.domain.Product;
+import com.leadlet.domain.enumeration.CurrencyType;
 import com.leadlet.domain.enumeration.DealStatus;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentFactory;
@@ -10,7 +11,9 @@ import org.springframework.util.StringUtils;
 
 import java.io.IOException;
 import java.io.Serializable;
+import java.time.Instant;
 import java.util.Date;
+import java.util.Map;
 
 /**
  * A DTO for the Deal entity.
@@ -26,6 +29,8 @@ public class DealSearchIndexDTO implements Serializable {
     private String source;
     private String channel;
     private String[] products;
+    private Double potentialValue;
+    private CurrencyType currency;
     private DealStatus dealStatus;
     private String lostReason;
     private Long agentId;
@@ -33,6 +38,8 @@ public class DealSearchIndexDTO implements Serializable {
     private Long contactId;
     private String contactName;
     private String dealTitle;
+    private long version;
+    private Map<String, Object> view;
 
 
     public DealSearchIndexDTO(){
@@ -48,6 +55,8 @@ public class DealSearchIndexDTO implements Serializable {
         this.priority = deal.getPriority();
         this.source = !StringUtils.isEmpty(deal.getDealSource()) ? deal.getDealSource().getName() : "";
         this.channel = !StringUtils.isEmpty(deal.getDealChannel()) ? deal.getDealChannel().getName() : "";
+        this.potentialValue = deal.getDealValue() != null ? deal.getDealValue().getPotentialValue() : null;
+        this.currency = deal.getDealValue() != null ? deal.getDealValue().getCurrency() : null;
         this.dealStatus = deal.getDealStatus();
         this.lostReason = deal.getLostReason() != null ? deal.getLostReason().getName(): "";
         this.appAccountId = deal.getAppAccount().getId();
@@ -56,6 +65,7 @@ public class DealSearchIndexDTO implements Serializable {
         this.contactId = deal.getContact() != null ? deal.getContact().getId(): null;
         this.contactName = deal.getContact() != null ? deal.getContact().getName() : null;
         this.dealTitle = deal.getTitle();
+        this.version = toVersion(deal.getLastModifiedDate());
 
         if( deal.getProducts() != null ){
             this.products = deal.getProducts().stream().map(Product::getDescription).toArray(size -> new String[size]);
@@ -180,6 +190,24 @@ public class DealSearchIndexDTO implements Serializable {
         return this;
     }
 
+    public Double getPotentialValue() {
+        return potentialValue;
+    }
+
+    public DealSearchIndexDTO setPotentialValue(Double potentialValue) {
+        this.potentialValue = potentialValue;
+        return this;
+    }
+
+    public CurrencyType getCurrency() {
+        return currency;
+    }
+
+    public DealSearchIndexDTO setCurrency(CurrencyType currency) {
+        this.currency = currency;
+        return this;
+    }
+
     public DealStatus getDealStatus() {
         return dealStatus;
     }
@@ -205,6 +233,25 @@ public class DealSearchIndexDTO implements Serializable {
         return this;
     }
 
+    /**
+     * External version of the document, the last modification time in milliseconds.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * The DTO of the list endpoint, see {@link com.leadlet.service.search.SearchViews}.
+     */
+    public Map<String, Object> getView() {
+        return view;
+    }
+
+    public DealSearchIndexDTO setView(Map<String, Object> view) {
+        this.view = view;
+        return this;
+    }
+
     public XContentBuilder getBuilder() throws IOException {
         XContentBuilder builder = XContentFactory.jsonBuilder();
         builder.startObject();
@@ -218,6 +265,8 @@ public class DealSearchIndexDTO implements Serializable {
             builder.field("channel", getChannel());
             builder.field("products", getProducts());
             builder.field("app_account_id", getAppAccountId());
+            builder.field("potential_value", getPotentialValue());
+            builder.field("currency", getCurrency());
             builder.field("deal_status", getDealStatus());
             builder.field("lost_reason", getLostReason());
 
@@ -226,12 +275,18 @@ public class DealSearchIndexDTO implements Serializable {
             builder.field("agent_id", getAgentId());
             builder.field("agent_name", getAgentName());
             builder.field("deal_title", getDealTitle());
+            builder.field("version", getVersion());
+            if (getView() != null) {
+                builder.field("view", getView());
+            }
 
         }
         builder.endObject();
 
         return builder;
     }
-}
-
 
+    private static long toVersion(Instant lastModifiedDate) {
+        return lastModifiedDate != null ? lastModifiedDate.toEpochMilli() : 0L;
+    }
+}
@@ -3,6 +3,7 @@ package com.leadlet.service.dto;
 import com.leadlet.domain.enumeration.FacetType;
 
 import java.io.Serializable;
+import java.util.List;
 
 public class FacetDefinitionDTO implements Serializable {
 
@@ -12,6 +13,12 @@ public class FacetDefinitionDTO implements Serializable {
 
     private String dataField;
 
+    private String interval;
+
+    private List<Double> percents;
+
+    private SearchFilterDTO selection;
+
     public String getId() {
         return id;
     }
@@ -38,4 +45,54 @@ public class FacetDefinitionDTO implements Serializable {
         this.dataField = dataField;
         return this;
     }
+
+    /**
+     * @return the width of the buckets of a histogram: a number, or for a date histogram a calendar unit like
+     * {@code month} or a number of hours or days like {@code 12h}
+     */
+    public String getInterval() {
+        return interval;
+    }
+
+    public FacetDefinitionDTO setInterval(String interval) {
+        this.interval = interval;
+        return this;
+    }
+
+    /**
+     * @return the percents of a percentiles facet, the default ones of the cluster when null
+     */
+    public List<Double> getPercents() {
+        return percents;
+    }
+
+    public FacetDefinitionDTO setPercents(List<Double> percents) {
+        this.percents = percents;
+        return this;
+    }
+
+    /**
+     * @return the values selected in a multi-select facet, null for none. The selection filters the hits and the
+     * other facets, the facet itself keeps counting the values which are not selected.
+     */
+    public SearchFilterDTO getSelection() {
+        return selection;
+    }
+
+    public FacetDefinitionDTO setSelection(SearchFilterDTO selection) {
+        this.selection = selection;
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return "FacetDefinitionDTO{" +
+            "id='" + id + "'" +
+            ", type=" + type +
+            ", dataField='" + dataField + "'" +
+            ", interval='" + interval + "'" +
+            ", percents=" + percents +
+            ", selection=" + selection +
+            '}';
+    }
 }
@@ -0,0 +1,42 @@
+package com.leadlet.service.dto;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * The facets of a view, all computed for the same search.
+ */
+public class FacetSearchDTO implements Serializable {
+
+    private SearchQueryDTO query;
+    private List<FacetDefinitionDTO> facets;
+
+    /**
+     * @return the search the facets count, all documents when null
+     */
+    public SearchQueryDTO getQuery() {
+        return query;
+    }
+
+    public FacetSearchDTO setQuery(SearchQueryDTO query) {
+        this.query = query;
+        return this;
+    }
+
+    public List<FacetDefinitionDTO> getFacets() {
+        return facets;
+    }
+
+    public FacetSearchDTO setFacets(List<FacetDefinitionDTO> facets) {
+        this.facets = facets;
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return "FacetSearchDTO{" +
+            "query=" + query +
+            ", facets=" + facets +
+            '}';
+    }
+}
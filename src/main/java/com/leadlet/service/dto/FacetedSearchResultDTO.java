@@ -0,0 +1,31 @@
+package com.leadlet.service.dto;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * A page of search results with the facets of the search, the pagination is in the headers as for the list endpoints.
+ */
+public class FacetedSearchResultDTO<T> implements Serializable {
+
+    private List<T> content;
+    private List<FacetDTO> facets;
+
+    public List<T> getContent() {
+        return content;
+    }
+
+    public FacetedSearchResultDTO<T> setContent(List<T> content) {
+        this.content = content;
+        return this;
+    }
+
+    public List<FacetDTO> getFacets() {
+        return facets;
+    }
+
+    public FacetedSearchResultDTO<T> setFacets(List<FacetDTO> facets) {
+        this.facets = facets;
+        return this;
+    }
+}
@@ -0,0 +1,57 @@
+package com.leadlet.service.dto;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The number of documents per interval of a numeric or date field, in the order of the intervals. Intervals
+ * without documents are left out.
+ */
+public class HistogramFacetDTO extends FacetDTO {
+
+    private List<Bucket> buckets = new ArrayList<>();
+
+    public List<Bucket> getBuckets() {
+        return buckets;
+    }
+
+    public HistogramFacetDTO setBuckets(List<Bucket> buckets) {
+        this.buckets = buckets;
+        return this;
+    }
+
+    public void addBucket(Number key, String label, long count) {
+
+        buckets.add(new Bucket(key, label, count));
+
+    }
+
+    public static class Bucket implements Serializable {
+
+        private final Number key;
+        private final String label;
+        private final long count;
+
+        public Bucket(Number key, String label, long count) {
+            this.key = key;
+            this.label = label;
+            this.count = count;
+        }
+
+        /**
+         * @return the start of the interval, epoch milliseconds for dates
+         */
+        public Number getKey() {
+            return key;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        public long getCount() {
+            return count;
+        }
+    }
+}
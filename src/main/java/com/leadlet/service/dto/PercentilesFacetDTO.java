@@ -0,0 +1,27 @@
+package com.leadlet.service.dto;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Approximate percentiles of a numeric field, the values by percent in ascending order.
+ */
+public class PercentilesFacetDTO extends FacetDTO {
+
+    private Map<String, Double> values = new LinkedHashMap<>();
+
+    public Map<String, Double> getValues() {
+        return values;
+    }
+
+    public PercentilesFacetDTO setValues(Map<String, Double> values) {
+        this.values = values;
+        return this;
+    }
+
+    public void addValue(double percent, Double value) {
+
+        values.put(String.valueOf(percent), value);
+
+    }
+}
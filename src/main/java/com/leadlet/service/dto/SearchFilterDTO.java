@@ -4,6 +4,13 @@ import com.leadlet.domain.enumeration.SearchFilterType;
 
 import java.io.Serializable;
 
+/**
+ * One condition of a {@link SearchQueryDTO} on a field of the index.
+ * <p>
+ * The values are a single value for {@link SearchFilterType#EQUALS} and {@link SearchFilterType#CONTAINS}, a list
+ * for {@link SearchFilterType#IN} and a {@code [from, to]} list for {@link SearchFilterType#RANGE}, both bounds
+ * included and either may be null.
+ */
 public class SearchFilterDTO implements Serializable {
 
     private String dataField;
@@ -36,4 +43,13 @@ public class SearchFilterDTO implements Serializable {
         this.values = values;
         return this;
     }
+
+    @Override
+    public String toString() {
+        return "SearchFilterDTO{" +
+            "dataField='" + dataField + "'" +
+            ", operator=" + operator +
+            ", values=" + values +
+            '}';
+    }
 }
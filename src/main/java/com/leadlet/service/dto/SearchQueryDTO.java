@@ -1,15 +1,19 @@
 package com.leadlet.service.dto;
 
 import com.leadlet.domain.enumeration.QueryOperatorType;
-import com.leadlet.domain.enumeration.SearchFilterType;
 
 import java.io.Serializable;
 import java.util.Set;
 
+/**
+ * A search in one index, the filters are combined with the operator. A query string is only used when one is
+ * given, the structured filters are cheaper since they are neither parsed nor scored and are cached by the cluster.
+ */
 public class SearchQueryDTO implements Serializable {
 
     private QueryOperatorType operator;
     private Set<SearchFilterDTO> filters;
+    private String query;
 
     public QueryOperatorType getOperator() {
         return operator;
@@ -28,4 +32,25 @@ public class SearchQueryDTO implements Serializable {
         this.filters = filters;
         return this;
     }
+
+    /**
+     * @return the query string in Lucene syntax, null for none
+     */
+    public String getQuery() {
+        return query;
+    }
+
+    public SearchQueryDTO setQuery(String query) {
+        this.query = query;
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return "SearchQueryDTO{" +
+            "operator=" + operator +
+            ", filters=" + filters +
+            ", query='" + query + "'" +
+            '}';
+    }
 }
@@ -0,0 +1,170 @@
+package com.leadlet.service.dto;
+
+import com.leadlet.domain.enumeration.SearchEntityType;
+
+import java.io.Serializable;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Outcome of one reconciliation of the search indices with the database. Readable while the run is in progress.
+ */
+public class SearchReconcileReportDTO implements Serializable {
+
+    private final Instant startedDate;
+    private volatile Instant finishedDate;
+    private volatile int accounts;
+    private volatile int probes;
+    private volatile int reindexed;
+    private volatile int deleted;
+    private volatile boolean truncated;
+    private volatile String error;
+    private final List<Drift> drifts = new CopyOnWriteArrayList<>();
+
+    public SearchReconcileReportDTO(Instant startedDate) {
+        this.startedDate = startedDate;
+    }
+
+    public Instant getStartedDate() {
+        return startedDate;
+    }
+
+    public Instant getFinishedDate() {
+        return finishedDate;
+    }
+
+    public SearchReconcileReportDTO setFinishedDate(Instant finishedDate) {
+        this.finishedDate = finishedDate;
+        return this;
+    }
+
+    /**
+     * @return the number of accounts compared so far
+     */
+    public int getAccounts() {
+        return accounts;
+    }
+
+    public SearchReconcileReportDTO setAccounts(int accounts) {
+        this.accounts = accounts;
+        return this;
+    }
+
+    /**
+     * @return the number of id ranges compared, one database and one search query each
+     */
+    public int getProbes() {
+        return probes;
+    }
+
+    public SearchReconcileReportDTO setProbes(int probes) {
+        this.probes = probes;
+        return this;
+    }
+
+    public int getReindexed() {
+        return reindexed;
+    }
+
+    public SearchReconcileReportDTO setReindexed(int reindexed) {
+        this.reindexed = reindexed;
+        return this;
+    }
+
+    public int getDeleted() {
+        return deleted;
+    }
+
+    public SearchReconcileReportDTO setDeleted(int deleted) {
+        this.deleted = deleted;
+        return this;
+    }
+
+    /**
+     * @return whether the run stopped early because it reached the maximum number of repairs
+     */
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    public SearchReconcileReportDTO setTruncated(boolean truncated) {
+        this.truncated = truncated;
+        return this;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public SearchReconcileReportDTO setError(String error) {
+        this.error = error;
+        return this;
+    }
+
+    /**
+     * @return the account and index pairs which differed
+     */
+    public List<Drift> getDrifts() {
+        return drifts;
+    }
+
+    public SearchReconcileReportDTO addDrift(Drift drift) {
+        this.drifts.add(drift);
+        return this;
+    }
+
+    /**
+     * Difference between the database and one index of one account.
+     */
+    public static class Drift implements Serializable {
+
+        private final SearchEntityType entityType;
+        private final Long appAccountId;
+        private final long databaseCount;
+        private final long indexCount;
+        private volatile int reindexed;
+        private volatile int deleted;
+
+        public Drift(SearchEntityType entityType, Long appAccountId, long databaseCount, long indexCount) {
+            this.entityType = entityType;
+            this.appAccountId = appAccountId;
+            this.databaseCount = databaseCount;
+            this.indexCount = indexCount;
+        }
+
+        public SearchEntityType getEntityType() {
+            return entityType;
+        }
+
+        public Long getAppAccountId() {
+            return appAccountId;
+        }
+
+        public long getDatabaseCount() {
+            return databaseCount;
+        }
+
+        public long getIndexCount() {
+            return indexCount;
+        }
+
+        public int getReindexed() {
+            return reindexed;
+        }
+
+        public Drift setReindexed(int reindexed) {
+            this.reindexed = reindexed;
+            return this;
+        }
+
+        public int getDeleted() {
+            return deleted;
+        }
+
+        public Drift setDeleted(int deleted) {
+            this.deleted = deleted;
+            return this;
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.leadlet.service.dto;
+
+import com.leadlet.domain.enumeration.SearchEntityType;
+import com.leadlet.domain.enumeration.SearchReindexStatus;
+
+import java.io.Serializable;
+import java.time.Instant;
+
+/**
+ * A DTO for the SearchReindexJob entity with its progress.
+ */
+public class SearchReindexJobDTO implements Serializable {
+
+    private Long id;
+    private SearchEntityType entityType;
+    private Long appAccountId;
+    private SearchReindexStatus status;
+    private long total;
+    private long processed;
+    private long failed;
+    private Instant createdDate;
+    private Instant startedDate;
+    private Instant finishedDate;
+    private Double throughput;
+    private Instant eta;
+    private String lastError;
+
+    public Long getId() {
+        return id;
+    }
+
+    public SearchReindexJobDTO setId(Long id) {
+        this.id = id;
+        return this;
+    }
+
+    public SearchEntityType getEntityType() {
+        return entityType;
+    }
+
+    public SearchReindexJobDTO setEntityType(SearchEntityType entityType) {
+        this.entityType = entityType;
+        return this;
+    }
+
+    /**
+     * @return the rebuilt account, all accounts when empty
+     */
+    public Long getAppAccountId() {
+        return appAccountId;
+    }
+
+    public SearchReindexJobDTO setAppAccountId(Long appAccountId) {
+        this.appAccountId = appAccountId;
+        return this;
+    }
+
+    public SearchReindexStatus getStatus() {
+        return status;
+    }
+
+    public SearchReindexJobDTO setStatus(SearchReindexStatus status) {
+        this.status = status;
+        return this;
+    }
+
+    /**
+     * @return the number of documents to index, counted when the job was created
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    public SearchReindexJobDTO setTotal(long total) {
+        this.total = total;
+        return this;
+    }
+
+    /**
+     * @return the number of documents indexed so far
+     */
+    public long getProcessed() {
+        return processed;
+    }
+
+    public SearchReindexJobDTO setProcessed(long processed) {
+        this.processed = processed;
+        return this;
+    }
+
+    /**
+     * @return the number of documents Elasticsearch refused
+     */
+    public long getFailed() {
+        return failed;
+    }
+
+    public SearchReindexJobDTO setFailed(long failed) {
+        this.failed = failed;
+        return this;
+    }
+
+    public Instant getCreatedDate() {
+        return createdDate;
+    }
+
+    public SearchReindexJobDTO setCreatedDate(Instant createdDate) {
+        this.createdDate = createdDate;
+        return this;
+    }
+
+    /**
+     * @return when the job was last started or resumed
+     */
+    public Instant getStartedDate() {
+        return startedDate;
+    }
+
+    public SearchReindexJobDTO setStartedDate(Instant startedDate) {
+        this.startedDate = startedDate;
+        return this;
+    }
+
+    public Instant getFinishedDate() {
+        return finishedDate;
+    }
+
+    public SearchReindexJobDTO setFinishedDate(Instant finishedDate) {
+        this.finishedDate = finishedDate;
+        return this;
+    }
+
+    /**
+     * @return documents per second since the job was last started, empty when it is not running
+     */
+    public Double getThroughput() {
+        return throughput;
+    }
+
+    public SearchReindexJobDTO setThroughput(Double throughput) {
+        this.throughput = throughput;
+        return this;
+    }
+
+    /**
+     * @return the expected end at the current throughput, empty when it is not running
+     */
+    public Instant getEta() {
+        return eta;
+    }
+
+    public SearchReindexJobDTO setEta(Instant eta) {
+        this.eta = eta;
+        return this;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public SearchReindexJobDTO setLastError(String lastError) {
+        this.lastError = lastError;
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return "SearchReindexJobDTO{" +
+            "id=" + id +
+            ", entityType=" + entityType +
+            ", appAccountId=" + appAccountId +
+            ", status=" + status +
+            ", total=" + total +
+            ", processed=" + processed +
+            '}';
+    }
+}
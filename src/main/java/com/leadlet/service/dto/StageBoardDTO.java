@@ -0,0 +1,88 @@
+package com.leadlet.service.dto;
+
+import com.leadlet.domain.enumeration.CurrencyType;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A column of a pipeline board: the first deals of a stage by priority, with the number and the value of all of
+ * them.
+ */
+public class StageBoardDTO implements Serializable {
+
+    private Long stageId;
+
+    private String stageName;
+
+    private long dealCount;
+
+    private Map<CurrencyType, Double> totals = new EnumMap<>(CurrencyType.class);
+
+    private List<DetailedDealDTO> deals = new ArrayList<>();
+
+    private String nextCursor;
+
+    public Long getStageId() {
+        return stageId;
+    }
+
+    public StageBoardDTO setStageId(Long stageId) {
+        this.stageId = stageId;
+        return this;
+    }
+
+    public String getStageName() {
+        return stageName;
+    }
+
+    public StageBoardDTO setStageName(String stageName) {
+        this.stageName = stageName;
+        return this;
+    }
+
+    public long getDealCount() {
+        return dealCount;
+    }
+
+    public StageBoardDTO setDealCount(long dealCount) {
+        this.dealCount = dealCount;
+        return this;
+    }
+
+    /**
+     * @return the sum of the potential values of the deals by currency, deals without a currency are left out
+     */
+    public Map<CurrencyType, Double> getTotals() {
+        return totals;
+    }
+
+    public StageBoardDTO setTotals(Map<CurrencyType, Double> totals) {
+        this.totals = totals;
+        return this;
+    }
+
+    public List<DetailedDealDTO> getDeals() {
+        return deals;
+    }
+
+    public StageBoardDTO setDeals(List<DetailedDealDTO> deals) {
+        this.deals = deals;
+        return this;
+    }
+
+    /**
+     * @return the cursor of the next deals of the stage, null when all of them are on the board
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public StageBoardDTO setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+        return this;
+    }
+}
@@ -0,0 +1,58 @@
+package com.leadlet.service.dto;
+
+/**
+ * Statistics of a numeric field, everything but the count is null without values.
+ */
+public class StatsFacetDTO extends FacetDTO {
+
+    private long count;
+    private Double min;
+    private Double max;
+    private Double avg;
+    private Double sum;
+
+    public long getCount() {
+        return count;
+    }
+
+    public StatsFacetDTO setCount(long count) {
+        this.count = count;
+        return this;
+    }
+
+    public Double getMin() {
+        return min;
+    }
+
+    public StatsFacetDTO setMin(Double min) {
+        this.min = min;
+        return this;
+    }
+
+    public Double getMax() {
+        return max;
+    }
+
+    public StatsFacetDTO setMax(Double max) {
+        this.max = max;
+        return this;
+    }
+
+    public Double getAvg() {
+        return avg;
+    }
+
+    public StatsFacetDTO setAvg(Double avg) {
+        this.avg = avg;
+        return this;
+    }
+
+    public Double getSum() {
+        return sum;
+    }
+
+    public StatsFacetDTO setSum(Double sum) {
+        this.sum = sum;
+        return this;
+    }
+}
@@ -8,6 +8,7 @@ import org.elasticsearch.common.xcontent.XContentFactory;
 
 import java.io.IOException;
 import java.io.Serializable;
+import java.time.Instant;
 import java.util.Date;
 
 /**
@@ -22,6 +23,8 @@ public class TimelineSearchIndexDTO implements Serializable {
     private Long dealId;
     private Long appAccountId;
     private TimelineItemType type;
+    private String content;
+    private long version;
 
     public TimelineSearchIndexDTO(){
 
@@ -41,8 +44,25 @@ public class TimelineSearchIndexDTO implements Serializable {
             this.dealId = timeline.getDeal().getId();
         }
         this.type = timeline.getType();
+        this.content = timeline.getContent();
         this.appAccountId = timeline.getAppAccount().getId();
+        this.version = toVersion(timeline.getLastModifiedDate());
+    }
 
+    /**
+     * Flat projection used by the index writer.
+     */
+    public TimelineSearchIndexDTO(Long id, Instant createdDate, Instant lastModifiedDate, Long contactId, Long agentId,
+                                  Long dealId, TimelineItemType type, String content, Long appAccountId) {
+        this.id = id;
+        this.createdDate = new Date(createdDate.toEpochMilli());
+        this.version = toVersion(lastModifiedDate);
+        this.contactId = contactId;
+        this.agentId = agentId;
+        this.dealId = dealId;
+        this.type = type;
+        this.content = content;
+        this.appAccountId = appAccountId;
     }
 
     public Long getId() {
@@ -99,6 +119,18 @@ public class TimelineSearchIndexDTO implements Serializable {
         return this;
     }
 
+    /**
+     * Not searchable, kept so the timeline lists are served from the index.
+     */
+    public String getContent() {
+        return content;
+    }
+
+    public TimelineSearchIndexDTO setContent(String content) {
+        this.content = content;
+        return this;
+    }
+
     public Long getAppAccountId() {
         return appAccountId;
     }
@@ -108,6 +140,13 @@ public class TimelineSearchIndexDTO implements Serializable {
         return this;
     }
 
+    /**
+     * External version of the document, the last modification time in milliseconds.
+     */
+    public long getVersion() {
+        return version;
+    }
+
     public XContentBuilder getBuilder() throws IOException {
         XContentBuilder builder = XContentFactory.jsonBuilder();
         builder.startObject();
@@ -118,13 +157,17 @@ public class TimelineSearchIndexDTO implements Serializable {
             builder.field("agent_id", getAgentId());
             builder.field("deal_id", getDealId());
             builder.field("type", getType());
+            builder.field("content", getContent());
             builder.field("app_account_id", getAppAccountId());
+            builder.field("version", getVersion());
 
         }
         builder.endObject();
 
         return builder;
     }
-}
-
 
+    private static long toVersion(Instant lastModifiedDate) {
+        return lastModifiedDate != null ? lastModifiedDate.toEpochMilli() : 0L;
+    }
+}
@@ -7,6 +7,8 @@ import org.elasticsearch.common.xcontent.XContentFactory;
 
 import java.io.IOException;
 import java.io.Serializable;
+import java.time.Instant;
+import java.util.Map;
 
 /**
  * A DTO for the Deal entity.
@@ -18,6 +20,8 @@ public class UserSearchIndexDTO implements Serializable {
     private String lastname;
     private String login;
     private Long appAccountId;
+    private long version;
+    private Map<String, Object> view;
 
     public UserSearchIndexDTO(){
 
@@ -30,7 +34,7 @@ public class UserSearchIndexDTO implements Serializable {
         this.lastname = user.getLastName();
         this.login = user.getLogin();
         this.appAccountId = user.getAppAccount().getId();
-
+        this.version = toVersion(user.getLastModifiedDate());
     }
 
     public Long getId() {
@@ -75,6 +79,25 @@ public class UserSearchIndexDTO implements Serializable {
         this.login = login;
     }
 
+    /**
+     * External version of the document, the last modification time in milliseconds.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * The DTO of the list endpoint, see {@link com.leadlet.service.search.SearchViews}.
+     */
+    public Map<String, Object> getView() {
+        return view;
+    }
+
+    public UserSearchIndexDTO setView(Map<String, Object> view) {
+        this.view = view;
+        return this;
+    }
+
     public XContentBuilder getBuilder() throws IOException {
 
         XContentBuilder builder = XContentFactory.jsonBuilder();
@@ -85,12 +108,18 @@ public class UserSearchIndexDTO implements Serializable {
             builder.field("last_name", getLastname());
             builder.field("login", getLogin());
             builder.field("app_account_id", getAppAccountId());
+            builder.field("version", getVersion());
+            if (getView() != null) {
+                builder.field("view", getView());
+            }
 
         }
         builder.endObject();
 
         return builder;
     }
-}
-
 
+    private static long toVersion(Instant lastModifiedDate) {
+        return lastModifiedDate != null ? lastModifiedDate.toEpochMilli() : 0L;
+    }
+}
@@ -1,30 +1,33 @@
 package com.leadlet.service.impl;
 
 import com.leadlet.domain.Activity;
+import com.leadlet.domain.enumeration.SearchEntityType;
 import com.leadlet.repository.ActivityRepository;
 import com.leadlet.security.SecurityUtils;
 import com.leadlet.service.ActivityService;
 import com.leadlet.service.ElasticsearchService;
+import com.leadlet.service.SearchOutboxService;
 import com.leadlet.service.TimelineService;
 import com.leadlet.service.dto.ActivityDTO;
+import com.leadlet.service.dto.SearchQueryDTO;
 import com.leadlet.service.mapper.ActivityMapper;
+import com.leadlet.service.search.CursorPage;
+import com.leadlet.service.search.SearchHydrator;
+import com.leadlet.service.search.SearchViews;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
-import org.springframework.data.util.Pair;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.util.StringUtils;
 
 import javax.persistence.EntityNotFoundException;
 import java.io.IOException;
 import java.time.Instant;
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
 
 
 /**
@@ -44,12 +47,23 @@ public class ActivityServiceImpl implements ActivityService {
 
     private final ElasticsearchService elasticsearchService;
 
+    private final SearchOutboxService searchOutboxService;
+
+    private final SearchViews searchViews;
+
+    private final SearchHydrator searchHydrator;
+
     public ActivityServiceImpl(ActivityRepository activityRepository, ActivityMapper activityMapper,
-                               TimelineService timelineService, ElasticsearchService elasticsearchService) {
+                               TimelineService timelineService, ElasticsearchService elasticsearchService,
+                               SearchOutboxService searchOutboxService, SearchViews searchViews,
+                               SearchHydrator searchHydrator) {
         this.activityRepository = activityRepository;
         this.activityMapper = activityMapper;
         this.timelineService = timelineService;
         this.elasticsearchService = elasticsearchService;
+        this.searchOutboxService = searchOutboxService;
+        this.searchViews = searchViews;
+        this.searchHydrator = searchHydrator;
     }
 
     /**
@@ -66,7 +80,7 @@ public class ActivityServiceImpl implements ActivityService {
         activity.setAppAccount(SecurityUtils.getCurrentUserAppAccountReference());
         activity = activityRepository.save(activity);
         timelineService.activityCreated(activity);
-        elasticsearchService.indexActivity(activity);
+        searchOutboxService.enqueue(SearchEntityType.ACTIVITY, activity.getId(), activity.getAppAccount().getId());
         return activityMapper.toDto(activity);
 
     }
@@ -91,6 +105,7 @@ public class ActivityServiceImpl implements ActivityService {
             }
             activity = activityRepository.save(activity);
             timelineService.activityCreated(activity);
+            searchOutboxService.enqueue(SearchEntityType.ACTIVITY, activity.getId(), activity.getAppAccount().getId());
             return activityMapper.toDto(activity);
         } else {
             throw new EntityNotFoundException();
@@ -122,6 +137,7 @@ public class ActivityServiceImpl implements ActivityService {
 
         Activity objectFormDb = activityRepository.findOneByIdAndAppAccount_Id(id, SecurityUtils.getCurrentUserAppAccountId());
         if (objectFormDb != null) {
+            searchOutboxService.enqueueDelete(SearchEntityType.ACTIVITY, Collections.singletonList(id), objectFormDb.getAppAccount().getId());
             activityRepository.delete(id);
         } else {
             throw new EntityNotFoundException();
@@ -130,32 +146,13 @@ public class ActivityServiceImpl implements ActivityService {
 
 
     @Override
-    public Page<ActivityDTO> search(String searchQuery, Pageable pageable) throws IOException {
-
-        String appAccountFilter = "app_account_id:" + SecurityUtils.getCurrentUserAppAccountId();
-        if(StringUtils.isEmpty(searchQuery)){
-            searchQuery = appAccountFilter;
-        }else {
-            searchQuery += " AND " + appAccountFilter;
-        }
-        Pair<List<Long>, Long> response = elasticsearchService.getEntityIds("leadlet-activity", searchQuery, pageable);
-
-        List<ActivityDTO> unsorted = activityRepository.findAllByIdIn(response.getFirst()).stream()
-            .map(activityMapper::toDto).collect(Collectors.toList());
-        List<Long> sortedIds = response.getFirst();
-
-        // we are getting ids from ES sorted but JPA returns result not sorted
-        // below code-piece sorts the returned DTOs to have same sort with ids.
-        Collections.sort(unsorted,  new Comparator<ActivityDTO>() {
-            public int compare(ActivityDTO left, ActivityDTO right) {
-                return Integer.compare(sortedIds.indexOf(left.getId()), sortedIds.indexOf(right.getId()));
-            }
-        } );
-
-        Page<ActivityDTO> activityDTOS = new PageImpl<ActivityDTO>(unsorted,
-            pageable,
-            response.getSecond());
-
-        return activityDTOS;
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public Page<ActivityDTO> search(SearchQueryDTO searchQuery, Pageable pageable, String cursor) throws IOException {
+        CursorPage<Map<String, Object>> response = elasticsearchService.getSources("leadlet-activity", searchQuery, pageable,
+            cursor, true, SearchViews.VIEW);
+
+        List<ActivityDTO> activities = searchViews.read(response.getContent(), ActivityDTO.class,
+            ids -> searchHydrator.hydrate(ids, activityRepository::findDistinctByIdIn, Activity::getId, activityMapper::toListDto));
+        return response.withContent(activities);
     }
 }
@@ -1,9 +1,11 @@
 package com.leadlet.service.impl;
 
 import com.leadlet.domain.ActivityType;
+import com.leadlet.domain.enumeration.SearchReference;
 import com.leadlet.repository.ActivityTypeRepository;
 import com.leadlet.security.SecurityUtils;
 import com.leadlet.service.ActivityTypeService;
+import com.leadlet.service.SearchOutboxService;
 import com.leadlet.service.dto.ActivityTypeDTO;
 import com.leadlet.service.mapper.ActivityTypeMapper;
 import org.slf4j.Logger;
@@ -14,6 +16,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityNotFoundException;
+import java.util.Objects;
 
 /**
  * Service Implementation for managing ActivityType.
@@ -29,9 +32,13 @@ public class ActivityTypeServiceImpl implements ActivityTypeService {
 
     private final ActivityTypeMapper activityTypeMapper;
 
-    public ActivityTypeServiceImpl(ActivityTypeRepository activityTypeRepository, ActivityTypeMapper activityTypeMapper) {
+    private final SearchOutboxService searchOutboxService;
+
+    public ActivityTypeServiceImpl(ActivityTypeRepository activityTypeRepository, ActivityTypeMapper activityTypeMapper,
+                                   SearchOutboxService searchOutboxService) {
         this.activityTypeRepository = activityTypeRepository;
         this.activityTypeMapper = activityTypeMapper;
+        this.searchOutboxService = searchOutboxService;
     }
 
     /**
@@ -62,9 +69,13 @@ public class ActivityTypeServiceImpl implements ActivityTypeService {
         ActivityType activityTypeFromDb = activityTypeRepository.findOneByIdAndAppAccount_Id(activityType.getId(), SecurityUtils.getCurrentUserAppAccountId());
 
         if (activityTypeFromDb != null) {
+            String previousName = activityTypeFromDb.getName();
             // TODO appaccount'u eklemek dogru fakat appaccount olmadan da kayit hatasi almaliydik.
             activityType.setAppAccount(SecurityUtils.getCurrentUserAppAccountReference());
             activityType = activityTypeRepository.save(activityType);
+            if (!Objects.equals(previousName, activityType.getName())) {
+                searchOutboxService.enqueueCascade(SearchReference.ACTIVITY_TYPE, activityType.getId(), SecurityUtils.getCurrentUserAppAccountId());
+            }
             return activityTypeMapper.toDto(activityType);
         } else {
             throw new EntityNotFoundException();
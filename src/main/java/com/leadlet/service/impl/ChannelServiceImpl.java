@@ -2,10 +2,13 @@ package com.leadlet.service.impl;
 
 import com.leadlet.domain.Deal;
 import com.leadlet.domain.DealChannel;
+import com.leadlet.domain.enumeration.SearchEntityType;
+import com.leadlet.domain.enumeration.SearchReference;
 import com.leadlet.repository.ChannelRepository;
 import com.leadlet.repository.DealRepository;
 import com.leadlet.security.SecurityUtils;
 import com.leadlet.service.ChannelService;
+import com.leadlet.service.SearchOutboxService;
 import com.leadlet.service.dto.ChannelDTO;
 import com.leadlet.service.mapper.ChannelMapper;
 import org.slf4j.Logger;
@@ -17,6 +20,7 @@ import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityNotFoundException;
 import java.util.Iterator;
+import java.util.Objects;
 
 /**
  * Service Implementation for managing Channel.
@@ -34,10 +38,14 @@ public class ChannelServiceImpl implements ChannelService {
 
     private final ChannelMapper channelMapper;
 
-    public ChannelServiceImpl(ChannelRepository channelRepository, ChannelMapper channelMapper, DealRepository dealRepository) {
+    private final SearchOutboxService searchOutboxService;
+
+    public ChannelServiceImpl(ChannelRepository channelRepository, ChannelMapper channelMapper, DealRepository dealRepository,
+                              SearchOutboxService searchOutboxService) {
         this.channelRepository = channelRepository;
         this.channelMapper = channelMapper;
         this.dealRepository = dealRepository;
+        this.searchOutboxService = searchOutboxService;
     }
 
     /**
@@ -68,9 +76,13 @@ public class ChannelServiceImpl implements ChannelService {
         DealChannel channelFromDb = channelRepository.findOneByIdAndAppAccount_Id(dealChannel.getId(), SecurityUtils.getCurrentUserAppAccountId());
 
         if (channelFromDb != null) {
+            String previousName = channelFromDb.getName();
             // TODO appaccount'u eklemek dogru fakat appaccount olmadan da kayit hatasi almaliydik.
             dealChannel.setAppAccount(SecurityUtils.getCurrentUserAppAccountReference());
             dealChannel = channelRepository.save(dealChannel);
+            if (!Objects.equals(previousName, dealChannel.getName())) {
+                searchOutboxService.enqueueCascade(SearchReference.CHANNEL, dealChannel.getId(), SecurityUtils.getCurrentUserAppAccountId());
+            }
             return channelMapper.toDto(dealChannel);
         } else {
             throw new EntityNotFoundException();
@@ -125,6 +137,7 @@ public class ChannelServiceImpl implements ChannelService {
                     deal.setDealChannel(null);
                 }
                 dealRepository.save(deal);
+                searchOutboxService.enqueue(SearchEntityType.DEAL, deal.getId(), deal.getAppAccount().getId());
             }
             channelRepository.delete(id);
         } else {
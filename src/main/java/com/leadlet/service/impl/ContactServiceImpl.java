@@ -2,9 +2,11 @@ package com.leadlet.service.impl;
 
 import com.leadlet.domain.ContactPhone;
 import com.leadlet.domain.Contact;
+import com.leadlet.domain.enumeration.SearchReference;
 import com.leadlet.repository.ContactRepository;
 import com.leadlet.security.SecurityUtils;
 import com.leadlet.service.ContactService;
+import com.leadlet.service.SearchOutboxService;
 import com.leadlet.service.dto.ContactDTO;
 import com.leadlet.service.mapper.ContactMapper;
 import org.slf4j.Logger;
@@ -15,8 +17,10 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityNotFoundException;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Objects;
 import java.util.Set;
 
 
@@ -33,9 +37,13 @@ public class ContactServiceImpl implements ContactService {
 
     private final ContactMapper contactMapper;
 
-    public ContactServiceImpl(ContactRepository contactRepository, ContactMapper contactMapper) {
+    private final SearchOutboxService searchOutboxService;
+
+    public ContactServiceImpl(ContactRepository contactRepository, ContactMapper contactMapper,
+                              SearchOutboxService searchOutboxService) {
         this.contactRepository = contactRepository;
         this.contactMapper = contactMapper;
+        this.searchOutboxService = searchOutboxService;
     }
 
     /**
@@ -79,6 +87,7 @@ public class ContactServiceImpl implements ContactService {
         Contact contact = contactMapper.toEntity(contactDTO);
         Contact contactFromDb = contactRepository.findOneByIdAndAppAccount_Id(contact.getId(), SecurityUtils.getCurrentUserAppAccountId());
         if (contactFromDb != null) {
+            String previousName = contactFromDb.getName();
             contact.setAppAccount(SecurityUtils.getCurrentUserAppAccountReference());
 
             Set<ContactPhone> phones = contact.getPhones();
@@ -90,6 +99,9 @@ public class ContactServiceImpl implements ContactService {
             }
 
             contact = contactRepository.save(contact);
+            if (!Objects.equals(previousName, contact.getName())) {
+                searchOutboxService.enqueueCascade(SearchReference.CONTACT, contact.getId(), SecurityUtils.getCurrentUserAppAccountId());
+            }
             return contactMapper.toDto(contact);
         } else {
             throw new EntityNotFoundException();
@@ -135,6 +147,7 @@ public class ContactServiceImpl implements ContactService {
 
         Contact contact = contactRepository.findOneByIdAndAppAccount_Id(id, SecurityUtils.getCurrentUserAppAccountId());
         if (contact != null) {
+            searchOutboxService.enqueueContactDelete(Collections.singletonList(id), contact.getAppAccount().getId());
             contactRepository.delete(id);
         } else {
             throw new EntityNotFoundException();
@@ -149,6 +162,8 @@ public class ContactServiceImpl implements ContactService {
     @Override
     public void delete(List<Long> idList) {
         log.debug("Request to delete Contact : {}", idList);
+        List<Long> ownIds = contactRepository.findIdsByIdInAndAppAccount_Id(idList, SecurityUtils.getCurrentUserAppAccountId());
+        searchOutboxService.enqueueContactDelete(ownIds, SecurityUtils.getCurrentUserAppAccountId());
         contactRepository.deleteByIdInAndAppAccount_Id(idList, SecurityUtils.getCurrentUserAppAccountId());
 
     }
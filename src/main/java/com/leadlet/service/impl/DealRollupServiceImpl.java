@@ -0,0 +1,257 @@
+package com.leadlet.service.impl;
+
+import com.leadlet.config.ApplicationProperties;
+import com.leadlet.domain.Deal;
+import com.leadlet.domain.DealStageRollup;
+import com.leadlet.domain.DealValue;
+import com.leadlet.domain.enumeration.CurrencyType;
+import com.leadlet.repository.AppAccountRepository;
+import com.leadlet.repository.DealRepository;
+import com.leadlet.repository.DealStageRollupRepository;
+import com.leadlet.service.DealRollupService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Service Implementation for keeping the deal totals of every stage.
+ * <p>
+ * A write adds its difference to the row of the deal's stripe: one select of the row id and one update by id, or an
+ * insert when the row does not exist yet. Two transactions inserting the same row at once leave two of them, which
+ * is harmless as the totals are sums over all rows and later writes update the first one only.
+ * <p>
+ * The verification reads the deals and the rollups of an account in one repeatable read transaction and adds the
+ * differences to stripe 0, so writes committed in the meantime are neither lost nor counted twice.
+ */
+@Service
+public class DealRollupServiceImpl implements DealRollupService {
+
+    private final Logger log = LoggerFactory.getLogger(DealRollupServiceImpl.class);
+
+    private static final Pageable FIRST = new PageRequest(0, 1);
+
+    /**
+     * Differences of the value sums below half a cent are rounding errors of the additions.
+     */
+    private static final double VALUE_TOLERANCE = 0.005;
+
+    private final DealStageRollupRepository dealStageRollupRepository;
+    private final DealRepository dealRepository;
+    private final AppAccountRepository appAccountRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int stripes;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public DealRollupServiceImpl(DealStageRollupRepository dealStageRollupRepository, DealRepository dealRepository,
+                                 AppAccountRepository appAccountRepository,
+                                 PlatformTransactionManager transactionManager,
+                                 ApplicationProperties applicationProperties) {
+        this.dealStageRollupRepository = dealStageRollupRepository;
+        this.dealRepository = dealRepository;
+        this.appAccountRepository = appAccountRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.stripes = Math.max(1, applicationProperties.getRollup().getStripes());
+    }
+
+    @Override
+    @Transactional
+    public void dealCreated(Deal deal) {
+        Key key = Key.of(deal);
+        if (key != null) {
+            add(deal.getAppAccount().getId(), key, stripe(deal), 1, value(deal.getDealValue()));
+        }
+    }
+
+    @Override
+    @Transactional
+    public void dealDeleted(Deal deal) {
+        Key key = Key.of(deal);
+        if (key != null) {
+            add(deal.getAppAccount().getId(), key, stripe(deal), -1, -value(deal.getDealValue()));
+        }
+    }
+
+    @Override
+    @Transactional
+    public void dealChanged(Deal deal, Long pipelineId, Long stageId, DealValue dealValue) {
+        Long appAccountId = deal.getAppAccount().getId();
+        int stripe = stripe(deal);
+        Key from = Key.of(deal);
+        Key to = pipelineId == null || stageId == null ? null
+            : new Key(pipelineId, stageId, dealValue == null ? null : dealValue.getCurrency());
+        double fromValue = value(deal.getDealValue());
+        double toValue = value(dealValue);
+
+        if (Objects.equals(from, to)) {
+            if (from != null && fromValue != toValue) {
+                add(appAccountId, from, stripe, 0, toValue - fromValue);
+            }
+            return;
+        }
+        if (from != null) {
+            add(appAccountId, from, stripe, -1, -fromValue);
+        }
+        if (to != null) {
+            add(appAccountId, to, stripe, 1, toValue);
+        }
+    }
+
+    @Override
+    @Transactional
+    public void stageDeleted(Long appAccountId, Long stageId) {
+        dealStageRollupRepository.deleteByAppAccountIdAndStageId(appAccountId, stageId);
+    }
+
+    @Override
+    @Transactional
+    public void pipelineDeleted(Long appAccountId, Long pipelineId) {
+        dealStageRollupRepository.deleteByAppAccountIdAndPipelineId(appAccountId, pipelineId);
+    }
+
+    @Override
+    public int verify() {
+        if (!running.compareAndSet(false, true)) {
+            log.debug("Deal rollup verification already running");
+            return -1;
+        }
+        int repaired = 0;
+        try {
+            for (Long appAccountId : appAccountRepository.findAllIds()) {
+                repaired += transactionTemplate.execute(status -> verify(appAccountId));
+            }
+        } finally {
+            running.set(false);
+        }
+        log.info("Deal rollup verification repaired {} totals", repaired);
+        return repaired;
+    }
+
+    private int verify(Long appAccountId) {
+        Map<Key, Totals> expected = totals(dealRepository.findRollupTotalsByAppAccountId(appAccountId));
+        Map<Key, Totals> actual = totals(dealStageRollupRepository.findTotalsByAppAccountId(appAccountId));
+        Set<Key> keys = new HashSet<>(expected.keySet());
+        keys.addAll(actual.keySet());
+
+        int repaired = 0;
+        for (Key key : keys) {
+            Totals should = expected.getOrDefault(key, Totals.ZERO);
+            Totals is = actual.getOrDefault(key, Totals.ZERO);
+            long count = should.count - is.count;
+            double value = should.value - is.value;
+            if (count != 0 || Math.abs(value) > VALUE_TOLERANCE) {
+                log.warn("Deal rollup of account {} {} is {}, repaired to {}", appAccountId, key, is, should);
+                add(appAccountId, key, 0, count, value);
+                repaired++;
+            }
+        }
+        return repaired;
+    }
+
+    private void add(Long appAccountId, Key key, int stripe, long count, double value) {
+        List<Long> ids = dealStageRollupRepository.findIds(appAccountId, key.pipelineId, key.stageId, key.currency,
+            stripe, FIRST);
+        if (ids.isEmpty()) {
+            dealStageRollupRepository.save(new DealStageRollup(appAccountId, key.pipelineId, key.stageId, key.currency,
+                stripe, count, value));
+        } else {
+            dealStageRollupRepository.add(ids.get(0), count, value);
+        }
+    }
+
+    private int stripe(Deal deal) {
+        return (int) Math.floorMod(deal.getId(), (long) stripes);
+    }
+
+    private static double value(DealValue dealValue) {
+        return dealValue == null || dealValue.getPotentialValue() == null ? 0.0 : dealValue.getPotentialValue();
+    }
+
+    /**
+     * @param rows {@code pipeline id, stage id, currency, number of deals, sum of the potential values}
+     */
+    private static Map<Key, Totals> totals(List<Object[]> rows) {
+        Map<Key, Totals> totals = new HashMap<>();
+        for (Object[] row : rows) {
+            totals.put(new Key((Long) row[0], (Long) row[1], (CurrencyType) row[2]),
+                new Totals((Long) row[3], row[4] == null ? 0.0 : (Double) row[4]));
+        }
+        return totals;
+    }
+
+    private static final class Key {
+
+        private final Long pipelineId;
+        private final Long stageId;
+        private final CurrencyType currency;
+
+        private Key(Long pipelineId, Long stageId, CurrencyType currency) {
+            this.pipelineId = pipelineId;
+            this.stageId = stageId;
+            this.currency = currency;
+        }
+
+        /**
+         * @return where the deal is counted as it is now, null when it has no stage
+         */
+        private static Key of(Deal deal) {
+            if (deal.getPipeline() == null || deal.getStage() == null) {
+                return null;
+            }
+            return new Key(deal.getPipeline().getId(), deal.getStage().getId(),
+                deal.getDealValue() == null ? null : deal.getDealValue().getCurrency());
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key that = (Key) o;
+            return Objects.equals(pipelineId, that.pipelineId) && Objects.equals(stageId, that.stageId)
+                && currency == that.currency;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(pipelineId, stageId, currency);
+        }
+
+        @Override
+        public String toString() {
+            return "pipeline " + pipelineId + " stage " + stageId + " " + currency;
+        }
+    }
+
+    private static final class Totals {
+
+        private static final Totals ZERO = new Totals(0, 0.0);
+
+        private final long count;
+        private final double value;
+
+        private Totals(long count, double value) {
+            this.count = count;
+            this.value = value;
+        }
+
+        @Override
+        public String toString() {
+            return count + " deals worth " + value;
+        }
+    }
+}
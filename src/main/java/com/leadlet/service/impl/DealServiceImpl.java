@@ -1,33 +1,58 @@
 package com.leadlet.service.impl;
 
+import com.leadlet.config.SearchConstants;
 import com.leadlet.domain.Deal;
 import com.leadlet.domain.Stage;
+import com.leadlet.domain.enumeration.CurrencyType;
+import com.leadlet.domain.enumeration.QueryOperatorType;
+import com.leadlet.domain.enumeration.SearchFilterType;
+import com.leadlet.domain.enumeration.SearchEntityType;
+import com.leadlet.domain.enumeration.SearchReference;
 import com.leadlet.repository.DealRepository;
+import com.leadlet.repository.DealStageRollupRepository;
 import com.leadlet.repository.StageRepository;
 import com.leadlet.security.SecurityUtils;
+import com.leadlet.service.DealRollupService;
 import com.leadlet.service.DealService;
 import com.leadlet.service.ElasticsearchService;
+import com.leadlet.service.SearchOutboxService;
 import com.leadlet.service.TimelineService;
 import com.leadlet.service.dto.DealDTO;
 import com.leadlet.service.dto.DetailedDealDTO;
+import com.leadlet.service.dto.FacetDefinitionDTO;
+import com.leadlet.service.dto.SearchFilterDTO;
+import com.leadlet.service.dto.SearchQueryDTO;
+import com.leadlet.service.dto.StageBoardDTO;
 import com.leadlet.service.mapper.DealMapper;
 import com.leadlet.service.mapper.DetailedDealMapper;
+import com.leadlet.service.search.CursorPage;
+import com.leadlet.service.search.FacetedPage;
+import com.leadlet.service.search.SearchHydrator;
+import com.leadlet.service.search.SearchViews;
+import com.leadlet.web.rest.errors.CustomParameterizedException;
+import com.leadlet.web.rest.errors.ErrorConstants;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
-import org.springframework.data.util.Pair;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.util.StringUtils;
 
 import javax.persistence.EntityManager;
 import javax.persistence.EntityNotFoundException;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 
@@ -40,6 +65,19 @@ public class DealServiceImpl implements DealService {
 
     private final Logger log = LoggerFactory.getLogger(DealServiceImpl.class);
 
+    /**
+     * The order of the deals in a stage of a board.
+     */
+    private static final Sort BOARD_ORDER = new Sort(Sort.Direction.ASC, "priority");
+
+    /**
+     * Deals per stage of a board at most, the cluster returns no more top hits by default.
+     */
+    private static final int MAX_BOARD_DEALS = 100;
+
+    private static final String PIPELINE_ID = "pipeline_id";
+    private static final String STAGE_ID = "stage_id";
+
     private final DealRepository dealRepository;
 
     private final StageRepository stageRepository;
@@ -52,18 +90,36 @@ public class DealServiceImpl implements DealService {
 
     private final TimelineService timelineService;
 
+    private final SearchOutboxService searchOutboxService;
+
     private final EntityManager entityManager;
 
+    private final SearchViews searchViews;
+
+    private final SearchHydrator searchHydrator;
+
+    private final DealRollupService dealRollupService;
+
+    private final DealStageRollupRepository dealStageRollupRepository;
+
     public DealServiceImpl(DealRepository dealRepository, DetailedDealMapper detailedDealMapper, StageRepository stageRepository,
                            DealMapper dealMapper, ElasticsearchService elasticsearchService,
-                           TimelineService timelineService, EntityManager entityManager) {
+                           TimelineService timelineService, SearchOutboxService searchOutboxService,
+                           EntityManager entityManager, SearchViews searchViews,
+                           SearchHydrator searchHydrator, DealRollupService dealRollupService,
+                           DealStageRollupRepository dealStageRollupRepository) {
         this.dealRepository = dealRepository;
         this.detailedDealMapper = detailedDealMapper;
         this.dealMapper = dealMapper;
         this.stageRepository = stageRepository;
         this.elasticsearchService = elasticsearchService;
         this.timelineService = timelineService;
+        this.searchOutboxService = searchOutboxService;
         this.entityManager = entityManager;
+        this.searchViews = searchViews;
+        this.searchHydrator = searchHydrator;
+        this.dealRollupService = dealRollupService;
+        this.dealStageRollupRepository = dealStageRollupRepository;
     }
 
     /**
@@ -78,7 +134,8 @@ public class DealServiceImpl implements DealService {
         Deal deal = dealMapper.toEntity(dealDTO);
         deal.setAppAccount(SecurityUtils.getCurrentUserAppAccountReference());
         deal = dealRepository.save(deal);
-        elasticsearchService.indexDeal(deal);
+        dealRollupService.dealCreated(deal);
+        searchOutboxService.enqueue(SearchEntityType.DEAL, deal.getId(), deal.getAppAccount().getId());
         timelineService.dealCreated(deal);
 
         return detailedDealMapper.toDto(deal);
@@ -96,14 +153,21 @@ public class DealServiceImpl implements DealService {
         Deal deal = dealMapper.toEntity(dealDTO);
         Deal dealFromDb = dealRepository.findOneByIdAndAppAccount_Id(deal.getId(), SecurityUtils.getCurrentUserAppAccountId());
 
-        entityManager.detach(dealFromDb);
-
         if (dealFromDb != null) {
+            dealRollupService.dealChanged(dealFromDb, deal.getPipeline() == null ? null : deal.getPipeline().getId(),
+                deal.getStage() == null ? null : deal.getStage().getId(), deal.getDealValue());
+            boolean renamed = !Objects.equals(dealFromDb.getTitle(), deal.getTitle());
+            entityManager.detach(dealFromDb);
+
             // TODO appaccount'u eklemek dogru fakat appaccount olmadan da kayit hatasi almaliydik.
             deal.setAppAccount(SecurityUtils.getCurrentUserAppAccountReference());
             deal = dealRepository.save(deal);
             timelineService.dealUpdated(dealFromDb, deal, modifiedFields);
-            elasticsearchService.indexDeal(deal);
+            searchOutboxService.enqueue(SearchEntityType.DEAL, deal.getId(), deal.getAppAccount().getId());
+            if (renamed) {
+                // the activity list views show the deal title
+                searchOutboxService.enqueueCascade(SearchReference.DEAL, deal.getId(), deal.getAppAccount().getId());
+            }
             return detailedDealMapper.toDto(deal);
         } else {
             throw new EntityNotFoundException();
@@ -113,16 +177,23 @@ public class DealServiceImpl implements DealService {
     @Override
     public DetailedDealDTO updateStage(Long id, Long stageId) throws IOException {
 
-        Deal dealFromDb = dealRepository.findOneByIdAndAppAccount_Id(id, SecurityUtils.getCurrentUserAppAccountId());
-        Stage newStage = stageRepository.findOne(stageId);
-        if (dealFromDb != null) {
-            dealFromDb.setStage(newStage);
-            Deal deal = dealRepository.save(dealFromDb);
-            elasticsearchService.indexDeal(deal);
-            return detailedDealMapper.toDto(deal);
-        } else {
+        Long appAccountId = SecurityUtils.getCurrentUserAppAccountId();
+        Deal dealFromDb = dealRepository.findOneByIdAndAppAccount_Id(id, appAccountId);
+        if (dealFromDb == null) {
             throw new EntityNotFoundException();
         }
+        Stage newStage = stageRepository.findOneByIdAndAppAccount_Id(stageId, appAccountId);
+        if (newStage == null) {
+            throw new CustomParameterizedException(ErrorConstants.ERR_INVALID_STAGE, String.valueOf(stageId));
+        }
+        // the deal ends up in the pipeline of its stage, whichever it was in before
+        dealRollupService.dealChanged(dealFromDb, newStage.getPipeline().getId(), newStage.getId(),
+            dealFromDb.getDealValue());
+        dealFromDb.setStage(newStage).setPipeline(newStage.getPipeline());
+        Deal deal = dealRepository.save(dealFromDb);
+        // the list view of the document changes along, the writer rebuilds it rather than the outbox carrying it
+        searchOutboxService.enqueue(SearchEntityType.DEAL, deal.getId(), deal.getAppAccount().getId());
+        return detailedDealMapper.toDto(deal);
     }
 
     /**
@@ -163,6 +234,8 @@ public class DealServiceImpl implements DealService {
         log.debug("Request to delete Deal : {}", id);
         Deal dealFromDb = dealRepository.findOneByIdAndAppAccount_Id(id, SecurityUtils.getCurrentUserAppAccountId());
         if (dealFromDb != null) {
+            searchOutboxService.enqueueDelete(SearchEntityType.DEAL, Collections.singletonList(id), dealFromDb.getAppAccount().getId());
+            dealRollupService.dealDeleted(dealFromDb);
             dealRepository.delete(id);
         } else {
             throw new EntityNotFoundException();
@@ -170,34 +243,87 @@ public class DealServiceImpl implements DealService {
     }
 
     @Override
-    public Page<DetailedDealDTO> query(String searchQuery, Pageable pageable) throws IOException {
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public Page<DetailedDealDTO> query(SearchQueryDTO searchQuery, Pageable pageable, String cursor, boolean exactTotal) throws IOException {
 
-        String appAccountFilter = "app_account_id:" + SecurityUtils.getCurrentUserAppAccountId();
-        if(StringUtils.isEmpty(searchQuery)){
-            searchQuery = appAccountFilter;
-        }else {
-            searchQuery += " AND " + appAccountFilter;
-        }
+        CursorPage<Map<String, Object>> response = elasticsearchService.getSources("leadlet-deal", searchQuery, pageable,
+            cursor, exactTotal, SearchViews.VIEW);
 
-        Pair<List<Long>, Long> response = elasticsearchService.getEntityIds("leadlet-deal", searchQuery, pageable);
+        return response.withContent(readDeals(response.getContent()));
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public FacetedPage<DetailedDealDTO> query(SearchQueryDTO searchQuery, Pageable pageable, String cursor, boolean exactTotal,
+                                              List<FacetDefinitionDTO> facets) throws IOException {
 
-        List<DetailedDealDTO> unsorted = dealRepository.findAllByIdIn(response.getFirst()).stream()
-            .map(detailedDealMapper::toDto).collect(Collectors.toList());
-        List<Long> sortedIds = response.getFirst();
+        FacetedPage<Map<String, Object>> response = elasticsearchService.getSources("leadlet-deal", searchQuery, pageable,
+            cursor, exactTotal, facets, SearchViews.VIEW);
 
-        // we are getting ids from ES sorted but JPA returns result not sorted
-        // below code-piece sorts the returned DTOs to have same sort with ids.
-        Collections.sort(unsorted,  new Comparator<DetailedDealDTO>() {
-            public int compare(DetailedDealDTO left, DetailedDealDTO right) {
-                return Integer.compare(sortedIds.indexOf(left.getId()), sortedIds.indexOf(right.getId()));
+        return response.withContent(readDeals(response.getContent()));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<StageBoardDTO> getBoard(Long pipelineId, int size) throws IOException {
+        Long appAccountId = SecurityUtils.getCurrentUserAppAccountId();
+        Map<Long, StageBoardDTO> board = new LinkedHashMap<>();
+        List<Stage> stages = stageRepository.findAllByAppAccount_IdAndPipeline_Id(appAccountId, pipelineId);
+        stages.sort(Comparator.comparing(Stage::getId));
+        for (Stage stage : stages) {
+            board.put(stage.getId(), new StageBoardDTO().setStageId(stage.getId()).setStageName(stage.getName()));
+        }
+        if (board.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        for (Object[] row : dealStageRollupRepository.findStageTotalsByPipelineId(appAccountId, pipelineId)) {
+            StageBoardDTO column = board.get((Long) row[0]);
+            if (column == null) {
+                continue;
+            }
+            column.setDealCount(column.getDealCount() + (Long) row[2]);
+            if (row[1] != null && row[3] != null) {
+                column.getTotals().merge((CurrencyType) row[1], (Double) row[3], Double::sum);
             }
-        } );
+        }
+
+        List<String> stageIds = board.keySet().stream().map(String::valueOf).collect(Collectors.toList());
+        Map<String, CursorPage<Map<String, Object>>> columns = elasticsearchService.getGroupSources(SearchConstants.DEAL_INDEX,
+            boardQuery(pipelineId, null), STAGE_ID, stageIds, new PageRequest(0, Math.min(size, MAX_BOARD_DEALS), BOARD_ORDER),
+            SearchViews.VIEW);
+        for (Map.Entry<String, CursorPage<Map<String, Object>>> column : columns.entrySet()) {
+            board.get(Long.valueOf(column.getKey()))
+                .setDeals(readDeals(column.getValue().getContent()))
+                .setNextCursor(column.getValue().getNextCursor());
+        }
+        return new ArrayList<>(board.values());
+    }
 
-        Page<DetailedDealDTO> dealDTOS = new PageImpl<DetailedDealDTO>(unsorted,
-            pageable,
-            response.getSecond());
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public Page<DetailedDealDTO> getBoardDeals(Long pipelineId, Long stageId, int size, String cursor) throws IOException {
+        return query(boardQuery(pipelineId, stageId), new PageRequest(0, Math.min(size, MAX_BOARD_DEALS), BOARD_ORDER),
+            cursor, false);
+    }
 
-        return dealDTOS;
+    private static SearchQueryDTO boardQuery(Long pipelineId, Long stageId) {
+        Set<SearchFilterDTO> filters = new LinkedHashSet<>();
+        filters.add(new SearchFilterDTO().setDataField(PIPELINE_ID).setOperator(SearchFilterType.EQUALS)
+            .setValues(String.valueOf(pipelineId)));
+        if (stageId != null) {
+            filters.add(new SearchFilterDTO().setDataField(STAGE_ID).setOperator(SearchFilterType.EQUALS)
+                .setValues(String.valueOf(stageId)));
+        }
+        return new SearchQueryDTO().setOperator(QueryOperatorType.AND).setFilters(filters);
+    }
+
+    /**
+     * @return the deals of the hits from their views, or from the database for hits without one
+     */
+    private List<DetailedDealDTO> readDeals(List<Map<String, Object>> sources) {
+        return searchViews.read(sources, DetailedDealDTO.class,
+            ids -> searchHydrator.hydrate(ids, dealRepository::findDistinctByIdIn, Deal::getId, detailedDealMapper::toDto));
     }
 
 }
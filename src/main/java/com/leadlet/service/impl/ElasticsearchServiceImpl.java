@@ -1,210 +1,515 @@
 package com.leadlet.service.impl;
 
 import com.leadlet.config.SearchConstants;
-import com.leadlet.domain.Activity;
-import com.leadlet.domain.Deal;
-import com.leadlet.domain.Timeline;
-import com.leadlet.domain.User;
+import com.leadlet.domain.enumeration.FacetType;
+import com.leadlet.domain.enumeration.SearchFilterType;
 import com.leadlet.repository.DealRepository;
 import com.leadlet.security.SecurityUtils;
 import com.leadlet.service.ElasticsearchService;
 import com.leadlet.service.dto.*;
-import org.elasticsearch.action.index.IndexRequest;
-import org.elasticsearch.action.index.IndexResponse;
+import com.leadlet.service.search.CursorPage;
+import com.leadlet.service.search.FacetedPage;
+import com.leadlet.service.search.SearchFacetCache;
+import com.leadlet.service.search.SearchCursor;
+import com.leadlet.service.search.SearchQueryCompiler;
+import com.leadlet.service.search.SearchQueryGuard;
+import com.leadlet.service.search.SearchRouting;
+import org.elasticsearch.action.search.MultiSearchRequest;
+import org.elasticsearch.action.search.MultiSearchResponse;
 import org.elasticsearch.action.search.SearchRequest;
 import org.elasticsearch.action.search.SearchResponse;
 import org.elasticsearch.client.RestHighLevelClient;
-import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.index.query.QueryBuilder;
 import org.elasticsearch.search.SearchHit;
 import org.elasticsearch.search.SearchHits;
+import org.elasticsearch.search.aggregations.Aggregation;
+import org.elasticsearch.search.aggregations.AggregationBuilder;
 import org.elasticsearch.search.aggregations.AggregationBuilders;
+import org.elasticsearch.search.aggregations.Aggregations;
+import org.elasticsearch.search.aggregations.bucket.filter.Filter;
+import org.elasticsearch.search.aggregations.bucket.filter.FilterAggregationBuilder;
+import org.elasticsearch.search.aggregations.bucket.histogram.DateHistogramInterval;
+import org.elasticsearch.search.aggregations.bucket.histogram.Histogram;
+import org.elasticsearch.search.aggregations.bucket.terms.IncludeExclude;
 import org.elasticsearch.search.aggregations.bucket.terms.Terms;
 import org.elasticsearch.search.aggregations.metrics.max.Max;
 import org.elasticsearch.search.aggregations.metrics.min.Min;
+import org.elasticsearch.search.aggregations.metrics.percentiles.Percentile;
+import org.elasticsearch.search.aggregations.metrics.percentiles.Percentiles;
+import org.elasticsearch.search.aggregations.metrics.percentiles.PercentilesAggregationBuilder;
+import org.elasticsearch.search.aggregations.metrics.stats.Stats;
+import org.elasticsearch.search.aggregations.metrics.tophits.TopHits;
+import org.elasticsearch.search.aggregations.metrics.tophits.TopHitsAggregationBuilder;
 import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.elasticsearch.search.sort.FieldSortBuilder;
+import org.elasticsearch.search.sort.ScoreSortBuilder;
+import org.elasticsearch.search.sort.SortBuilder;
+import org.elasticsearch.search.sort.SortBuilders;
 import org.elasticsearch.search.sort.SortOrder;
+import org.joda.time.ReadableInstant;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
-import org.springframework.data.util.Pair;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.util.StringUtils;
 
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 
 @Service
 @Transactional
 public class ElasticsearchServiceImpl implements ElasticsearchService {
 
+    private static final String CREATED_DATE = "created_date";
+    private static final String ID = "id";
+    private static final String FACET = "facet_";
+    private static final String MIN = "_min";
+    private static final String MAX = "_max";
+    private static final String GROUPS = "groups";
+    private static final String TOP_HITS = "top_hits";
+
+    /**
+     * Fields with numeric sort values in every index, app_account_id is a keyword whose sort values are strings.
+     */
+    private static final Set<String> NUMERIC_FIELDS = new HashSet<>(Arrays.asList(ID, CREATED_DATE));
+
+    /**
+     * Indices sorted by app_account_id, then created_date and id descending.
+     */
+    private static final Set<String> CREATED_DATE_SORTED_INDICES = new HashSet<>(Arrays.asList(
+        SearchConstants.DEAL_INDEX, SearchConstants.TIMELINE_INDEX));
+
     private final RestHighLevelClient restHighLevelClient;
     private final DealRepository dealRepository;
-
-    public ElasticsearchServiceImpl(RestHighLevelClient restHighLevelClient, DealRepository dealRepository) {
+    private final SearchRouting searchRouting;
+    private final SearchQueryCompiler searchQueryCompiler;
+    private final SearchQueryGuard searchQueryGuard;
+    private final SearchFacetCache searchFacetCache;
+
+    public ElasticsearchServiceImpl(RestHighLevelClient restHighLevelClient, DealRepository dealRepository,
+                                    SearchRouting searchRouting, SearchQueryCompiler searchQueryCompiler,
+                                    SearchQueryGuard searchQueryGuard, SearchFacetCache searchFacetCache) {
         this.restHighLevelClient = restHighLevelClient;
         this.dealRepository = dealRepository;
+        this.searchRouting = searchRouting;
+        this.searchQueryCompiler = searchQueryCompiler;
+        this.searchQueryGuard = searchQueryGuard;
+        this.searchFacetCache = searchFacetCache;
     }
 
 
     @Override
-    public FacetDTO getFieldTerms(String id, String index, String fieldName, String query) throws IOException {
-
-        SearchRequest searchRequest = new SearchRequest(index);
-        SearchSourceBuilder searchSourceBuilder = new SearchSourceBuilder();
-
-        String appAccountFilter = "app_account_id:" + SecurityUtils.getCurrentUserAppAccountId();
-        if(StringUtils.isEmpty(query)){
-            query = appAccountFilter;
-        }else {
-            query += " AND " + appAccountFilter;
-        }
-
-        searchSourceBuilder = searchSourceBuilder.query(QueryBuilders.queryStringQuery(query));
-        searchSourceBuilder.aggregation(AggregationBuilders
-            .terms(id)
-            .field(fieldName));
+    public FacetDTO getFieldTerms(String id, String index, String fieldName, SearchQueryDTO query) throws IOException {
+        return getFacets(index, query, Collections.singletonList(
+            new FacetDefinitionDTO().setId(id).setType(FacetType.TERMS).setDataField(fieldName))).get(0);
+    }
 
-        searchRequest.source(searchSourceBuilder);
-        SearchResponse sr = restHighLevelClient.search(searchRequest);
+    @Override
+    public FacetDTO getFieldRange(String id, String index, String fieldName, SearchQueryDTO query) throws IOException {
+        return getFacets(index, query, Collections.singletonList(
+            new FacetDefinitionDTO().setId(id).setType(FacetType.RANGE).setDataField(fieldName))).get(0);
+    }
 
-        // sr is here your SearchResponse object
-        Terms genders = sr.getAggregations().get(id);
+    @Override
+    public List<FacetDTO> getFacets(String index, SearchQueryDTO query, List<FacetDefinitionDTO> facets) throws IOException {
+        return searchFacetCache.get(index, SecurityUtils.getCurrentUserAppAccountId(), query, facets, () -> {
+            SearchResponse response = restHighLevelClient.search(buildFacetQuery(index, query, facets));
+            return readFacets(response.getAggregations(), facets);
+        });
+    }
 
-        TermsFacetDTO facetDTO = new TermsFacetDTO();
-        facetDTO.setId(id);
+    @Override
+    public CursorPage<Long> getEntityIds(String index, SearchQueryDTO query, Pageable pageable) throws IOException {
+        return getEntityIds(index, query, pageable, null, true);
+    }
 
-        for (Terms.Bucket entry : genders.getBuckets()) {
-            facetDTO.addTerm(entry.getKeyAsString(),entry.getDocCount());
+    @Override
+    public CursorPage<Long> getEntityIds(String index, SearchQueryDTO query, Pageable pageable, String cursor,
+                                         boolean exactTotal) throws IOException {
+        String fingerprint = SearchCursor.fingerprint(index, query, null, pageable.getSort());
+        SearchRequest searchRequest = buildSearchQuery(index, query, pageable, cursor, fingerprint, exactTotal, null, null,
+            null);
+        SearchHits searchHits = restHighLevelClient.search(searchRequest).getHits();
+
+        // the document id is the entity id, no source has to be fetched and parsed for it
+        List<Long> ids = new ArrayList<>(searchHits.getHits().length);
+        for (SearchHit hit : searchHits) {
+            ids.add(Long.valueOf(hit.getId()));
         }
-
-        return facetDTO;
-
+        return toPage(searchHits, ids, pageable, cursor, fingerprint);
     }
 
     @Override
-    public FacetDTO getFieldRange(String id, String index, String fieldName , String query) throws IOException {
-        SearchRequest searchRequest = new SearchRequest(index);
-        SearchSourceBuilder searchSourceBuilder = new SearchSourceBuilder();
-
-        String maxAggId = id + "-max";
-        String minAggId = id + "-min";
+    public CursorPage<Map<String, Object>> getSources(String index, SearchQueryDTO query, Pageable pageable, String cursor,
+                                                      boolean exactTotal, String... fields) throws IOException {
+        String fingerprint = SearchCursor.fingerprint(index, query, null, pageable.getSort());
+        SearchRequest searchRequest = buildSearchQuery(index, query, pageable, cursor, fingerprint, exactTotal,
+            includeFields(fields), null, null);
+        SearchHits searchHits = restHighLevelClient.search(searchRequest).getHits();
+        return toPage(searchHits, getSources(searchHits), pageable, cursor, fingerprint);
+    }
 
-        if( !StringUtils.isEmpty(query)){
-            searchSourceBuilder = searchSourceBuilder.query(QueryBuilders.queryStringQuery(query));
+    @Override
+    public FacetedPage<Map<String, Object>> getSources(String index, SearchQueryDTO query, Pageable pageable, String cursor,
+                                                       boolean exactTotal, List<FacetDefinitionDTO> facets,
+                                                       String... fields) throws IOException {
+        QueryBuilder selections = selections(facets, null);
+        String fingerprint = SearchCursor.fingerprint(index, query, selections, pageable.getSort());
+        if (selections != null) {
+            // multi-select: the selections only filter the hits, the facets are computed in the same search
+            SearchRequest searchRequest = buildSearchQuery(index, query, pageable, cursor, fingerprint, exactTotal,
+                includeFields(fields), selections, facets);
+            SearchResponse response = restHighLevelClient.search(searchRequest);
+            return new FacetedPage<>(toPage(response.getHits(), getSources(response.getHits()), pageable, cursor, fingerprint),
+                readFacets(response.getAggregations(), facets));
         }
 
-        searchSourceBuilder.aggregation(AggregationBuilders
-            .max(maxAggId)
-            .field(fieldName))
-            .aggregation(AggregationBuilders
-                .min(minAggId)
-                .field(fieldName));
+        // the page stays a search of its own, so that it still stops early and skips counting when it can, but both
+        // go to the cluster in one request
+        MultiSearchRequest multiSearchRequest = new MultiSearchRequest()
+            .add(buildSearchQuery(index, query, pageable, cursor, fingerprint, exactTotal, includeFields(fields), null, null))
+            .add(buildFacetQuery(index, query, facets));
+        MultiSearchResponse.Item[] responses = restHighLevelClient.multiSearch(multiSearchRequest).getResponses();
 
-        searchRequest.source(searchSourceBuilder);
-        SearchResponse sr = restHighLevelClient.search(searchRequest);
-
-        // sr is here your SearchResponse object
-        Max maxAgg = sr.getAggregations().get(maxAggId);
-        Min minAgg = sr.getAggregations().get(minAggId);
-
-        RangeFacetDTO facetDTO = new RangeFacetDTO();
-        facetDTO.setId(id);
-        facetDTO.setMax(maxAgg.getValue());
-        facetDTO.setMin(minAgg.getValue());
-
-        return facetDTO;
+        SearchHits searchHits = getResponse(responses[0]).getHits();
+        List<FacetDTO> facetDTOs = readFacets(getResponse(responses[1]).getAggregations(), facets);
+        return new FacetedPage<>(toPage(searchHits, getSources(searchHits), pageable, cursor, fingerprint), facetDTOs);
     }
 
     @Override
-    public Pair<List<Long>, Long> getEntityIds(String index, String query, Pageable pageable) throws IOException {
-        SearchRequest searchRequest = buildSearchQuery(index, query, pageable);
-        SearchResponse searchResponse = restHighLevelClient.search(searchRequest);
-        Pair<List<Long>, Long> response = parseDealIdsFromResponse(searchResponse, pageable);
+    public Map<String, CursorPage<Map<String, Object>>> getGroupSources(String index, SearchQueryDTO query, String groupField,
+                                                                        Collection<String> groups, Pageable pageable,
+                                                                        String... fields) throws IOException {
+        TopHitsAggregationBuilder topHits = AggregationBuilders.topHits(TOP_HITS)
+            .size(pageable.getPageSize())
+            .fetchSource(includeFields(fields), null);
+        if (pageable.getSort() != null) {
+            for (Sort.Order order : pageable.getSort()) {
+                topHits.sort(order.getProperty(), order.getDirection() == Sort.Direction.ASC ? SortOrder.ASC : SortOrder.DESC);
+            }
+        }
+        // the same tie breaker as the pages of buildSearchQuery, so that their cursors fit
+        topHits.sort(ID, SortOrder.ASC);
 
-        return response;
+        SearchSourceBuilder searchSourceBuilder = new SearchSourceBuilder();
+        searchSourceBuilder.size(0);
+        searchSourceBuilder.query(compile(query));
+        searchSourceBuilder.aggregation(AggregationBuilders.terms(GROUPS)
+            .field(groupField)
+            .includeExclude(new IncludeExclude(groups.toArray(new String[0]), null))
+            .size(Math.max(1, groups.size()))
+            .subAggregation(topHits));
+
+        SearchRequest searchRequest = newSearchRequest(index)
+            .source(searchQueryGuard.limit(searchSourceBuilder, SecurityUtils.getCurrentUserAppAccountId(), false));
+        Terms terms = restHighLevelClient.search(searchRequest).getAggregations().get(GROUPS);
+
+        Map<String, CursorPage<Map<String, Object>>> pages = new HashMap<>();
+        for (Terms.Bucket bucket : terms.getBuckets()) {
+            SearchHits searchHits = bucket.getAggregations().<TopHits>get(TOP_HITS).getHits();
+            List<Map<String, Object>> sources = getSources(searchHits);
+            String nextCursor = null;
+            if (bucket.getDocCount() > sources.size() && !sources.isEmpty()) {
+                nextCursor = SearchCursor.encode(groupFingerprint(index, query, groupField, bucket.getKeyAsString(), pageable),
+                    searchHits.getHits()[searchHits.getHits().length - 1].getSortValues());
+            }
+            pages.put(bucket.getKeyAsString(), new CursorPage<>(sources, pageable, bucket.getDocCount(), nextCursor, true));
+        }
+        return pages;
     }
 
+    private static String[] includeFields(String[] fields) {
+        String[] includeFields = new String[fields.length + 1];
+        includeFields[0] = ID;
+        System.arraycopy(fields, 0, includeFields, 1, fields.length);
+        return includeFields;
+    }
 
-    private Pair<List<Long>, Long> parseDealIdsFromResponse(SearchResponse searchResponse, Pageable pageable) {
-
-        List<Long> ids = new ArrayList<>();
-
-        SearchHits searchHits = searchResponse.getHits();
+    private static List<Map<String, Object>> getSources(SearchHits searchHits) {
+        List<Map<String, Object>> sources = new ArrayList<>(searchHits.getHits().length);
         for (SearchHit hit : searchHits) {
-            Map<String, Object> sourceAsMap = hit.getSourceAsMap();
-            Long id = Long.valueOf( (Integer) sourceAsMap.get("id"));
-
-            ids.add(id);
+            sources.add(hit.getSourceAsMap());
         }
+        return sources;
+    }
 
-        Pair<List<Long>, Long> response =  Pair.of(ids, searchHits.getTotalHits());
+    private static SearchResponse getResponse(MultiSearchResponse.Item item) throws IOException {
+        if (item.isFailure()) {
+            if (item.getFailure() instanceof RuntimeException) {
+                throw (RuntimeException) item.getFailure();
+            }
+            throw new IOException(item.getFailure());
+        }
+        return item.getResponse();
+    }
 
-        return response;
+    private <T> CursorPage<T> toPage(SearchHits searchHits, List<T> content, Pageable pageable, String cursor,
+                                     String fingerprint) {
+        // a cursor page starts where the previous one ended, its number and offset mean nothing
+        long offset = cursor == null ? pageable.getOffset() : 0;
+        long total = searchHits.getTotalHits();
+        if (total < 0) {
+            // not counted, enough for the pagination links to offer the next page when this one is full
+            total = offset + content.size() + (content.size() == pageable.getPageSize() ? 1 : 0);
+        }
+        String nextCursor = null;
+        if (content.size() == pageable.getPageSize() && searchHits.getHits().length > 0) {
+            nextCursor = SearchCursor.encode(fingerprint, searchHits.getHits()[searchHits.getHits().length - 1].getSortValues());
+        }
+        return new CursorPage<>(content, cursor == null ? pageable : new PageRequest(0, pageable.getPageSize(), pageable.getSort()),
+            total, nextCursor, cursor == null);
     }
 
-    private SearchRequest buildSearchQuery(String index, String query, Pageable pageable) {
+    /**
+     * @param fingerprint the {@link SearchCursor#fingerprint fingerprint} of the search, the cursor has to match it
+     * @param postFilter  filters the hits but not the facets, null for none
+     * @param facets      the facets to compute in the same search, null for none
+     */
+    private SearchRequest buildSearchQuery(String index, SearchQueryDTO query, Pageable pageable, String cursor,
+                                           String fingerprint, boolean exactTotal, String[] includeFields, QueryBuilder postFilter,
+                                           List<FacetDefinitionDTO> facets) {
 
-        SearchRequest searchRequest = new SearchRequest(index);
+        SearchRequest searchRequest = newSearchRequest(index);
         SearchSourceBuilder searchSourceBuilder = new SearchSourceBuilder();
-        String[] includeFields = new String[] {"id"};
-        searchSourceBuilder.fetchSource(includeFields, null);
-        searchSourceBuilder.from(pageable.getOffset());
+        if (includeFields != null) {
+            searchSourceBuilder.fetchSource(includeFields, null);
+        } else {
+            searchSourceBuilder.fetchSource(false);
+        }
         searchSourceBuilder.size(pageable.getPageSize());
-
-        if( !StringUtils.isEmpty(query)){
-            searchSourceBuilder = searchSourceBuilder.query(QueryBuilders.queryStringQuery(query));
+        searchSourceBuilder = searchSourceBuilder.query(compile(query));
+
+        // every sort ends with the id so that the sort values of a hit are unique and a cursor can continue after it
+        boolean indexOrder = isIndexOrder(index, pageable.getSort());
+        if (indexOrder) {
+            // every search is limited to one account, leading with it makes the sort match the index sort
+            searchSourceBuilder.sort(SearchQueryCompiler.APP_ACCOUNT_ID, SortOrder.ASC);
+            searchSourceBuilder.sort(CREATED_DATE, SortOrder.DESC);
+            searchSourceBuilder.sort(ID, SortOrder.DESC);
+            searchSourceBuilder.trackTotalHits(exactTotal);
+        } else {
+            if (pageable.getSort() == null || !pageable.getSort().iterator().hasNext()) {
+                searchSourceBuilder.sort(SortBuilders.scoreSort());
+            } else {
+                Iterator<Sort.Order> orderIterator = pageable.getSort().iterator();
+                while (orderIterator.hasNext()) {
+                    Sort.Order order = orderIterator.next();
+                    searchSourceBuilder = searchSourceBuilder.sort(order.getProperty()
+                        , order.getDirection() == Sort.Direction.ASC ? SortOrder.ASC : SortOrder.DESC);
+                }
+            }
+            searchSourceBuilder.sort(ID, SortOrder.ASC);
         }
 
-        if( pageable.getSort() != null){
-            Iterator<Sort.Order> orderIterator = pageable.getSort().iterator();
-            while(orderIterator.hasNext()){
-                Sort.Order order = orderIterator.next();
-                searchSourceBuilder = searchSourceBuilder.sort( order.getProperty()
-                    , order.getDirection() == Sort.Direction.ASC ? SortOrder.ASC : SortOrder.DESC);
-            }
+        if (cursor != null) {
+            searchSourceBuilder.searchAfter(SearchCursor.decode(cursor, fingerprint, numericSorts(searchSourceBuilder.sorts())));
+        } else {
+            searchSourceBuilder.from(pageable.getOffset());
+        }
+        if (postFilter != null) {
+            searchSourceBuilder.postFilter(postFilter);
+        }
+        if (facets != null) {
+            addFacets(searchSourceBuilder, facets);
         }
 
-        searchRequest.source(searchSourceBuilder);
+        searchRequest.source(searchQueryGuard.limit(searchSourceBuilder, SecurityUtils.getCurrentUserAppAccountId(),
+            indexOrder));
         return searchRequest;
     }
 
-    public void indexDeal(Deal deal) throws IOException {
-
-        IndexRequest request = new IndexRequest(SearchConstants.DEAL_INDEX, SearchConstants.DEAL_TYPE, String.valueOf(deal.getId()));
+    /**
+     * A search for the facets only, the aggregations are named after the position of their facet so that any id can
+     * be used and a range facet needs two of them.
+     */
+    private SearchRequest buildFacetQuery(String index, SearchQueryDTO query, List<FacetDefinitionDTO> facets) {
+        SearchSourceBuilder searchSourceBuilder = new SearchSourceBuilder();
+        searchSourceBuilder.size(0);
+        searchSourceBuilder.query(compile(query));
+        addFacets(searchSourceBuilder, facets);
+
+        // the shards keep the aggregations of searches without hits until their next refresh
+        return newSearchRequest(index)
+            .requestCache(true)
+            .source(searchQueryGuard.limit(searchSourceBuilder, SecurityUtils.getCurrentUserAppAccountId(), false));
+    }
 
-        DealSearchIndexDTO dealSearchIndexDTO = new DealSearchIndexDTO(deal);
-        request.source(dealSearchIndexDTO.getBuilder());
-        IndexResponse response = restHighLevelClient.index(request);
+    /**
+     * Add the aggregations of the facets. The aggregations of a facet count the documents matching the selections of
+     * the other facets, the hits are filtered by all of them in the post filter.
+     */
+    private void addFacets(SearchSourceBuilder searchSourceBuilder, List<FacetDefinitionDTO> facets) {
+        searchQueryGuard.checkFacets(facets);
+        for (int i = 0; i < facets.size(); i++) {
+            FacetDefinitionDTO facet = facets.get(i);
+            List<AggregationBuilder> aggregations = facetAggregations(FACET + i, facet);
+            QueryBuilder otherSelections = selections(facets, facet);
+            if (otherSelections == null) {
+                aggregations.forEach(searchSourceBuilder::aggregation);
+            } else {
+                FilterAggregationBuilder filter = AggregationBuilders.filter(FACET + i, otherSelections);
+                aggregations.forEach(filter::subAggregation);
+                searchSourceBuilder.aggregation(filter);
+            }
+        }
     }
 
-    public void indexTimeline(Timeline timeline) throws IOException {
+    /**
+     * @param excluded the facet whose selection is left out, null for none
+     * @return the selections of the facets combined with and, null when nothing is selected
+     */
+    private QueryBuilder selections(List<FacetDefinitionDTO> facets, FacetDefinitionDTO excluded) {
+        List<SearchFilterDTO> selections = new ArrayList<>();
+        for (FacetDefinitionDTO facet : facets) {
+            if (facet != excluded && facet.getSelection() != null) {
+                selections.add(facet.getSelection());
+            }
+        }
+        return selections.isEmpty() ? null : searchQueryCompiler.compileFilters(selections);
+    }
 
+    private static List<AggregationBuilder> facetAggregations(String name, FacetDefinitionDTO facet) {
+        String field = facet.getDataField();
+        switch (facet.getType()) {
+            case TERMS:
+                return Collections.singletonList(AggregationBuilders.terms(name).field(field));
+            case RANGE:
+                return Arrays.asList(AggregationBuilders.min(name + MIN).field(field),
+                    AggregationBuilders.max(name + MAX).field(field));
+            case HISTOGRAM:
+                return Collections.singletonList(AggregationBuilders.histogram(name).field(field)
+                    .interval(Double.parseDouble(facet.getInterval())));
+            case DATE_HISTOGRAM:
+                return Collections.singletonList(AggregationBuilders.dateHistogram(name).field(field)
+                    .dateHistogramInterval(new DateHistogramInterval(facet.getInterval())));
+            case PERCENTILES:
+                PercentilesAggregationBuilder percentiles = AggregationBuilders.percentiles(name).field(field);
+                if (facet.getPercents() != null) {
+                    percentiles.percentiles(facet.getPercents().stream().mapToDouble(Double::doubleValue).toArray());
+                }
+                return Collections.singletonList(percentiles);
+            case STATS:
+                return Collections.singletonList(AggregationBuilders.stats(name).field(field));
+            default:
+                throw new IllegalArgumentException("Unknown facet type " + facet.getType());
+        }
+    }
 
-        IndexRequest request = new IndexRequest(SearchConstants.TIMELINE_INDEX, SearchConstants.TIMELINE_TYPE, String.valueOf(timeline.getId()));
+    private static List<FacetDTO> readFacets(Aggregations aggregations, List<FacetDefinitionDTO> facets) {
+        List<FacetDTO> facetDTOs = new ArrayList<>(facets.size());
+        for (int i = 0; i < facets.size(); i++) {
+            FacetDefinitionDTO facet = facets.get(i);
+            // the aggregations of a facet are wrapped in a filter of the same name while other facets are selected
+            Aggregation filter = aggregations.get(FACET + i);
+            Aggregations facetAggregations = filter instanceof Filter ? ((Filter) filter).getAggregations() : aggregations;
+            FacetDTO facetDTO = readFacet(facetAggregations, FACET + i, facet);
+            facetDTO.setId(facet.getId());
+            facetDTOs.add(facetDTO);
+        }
+        return facetDTOs;
+    }
 
-        TimelineSearchIndexDTO timelineSearchIndexDTO = new TimelineSearchIndexDTO(timeline);
-        request.source(timelineSearchIndexDTO.getBuilder());
-        IndexResponse response = restHighLevelClient.index(request);
+    private static FacetDTO readFacet(Aggregations aggregations, String name, FacetDefinitionDTO facet) {
+        switch (facet.getType()) {
+            case TERMS:
+                TermsFacetDTO termsFacet = new TermsFacetDTO();
+                Terms terms = aggregations.get(name);
+                for (Terms.Bucket entry : terms.getBuckets()) {
+                    termsFacet.addTerm(entry.getKeyAsString(), entry.getDocCount());
+                }
+                return termsFacet;
+            case RANGE:
+                return new RangeFacetDTO()
+                    .setMin(valueOf(aggregations.<Min>get(name + MIN).getValue()))
+                    .setMax(valueOf(aggregations.<Max>get(name + MAX).getValue()));
+            case HISTOGRAM:
+            case DATE_HISTOGRAM:
+                HistogramFacetDTO histogramFacet = new HistogramFacetDTO();
+                Histogram histogram = aggregations.get(name);
+                for (Histogram.Bucket bucket : histogram.getBuckets()) {
+                    // the key of a date histogram bucket is a date time
+                    Number key = bucket.getKey() instanceof Number ? (Number) bucket.getKey()
+                        : ((ReadableInstant) bucket.getKey()).getMillis();
+                    histogramFacet.addBucket(key, bucket.getKeyAsString(), bucket.getDocCount());
+                }
+                return histogramFacet;
+            case PERCENTILES:
+                PercentilesFacetDTO percentilesFacet = new PercentilesFacetDTO();
+                for (Percentile percentile : aggregations.<Percentiles>get(name)) {
+                    percentilesFacet.addValue(percentile.getPercent(), valueOf(percentile.getValue()));
+                }
+                return percentilesFacet;
+            case STATS:
+                Stats stats = aggregations.get(name);
+                StatsFacetDTO statsFacet = new StatsFacetDTO().setCount(stats.getCount());
+                if (stats.getCount() > 0) {
+                    statsFacet.setMin(stats.getMin()).setMax(stats.getMax()).setAvg(stats.getAvg()).setSum(stats.getSum());
+                }
+                return statsFacet;
+            default:
+                throw new IllegalArgumentException("Unknown facet type " + facet.getType());
+        }
     }
 
-    public void indexActivity(Activity activity) throws IOException {
+    /**
+     * @return the value of a metric, null when there were no values to compute it from
+     */
+    private static Double valueOf(double value) {
+        return Double.isNaN(value) || Double.isInfinite(value) ? null : value;
+    }
 
-        IndexRequest request = new IndexRequest(SearchConstants.ACTIVITY_INDEX, SearchConstants.ACTIVITY_TYPE, String.valueOf(activity.getId()));
+    /**
+     * @return whether the values of each sort are numbers, those of the score and the fields every index has
+     */
+    private static boolean[] numericSorts(List<SortBuilder<?>> sorts) {
+        boolean[] numeric = new boolean[sorts.size()];
+        for (int i = 0; i < numeric.length; i++) {
+            SortBuilder<?> sort = sorts.get(i);
+            numeric[i] = sort instanceof ScoreSortBuilder || (sort instanceof FieldSortBuilder
+                && NUMERIC_FIELDS.contains(((FieldSortBuilder) sort).getFieldName()));
+        }
+        return numeric;
+    }
 
-        ActivitySearchIndexDTO activitySearchIndexDTO = new ActivitySearchIndexDTO(activity);
-        request.source(activitySearchIndexDTO.getBuilder());
-        IndexResponse response = restHighLevelClient.index(request);
+    /**
+     * @return the fingerprint of the search continuing a group of {@link #getGroupSources}, of the query with a filter
+     * on the group
+     */
+    private static String groupFingerprint(String index, SearchQueryDTO query, String groupField, String group,
+                                           Pageable pageable) {
+        Set<SearchFilterDTO> filters = new LinkedHashSet<>();
+        if (query != null && query.getFilters() != null) {
+            filters.addAll(query.getFilters());
+        }
+        filters.add(new SearchFilterDTO().setDataField(groupField).setOperator(SearchFilterType.EQUALS).setValues(group));
+        SearchQueryDTO groupQuery = new SearchQueryDTO().setOperator(query == null ? null : query.getOperator())
+            .setQuery(query == null ? null : query.getQuery()).setFilters(filters);
+        return SearchCursor.fingerprint(index, groupQuery, null, pageable.getSort());
     }
 
-    public void indexUser(User user) throws IOException {
+    /**
+     * @return whether the sort is the newest first order the index is sorted by, see the index definitions
+     */
+    private boolean isIndexOrder(String index, Sort sort) {
+        if (!CREATED_DATE_SORTED_INDICES.contains(index) || sort == null) {
+            return false;
+        }
+        Iterator<Sort.Order> orders = sort.iterator();
+        if (!orders.hasNext()) {
+            return false;
+        }
+        Sort.Order order = orders.next();
+        return !orders.hasNext() && CREATED_DATE.equals(order.getProperty()) && order.getDirection() == Sort.Direction.DESC;
+    }
 
-        IndexRequest request = new IndexRequest(SearchConstants.USER_INDEX, SearchConstants.USER_TYPE, String.valueOf(user.getId()));
+    private QueryBuilder compile(SearchQueryDTO query) {
+        return searchQueryCompiler.compile(query, SecurityUtils.getCurrentUserAppAccountId());
+    }
 
-        UserSearchIndexDTO userSearchIndexDTO = new UserSearchIndexDTO(user);
-        request.source(userSearchIndexDTO.getBuilder());
-        IndexResponse response = restHighLevelClient.index(request);
+    /**
+     * Searches only ever cover the account of the current user, they go to its shards only.
+     */
+    private SearchRequest newSearchRequest(String index) {
+        return new SearchRequest(index).routing(searchRouting.search(index, SecurityUtils.getCurrentUserAppAccountId()));
     }
 }
@@ -1,9 +1,11 @@
 package com.leadlet.service.impl;
 
 import com.leadlet.domain.LostReason;
+import com.leadlet.domain.enumeration.SearchReference;
 import com.leadlet.repository.LostReasonRepository;
 import com.leadlet.security.SecurityUtils;
 import com.leadlet.service.LostReasonService;
+import com.leadlet.service.SearchOutboxService;
 import com.leadlet.service.dto.LostReasonDTO;
 import com.leadlet.service.mapper.LostReasonMapper;
 import org.slf4j.Logger;
@@ -14,6 +16,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityNotFoundException;
+import java.util.Objects;
 
 /**
  * Service Implementation for managing Lost Reason.
@@ -29,10 +32,13 @@ public class LostReasonServiceImpl implements LostReasonService {
 
     private final LostReasonMapper lostReasonMapper;
 
+    private final SearchOutboxService searchOutboxService;
 
-    public LostReasonServiceImpl(LostReasonRepository lostReasonRepository, LostReasonMapper lostReasonMapper) {
+    public LostReasonServiceImpl(LostReasonRepository lostReasonRepository, LostReasonMapper lostReasonMapper,
+                                 SearchOutboxService searchOutboxService) {
         this.lostReasonRepository = lostReasonRepository;
         this.lostReasonMapper = lostReasonMapper;
+        this.searchOutboxService = searchOutboxService;
     }
 
     /**
@@ -63,9 +69,13 @@ public class LostReasonServiceImpl implements LostReasonService {
         LostReason lostReasonFromDb = lostReasonRepository.findOneByIdAndAppAccount_Id(lostReason.getId(), SecurityUtils.getCurrentUserAppAccountId());
 
         if (lostReasonFromDb != null) {
+            String previousName = lostReasonFromDb.getName();
             // TODO appaccount'u eklemek dogru fakat appaccount olmadan da kayit hatasi almaliydik.
             lostReason.setAppAccount(SecurityUtils.getCurrentUserAppAccountReference());
             lostReason = lostReasonRepository.save(lostReason);
+            if (!Objects.equals(previousName, lostReason.getName())) {
+                searchOutboxService.enqueueCascade(SearchReference.LOST_REASON, lostReason.getId(), SecurityUtils.getCurrentUserAppAccountId());
+            }
             return lostReasonMapper.toDto(lostReason);
         } else {
             throw new EntityNotFoundException();
@@ -1,9 +1,12 @@
 package com.leadlet.service.impl;
 
 import com.leadlet.domain.AppAccount;
+import com.leadlet.domain.enumeration.SearchReference;
 import com.leadlet.repository.StageRepository;
 import com.leadlet.security.SecurityUtils;
+import com.leadlet.service.DealRollupService;
 import com.leadlet.service.PipelineService;
+import com.leadlet.service.SearchOutboxService;
 import com.leadlet.domain.Pipeline;
 import com.leadlet.repository.PipelineRepository;
 import com.leadlet.service.dto.PipelineDTO;
@@ -16,6 +19,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityNotFoundException;
+import java.util.Objects;
 
 
 /**
@@ -34,10 +38,17 @@ public class PipelineServiceImpl implements PipelineService {
 
     private final PipelineMapper pipelineMapper;
 
-    public PipelineServiceImpl(PipelineRepository pipelineRepository, StageRepository stageRepository, PipelineMapper pipelineMapper) {
+    private final SearchOutboxService searchOutboxService;
+
+    private final DealRollupService dealRollupService;
+
+    public PipelineServiceImpl(PipelineRepository pipelineRepository, StageRepository stageRepository, PipelineMapper pipelineMapper,
+                               SearchOutboxService searchOutboxService, DealRollupService dealRollupService) {
         this.pipelineRepository = pipelineRepository;
         this.pipelineMapper = pipelineMapper;
         this.stageRepository = stageRepository;
+        this.searchOutboxService = searchOutboxService;
+        this.dealRollupService = dealRollupService;
     }
 
     /**
@@ -69,8 +80,12 @@ public class PipelineServiceImpl implements PipelineService {
         Pipeline pipelineFromDb = pipelineRepository.findOneByIdAndAppAccount_Id(pipeline.getId(), SecurityUtils.getCurrentUserAppAccountId());
         if (pipelineFromDb != null) {
             //TODO: appaccount'u eklemek dogru fakat appaccount olmadan da kayit hatasi almaliydik.
+            String previousName = pipelineFromDb.getName();
             pipeline.setAppAccount(SecurityUtils.getCurrentUserAppAccountReference());
             pipeline = pipelineRepository.save(pipeline);
+            if (!Objects.equals(previousName, pipeline.getName())) {
+                searchOutboxService.enqueueCascade(SearchReference.PIPELINE, pipeline.getId(), SecurityUtils.getCurrentUserAppAccountId());
+            }
             return pipelineMapper.toDto(pipeline);
         } else {
             throw new EntityNotFoundException();
@@ -114,6 +129,10 @@ public class PipelineServiceImpl implements PipelineService {
     public void delete(Long id) {
         log.debug("pipeline_delete: request to delete pipeline : {}", id);
 
+        // the deals go away with the stages, so their documents have to be collected first
+        searchOutboxService.enqueuePipelineDelete(id, SecurityUtils.getCurrentUserAppAccountId());
+        dealRollupService.pipelineDeleted(SecurityUtils.getCurrentUserAppAccountId(), id);
+
         log.debug("pipeline_delete: deleting stages for pipeine: {} started", id);
         stageRepository.deleteByAppAccount_IdAndPipeline_Id(SecurityUtils.getCurrentUserAppAccountId(), id);
         log.debug("pipeline_delete: deleting stages for pipeine: {} finished", id);
@@ -2,10 +2,13 @@ package com.leadlet.service.impl;
 
 import com.leadlet.domain.Deal;
 import com.leadlet.domain.Product;
+import com.leadlet.domain.enumeration.SearchEntityType;
+import com.leadlet.domain.enumeration.SearchReference;
 import com.leadlet.repository.DealRepository;
 import com.leadlet.repository.ProductRepository;
 import com.leadlet.security.SecurityUtils;
 import com.leadlet.service.ProductService;
+import com.leadlet.service.SearchOutboxService;
 import com.leadlet.service.dto.ProductDTO;
 import com.leadlet.service.mapper.ProductMapper;
 import org.slf4j.Logger;
@@ -17,6 +20,7 @@ import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityNotFoundException;
 import java.util.Iterator;
+import java.util.Objects;
 
 /**
  * Service Implementation for managing Product.
@@ -34,10 +38,14 @@ public class ProductServiceImpl implements ProductService {
 
     private final ProductMapper productMapper;
 
-    public ProductServiceImpl(ProductRepository productRepository, ProductMapper productMapper, DealRepository dealRepository) {
+    private final SearchOutboxService searchOutboxService;
+
+    public ProductServiceImpl(ProductRepository productRepository, ProductMapper productMapper, DealRepository dealRepository,
+                              SearchOutboxService searchOutboxService) {
         this.productRepository = productRepository;
         this.productMapper = productMapper;
         this.dealRepository = dealRepository;
+        this.searchOutboxService = searchOutboxService;
     }
 
     /**
@@ -68,9 +76,13 @@ public class ProductServiceImpl implements ProductService {
         Product productFromDb = productRepository.findOneByIdAndAppAccount_Id(product.getId(), SecurityUtils.getCurrentUserAppAccountId());
 
         if (productFromDb != null) {
+            String previousDescription = productFromDb.getDescription();
             // TODO appaccount'u eklemek dogru fakat appaccount olmadan da kayit hatasi almaliydik.
             product.setAppAccount(SecurityUtils.getCurrentUserAppAccountReference());
             product = productRepository.save(product);
+            if (!Objects.equals(previousDescription, product.getDescription())) {
+                searchOutboxService.enqueueCascade(SearchReference.PRODUCT, product.getId(), SecurityUtils.getCurrentUserAppAccountId());
+            }
             return productMapper.toDto(product);
         } else {
             throw new EntityNotFoundException();
@@ -129,6 +141,7 @@ public class ProductServiceImpl implements ProductService {
                     }
                 }
                 dealRepository.save(deal);
+                searchOutboxService.enqueue(SearchEntityType.DEAL, deal.getId(), deal.getAppAccount().getId());
             }
 
             productRepository.delete(id);
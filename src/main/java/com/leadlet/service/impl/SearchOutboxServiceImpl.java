@@ -0,0 +1,323 @@
+package com.leadlet.service.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.leadlet.config.ApplicationProperties;
+import com.leadlet.domain.SearchOutbox;
+import com.leadlet.domain.enumeration.SearchEntityType;
+import com.leadlet.domain.enumeration.SearchOperation;
+import com.leadlet.domain.enumeration.SearchReference;
+import com.leadlet.domain.enumeration.SyncStatus;
+import com.leadlet.repository.ActivityRepository;
+import com.leadlet.repository.DealRepository;
+import com.leadlet.repository.SearchOutboxRepository;
+import com.leadlet.repository.TimelineRepository;
+import com.leadlet.service.SearchOutboxService;
+import com.leadlet.service.search.SearchOutboxBatch;
+import com.leadlet.service.search.SearchOutboxEvent;
+import com.leadlet.service.search.SearchOutboxResult;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Service Implementation for recording changes in the search outbox.
+ */
+@Service
+@Transactional(propagation = Propagation.MANDATORY)
+public class SearchOutboxServiceImpl implements SearchOutboxService {
+
+    private final Logger log = LoggerFactory.getLogger(SearchOutboxServiceImpl.class);
+
+    private static final int LAST_ERROR_LENGTH = 2000;
+
+    private final SearchOutboxRepository searchOutboxRepository;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final ApplicationProperties.Search.Outbox properties;
+
+    private final ObjectMapper objectMapper;
+
+    private final DealRepository dealRepository;
+
+    private final ActivityRepository activityRepository;
+
+    private final TimelineRepository timelineRepository;
+
+    public SearchOutboxServiceImpl(SearchOutboxRepository searchOutboxRepository, ApplicationEventPublisher eventPublisher,
+                                   ApplicationProperties applicationProperties, ObjectMapper objectMapper,
+                                   DealRepository dealRepository, ActivityRepository activityRepository,
+                                   TimelineRepository timelineRepository) {
+        this.searchOutboxRepository = searchOutboxRepository;
+        this.eventPublisher = eventPublisher;
+        this.properties = applicationProperties.getSearch().getOutbox();
+        this.objectMapper = objectMapper;
+        this.dealRepository = dealRepository;
+        this.activityRepository = activityRepository;
+        this.timelineRepository = timelineRepository;
+    }
+
+    @Override
+    public void enqueue(SearchEntityType entityType, Long entityId, Long appAccountId) {
+        log.debug("Request to enqueue {} : {} for indexing", entityType, entityId);
+        searchOutboxRepository.save(new SearchOutbox(entityType, entityId, appAccountId));
+        eventPublisher.publishEvent(new SearchOutboxEvent(entityType, entityId));
+    }
+
+    @Override
+    public void enqueueUpdate(SearchEntityType entityType, Long entityId, Long appAccountId, Map<String, Object> fields) {
+        log.debug("Request to enqueue {} : {} for a partial update of {}", entityType, entityId, fields.keySet());
+        String payload;
+        try {
+            payload = objectMapper.writeValueAsString(fields);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+        searchOutboxRepository.save(new SearchOutbox(entityType, entityId, appAccountId, SearchOperation.UPDATE).setPayload(payload));
+        eventPublisher.publishEvent(new SearchOutboxEvent(entityType, entityId));
+    }
+
+    @Override
+    public void enqueueDelete(SearchEntityType entityType, List<Long> entityIds, Long appAccountId) {
+        if (entityIds.isEmpty()) {
+            return;
+        }
+        log.debug("Request to enqueue {} {} documents for deletion", entityIds.size(), entityType);
+        if (entityType == SearchEntityType.DEAL) {
+            enqueueDelete(SearchEntityType.ACTIVITY, activityRepository.findIdsByDealIdIn(entityIds), appAccountId);
+            enqueueDelete(SearchEntityType.TIMELINE, timelineRepository.findIdsByDealIdIn(entityIds), appAccountId);
+        }
+
+        List<SearchOutbox> rows = new ArrayList<>(entityIds.size());
+        for (Long entityId : entityIds) {
+            rows.add(new SearchOutbox(entityType, entityId, appAccountId, SearchOperation.DELETE));
+        }
+        searchOutboxRepository.save(rows);
+        eventPublisher.publishEvent(new SearchOutboxEvent(entityType, entityIds.size() == 1 ? entityIds.get(0) : null));
+    }
+
+    @Override
+    public void enqueueContactDelete(List<Long> contactIds, Long appAccountId) {
+        if (contactIds.isEmpty()) {
+            return;
+        }
+        enqueueDelete(SearchEntityType.DEAL, dealRepository.findIdsByContactIdIn(contactIds), appAccountId);
+        enqueueDelete(SearchEntityType.ACTIVITY, activityRepository.findIdsByContactIdIn(contactIds), appAccountId);
+        enqueueDelete(SearchEntityType.TIMELINE, timelineRepository.findIdsByContactIdIn(contactIds), appAccountId);
+    }
+
+    @Override
+    public void enqueueStageDelete(Long stageId, Long appAccountId) {
+        enqueueDelete(SearchEntityType.DEAL, dealRepository.findIdsByStageId(stageId), appAccountId);
+    }
+
+    @Override
+    public void enqueuePipelineDelete(Long pipelineId, Long appAccountId) {
+        enqueueDelete(SearchEntityType.DEAL, dealRepository.findIdsByPipelineId(pipelineId), appAccountId);
+    }
+
+    @Override
+    public void enqueueUserDelete(Long userId, Long appAccountId) {
+        enqueueDelete(SearchEntityType.DEAL, dealRepository.findIdsByAgentId(userId), appAccountId);
+        enqueueDelete(SearchEntityType.ACTIVITY, activityRepository.findIdsByAgentId(userId), appAccountId);
+        enqueueDelete(SearchEntityType.USER, Collections.singletonList(userId), appAccountId);
+    }
+
+    @Override
+    public void enqueueCascade(SearchReference reference, Long referenceId, Long appAccountId) {
+        log.debug("Request to enqueue documents referencing {} : {} for indexing", reference, referenceId);
+        for (SearchEntityType entityType : reference.getEntityTypes()) {
+            searchOutboxRepository.save(new SearchOutbox(entityType, referenceId, appAccountId, SearchOperation.CASCADE)
+                .setPayload(reference.name()));
+            eventPublisher.publishEvent(new SearchOutboxEvent(entityType, null));
+        }
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void cascade(String claimToken, Long outboxId) {
+        SearchOutbox outbox = searchOutboxRepository.findOne(outboxId);
+        if (outbox == null || !claimToken.equals(outbox.getClaimedBy())) {
+            return;
+        }
+
+        SearchReference reference = SearchReference.valueOf(outbox.getPayload());
+        Long afterId = outbox.getCursorId() != null ? outbox.getCursorId() : 0L;
+        List<Long> ids = findReferencingIds(reference, outbox.getEntityType(), outbox.getEntityId(), afterId,
+            new PageRequest(0, properties.getCascadePageSize()));
+
+        List<SearchOutbox> rows = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            rows.add(new SearchOutbox(outbox.getEntityType(), id, outbox.getAppAccountId()));
+        }
+        searchOutboxRepository.save(rows);
+        log.debug("Enqueued {} documents referencing {} : {} after {}", ids.size(), reference, outbox.getEntityId(), afterId);
+
+        if (ids.size() < properties.getCascadePageSize()) {
+            searchOutboxRepository.delete(outbox);
+        } else {
+            outbox.setCursorId(ids.get(ids.size() - 1))
+                .setStatus(SyncStatus.NOT_SYNCED)
+                .setClaimedBy(null)
+                .setLeaseUntil(null)
+                .setNextAttemptDate(Instant.now().plusMillis(properties.getCascadeDelay()));
+        }
+        if (!ids.isEmpty()) {
+            eventPublisher.publishEvent(new SearchOutboxEvent(outbox.getEntityType(), null));
+        }
+    }
+
+    private List<Long> findReferencingIds(SearchReference reference, SearchEntityType entityType, Long referenceId,
+                                          Long afterId, Pageable page) {
+        if (entityType == SearchEntityType.ACTIVITY) {
+            switch (reference) {
+                case CONTACT:
+                    return activityRepository.findIdsByContactIdAfter(referenceId, afterId, page);
+                case AGENT:
+                    return activityRepository.findIdsByAgentIdAfter(referenceId, afterId, page);
+                case DEAL:
+                    return activityRepository.findIdsByDealIdAfter(referenceId, afterId, page);
+                case ACTIVITY_TYPE:
+                    return activityRepository.findIdsByTypeIdAfter(referenceId, afterId, page);
+                default:
+                    throw new IllegalArgumentException("Unknown search reference " + reference + " of " + entityType);
+            }
+        }
+        switch (reference) {
+            case CONTACT:
+                return dealRepository.findIdsByContactIdAfter(referenceId, afterId, page);
+            case AGENT:
+                return dealRepository.findIdsByAgentIdAfter(referenceId, afterId, page);
+            case SOURCE:
+                return dealRepository.findIdsBySourceIdAfter(referenceId, afterId, page);
+            case CHANNEL:
+                return dealRepository.findIdsByChannelIdAfter(referenceId, afterId, page);
+            case LOST_REASON:
+                return dealRepository.findIdsByLostReasonIdAfter(referenceId, afterId, page);
+            case PRODUCT:
+                return dealRepository.findIdsByProductIdAfter(referenceId, afterId, page);
+            case STAGE:
+                return dealRepository.findIdsByStageIdAfter(referenceId, afterId, page);
+            case PIPELINE:
+                return dealRepository.findIdsByPipelineIdAfter(referenceId, afterId, page);
+            default:
+                throw new IllegalArgumentException("Unknown search reference " + reference + " of " + entityType);
+        }
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public SearchOutboxBatch claim(String claimToken, Long afterId, int limit) {
+        Instant now = Instant.now();
+        List<Long> candidates = searchOutboxRepository.findClaimableIds(afterId, SyncStatus.NOT_SYNCED, SyncStatus.IN_PROGRESS,
+            now, new PageRequest(0, limit));
+        if (candidates.isEmpty()) {
+            return new SearchOutboxBatch(claimToken, Collections.emptyList(), null);
+        }
+
+        int claimed = searchOutboxRepository.claim(candidates, SyncStatus.NOT_SYNCED, SyncStatus.IN_PROGRESS, now,
+            claimToken, now.plusMillis(properties.getLeaseDuration()));
+        log.debug("Claimed {} of {} outbox rows as {}", claimed, candidates.size(), claimToken);
+
+        List<SearchOutbox> rows = claimed == 0 ? Collections.emptyList() : searchOutboxRepository.findAllByClaimedByOrderByIdAsc(claimToken);
+        return new SearchOutboxBatch(claimToken, rows, candidates.get(candidates.size() - 1));
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void complete(String claimToken, SearchOutboxResult result) {
+        if (!result.isEmpty()) {
+            Instant now = Instant.now();
+            for (SearchOutbox outbox : searchOutboxRepository.findAllByClaimedByOrderByIdAsc(claimToken)) {
+                if (result.getReindexes().contains(outbox.getId())) {
+                    // a partial update found no document to update, the next attempt sends the whole document
+                    outbox.setOperation(SearchOperation.INDEX)
+                        .setPayload(null)
+                        .setStatus(SyncStatus.NOT_SYNCED)
+                        .setClaimedBy(null)
+                        .setLeaseUntil(null);
+                    continue;
+                }
+
+                String retryReason = result.getRetries().get(outbox.getId());
+                String failureReason = result.getFailures().get(outbox.getId());
+                if (retryReason == null && failureReason == null) {
+                    continue;
+                }
+
+                int attempts = outbox.getAttempts() + 1;
+                outbox.setAttempts(attempts)
+                    .setClaimedBy(null)
+                    .setLeaseUntil(null);
+                if (failureReason != null || attempts >= properties.getMaxAttempts()) {
+                    log.warn("Search outbox row {} for {} : {} failed after {} attempts: {}", outbox.getId(),
+                        outbox.getEntityType(), outbox.getEntityId(), attempts, failureReason != null ? failureReason : retryReason);
+                    outbox.setStatus(SyncStatus.FAILED)
+                        .setNextAttemptDate(null)
+                        .setLastError(abbreviate(failureReason != null ? failureReason : retryReason));
+                } else {
+                    outbox.setStatus(SyncStatus.NOT_SYNCED)
+                        .setNextAttemptDate(now.plusMillis(backoff(attempts)))
+                        .setLastError(abbreviate(retryReason));
+                }
+            }
+            // rows are no longer claimed by the token, so the delete below leaves them alone
+            searchOutboxRepository.flush();
+        }
+        searchOutboxRepository.deleteAllByClaimedBy(claimToken);
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void release(String claimToken) {
+        searchOutboxRepository.release(claimToken, SyncStatus.NOT_SYNCED);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Page<SearchOutbox> findAllFailed(Pageable pageable) {
+        log.debug("Request to get all failed search outbox rows");
+        return searchOutboxRepository.findAllByStatus(SyncStatus.FAILED, pageable);
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.REQUIRED)
+    public int replay(List<Long> ids) {
+        log.debug("Request to replay failed search outbox rows : {}", ids);
+        int replayed = ids == null || ids.isEmpty()
+            ? searchOutboxRepository.replayAll(SyncStatus.FAILED, SyncStatus.NOT_SYNCED)
+            : searchOutboxRepository.replay(SyncStatus.FAILED, SyncStatus.NOT_SYNCED, ids);
+        if (replayed > 0) {
+            eventPublisher.publishEvent(new SearchOutboxEvent(null, null));
+        }
+        return replayed;
+    }
+
+    /**
+     * Exponential backoff with jitter, so rows rejected together by an overloaded cluster do not come back together.
+     */
+    private long backoff(int attempts) {
+        long delay = Math.min(properties.getMaxBackoff(), properties.getInitialBackoff() << Math.min(attempts - 1, 20));
+        return delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+    }
+
+    private static String abbreviate(String reason) {
+        return StringUtils.abbreviate(reason, LAST_ERROR_LENGTH);
+    }
+}
@@ -0,0 +1,272 @@
+package com.leadlet.service.impl;
+
+import com.leadlet.config.ApplicationProperties;
+import com.leadlet.domain.enumeration.SearchEntityType;
+import com.leadlet.repository.AppAccountRepository;
+import com.leadlet.service.SearchOutboxService;
+import com.leadlet.service.SearchReconcileService;
+import com.leadlet.service.dto.SearchReconcileReportDTO;
+import com.leadlet.service.search.SearchIndexWriter;
+import com.leadlet.service.search.SearchRangeDigest;
+import com.leadlet.service.search.SearchRouting;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.script.Script;
+import org.elasticsearch.script.ScriptType;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.aggregations.AggregationBuilders;
+import org.elasticsearch.search.aggregations.metrics.max.Max;
+import org.elasticsearch.search.aggregations.metrics.min.Min;
+import org.elasticsearch.search.aggregations.metrics.sum.Sum;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Service Implementation for comparing the search indices with the database.
+ * <p>
+ * Every index of an account is compared as one id range first: document count and the sum of the
+ * {@link SearchRangeDigest} checksums on both sides. A healthy account costs one database and one search query per
+ * index. Ranges which differ are split in the middle of the ids actually present until they are small enough to
+ * compare id by id, only the ids found missing, stale or left over are enqueued in the search outbox.
+ */
+@Service
+public class SearchReconcileServiceImpl implements SearchReconcileService {
+
+    private final Logger log = LoggerFactory.getLogger(SearchReconcileServiceImpl.class);
+
+    private static final String CHECKSUM_AGG = "checksum";
+    private static final String MIN_ID_AGG = "min_id";
+    private static final String MAX_ID_AGG = "max_id";
+
+    private final RestHighLevelClient restHighLevelClient;
+    private final SearchOutboxService searchOutboxService;
+    private final AppAccountRepository appAccountRepository;
+    private final SearchRouting searchRouting;
+    private final Map<SearchEntityType, SearchIndexWriter> writers = new EnumMap<>(SearchEntityType.class);
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationProperties.Search.Reconcile properties;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile SearchReconcileReportDTO lastReport;
+
+    public SearchReconcileServiceImpl(RestHighLevelClient restHighLevelClient, SearchOutboxService searchOutboxService,
+                                      AppAccountRepository appAccountRepository, SearchRouting searchRouting,
+                                      List<SearchIndexWriter> writers,
+                                      PlatformTransactionManager transactionManager,
+                                      ApplicationProperties applicationProperties) {
+        this.restHighLevelClient = restHighLevelClient;
+        this.searchOutboxService = searchOutboxService;
+        this.appAccountRepository = appAccountRepository;
+        this.searchRouting = searchRouting;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.properties = applicationProperties.getSearch().getReconcile();
+        for (SearchIndexWriter writer : writers) {
+            this.writers.put(writer.getEntityType(), writer);
+        }
+    }
+
+    @Override
+    public Optional<SearchReconcileReportDTO> reconcile() {
+        if (!running.compareAndSet(false, true)) {
+            log.debug("Search reconciliation already running");
+            return Optional.empty();
+        }
+        SearchReconcileReportDTO report = new SearchReconcileReportDTO(Instant.now());
+        lastReport = report;
+        try {
+            ZoneId zone = StringUtils.isEmpty(properties.getTimeZone()) ? ZoneId.systemDefault()
+                : ZoneId.of(properties.getTimeZone());
+            for (Long appAccountId : appAccountRepository.findAllIds()) {
+                for (SearchIndexWriter writer : writers.values()) {
+                    Run run = new Run(report, writer, appAccountId, zone);
+                    run.compare(0L, Long.MAX_VALUE);
+                    if (report.isTruncated()) {
+                        log.warn("Search reconciliation stopped after {} repairs", properties.getMaxRepairs());
+                        return Optional.of(report);
+                    }
+                }
+                report.setAccounts(report.getAccounts() + 1);
+            }
+        } catch (IOException | RuntimeException e) {
+            log.error("Search reconciliation failed", e);
+            report.setError(String.valueOf(e));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            report.setError(String.valueOf(e));
+        } finally {
+            report.setFinishedDate(Instant.now());
+            running.set(false);
+        }
+        log.info("Search reconciliation compared {} accounts with {} probes, {} documents re-indexed, {} deleted",
+            report.getAccounts(), report.getProbes(), report.getReindexed(), report.getDeleted());
+        return Optional.of(report);
+    }
+
+    @Override
+    public Optional<SearchReconcileReportDTO> getLastReport() {
+        return Optional.ofNullable(lastReport);
+    }
+
+    private QueryBuilder rangeQuery(Long appAccountId, long fromId, long toId) {
+        return QueryBuilders.boolQuery()
+            .filter(QueryBuilders.termQuery("app_account_id", appAccountId))
+            .filter(QueryBuilders.rangeQuery("id").gte(fromId).lte(toId));
+    }
+
+    private SearchRangeDigest indexDigest(SearchEntityType type, Long appAccountId, long fromId, long toId, ZoneId zone)
+        throws IOException {
+        SearchSourceBuilder source = new SearchSourceBuilder()
+            .size(0)
+            .query(rangeQuery(appAccountId, fromId, toId))
+            .aggregation(AggregationBuilders.sum(CHECKSUM_AGG).script(new Script(ScriptType.INLINE, "painless",
+                SearchRangeDigest.SCRIPT, Collections.singletonMap("zone", zone.getId()))))
+            .aggregation(AggregationBuilders.min(MIN_ID_AGG).field("id"))
+            .aggregation(AggregationBuilders.max(MAX_ID_AGG).field("id"));
+        SearchResponse response = restHighLevelClient.search(new SearchRequest(type.getIndex())
+            .routing(searchRouting.search(type.getIndex(), appAccountId)).source(source));
+
+        long count = response.getHits().getTotalHits();
+        Sum checksum = response.getAggregations().get(CHECKSUM_AGG);
+        Min minId = response.getAggregations().get(MIN_ID_AGG);
+        Max maxId = response.getAggregations().get(MAX_ID_AGG);
+        // the checksum terms are below 2^30, their sum stays exact in a double for any realistic count
+        return new SearchRangeDigest(count, (long) checksum.getValue(),
+            count > 0 ? (long) minId.getValue() : null, count > 0 ? (long) maxId.getValue() : null);
+    }
+
+    /**
+     * @return the indexed version of every document in the range by id, -1 for documents without one
+     */
+    private Map<Long, Long> indexVersions(SearchEntityType type, Long appAccountId, long fromId, long toId)
+        throws IOException {
+        SearchSourceBuilder source = new SearchSourceBuilder()
+            .size(properties.getLeafSize())
+            .fetchSource(false)
+            .docValueField("version")
+            .query(rangeQuery(appAccountId, fromId, toId));
+        SearchResponse response = restHighLevelClient.search(new SearchRequest(type.getIndex())
+            .routing(searchRouting.search(type.getIndex(), appAccountId)).source(source));
+
+        Map<Long, Long> versions = new HashMap<>();
+        for (SearchHit hit : response.getHits()) {
+            Object version = hit.getFields().containsKey("version") ? hit.getFields().get("version").getValue() : null;
+            versions.put(Long.valueOf(hit.getId()), version != null ? ((Number) version).longValue() : -1L);
+        }
+        return versions;
+    }
+
+    /**
+     * Reconciliation of one index of one account.
+     */
+    private final class Run {
+
+        private final SearchReconcileReportDTO report;
+        private final SearchIndexWriter writer;
+        private final SearchEntityType type;
+        private final Long appAccountId;
+        private final ZoneId zone;
+        private SearchReconcileReportDTO.Drift drift;
+
+        private Run(SearchReconcileReportDTO report, SearchIndexWriter writer, Long appAccountId, ZoneId zone) {
+            this.report = report;
+            this.writer = writer;
+            this.type = writer.getEntityType();
+            this.appAccountId = appAccountId;
+            this.zone = zone;
+        }
+
+        private void compare(long fromId, long toId) throws IOException, InterruptedException {
+            if (report.isTruncated()) {
+                return;
+            }
+            SearchRangeDigest database = writer.digest(appAccountId, fromId, toId);
+            SearchRangeDigest index = indexDigest(type, appAccountId, fromId, toId, zone);
+            report.setProbes(report.getProbes() + 1);
+            if (database.matches(index)) {
+                return;
+            }
+            if (drift == null) {
+                drift = new SearchReconcileReportDTO.Drift(type, appAccountId, database.getCount(), index.getCount());
+                report.addDrift(drift);
+            }
+
+            long low = Math.min(bound(database.getMinId(), Long.MAX_VALUE), bound(index.getMinId(), Long.MAX_VALUE));
+            long high = Math.max(bound(database.getMaxId(), Long.MIN_VALUE), bound(index.getMaxId(), Long.MIN_VALUE));
+            if (Math.max(database.getCount(), index.getCount()) <= properties.getLeafSize() || low >= high) {
+                repair(low, high);
+                return;
+            }
+
+            long middle = low + (high - low) / 2;
+            Thread.sleep(properties.getProbeDelay());
+            compare(low, middle);
+            Thread.sleep(properties.getProbeDelay());
+            compare(middle + 1, high);
+        }
+
+        private long bound(Long id, long empty) {
+            return id != null ? id : empty;
+        }
+
+        private void repair(long fromId, long toId) throws IOException {
+            Map<Long, Instant> database = writer.findVersions(appAccountId, fromId, toId);
+            Map<Long, Long> index = indexVersions(type, appAccountId, fromId, toId);
+
+            // compared to the second, like the checksum, the database may not keep milliseconds
+            List<Long> reindex = new ArrayList<>();
+            for (Map.Entry<Long, Instant> entity : database.entrySet()) {
+                Long indexed = index.get(entity.getKey());
+                long expected = entity.getValue() != null ? entity.getValue().toEpochMilli() : 0L;
+                if (indexed == null || indexed < 0 || Math.floorDiv(indexed, 1000) != Math.floorDiv(expected, 1000)) {
+                    reindex.add(entity.getKey());
+                }
+            }
+            List<Long> delete = new ArrayList<>();
+            for (Long id : index.keySet()) {
+                if (!database.containsKey(id)) {
+                    delete.add(id);
+                }
+            }
+
+            int budget = properties.getMaxRepairs() - report.getReindexed() - report.getDeleted();
+            if (reindex.size() + delete.size() > budget) {
+                report.setTruncated(true);
+                reindex = reindex.subList(0, Math.min(reindex.size(), budget));
+                delete = delete.subList(0, Math.min(delete.size(), budget - reindex.size()));
+            }
+            if (reindex.isEmpty() && delete.isEmpty()) {
+                return;
+            }
+
+            List<Long> reindexIds = reindex;
+            List<Long> deleteIds = delete;
+            transactionTemplate.execute(status -> {
+                for (Long id : reindexIds) {
+                    searchOutboxService.enqueue(type, id, appAccountId);
+                }
+                if (!deleteIds.isEmpty()) {
+                    searchOutboxService.enqueueDelete(type, deleteIds, appAccountId);
+                }
+                return null;
+            });
+            log.debug("Reconciled {} ids {}..{} of account {}: {} re-indexed, {} deleted", type, fromId, toId, appAccountId,
+                reindexIds.size(), deleteIds.size());
+            drift.setReindexed(drift.getReindexed() + reindexIds.size()).setDeleted(drift.getDeleted() + deleteIds.size());
+            report.setReindexed(report.getReindexed() + reindexIds.size()).setDeleted(report.getDeleted() + deleteIds.size());
+        }
+    }
+}
@@ -0,0 +1,510 @@
+package com.leadlet.service.impl;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.leadlet.config.ApplicationProperties;
+import com.leadlet.domain.SearchReindexJob;
+import com.leadlet.domain.SearchReindexPartition;
+import com.leadlet.domain.enumeration.SearchEntityType;
+import com.leadlet.domain.enumeration.SearchReindexStatus;
+import com.leadlet.repository.SearchReindexJobRepository;
+import com.leadlet.repository.SearchReindexPartitionRepository;
+import com.leadlet.service.SearchReindexService;
+import com.leadlet.service.dto.SearchReindexJobDTO;
+import com.leadlet.service.search.BulkIndexer;
+import com.leadlet.service.search.SearchFacetCache;
+import com.leadlet.service.search.SearchIndexWriter;
+import com.leadlet.service.search.SearchRangeDigest;
+import com.leadlet.service.search.SearchRouting;
+import org.apache.commons.lang3.StringUtils;
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.admin.indices.refresh.RefreshRequest;
+import org.elasticsearch.action.admin.indices.settings.put.UpdateSettingsRequest;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.support.replication.ReplicationRequest;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.rest.RestStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * Service Implementation for rebuilding search indices from the database.
+ * <p>
+ * A job splits the id range of the entities into partitions which are streamed in parallel, page by page, into
+ * the {@link BulkIndexer}. A partition only moves its cursor once every document of a page has been answered, so a
+ * resumed job repeats at most the pages in flight.
+ * <p>
+ * A job either writes through the alias into the index searches use, or fills a fresh physical index the alias is
+ * moved to afterwards. Only the fresh index is not refreshed and has no replicas while it is filled, the index
+ * behind the alias keeps its settings. Only one job of an index runs at a time, starting one claims the index with
+ * the unique {@link SearchReindexJob#getRunningEntityType running entity type} of its row. The node running a job
+ * renews its {@link SearchReindexJob#getHeartbeatDate heartbeat}, a running job is only resumed elsewhere once that
+ * lease has expired.
+ */
+@Service
+public class SearchReindexServiceImpl implements SearchReindexService {
+
+    private final Logger log = LoggerFactory.getLogger(SearchReindexServiceImpl.class);
+
+    private static final String REFRESH_INTERVAL = "index.refresh_interval";
+    private static final String NUMBER_OF_REPLICAS = "index.number_of_replicas";
+
+    private static final int MAX_ATTEMPTS = 5;
+    private static final long INITIAL_BACKOFF = 1000;
+
+    private static final Set<RestStatus> RETRYABLE_STATUSES = EnumSet.of(RestStatus.TOO_MANY_REQUESTS,
+        RestStatus.SERVICE_UNAVAILABLE);
+
+    private final SearchReindexJobRepository searchReindexJobRepository;
+    private final SearchReindexPartitionRepository searchReindexPartitionRepository;
+    private final Map<SearchEntityType, SearchIndexWriter> writers = new EnumMap<>(SearchEntityType.class);
+    private final BulkIndexer bulkIndexer;
+    private final SearchRouting searchRouting;
+    private final SearchFacetCache searchFacetCache;
+    private final RestHighLevelClient restHighLevelClient;
+    private final Executor searchJobExecutor;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate readOnlyTransactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final ApplicationProperties.Search.Reindex properties;
+
+    /**
+     * Cancellation flags of the jobs running on this node.
+     */
+    private final Map<Long, AtomicBoolean> running = new ConcurrentHashMap<>();
+
+    /**
+     * Completed with their final status when the jobs running on this node end.
+     */
+    private final Map<Long, CompletableFuture<SearchReindexStatus>> completions = new ConcurrentHashMap<>();
+
+    public SearchReindexServiceImpl(SearchReindexJobRepository searchReindexJobRepository,
+                                    SearchReindexPartitionRepository searchReindexPartitionRepository,
+                                    List<SearchIndexWriter> writers, BulkIndexer bulkIndexer, SearchRouting searchRouting,
+                                    SearchFacetCache searchFacetCache, RestHighLevelClient restHighLevelClient,
+                                    @Qualifier("searchJobExecutor") Executor searchJobExecutor,
+                                    PlatformTransactionManager transactionManager, ObjectMapper objectMapper,
+                                    ApplicationProperties applicationProperties) {
+        this.searchReindexJobRepository = searchReindexJobRepository;
+        this.searchReindexPartitionRepository = searchReindexPartitionRepository;
+        for (SearchIndexWriter writer : writers) {
+            this.writers.put(writer.getEntityType(), writer);
+        }
+        this.bulkIndexer = bulkIndexer;
+        this.searchRouting = searchRouting;
+        this.searchFacetCache = searchFacetCache;
+        this.restHighLevelClient = restHighLevelClient;
+        this.searchJobExecutor = searchJobExecutor;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+        this.objectMapper = objectMapper;
+        this.properties = applicationProperties.getSearch().getReindex();
+    }
+
+    @Override
+    public boolean isRunning(SearchEntityType entityType) {
+        return searchReindexJobRepository.countByEntityTypeAndStatus(entityType, SearchReindexStatus.RUNNING) > 0;
+    }
+
+    @Override
+    public SearchReindexJobDTO start(SearchEntityType entityType, Long appAccountId) {
+        log.debug("Request to rebuild search index {} of account {}", entityType, appAccountId);
+        return start(new SearchReindexJob(entityType, appAccountId));
+    }
+
+    @Override
+    public SearchReindexJobDTO migrate(SearchEntityType entityType, String target) {
+        log.debug("Request to fill search index {} of {}", target, entityType);
+        SearchReindexJob job = searchReindexJobRepository.findFirstByTargetAndStatusNotOrderByIdDesc(target,
+            SearchReindexStatus.COMPLETED);
+        if (job == null) {
+            return start(new SearchReindexJob(entityType, null).setTarget(target));
+        }
+        if (job.getStatus() == SearchReindexStatus.RUNNING) {
+            takeOver(job);
+        }
+        return launch(job);
+    }
+
+    private SearchReindexJobDTO start(SearchReindexJob newJob) {
+        SearchRangeDigest bounds = writers.get(newJob.getEntityType()).digest(newJob.getAppAccountId(), 0L, Long.MAX_VALUE);
+        SearchReindexJob job = claim(newJob.setTotal(bounds.getCount()));
+
+        try {
+            if (bounds.getCount() > 0) {
+                int partitions = (int) Math.max(1, Math.min(properties.getPartitions(), bounds.getCount() / properties.getPageSize()));
+                long span = (bounds.getMaxId() - bounds.getMinId()) / partitions + 1;
+                List<SearchReindexPartition> ranges = new ArrayList<>(partitions);
+                for (int i = 0; i < partitions; i++) {
+                    long fromId = bounds.getMinId() + i * span;
+                    long toId = i == partitions - 1 ? bounds.getMaxId() : fromId + span - 1;
+                    ranges.add(new SearchReindexPartition(job.getId(), fromId, toId));
+                }
+                searchReindexPartitionRepository.save(ranges);
+            }
+        } catch (RuntimeException e) {
+            searchReindexJobRepository.save(job.setStatus(SearchReindexStatus.FAILED).setLastError(String.valueOf(e))
+                .setRunningEntityType(null));
+            throw e;
+        }
+        return launch(job);
+    }
+
+    @Override
+    public SearchReindexJobDTO resume(Long id) {
+        log.debug("Request to resume search index rebuild : {}", id);
+        SearchReindexJob job = findJob(id);
+        if (running.containsKey(id) || job.getStatus() == SearchReindexStatus.COMPLETED) {
+            return toDto(job);
+        }
+        if (job.getStatus() == SearchReindexStatus.RUNNING) {
+            takeOver(job);
+        }
+        return launch(job);
+    }
+
+    @Override
+    public void heartbeat() {
+        if (!running.isEmpty()) {
+            List<Long> ids = new ArrayList<>(running.keySet());
+            transactionTemplate.execute(status -> searchReindexJobRepository.heartbeat(ids, Instant.now(),
+                SearchReindexStatus.RUNNING));
+        }
+    }
+
+    @Override
+    public SearchReindexJobDTO cancel(Long id) {
+        log.debug("Request to cancel search index rebuild : {}", id);
+        AtomicBoolean cancelled = running.get(id);
+        if (cancelled != null) {
+            cancelled.set(true);
+            return toDto(findJob(id));
+        }
+
+        // the node running it went down, put the index settings back and release the index on its behalf
+        SearchReindexJob job = findJob(id);
+        if (job.getStatus() == SearchReindexStatus.RUNNING) {
+            restoreSettings(job);
+            job = searchReindexJobRepository.save(job.setStatus(SearchReindexStatus.CANCELLED).setFinishedDate(Instant.now())
+                .setRunningEntityType(null));
+        }
+        return toDto(job);
+    }
+
+    @Override
+    public CompletableFuture<SearchReindexStatus> whenFinished(Long id) {
+        CompletableFuture<SearchReindexStatus> completion = completions.get(id);
+        if (completion != null) {
+            return completion;
+        }
+        // ended already, its row has the final status
+        SearchReindexJob job = searchReindexJobRepository.findOne(id);
+        return CompletableFuture.completedFuture(job != null ? job.getStatus() : SearchReindexStatus.CANCELLED);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Page<SearchReindexJobDTO> findAll(Pageable pageable) {
+        log.debug("Request to get all search index rebuilds");
+        Page<SearchReindexJob> jobs = searchReindexJobRepository.findAll(pageable);
+        Map<Long, Object[]> progress = progress(jobs.getContent().stream().map(SearchReindexJob::getId)
+            .collect(Collectors.toList()));
+        return jobs.map(job -> toDto(job, progress.get(job.getId())));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public SearchReindexJobDTO findOne(Long id) {
+        log.debug("Request to get search index rebuild : {}", id);
+        SearchReindexJob job = searchReindexJobRepository.findOne(id);
+        return job != null ? toDto(job) : null;
+    }
+
+    private SearchReindexJob findJob(Long id) {
+        SearchReindexJob job = searchReindexJobRepository.findOne(id);
+        if (job == null) {
+            throw new EntityNotFoundException();
+        }
+        return job;
+    }
+
+    /**
+     * Save the job as running, unless another job of its index runs already. The unique running entity type makes
+     * the check and the write one atomic statement, also across nodes.
+     *
+     * @throws IllegalStateException if a job of the index is already running
+     */
+    private SearchReindexJob claim(SearchReindexJob job) {
+        try {
+            return searchReindexJobRepository.saveAndFlush(job.setStatus(SearchReindexStatus.RUNNING)
+                .setRunningEntityType(job.getEntityType()).setHeartbeatDate(Instant.now()));
+        } catch (DataIntegrityViolationException e) {
+            throw new IllegalStateException("A rebuild of " + job.getEntityType() + " is already running", e);
+        }
+    }
+
+    /**
+     * Take a running job over from the node it runs on, which has stopped renewing its lease. Of several nodes trying
+     * at the same time only one succeeds.
+     *
+     * @throws IllegalStateException if the job still runs on another node
+     */
+    private void takeOver(SearchReindexJob job) {
+        Instant now = Instant.now();
+        Integer taken = transactionTemplate.execute(status -> searchReindexJobRepository.takeOver(job.getId(), now,
+            now.minusMillis(properties.getLeaseDuration()), SearchReindexStatus.RUNNING));
+        if (taken == 0) {
+            throw new IllegalStateException("Search index rebuild " + job.getId() + " is running on another node");
+        }
+        log.warn("Taking over search index rebuild {}, the node running it stopped renewing its lease", job.getId());
+    }
+
+    private SearchReindexJobDTO launch(SearchReindexJob job) {
+        Object[] progress = progress(Collections.singletonList(job.getId())).get(job.getId());
+        SearchReindexJob started = claim(job.setStartedDate(Instant.now())
+            .setFinishedDate(null)
+            .setLastError(null)
+            .setStartProcessed(progress != null ? ((Number) progress[1]).longValue() : 0L));
+        running.put(job.getId(), new AtomicBoolean());
+        completions.put(job.getId(), new CompletableFuture<>());
+        try {
+            searchJobExecutor.execute(() -> run(started));
+        } catch (RuntimeException e) {
+            running.remove(job.getId());
+            searchReindexJobRepository.save(started.setStatus(SearchReindexStatus.FAILED).setLastError(String.valueOf(e))
+                .setRunningEntityType(null));
+            completions.remove(job.getId()).complete(SearchReindexStatus.FAILED);
+            throw e;
+        }
+        return toDto(started);
+    }
+
+    private void run(SearchReindexJob job) {
+        AtomicBoolean cancelled = running.get(job.getId());
+        List<SearchReindexPartition> partitions = searchReindexPartitionRepository
+            .findAllByJobIdAndStatusNot(job.getId(), SearchReindexStatus.COMPLETED);
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, partitions.size()));
+        try {
+            disableRefresh(job);
+            log.info("Rebuilding search index {} of account {} with {} partitions", job.getEntityType(),
+                job.getAppAccountId(), partitions.size());
+            CompletableFuture.allOf(partitions.stream()
+                .map(partition -> CompletableFuture.runAsync(() -> runPartition(job, partition, cancelled), executor))
+                .toArray(CompletableFuture<?>[]::new)).join();
+            job.setStatus(cancelled.get() ? SearchReindexStatus.CANCELLED : SearchReindexStatus.COMPLETED);
+        } catch (IOException | RuntimeException e) {
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            log.error("Rebuilding search index {} failed, it can be resumed", job.getEntityType(), cause);
+            // stop the other partitions at their next page
+            cancelled.set(true);
+            job.setStatus(SearchReindexStatus.FAILED).setLastError(StringUtils.left(String.valueOf(cause), 2000));
+        } finally {
+            executor.shutdown();
+            try {
+                restoreSettings(job);
+            } catch (RuntimeException e) {
+                log.error("Could not restore the settings of search index {}", job.getEntityType(), e);
+            }
+            searchFacetCache.invalidate(job.getEntityType().getIndex(), job.getAppAccountId());
+            searchReindexJobRepository.save(job.setFinishedDate(Instant.now()).setRunningEntityType(null));
+            running.remove(job.getId());
+            completions.remove(job.getId()).complete(job.getStatus());
+            log.info("Rebuild of search index {} ended with status {}", job.getEntityType(), job.getStatus());
+        }
+    }
+
+    private void runPartition(SearchReindexJob job, SearchReindexPartition partition, AtomicBoolean cancelled) {
+        SearchIndexWriter writer = writers.get(job.getEntityType());
+        long cursor = partition.getCursorId() != null ? partition.getCursorId() : partition.getFromId() - 1;
+        searchReindexPartitionRepository.save(partition.setStatus(SearchReindexStatus.RUNNING));
+        try {
+            while (!cancelled.get()) {
+                List<Long> ids = writer.findIds(job.getAppAccountId(), cursor, partition.getToId(), properties.getPageSize());
+                if (ids.isEmpty()) {
+                    partition.setStatus(SearchReindexStatus.COMPLETED);
+                    break;
+                }
+                List<DocWriteRequest<?>> actions = readOnlyTransactionTemplate.execute(status -> {
+                    try {
+                        return writer.write(ids);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                int failed = send(actions, job.getTarget());
+
+                cursor = ids.get(ids.size() - 1);
+                searchReindexPartitionRepository.save(partition.setCursorId(cursor)
+                    .setProcessed(partition.getProcessed() + ids.size())
+                    .setFailed(partition.getFailed() + failed));
+            }
+            if (partition.getStatus() != SearchReindexStatus.COMPLETED) {
+                partition.setStatus(SearchReindexStatus.CANCELLED);
+            }
+        } catch (RuntimeException e) {
+            partition.setStatus(SearchReindexStatus.FAILED);
+            throw e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            partition.setStatus(SearchReindexStatus.CANCELLED);
+        } finally {
+            searchReindexPartitionRepository.save(partition);
+        }
+    }
+
+    /**
+     * Send one page and wait for all of its responses. Rejections by an overloaded cluster are retried with backoff.
+     *
+     * @param target the physical index to write into, null for the index behind the alias
+     * @return the number of documents the cluster refused, version conflicts mean a newer document is indexed already
+     */
+    private int send(List<DocWriteRequest<?>> actions, String target) throws InterruptedException {
+        int failed = 0;
+        List<DocWriteRequest<?>> pending = actions;
+        for (int attempt = 1; !pending.isEmpty(); attempt++) {
+            List<CompletableFuture<BulkItemResponse>> responses = new ArrayList<>(pending.size());
+            for (DocWriteRequest<?> action : pending) {
+                searchRouting.adapt(action);
+                if (target != null && action instanceof ReplicationRequest) {
+                    ((ReplicationRequest<?>) action).index(target);
+                }
+                responses.add(bulkIndexer.add(action));
+            }
+            bulkIndexer.flush();
+
+            List<DocWriteRequest<?>> retry = new ArrayList<>();
+            for (int i = 0; i < responses.size(); i++) {
+                BulkItemResponse item = responses.get(i).join();
+                if (!item.isFailed() || item.getFailure().getStatus() == RestStatus.CONFLICT) {
+                    continue;
+                }
+                if (RETRYABLE_STATUSES.contains(item.getFailure().getStatus()) && attempt < MAX_ATTEMPTS) {
+                    retry.add(pending.get(i));
+                } else {
+                    log.warn("Could not index {}/{}: {}", item.getIndex(), item.getId(), item.getFailureMessage());
+                    failed++;
+                }
+            }
+            if (!retry.isEmpty()) {
+                Thread.sleep(INITIAL_BACKOFF << (attempt - 1));
+            }
+            pending = retry;
+        }
+        return failed;
+    }
+
+    /**
+     * Switch refresh and replicas off on the fresh index of a job with a target, the settings before are kept on
+     * the job. A resumed job keeps the ones it saved the first time. The index behind the alias is left alone, it
+     * serves searches while the job runs.
+     */
+    private void disableRefresh(SearchReindexJob job) throws IOException {
+        String index = job.getTarget();
+        if (index == null) {
+            return;
+        }
+        if (job.getRefreshInterval() == null || job.getNumberOfReplicas() == null) {
+            Response response = restHighLevelClient.getLowLevelClient().performRequest("GET", "/" + index + "/_settings",
+                Collections.singletonMap("include_defaults", "true"));
+            JsonNode indices = objectMapper.readTree(response.getEntity().getContent());
+            JsonNode settings = indices.elements().next();
+            String refreshInterval = setting(settings, "refresh_interval");
+            if ("-1".equals(refreshInterval)) {
+                // left over by a job whose node went down, the original is lost
+                log.warn("Search index {} is not refreshed, it will be refreshed every second after the rebuild", index);
+                refreshInterval = "1s";
+            }
+            searchReindexJobRepository.save(job.setRefreshInterval(refreshInterval)
+                .setNumberOfReplicas(setting(settings, "number_of_replicas")));
+        }
+        restHighLevelClient.indices().putSettings(new UpdateSettingsRequest(index).settings(Settings.builder()
+            .put(REFRESH_INTERVAL, "-1")
+            .put(NUMBER_OF_REPLICAS, 0)));
+    }
+
+    private String setting(JsonNode settings, String name) {
+        JsonNode value = settings.path("settings").path("index").path(name);
+        return value.isMissingNode() ? settings.path("defaults").path("index").path(name).asText() : value.asText();
+    }
+
+    private void restoreSettings(SearchReindexJob job) {
+        if (job.getTarget() == null || job.getRefreshInterval() == null || job.getNumberOfReplicas() == null) {
+            return;
+        }
+        String index = job.getTarget();
+        try {
+            restHighLevelClient.indices().putSettings(new UpdateSettingsRequest(index).settings(Settings.builder()
+                .put(REFRESH_INTERVAL, job.getRefreshInterval())
+                .put(NUMBER_OF_REPLICAS, job.getNumberOfReplicas())));
+            restHighLevelClient.indices().refresh(new RefreshRequest(index));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @return {@code job id, processed, failed} rows by job id
+     */
+    private Map<Long, Object[]> progress(List<Long> jobIds) {
+        Map<Long, Object[]> progress = new HashMap<>();
+        if (!jobIds.isEmpty()) {
+            for (Object[] row : searchReindexPartitionRepository.sumProgressByJobIdIn(jobIds)) {
+                progress.put((Long) row[0], row);
+            }
+        }
+        return progress;
+    }
+
+    private SearchReindexJobDTO toDto(SearchReindexJob job) {
+        return toDto(job, progress(Collections.singletonList(job.getId())).get(job.getId()));
+    }
+
+    private SearchReindexJobDTO toDto(SearchReindexJob job, Object[] progress) {
+        long processed = progress != null ? ((Number) progress[1]).longValue() : 0L;
+        long failed = progress != null ? ((Number) progress[2]).longValue() : 0L;
+        SearchReindexJobDTO dto = new SearchReindexJobDTO()
+            .setId(job.getId())
+            .setEntityType(job.getEntityType())
+            .setAppAccountId(job.getAppAccountId())
+            .setStatus(job.getStatus())
+            .setTotal(job.getTotal())
+            .setProcessed(processed)
+            .setFailed(failed)
+            .setCreatedDate(job.getCreatedDate())
+            .setStartedDate(job.getStartedDate())
+            .setFinishedDate(job.getFinishedDate())
+            .setLastError(job.getLastError());
+
+        if (job.getStatus() == SearchReindexStatus.RUNNING && job.getStartedDate() != null) {
+            Instant now = Instant.now();
+            double seconds = Duration.between(job.getStartedDate(), now).toMillis() / 1000.0;
+            double throughput = seconds > 0 ? (processed - job.getStartProcessed()) / seconds : 0;
+            dto.setThroughput(throughput);
+            if (throughput > 0) {
+                dto.setEta(now.plusSeconds((long) (Math.max(0, job.getTotal() - processed) / throughput)));
+            }
+        }
+        return dto;
+    }
+}
@@ -2,9 +2,12 @@ package com.leadlet.service.impl;
 
 import com.leadlet.domain.Deal;
 import com.leadlet.domain.DealSource;
+import com.leadlet.domain.enumeration.SearchEntityType;
+import com.leadlet.domain.enumeration.SearchReference;
 import com.leadlet.repository.DealRepository;
 import com.leadlet.repository.SourceRepository;
 import com.leadlet.security.SecurityUtils;
+import com.leadlet.service.SearchOutboxService;
 import com.leadlet.service.SourceService;
 import com.leadlet.service.dto.SourceDTO;
 import com.leadlet.service.mapper.SourceMapper;
@@ -17,6 +20,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityNotFoundException;
+import java.util.Objects;
 
 /**
  * Service Implementation for managing Source.
@@ -31,11 +35,14 @@ public class SourceServiceImpl implements SourceService {
     private final SourceRepository sourceRepository;
     private final SourceMapper sourceMapper;
     private final DealRepository dealRepository;
+    private final SearchOutboxService searchOutboxService;
 
-    public SourceServiceImpl(SourceRepository sourceRepository, SourceMapper sourceMapper, DealRepository dealRepository) {
+    public SourceServiceImpl(SourceRepository sourceRepository, SourceMapper sourceMapper, DealRepository dealRepository,
+                             SearchOutboxService searchOutboxService) {
         this.sourceRepository = sourceRepository;
         this.sourceMapper = sourceMapper;
         this.dealRepository = dealRepository;
+        this.searchOutboxService = searchOutboxService;
     }
 
     /**
@@ -66,9 +73,13 @@ public class SourceServiceImpl implements SourceService {
         DealSource sourceFromDb = sourceRepository.findOneByIdAndAppAccount_Id(source.getId(), SecurityUtils.getCurrentUserAppAccountId());
 
         if (sourceFromDb != null) {
+            String previousName = sourceFromDb.getName();
             // TODO appaccount'u eklemek dogru fakat appaccount olmadan da kayit hatasi almaliydik.
             source.setAppAccount(SecurityUtils.getCurrentUserAppAccountReference());
             source = sourceRepository.save(source);
+            if (!Objects.equals(previousName, source.getName())) {
+                searchOutboxService.enqueueCascade(SearchReference.SOURCE, source.getId(), SecurityUtils.getCurrentUserAppAccountId());
+            }
             return sourceMapper.toDto(source);
         } else {
             throw new EntityNotFoundException();
@@ -140,6 +151,7 @@ public class SourceServiceImpl implements SourceService {
             for (Deal deal : deals) {
                 deal.setDealSource(null);
                 dealRepository.save(deal);
+                searchOutboxService.enqueue(SearchEntityType.DEAL, deal.getId(), deal.getAppAccount().getId());
             }
 
             pageNo++;
@@ -1,8 +1,11 @@
 package com.leadlet.service.impl;
 
 import com.leadlet.domain.AppAccount;
+import com.leadlet.domain.enumeration.SearchReference;
 import com.leadlet.security.AppUserDetail;
 import com.leadlet.security.SecurityUtils;
+import com.leadlet.service.DealRollupService;
+import com.leadlet.service.SearchOutboxService;
 import com.leadlet.service.StageService;
 import com.leadlet.domain.Stage;
 import com.leadlet.repository.StageRepository;
@@ -18,6 +21,7 @@ import org.springframework.transaction.annotation.Transactional;
 import javax.persistence.EntityManager;
 import javax.persistence.EntityNotFoundException;
 import java.util.List;
+import java.util.Objects;
 import java.util.stream.Collectors;
 
 
@@ -34,9 +38,16 @@ public class StageServiceImpl implements StageService {
 
     private final StageMapper stageMapper;
 
-    public StageServiceImpl(StageRepository stageRepository, StageMapper stageMapper) {
+    private final SearchOutboxService searchOutboxService;
+
+    private final DealRollupService dealRollupService;
+
+    public StageServiceImpl(StageRepository stageRepository, StageMapper stageMapper, SearchOutboxService searchOutboxService,
+                            DealRollupService dealRollupService) {
         this.stageRepository = stageRepository;
         this.stageMapper = stageMapper;
+        this.searchOutboxService = searchOutboxService;
+        this.dealRollupService = dealRollupService;
     }
 
     /**
@@ -69,8 +80,12 @@ public class StageServiceImpl implements StageService {
         Stage stageFromDb = stageRepository.findOneByIdAndAppAccount_Id(stage.getId(), SecurityUtils.getCurrentUserAppAccountId());
 
         if (stageFromDb != null) {
+            String previousName = stageFromDb.getName();
             stage.setAppAccount(SecurityUtils.getCurrentUserAppAccountReference());
             stage = stageRepository.save(stage);
+            if (!Objects.equals(previousName, stage.getName())) {
+                searchOutboxService.enqueueCascade(SearchReference.STAGE, stage.getId(), SecurityUtils.getCurrentUserAppAccountId());
+            }
             return stageMapper.toDto(stage);
         } else {
             throw new EntityNotFoundException();
@@ -123,6 +138,8 @@ public class StageServiceImpl implements StageService {
         log.debug("Request to delete Stage : {}", id);
         Stage stageFromDb = stageRepository.findOneByIdAndAppAccount_Id(id, SecurityUtils.getCurrentUserAppAccountId());
         if (stageFromDb != null) {
+            searchOutboxService.enqueueStageDelete(id, stageFromDb.getAppAccount().getId());
+            dealRollupService.stageDeleted(stageFromDb.getAppAccount().getId(), id);
             stageRepository.delete(id);
         } else {
             throw new EntityNotFoundException();
@@ -3,32 +3,34 @@ package com.leadlet.service.impl;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.leadlet.config.SearchConstants;
 import com.leadlet.domain.*;
+import com.leadlet.domain.enumeration.SearchEntityType;
 import com.leadlet.domain.enumeration.TimelineItemType;
 import com.leadlet.repository.ActivityRepository;
 import com.leadlet.repository.DealRepository;
 import com.leadlet.repository.NoteRepository;
 import com.leadlet.repository.TimelineRepository;
-import com.leadlet.security.SecurityUtils;
 import com.leadlet.service.ElasticsearchService;
+import com.leadlet.service.SearchOutboxService;
 import com.leadlet.service.TimelineService;
+import com.leadlet.service.dto.SearchQueryDTO;
 import com.leadlet.service.dto.TimelineDTO;
 import com.leadlet.service.mapper.*;
+import com.leadlet.service.search.CursorPage;
+import com.leadlet.service.search.SearchHydrator;
+import com.leadlet.service.search.SearchViews;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
-import org.springframework.data.util.Pair;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.util.StringUtils;
 
 import java.io.IOException;
-import java.util.Collections;
-import java.util.Comparator;
+import java.time.Instant;
 import java.util.HashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
 
 /**
  * Service Implementation for managing Timeline.
@@ -38,6 +40,12 @@ import java.util.stream.Collectors;
 public class TimelineServiceImpl implements TimelineService {
 
     private final Logger log = LoggerFactory.getLogger(TimelineServiceImpl.class);
+
+    /**
+     * Everything of a {@link TimelineDTO} is in the timeline documents, the lists are served from them.
+     */
+    private static final String[] SOURCE_FIELDS = {"type", "content", "contact_id", "agent_id", "deal_id", "created_date"};
+
     private final TimelineRepository timelineRepository;
     private final TimelineMapper timelineMapper;
     private final NoteRepository noteRepository;
@@ -47,11 +55,14 @@ public class TimelineServiceImpl implements TimelineService {
     private final ActivityRepository activityRepository;
     private final DealRepository dealRepository;
     private final ElasticsearchService elasticsearchService;
+    private final SearchOutboxService searchOutboxService;
     private final UserMapper userMapper;
     private final PipelineMapper pipelineMapper;
     private final DealValueMapper dealValueMapper;
     private final StageMapper stageMapper;
     private final ContactMapper contactMapper;
+    private final SearchViews searchViews;
+    private final SearchHydrator searchHydrator;
 
     ObjectMapper mapper = new ObjectMapper();
 
@@ -65,10 +76,13 @@ public class TimelineServiceImpl implements TimelineService {
                                DealRepository dealRepository,
                                DetailedDealMapper detailedDealMapper,
                                ElasticsearchService elasticsearchService,
+                               SearchOutboxService searchOutboxService,
                                PipelineMapper pipelineMapper,
                                DealValueMapper dealValueMapper,
                                StageMapper stageMapper,
-                               ContactMapper contactMapper) {
+                               ContactMapper contactMapper,
+                               SearchViews searchViews,
+                               SearchHydrator searchHydrator) {
         this.timelineRepository = timelineRepository;
         this.timelineMapper = timelineMapper;
         this.noteRepository = noteRepository;
@@ -76,6 +90,7 @@ public class TimelineServiceImpl implements TimelineService {
         this.noteMapper = noteMapper;
         this.activityMapper = activityMapper;
         this.elasticsearchService = elasticsearchService;
+        this.searchOutboxService = searchOutboxService;
         this.dealRepository = dealRepository;
         this.detailedDealMapper = detailedDealMapper;
         this.userMapper = userMapper;
@@ -83,38 +98,42 @@ public class TimelineServiceImpl implements TimelineService {
         this.dealValueMapper = dealValueMapper;
         this.stageMapper = stageMapper;
         this.contactMapper = contactMapper;
+        this.searchViews = searchViews;
+        this.searchHydrator = searchHydrator;
 
     }
 
     @Override
-    public Page<TimelineDTO> query(String searchQuery, Pageable pageable) throws IOException {
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public Page<TimelineDTO> query(SearchQueryDTO searchQuery, Pageable pageable, String cursor, boolean exactTotal) throws IOException {
+        CursorPage<Map<String, Object>> response = elasticsearchService.getSources(SearchConstants.TIMELINE_INDEX, searchQuery,
+            pageable, cursor, exactTotal, SOURCE_FIELDS);
+
+        List<TimelineDTO> timelines = searchViews.read(response.getContent(), TimelineServiceImpl::fromSource,
+            ids -> searchHydrator.hydrate(ids, timelineRepository::findAllByIdIn, Timeline::getId, timelineMapper::toDto));
+        return response.withContent(timelines);
+    }
 
-        String appAccountFilter = "app_account_id:" + SecurityUtils.getCurrentUserAppAccountId();
-        if (StringUtils.isEmpty(searchQuery)) {
-            searchQuery = appAccountFilter;
-        } else {
-            searchQuery += " AND " + appAccountFilter;
+    /**
+     * @return the timeline of the document, null when it was written before the content was kept in the index
+     */
+    private static TimelineDTO fromSource(Map<String, Object> source) {
+        if (!source.containsKey("content")) {
+            return null;
         }
-        Pair<List<Long>, Long> response = elasticsearchService.getEntityIds(SearchConstants.TIMELINE_INDEX, searchQuery, pageable);
-
-        List<TimelineDTO> unsorted = timelineRepository.findAllByIdIn(response.getFirst()).stream()
-            .map(timelineMapper::toDto).collect(Collectors.toList());
-        List<Long> sortedIds = response.getFirst();
-
-        // we are getting ids from ES sorted but JPA returns result not sorted
-        // below code-piece sorts the returned DTOs to have same sort with ids.
-        Collections.sort(unsorted, new Comparator<TimelineDTO>() {
-            public int compare(TimelineDTO left, TimelineDTO right) {
-                return Integer.compare(sortedIds.indexOf(left.getId()), sortedIds.indexOf(right.getId()));
-            }
-        });
-
-
-        Page<TimelineDTO> timelines = new PageImpl<TimelineDTO>(unsorted,
-            pageable,
-            response.getSecond());
+        TimelineDTO timeline = new TimelineDTO()
+            .setContactId(toLong(source.get("contact_id")))
+            .setAgentId(toLong(source.get("agent_id")));
+        timeline.setId(SearchViews.getId(source));
+        timeline.setType(source.get("type") != null ? TimelineItemType.valueOf((String) source.get("type")) : null);
+        timeline.setContent((String) source.get("content"));
+        timeline.setDealId(toLong(source.get("deal_id")));
+        timeline.setCreatedDate(source.get("created_date") != null ? Instant.parse((String) source.get("created_date")) : null);
+        return timeline;
+    }
 
-        return timelines;
+    private static Long toLong(Object value) {
+        return value != null ? ((Number) value).longValue() : null;
     }
 
     @Override
@@ -138,7 +157,7 @@ public class TimelineServiceImpl implements TimelineService {
         timelineItem.setContent(contentJSON);
 
         timelineRepository.save(timelineItem);
-        elasticsearchService.indexTimeline(timelineItem);
+        searchOutboxService.enqueue(SearchEntityType.TIMELINE, timelineItem.getId(), timelineItem.getAppAccount().getId());
 
     }
 
@@ -156,7 +175,7 @@ public class TimelineServiceImpl implements TimelineService {
         timelineItem.setContent(contentJSON);
 
         timelineRepository.save(timelineItem);
-        elasticsearchService.indexTimeline(timelineItem);
+        searchOutboxService.enqueue(SearchEntityType.TIMELINE, timelineItem.getId(), timelineItem.getAppAccount().getId());
     }
 
     @Override
@@ -173,7 +192,7 @@ public class TimelineServiceImpl implements TimelineService {
         timelineItem.setContent(contentJSON);
 
         timelineRepository.save(timelineItem);
-        elasticsearchService.indexTimeline(timelineItem);
+        searchOutboxService.enqueue(SearchEntityType.TIMELINE, timelineItem.getId(), timelineItem.getAppAccount().getId());
     }
 
     @Override
@@ -193,7 +212,7 @@ public class TimelineServiceImpl implements TimelineService {
         timelineItem.setContent(contentJSON);
 
         timelineRepository.save(timelineItem);
-        elasticsearchService.indexTimeline(timelineItem);
+        searchOutboxService.enqueue(SearchEntityType.TIMELINE, timelineItem.getId(), timelineItem.getAppAccount().getId());
     }
 
     private HashMap<String, Object> buildContentForDealUpdate(HashMap<String, Object> oldObjectFields, HashMap<String, Object> newObjectFields) {
@@ -2,6 +2,7 @@ package com.leadlet.service.mapper;
 
 import com.leadlet.domain.*;
 import com.leadlet.service.dto.ActivityDTO;
+import com.leadlet.service.dto.DetailedDealDTO;
 
 import org.mapstruct.*;
 
@@ -14,6 +15,26 @@ public interface ActivityMapper extends EntityMapper <ActivityDTO, Activity> {
     ActivityDTO toDto(Activity activity);
 
     Activity toEntity(ActivityDTO activityDTO);
+
+    /**
+     * The activity as the list views show it, with only the id and title of its deal. The views are copied into the
+     * search documents, they are rewritten when the deal title changes but not when the deal moves or is updated
+     * otherwise.
+     */
+    @Named("list")
+    default ActivityDTO toListDto(Activity activity) {
+        ActivityDTO activityDTO = toDtoWithoutDeal(activity);
+        if (activityDTO != null && activity.getDeal() != null) {
+            activityDTO.setDeal(new DetailedDealDTO().setId(activity.getDeal().getId())
+                .setTitle(activity.getDeal().getTitle()));
+        }
+        return activityDTO;
+    }
+
+    @Named("withoutDeal")
+    @Mapping(target = "deal", ignore = true)
+    ActivityDTO toDtoWithoutDeal(Activity activity);
+
     default Activity fromId(Long id) {
         if (id == null) {
             return null;
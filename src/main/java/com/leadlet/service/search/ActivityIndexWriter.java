@@ -0,0 +1,77 @@
+package com.leadlet.service.search;
+
+import com.leadlet.domain.Activity;
+import com.leadlet.domain.enumeration.SearchEntityType;
+import com.leadlet.repository.ActivityRepository;
+import com.leadlet.service.dto.ActivitySearchIndexDTO;
+import com.leadlet.service.mapper.ActivityMapper;
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.index.VersionType;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds the documents of the {@link SearchEntityType#ACTIVITY} index from the activities of a batch, loaded with
+ * one query along with the associations of their list views.
+ */
+@Component
+public class ActivityIndexWriter implements SearchIndexWriter {
+
+    private final ActivityRepository activityRepository;
+    private final SearchRouting searchRouting;
+    private final ActivityMapper activityMapper;
+    private final SearchViews searchViews;
+
+    public ActivityIndexWriter(ActivityRepository activityRepository, SearchRouting searchRouting, ActivityMapper activityMapper,
+                               SearchViews searchViews) {
+        this.activityRepository = activityRepository;
+        this.searchRouting = searchRouting;
+        this.activityMapper = activityMapper;
+        this.searchViews = searchViews;
+    }
+
+    @Override
+    public SearchEntityType getEntityType() {
+        return SearchEntityType.ACTIVITY;
+    }
+
+    @Override
+    public List<DocWriteRequest<?>> write(List<Long> ids) throws IOException {
+        List<DocWriteRequest<?>> requests = new ArrayList<>(ids.size());
+        for (Activity activity : activityRepository.findDistinctByIdIn(ids)) {
+            ActivitySearchIndexDTO row = new ActivitySearchIndexDTO(activity)
+                .setView(searchViews.write(activityMapper.toListDto(activity)));
+            requests.add(new IndexRequest(getEntityType().getIndex(), getEntityType().getType(), String.valueOf(row.getId()))
+                .routing(searchRouting.route(row.getAppAccountId(), row.getId()))
+                .source(row.getBuilder()).versionType(VersionType.EXTERNAL_GTE).version(row.getVersion()));
+        }
+        return requests;
+    }
+
+    @Override
+    public SearchRangeDigest digest(Long appAccountId, long fromId, long toId) {
+        return SearchRangeDigest.of(activityRepository.findSearchDigest(appAccountId, fromId, toId).get(0));
+    }
+
+    @Override
+    public Map<Long, Instant> findVersions(Long appAccountId, long fromId, long toId) {
+        Map<Long, Instant> versions = new HashMap<>();
+        for (Object[] row : activityRepository.findSearchVersions(appAccountId, fromId, toId)) {
+            versions.put((Long) row[0], (Instant) row[1]);
+        }
+        return versions;
+    }
+
+    @Override
+    public List<Long> findIds(Long appAccountId, long afterId, long toId, int limit) {
+        return activityRepository.findIdsForReindex(appAccountId, afterId, toId, new PageRequest(0, limit));
+    }
+}
@@ -0,0 +1,236 @@
+package com.leadlet.service.search;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.leadlet.config.ApplicationProperties;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.rest.RestStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Buffers index actions and sends them as concurrent asynchronous bulk requests.
+ * <p>
+ * Actions are striped over {@code concurrent-requests} lanes by document id. Every lane has at most one bulk
+ * request in flight and sends its batches in order, so two versions of the same document always reach the
+ * cluster in the order they were added and the last write wins. Callers adding actions block while their lane
+ * already has a batch waiting behind the one in flight.
+ * <p>
+ * A lane is flushed when it holds the current batch size of actions, exceeds the configured byte size or has been
+ * waiting for the flush interval. The batch size follows an additive increase / multiplicative decrease rule: it
+ * grows while full batches come back fast and without rejections, and is halved as soon as a response is slow,
+ * contains 429 rejections or fails altogether.
+ */
+@Component
+public class BulkIndexer {
+
+    private final Logger log = LoggerFactory.getLogger(BulkIndexer.class);
+
+    private final RestHighLevelClient restHighLevelClient;
+    private final ApplicationProperties.Search.Bulk properties;
+    private final Lane[] lanes;
+
+    private volatile int batchSize;
+
+    public BulkIndexer(RestHighLevelClient restHighLevelClient, ApplicationProperties applicationProperties,
+                       MetricRegistry metricRegistry) {
+        this.restHighLevelClient = restHighLevelClient;
+        this.properties = applicationProperties.getSearch().getBulk();
+        this.lanes = new Lane[Math.max(1, properties.getConcurrentRequests())];
+        for (int i = 0; i < lanes.length; i++) {
+            lanes[i] = new Lane();
+        }
+        this.batchSize = properties.getInitialActions();
+        metricRegistry.register(MetricRegistry.name(BulkIndexer.class, "batchSize"), (Gauge<Integer>) () -> batchSize);
+        metricRegistry.register(MetricRegistry.name(BulkIndexer.class, "inFlight"), (Gauge<Integer>) this::getInFlight);
+    }
+
+    /**
+     * Queue an action for the next bulk request of its lane.
+     *
+     * @param action the index, update or delete request
+     * @return completed with the item response of the action, or exceptionally when its bulk request failed as a whole
+     */
+    public CompletableFuture<BulkItemResponse> add(DocWriteRequest<?> action) {
+        CompletableFuture<BulkItemResponse> future = new CompletableFuture<>();
+        Lane lane = lanes[Math.floorMod(Objects.hash(action.index(), action.id()), lanes.length)];
+        synchronized (lane) {
+            try {
+                while (!lane.ready.isEmpty()) {
+                    lane.wait();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                future.completeExceptionally(e);
+                return future;
+            }
+
+            if (lane.buffer.numberOfActions() == 0) {
+                lane.bufferStarted = System.currentTimeMillis();
+            }
+            lane.buffer.add(action);
+            lane.bufferFutures.add(future);
+            if (lane.buffer.numberOfActions() >= batchSize || lane.buffer.estimatedSizeInBytes() >= properties.getMaxBytes()) {
+                lane.takeBuffer();
+            }
+        }
+        sendNext(lane);
+        return future;
+    }
+
+    /**
+     * Send the buffered actions right away, e.g. when the caller has nothing more to add for now.
+     */
+    public void flush() {
+        for (Lane lane : lanes) {
+            synchronized (lane) {
+                if (lane.buffer.numberOfActions() > 0) {
+                    lane.takeBuffer();
+                }
+            }
+            sendNext(lane);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${application.search.bulk.flush-interval:1000}")
+    public void flushIfDue() {
+        long now = System.currentTimeMillis();
+        for (Lane lane : lanes) {
+            synchronized (lane) {
+                // a lane with a batch already waiting is flushed by the response of the one in flight
+                if (lane.buffer.numberOfActions() > 0 && lane.ready.isEmpty()
+                    && now - lane.bufferStarted >= properties.getFlushInterval()) {
+                    lane.takeBuffer();
+                }
+            }
+            sendNext(lane);
+        }
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public int getInFlight() {
+        int inFlight = 0;
+        for (Lane lane : lanes) {
+            if (lane.sending) {
+                inFlight++;
+            }
+        }
+        return inFlight;
+    }
+
+    private void sendNext(Lane lane) {
+        Batch batch;
+        synchronized (lane) {
+            if (lane.sending || lane.ready.isEmpty()) {
+                return;
+            }
+            lane.sending = true;
+            batch = lane.ready.poll();
+            lane.notifyAll();
+        }
+
+        long start = System.nanoTime();
+        try {
+            restHighLevelClient.bulkAsync(batch.request, new ActionListener<BulkResponse>() {
+                @Override
+                public void onResponse(BulkResponse response) {
+                    int rejected = 0;
+                    for (BulkItemResponse item : response) {
+                        if (item.isFailed() && item.getFailure().getStatus() == RestStatus.TOO_MANY_REQUESTS) {
+                            rejected++;
+                        }
+                    }
+                    adapt(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), rejected, batch.request.numberOfActions());
+                    for (BulkItemResponse item : response) {
+                        batch.futures.get(item.getItemId()).complete(item);
+                    }
+                    done(lane);
+                }
+
+                @Override
+                public void onFailure(Exception e) {
+                    log.warn("Bulk request of {} actions failed: {}", batch.request.numberOfActions(), e.getMessage());
+                    adapt(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), batch.request.numberOfActions(),
+                        batch.request.numberOfActions());
+                    batch.fail(e);
+                    done(lane);
+                }
+            });
+        } catch (RuntimeException e) {
+            batch.fail(e);
+            done(lane);
+        }
+    }
+
+    private void done(Lane lane) {
+        synchronized (lane) {
+            lane.sending = false;
+        }
+        sendNext(lane);
+    }
+
+    private void adapt(long latencyMillis, int rejected, int actions) {
+        int current = batchSize;
+        int next = current;
+        if (rejected > 0 || latencyMillis > properties.getTargetLatency()) {
+            next = Math.max(properties.getMinActions(), current / 2);
+        } else if (actions >= current) {
+            next = Math.min(properties.getMaxActions(), current + properties.getMinActions());
+        }
+        if (next != current) {
+            log.debug("Bulk batch size {} -> {} (latency {} ms, {} of {} actions rejected)", current, next, latencyMillis,
+                rejected, actions);
+            batchSize = next;
+        }
+    }
+
+    private static final class Lane {
+
+        private final Queue<Batch> ready = new ArrayDeque<>();
+        private BulkRequest buffer = new BulkRequest();
+        private List<CompletableFuture<BulkItemResponse>> bufferFutures = new ArrayList<>();
+        private long bufferStarted;
+        private volatile boolean sending;
+
+        private void takeBuffer() {
+            ready.add(new Batch(buffer, bufferFutures));
+            buffer = new BulkRequest();
+            bufferFutures = new ArrayList<>();
+        }
+    }
+
+    private static final class Batch {
+
+        private final BulkRequest request;
+        private final List<CompletableFuture<BulkItemResponse>> futures;
+
+        private Batch(BulkRequest request, List<CompletableFuture<BulkItemResponse>> futures) {
+            this.request = request;
+            this.futures = futures;
+        }
+
+        private void fail(Exception e) {
+            for (CompletableFuture<BulkItemResponse> future : futures) {
+                future.completeExceptionally(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.leadlet.service.search;
+
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+
+/**
+ * A page of search results which can be continued from its last hit with a cursor, however deep it is.
+ */
+public class CursorPage<T> extends PageImpl<T> {
+
+    private final Pageable pageable;
+    private final String nextCursor;
+    private final boolean positional;
+
+    /**
+     * @param nextCursor the cursor of the next page, null when this is the last one
+     * @param positional whether the page was requested by its number rather than with a cursor
+     */
+    public CursorPage(List<T> content, Pageable pageable, long total, String nextCursor, boolean positional) {
+        super(content, pageable, total);
+        this.pageable = pageable;
+        this.nextCursor = nextCursor;
+        this.positional = positional;
+    }
+
+    /**
+     * A page like the given one with other content in the same order.
+     */
+    protected CursorPage(CursorPage<?> page, List<T> content) {
+        this(content, page.pageable, page.getTotalElements(), page.nextCursor, page.positional);
+    }
+
+    /**
+     * @return the same page with other content in the same order, e.g. the entities behind the hits
+     */
+    public <U> CursorPage<U> withContent(List<U> content) {
+        return new CursorPage<>(this, content);
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    /**
+     * @return whether the page number is meaningful, only then are there previous and last pages
+     */
+    public boolean isPositional() {
+        return positional;
+    }
+}
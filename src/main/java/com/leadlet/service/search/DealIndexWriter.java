@@ -0,0 +1,77 @@
+package com.leadlet.service.search;
+
+import com.leadlet.domain.Deal;
+import com.leadlet.domain.enumeration.SearchEntityType;
+import com.leadlet.repository.DealRepository;
+import com.leadlet.service.dto.DealSearchIndexDTO;
+import com.leadlet.service.mapper.DetailedDealMapper;
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.index.VersionType;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds the documents of the {@link SearchEntityType#DEAL} index from the deals of a batch, loaded with one query
+ * along with the associations of their list views. The view holds the whole contact, agent and products, so the
+ * searchable fields are taken from the same entities instead of a separate projection.
+ */
+@Component
+public class DealIndexWriter implements SearchIndexWriter {
+
+    private final DealRepository dealRepository;
+    private final SearchRouting searchRouting;
+    private final DetailedDealMapper detailedDealMapper;
+    private final SearchViews searchViews;
+
+    public DealIndexWriter(DealRepository dealRepository, SearchRouting searchRouting, DetailedDealMapper detailedDealMapper,
+                           SearchViews searchViews) {
+        this.dealRepository = dealRepository;
+        this.searchRouting = searchRouting;
+        this.detailedDealMapper = detailedDealMapper;
+        this.searchViews = searchViews;
+    }
+
+    @Override
+    public SearchEntityType getEntityType() {
+        return SearchEntityType.DEAL;
+    }
+
+    @Override
+    public List<DocWriteRequest<?>> write(List<Long> ids) throws IOException {
+        List<DocWriteRequest<?>> requests = new ArrayList<>(ids.size());
+        for (Deal deal : dealRepository.findDistinctByIdIn(ids)) {
+            DealSearchIndexDTO row = new DealSearchIndexDTO(deal).setView(searchViews.write(detailedDealMapper.toDto(deal)));
+            requests.add(new IndexRequest(getEntityType().getIndex(), getEntityType().getType(), String.valueOf(row.getId()))
+                .routing(searchRouting.route(row.getAppAccountId(), row.getId()))
+                .source(row.getBuilder()).versionType(VersionType.EXTERNAL_GTE).version(row.getVersion()));
+        }
+        return requests;
+    }
+
+    @Override
+    public SearchRangeDigest digest(Long appAccountId, long fromId, long toId) {
+        return SearchRangeDigest.of(dealRepository.findSearchDigest(appAccountId, fromId, toId).get(0));
+    }
+
+    @Override
+    public Map<Long, Instant> findVersions(Long appAccountId, long fromId, long toId) {
+        Map<Long, Instant> versions = new HashMap<>();
+        for (Object[] row : dealRepository.findSearchVersions(appAccountId, fromId, toId)) {
+            versions.put((Long) row[0], (Instant) row[1]);
+        }
+        return versions;
+    }
+
+    @Override
+    public List<Long> findIds(Long appAccountId, long afterId, long toId, int limit) {
+        return dealRepository.findIdsForReindex(appAccountId, afterId, toId, new PageRequest(0, limit));
+    }
+}
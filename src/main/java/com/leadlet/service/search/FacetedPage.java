@@ -0,0 +1,35 @@
+package com.leadlet.service.search;
+
+import com.leadlet.service.dto.FacetDTO;
+
+import java.util.List;
+
+/**
+ * A page of search results together with the facets of the whole search.
+ */
+public class FacetedPage<T> extends CursorPage<T> {
+
+    private final List<FacetDTO> facets;
+
+    public FacetedPage(CursorPage<T> page, List<FacetDTO> facets) {
+        super(page, page.getContent());
+        this.facets = facets;
+    }
+
+    private FacetedPage(FacetedPage<?> page, List<T> content) {
+        super(page, content);
+        this.facets = page.facets;
+    }
+
+    @Override
+    public <U> FacetedPage<U> withContent(List<U> content) {
+        return new FacetedPage<>(this, content);
+    }
+
+    /**
+     * @return the facets in the order they were requested
+     */
+    public List<FacetDTO> getFacets() {
+        return facets;
+    }
+}
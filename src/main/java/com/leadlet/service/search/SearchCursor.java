@@ -0,0 +1,90 @@
+package com.leadlet.service.search;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.leadlet.service.dto.SearchQueryDTO;
+import com.leadlet.web.rest.errors.CustomParameterizedException;
+import com.leadlet.web.rest.errors.ErrorConstants;
+import org.springframework.data.domain.Sort;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Opaque cursors holding the sort values of the last hit of a page, the next page is searched after them.
+ * <p>
+ * A cursor also holds the fingerprint of the search it was taken from, its index, query, post filter and sort. The
+ * sort values only mean something in that search, a cursor is refused by any other one.
+ */
+public final class SearchCursor {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final String FINGERPRINT = "f";
+    private static final String VALUES = "v";
+
+    private SearchCursor() {
+    }
+
+    /**
+     * @param postFilter filters the hits after the query, null for none
+     * @return the fingerprint of the search, its cursors are only accepted by searches with the same one
+     */
+    public static String fingerprint(String index, SearchQueryDTO query, Object postFilter, Sort sort) {
+        CRC32 crc = new CRC32();
+        crc.update((index + "/" + SearchQueryCompiler.normalize(query) + "/" + postFilter + "/" + sort)
+            .getBytes(StandardCharsets.UTF_8));
+        return Long.toHexString(crc.getValue());
+    }
+
+    public static String encode(String fingerprint, Object[] sortValues) {
+        Map<String, Object> cursor = new HashMap<>();
+        cursor.put(FINGERPRINT, fingerprint);
+        cursor.put(VALUES, sortValues);
+        try {
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(MAPPER.writeValueAsBytes(cursor));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @param fingerprint the fingerprint of the search the cursor has to belong to
+     * @param numeric     whether the values of each sort field of the search are numbers, the values of the other
+     *                    fields may be strings or numbers, or missing
+     * @throws CustomParameterizedException if the cursor is not one of the search
+     */
+    public static Object[] decode(String cursor, String fingerprint, boolean[] numeric) {
+        Map<?, ?> decoded;
+        try {
+            decoded = MAPPER.readValue(Base64.getUrlDecoder().decode(cursor), Map.class);
+        } catch (IOException | IllegalArgumentException e) {
+            throw invalid(cursor);
+        }
+        if (!fingerprint.equals(decoded.get(FINGERPRINT)) || !(decoded.get(VALUES) instanceof List)) {
+            throw invalid(cursor);
+        }
+        List<?> values = (List<?>) decoded.get(VALUES);
+        if (values.size() != numeric.length) {
+            throw invalid(cursor);
+        }
+        for (int i = 0; i < numeric.length; i++) {
+            Object value = values.get(i);
+            boolean valid = numeric[i] ? value instanceof Number
+                : value == null || value instanceof Number || value instanceof String;
+            if (!valid) {
+                throw invalid(cursor);
+            }
+        }
+        return values.toArray();
+    }
+
+    private static CustomParameterizedException invalid(String cursor) {
+        return new CustomParameterizedException(ErrorConstants.ERR_INVALID_SEARCH_CURSOR, cursor);
+    }
+}
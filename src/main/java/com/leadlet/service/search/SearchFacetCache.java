@@ -0,0 +1,125 @@
+package com.leadlet.service.search;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.RatioGauge;
+import com.leadlet.config.ApplicationProperties;
+import com.leadlet.service.dto.FacetDTO;
+import com.leadlet.service.dto.FacetDefinitionDTO;
+import com.leadlet.service.dto.SearchQueryDTO;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Keeps the facets of a search until the account writes to the index again.
+ * <p>
+ * Every account and index has a generation counter which is part of the cache keys. The outbox dispatcher bumps it
+ * once the writes of the account are indexed, rebuilds and alias moves bump the one of the whole index; entries of
+ * older generations are never read again and are evicted as the least recently used ones or when they expire.
+ * Results searched within the refresh interval after a bump are not cached, the write may not be visible to them
+ * yet.
+ * <p>
+ * The counters are kept per node, a node only learns about the writes it indexed itself. Entries expire after the
+ * configured time to live, which bounds how long a node serves facets from before a write indexed by another one.
+ */
+@Component
+public class SearchFacetCache {
+
+    public static final String CACHE = SearchFacetCache.class.getName();
+
+    private final Cache cache;
+    private final long refreshInterval;
+    private final ConcurrentMap<String, Generation> generations = new ConcurrentHashMap<>();
+
+    private final Meter hits;
+    private final Meter misses;
+
+    public SearchFacetCache(CacheManager cacheManager, ApplicationProperties applicationProperties,
+                            MetricRegistry metricRegistry) {
+        this.cache = cacheManager.getCache(CACHE);
+        this.refreshInterval = applicationProperties.getSearch().getFacetCache().getRefreshInterval();
+        this.hits = metricRegistry.meter(MetricRegistry.name(SearchFacetCache.class, "hits"));
+        this.misses = metricRegistry.meter(MetricRegistry.name(SearchFacetCache.class, "misses"));
+        metricRegistry.register(MetricRegistry.name(SearchFacetCache.class, "hitRatio"), new RatioGauge() {
+            @Override
+            protected Ratio getRatio() {
+                return Ratio.of(hits.getFiveMinuteRate(), hits.getFiveMinuteRate() + misses.getFiveMinuteRate());
+            }
+        });
+    }
+
+    /**
+     * @param loader searches the facets when they are not cached
+     * @return the facets of the search of the account
+     */
+    public List<FacetDTO> get(String index, Long appAccountId, SearchQueryDTO query, List<FacetDefinitionDTO> facets,
+                              Loader loader) throws IOException {
+        // read before searching, a write during the search leaves the result under the generation it may predate
+        Generation indexGeneration = generation(index);
+        Generation accountGeneration = generation(index + '/' + appAccountId);
+        long indexValue = indexGeneration.value;
+        long accountValue = accountGeneration.value;
+        String key = appAccountId + "/" + index + "/" + indexValue + "." + accountValue + "/" + facets + "/" + SearchQueryCompiler.normalize(query);
+
+        @SuppressWarnings("unchecked")
+        List<FacetDTO> cached = cache.get(key, List.class);
+        if (cached != null) {
+            hits.mark();
+            return cached;
+        }
+        misses.mark();
+
+        List<FacetDTO> result = loader.load();
+        if (indexGeneration.isSettled() && accountGeneration.isSettled()) {
+            cache.put(key, result);
+        }
+        return result;
+    }
+
+    /**
+     * Drop the cached facets of an account, after its writes to the index have been indexed.
+     *
+     * @param appAccountId the account, all accounts when null
+     */
+    public void invalidate(String index, Long appAccountId) {
+        generation(appAccountId == null ? index : index + '/' + appAccountId).bump(refreshInterval);
+    }
+
+    /**
+     * Drop the cached facets of all accounts in an index.
+     */
+    public void invalidate(String index) {
+        invalidate(index, null);
+    }
+
+    private Generation generation(String key) {
+        return generations.computeIfAbsent(key, ignored -> new Generation());
+    }
+
+    @FunctionalInterface
+    public interface Loader {
+
+        List<FacetDTO> load() throws IOException;
+    }
+
+    private static final class Generation {
+
+        private volatile long value;
+        private volatile long settledAt;
+
+        private synchronized void bump(long refreshInterval) {
+            value++;
+            settledAt = System.currentTimeMillis() + refreshInterval;
+        }
+
+        private boolean isSettled() {
+            return System.currentTimeMillis() >= settledAt;
+        }
+    }
+}
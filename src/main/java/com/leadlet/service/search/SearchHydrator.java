@@ -0,0 +1,65 @@
+package com.leadlet.service.search;
+
+import com.carrotsearch.hppc.LongArrayList;
+import com.carrotsearch.hppc.LongIntHashMap;
+import com.leadlet.config.ApplicationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * Loads the entities behind search hits from the database and returns their DTOs in the order of the hits.
+ * <p>
+ * The ids are kept in primitive collections, loaded in {@code in} queries of at most the configured chunk size and
+ * put back in place through an id to position map, so the cost grows linearly with the number of hits however large
+ * a page or an export is. The loaders are expected to fetch the associations their mappers read in the same query.
+ */
+@Component
+public class SearchHydrator {
+
+    private final int chunkSize;
+
+    public SearchHydrator(ApplicationProperties applicationProperties) {
+        this.chunkSize = applicationProperties.getSearch().getHydration().getChunkSize();
+    }
+
+    /**
+     * @param ids    the ids in the order of the hits
+     * @param loader loads the entities of some of the ids, in any order
+     * @param id     the id of a loaded entity
+     * @param mapper maps a loaded entity to its DTO
+     * @return the DTOs in the order of the ids, null where the entity no longer exists
+     */
+    public <E, T> List<T> hydrate(LongArrayList ids, Function<List<Long>, List<E>> loader, ToLongFunction<E> id,
+                                  Function<E, T> mapper) {
+        int size = ids.size();
+        LongIntHashMap positions = new LongIntHashMap(size);
+        for (int i = 0; i < size; i++) {
+            positions.put(ids.get(i), i);
+        }
+
+        Object[] dtos = new Object[size];
+        List<Long> chunk = new ArrayList<>(Math.min(size, chunkSize));
+        for (int from = 0; from < size; from += chunkSize) {
+            chunk.clear();
+            int to = Math.min(size, from + chunkSize);
+            for (int i = from; i < to; i++) {
+                chunk.add(ids.get(i));
+            }
+            for (E entity : loader.apply(chunk)) {
+                int position = positions.getOrDefault(id.applyAsLong(entity), -1);
+                if (position >= 0) {
+                    dtos[position] = mapper.apply(entity);
+                }
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        List<T> ordered = (List<T>) Arrays.asList(dtos);
+        return ordered;
+    }
+}
@@ -0,0 +1,347 @@
+package com.leadlet.service.search;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.leadlet.domain.enumeration.SearchEntityType;
+import com.leadlet.domain.enumeration.SearchReindexStatus;
+import com.leadlet.service.SearchReindexService;
+import com.leadlet.service.dto.SearchReindexJobDTO;
+import org.apache.http.entity.ContentType;
+import org.apache.http.nio.entity.NStringEntity;
+import org.elasticsearch.ElasticsearchStatusException;
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.admin.indices.alias.IndicesAliasesRequest;
+import org.elasticsearch.action.admin.indices.create.CreateIndexRequest;
+import org.elasticsearch.action.admin.indices.get.GetIndexRequest;
+import org.elasticsearch.action.delete.DeleteRequest;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.update.UpdateRequest;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.ResponseException;
+import org.elasticsearch.client.RestClient;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.rest.RestStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+/**
+ * Installs the mappings and settings of the search indices and moves them to a new physical index when they change.
+ * <p>
+ * The names in {@link com.leadlet.config.SearchConstants} are aliases. Every index definition in
+ * {@code config/elasticsearch/<alias>.json} carries a version, the alias points to the physical index
+ * {@code <alias>-v<version>}. When the version is raised the new physical index is created on startup and filled
+ * from the database in the background by a {@link SearchReindexService#migrate rebuild job}, so documents get the
+ * fields the new version adds. Once the job is over the alias is moved to the new index in one atomic request, so
+ * searches never see a half filled index. The old physical index is kept for a rollback, a legacy index named like
+ * the alias (created by dynamic mapping) has to be dropped for the alias to take its name.
+ * <p>
+ * Every node installs the indices on startup, the job row elects the one which moves an index: claiming it fails
+ * while a rebuild of the index runs anywhere, the other nodes skip the move and keep writing through the alias. A
+ * move whose node went down is resumed on the next start once its job has been cancelled or its lease expired. The
+ * writes of the moving node also go to the new index while it is filled, the writes of the other nodes only reach
+ * the old one: they are copied over with {@code _reindex} before the alias moves and once more after, for the writes
+ * which were still on their way to the old index. A delete another node sent meanwhile is left for the
+ * reconciliation.
+ * <p>
+ * Copied documents get the routing of {@link SearchRouting}. As long as an alias points to an index created without
+ * routing, searches through it are not routed. Every node reads from the cluster whether the index behind an alias
+ * requires a routing, on startup and again until the node moving the alias has put it on a routed index.
+ */
+@Profile({"prod", "dev"})
+@Component
+public class SearchIndexManager {
+
+    private final Logger log = LoggerFactory.getLogger(SearchIndexManager.class);
+
+    private static final String DEFINITION_LOCATION = "config/elasticsearch/";
+
+    private static final long TASK_POLL_INTERVAL = 5000;
+
+    /**
+     * Documents modified this many milliseconds before a copy starts are copied along.
+     */
+    private static final long CATCH_UP_MARGIN = 60000;
+
+    private final RestHighLevelClient restHighLevelClient;
+    private final Executor searchJobExecutor;
+    private final ObjectMapper objectMapper;
+    private final SearchRouting searchRouting;
+    private final SearchFacetCache searchFacetCache;
+    private final SearchReindexService searchReindexService;
+
+    private final Map<String, String> migrations = new ConcurrentHashMap<>();
+
+    public SearchIndexManager(RestHighLevelClient restHighLevelClient, @Qualifier("searchJobExecutor") Executor searchJobExecutor,
+                              ObjectMapper objectMapper, SearchRouting searchRouting, SearchFacetCache searchFacetCache,
+                              SearchReindexService searchReindexService) {
+        this.restHighLevelClient = restHighLevelClient;
+        this.searchJobExecutor = searchJobExecutor;
+        this.objectMapper = objectMapper;
+        this.searchRouting = searchRouting;
+        this.searchFacetCache = searchFacetCache;
+        this.searchReindexService = searchReindexService;
+    }
+
+    @PostConstruct
+    public void installIndices() {
+        for (SearchEntityType type : SearchEntityType.values()) {
+            try {
+                install(type);
+            } catch (IOException | RuntimeException e) {
+                log.error("Could not install search index {}, it is retried on the next start", type.getIndex(), e);
+            }
+            try {
+                readRouting(type.getIndex());
+            } catch (IOException | RuntimeException e) {
+                log.error("Could not read the routing of search index {}", type.getIndex(), e);
+            }
+        }
+    }
+
+    /**
+     * Re-read the routing of the aliases which still point to an index created without one, they may have been moved
+     * by another node.
+     */
+    @Scheduled(fixedDelay = TASK_POLL_INTERVAL)
+    public void refreshRouting() {
+        for (String alias : searchRouting.getUnrouted()) {
+            try {
+                readRouting(alias);
+            } catch (IOException | RuntimeException e) {
+                log.warn("Could not read the routing of search index {}: {}", alias, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Copies of a write for the physical index an alias is being moved to, so the new index does not miss changes
+     * made while it is filled. Their outcome does not matter, what they miss is copied over by the catch up.
+     *
+     * @return the copies, empty unless the index of the action is being moved
+     */
+    public List<DocWriteRequest<?>> migrationCopies(DocWriteRequest<?> action) {
+        String target = migrations.get(action.index());
+        if (target == null) {
+            return Collections.emptyList();
+        }
+        if (action instanceof IndexRequest) {
+            IndexRequest index = (IndexRequest) action;
+            return Collections.singletonList(new IndexRequest(target, index.type(), index.id())
+                .routing(index.routing())
+                .source(index.source(), index.getContentType())
+                .versionType(index.versionType()).version(index.version()));
+        } else if (action instanceof UpdateRequest) {
+            UpdateRequest update = (UpdateRequest) action;
+            UpdateRequest copy = new UpdateRequest(target, update.type(), update.id()).routing(update.routing())
+                .retryOnConflict(update.retryOnConflict());
+            if (update.script() != null) {
+                copy.script(update.script());
+            } else {
+                copy.doc(update.doc());
+            }
+            return Collections.singletonList(copy);
+        } else if (action instanceof DeleteRequest) {
+            return Collections.singletonList(new DeleteRequest(target, action.type(), action.id()).routing(action.routing()));
+        }
+        return Collections.emptyList();
+    }
+
+    private void install(SearchEntityType type) throws IOException {
+        String alias = type.getIndex();
+        ObjectNode definition;
+        try (InputStream in = new ClassPathResource(DEFINITION_LOCATION + alias + ".json").getInputStream()) {
+            definition = (ObjectNode) objectMapper.readTree(in);
+        }
+        String target = alias + "-v" + definition.remove("version").asInt();
+
+        Set<String> current = aliasedIndices(alias);
+        if (current.contains(target)) {
+            log.debug("Search index {} is up to date on {}", alias, target);
+            return;
+        }
+        boolean legacy = current.isEmpty() && restHighLevelClient.indices().exists(new GetIndexRequest().indices(alias));
+
+        if (!restHighLevelClient.indices().exists(new GetIndexRequest().indices(target))) {
+            try {
+                restHighLevelClient.indices().create(new CreateIndexRequest(target)
+                    .source(objectMapper.writeValueAsString(definition), XContentType.JSON));
+                log.info("Created search index {}", target);
+            } catch (ElasticsearchStatusException e) {
+                // another node got there first
+                if (e.status() != RestStatus.BAD_REQUEST) {
+                    throw e;
+                }
+            }
+        }
+
+        if (current.isEmpty() && !legacy) {
+            moveAlias(alias, target, current, false);
+            return;
+        }
+
+        List<String> sources = legacy ? Collections.singletonList(alias) : new ArrayList<>(current);
+        SearchReindexJobDTO job;
+        try {
+            job = searchReindexService.migrate(type, target);
+        } catch (IllegalStateException e) {
+            log.info("Search index {} is rebuilt or moved by another node, it moves to {} on a later start", alias, target);
+            return;
+        }
+        log.info("Search index {} moves from {} to {}, filling it in the background", alias, sources, target);
+        migrations.put(alias, target);
+        long started = job.getCreatedDate().toEpochMilli();
+        // the rebuild runs on this node, nothing holds a thread while it fills the index
+        searchReindexService.whenFinished(job.getId()).thenAcceptAsync(status -> {
+            try {
+                if (status != SearchReindexStatus.COMPLETED) {
+                    log.error("Filling search index {} ended with status {}, it is resumed on the next start", target, status);
+                    return;
+                }
+                // writes of the other nodes, and partial updates of documents the job had not reached yet
+                copy(sources, target, changedSince(started));
+                long moved = System.currentTimeMillis();
+                moveAlias(alias, target, current, legacy);
+                readRouting(alias);
+                if (!legacy) {
+                    // writes the other nodes sent to the old index until the alias moved
+                    copy(sources, target, changedSince(moved));
+                }
+            } catch (IOException | RuntimeException e) {
+                log.error("Moving search index {} to {} failed, it is retried on the next start", alias, target, e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                migrations.remove(alias);
+            }
+        }, searchJobExecutor).exceptionally(e -> {
+            log.error("Could not move search index {} to {}, it is retried on the next start", alias, target, e);
+            migrations.remove(alias);
+            return null;
+        });
+    }
+
+    /**
+     * @return the query for the documents modified since a moment, with a margin for clocks and commits
+     */
+    private static Map<String, Object> changedSince(long millis) {
+        return Collections.singletonMap("range",
+            Collections.singletonMap("version", Collections.singletonMap("gte", millis - CATCH_UP_MARGIN)));
+    }
+
+    /**
+     * @return the physical indices the alias points to, empty when there is no such alias
+     */
+    private Set<String> aliasedIndices(String alias) throws IOException {
+        try {
+            Response response = lowLevelClient().performRequest("GET", "/_alias/" + alias);
+            JsonNode indices = objectMapper.readTree(response.getEntity().getContent());
+            Set<String> names = new HashSet<>();
+            indices.fieldNames().forEachRemaining(names::add);
+            return names;
+        } catch (ResponseException e) {
+            if (e.getResponse().getStatusLine().getStatusCode() == RestStatus.NOT_FOUND.getStatus()) {
+                return Collections.emptySet();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Look up whether the physical index behind an alias requires a routing, a legacy index is named like the alias.
+     */
+    private void readRouting(String alias) throws IOException {
+        Set<String> indices = aliasedIndices(alias);
+        searchRouting.setUnrouted(alias, !isRouted(indices.isEmpty() ? Collections.singletonList(alias)
+            : new ArrayList<>(indices)));
+    }
+
+    /**
+     * @return whether all of the indices require a routing
+     */
+    private boolean isRouted(List<String> indices) throws IOException {
+        Response response = lowLevelClient().performRequest("GET", "/" + String.join(",", indices) + "/_mapping");
+        for (JsonNode index : objectMapper.readTree(response.getEntity().getContent())) {
+            for (JsonNode mapping : index.path("mappings")) {
+                if (!mapping.path("_routing").path("required").asBoolean()) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private void moveAlias(String alias, String target, Set<String> current, boolean legacy) throws IOException {
+        IndicesAliasesRequest request = new IndicesAliasesRequest();
+        for (String index : current) {
+            request.addAliasAction(IndicesAliasesRequest.AliasActions.remove().index(index).alias(alias));
+        }
+        if (legacy) {
+            request.addAliasAction(IndicesAliasesRequest.AliasActions.removeIndex().index(alias));
+        }
+        request.addAliasAction(IndicesAliasesRequest.AliasActions.add().index(target).alias(alias));
+        restHighLevelClient.indices().updateAliases(request);
+        searchFacetCache.invalidate(alias);
+        log.info("Search alias {} now points to {}", alias, target);
+    }
+
+    /**
+     * Copy documents with {@code _reindex} and wait for it. External versioning keeps documents which were written
+     * to the target in the meantime when they are newer.
+     */
+    private void copy(List<String> sources, String target, Map<String, Object> query) throws IOException, InterruptedException {
+        Map<String, Object> source = new HashMap<>();
+        source.put("index", sources);
+        if (query != null) {
+            source.put("query", query);
+        }
+        Map<String, Object> body = new HashMap<>();
+        body.put("conflicts", "proceed");
+        body.put("source", source);
+        Map<String, Object> dest = new HashMap<>();
+        dest.put("index", target);
+        dest.put("version_type", "external");
+        body.put("dest", dest);
+        Map<String, Object> script = new HashMap<>();
+        script.put("lang", "painless");
+        script.put("source", SearchRouting.SCRIPT);
+        script.put("params", searchRouting.getScriptParams());
+        body.put("script", script);
+
+        Response response = lowLevelClient().performRequest("POST", "/_reindex",
+            Collections.singletonMap("wait_for_completion", "false"),
+            new NStringEntity(objectMapper.writeValueAsString(body), ContentType.APPLICATION_JSON));
+        String task = objectMapper.readTree(response.getEntity().getContent()).get("task").asText();
+
+        while (true) {
+            Thread.sleep(TASK_POLL_INTERVAL);
+            JsonNode status = objectMapper.readTree(lowLevelClient().performRequest("GET", "/_tasks/" + task)
+                .getEntity().getContent());
+            if (status.path("completed").asBoolean()) {
+                JsonNode result = status.path("response");
+                if (status.has("error") || result.path("failures").size() > 0) {
+                    throw new IllegalStateException("Copying " + sources + " to " + target + " failed: " + status);
+                }
+                log.info("Copied {} documents from {} to {}", result.path("total").asLong(), sources, target);
+                return;
+            }
+        }
+    }
+
+    private RestClient lowLevelClient() {
+        return restHighLevelClient.getLowLevelClient();
+    }
+}
@@ -0,0 +1,60 @@
+package com.leadlet.service.search;
+
+import com.leadlet.domain.enumeration.SearchEntityType;
+import org.elasticsearch.action.DocWriteRequest;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds the Elasticsearch write requests of one searchable entity type.
+ */
+public interface SearchIndexWriter {
+
+    SearchEntityType getEntityType();
+
+    /**
+     * Build the index requests for the given entity ids. Ids which no longer exist in the database are skipped.
+     * <p>
+     * Requests carry the last modification time of the entity as external version ({@code external_gte}), so a
+     * snapshot which reaches the cluster after a newer one is rejected with a version conflict instead of
+     * overwriting it. Equal versions are accepted, a document rebuilt because a referenced name changed keeps the
+     * version of its own entity.
+     *
+     * @param ids the ids of the entities to index
+     * @return the write requests, at most one per id
+     * @throws IOException if a document can not be serialized
+     */
+    List<DocWriteRequest<?>> write(List<Long> ids) throws IOException;
+
+    /**
+     * Database side of the reconciliation: count and checksum of the account's entities in an id range.
+     *
+     * @param appAccountId the account to compare, all accounts when {@code null}
+     * @param fromId       the lowest id of the range, inclusive
+     * @param toId         the highest id of the range, inclusive
+     * @return the digest, empty ranges have a count of zero and no id bounds
+     */
+    SearchRangeDigest digest(Long appAccountId, long fromId, long toId);
+
+    /**
+     * Database side of the reconciliation for small ranges: the last modification time of every entity.
+     *
+     * @return the modification times by entity id
+     */
+    Map<Long, Instant> findVersions(Long appAccountId, long fromId, long toId);
+
+    /**
+     * Keyset page of entity ids for a full rebuild of the index.
+     *
+     * @param appAccountId the account to rebuild, all accounts when {@code null}
+     * @param afterId      the last id of the previous page, exclusive
+     * @param toId         the end of the range, inclusive
+     * @param limit        the maximum number of ids
+     * @return the ids in ascending order
+     */
+    List<Long> findIds(Long appAccountId, long afterId, long toId, int limit);
+
+}
@@ -0,0 +1,40 @@
+package com.leadlet.service.search;
+
+import com.leadlet.domain.SearchOutbox;
+
+import java.util.List;
+
+/**
+ * Outbox rows claimed by one worker under a single claim token.
+ */
+public class SearchOutboxBatch {
+
+    private final String claimToken;
+    private final List<SearchOutbox> rows;
+    private final Long lastScannedId;
+
+    public SearchOutboxBatch(String claimToken, List<SearchOutbox> rows, Long lastScannedId) {
+        this.claimToken = claimToken;
+        this.rows = rows;
+        this.lastScannedId = lastScannedId;
+    }
+
+    public String getClaimToken() {
+        return claimToken;
+    }
+
+    public List<SearchOutbox> getRows() {
+        return rows;
+    }
+
+    /**
+     * @return the highest id looked at while claiming, the next claim continues after it; null when nothing was left
+     */
+    public Long getLastScannedId() {
+        return lastScannedId;
+    }
+
+    public boolean isExhausted() {
+        return lastScannedId == null;
+    }
+}
@@ -0,0 +1,26 @@
+package com.leadlet.service.search;
+
+import com.leadlet.domain.enumeration.SearchEntityType;
+
+/**
+ * Published whenever a row is written to the search outbox, so the dispatcher can be woken up after commit.
+ * Entity type and id are null when the event stands for several rows, e.g. a replay of dead letters.
+ */
+public class SearchOutboxEvent {
+
+    private final SearchEntityType entityType;
+    private final Long entityId;
+
+    public SearchOutboxEvent(SearchEntityType entityType, Long entityId) {
+        this.entityType = entityType;
+        this.entityId = entityId;
+    }
+
+    public SearchEntityType getEntityType() {
+        return entityType;
+    }
+
+    public Long getEntityId() {
+        return entityId;
+    }
+}
@@ -0,0 +1,58 @@
+package com.leadlet.service.search;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Outcome of indexing a claimed outbox batch. Rows which are neither retried, failed nor reindexed were
+ * indexed successfully.
+ */
+public class SearchOutboxResult {
+
+    private final Map<Long, String> retries = new HashMap<>();
+    private final Map<Long, String> failures = new HashMap<>();
+    private final Set<Long> reindexes = new HashSet<>();
+
+    /**
+     * The row was rejected temporarily (e.g. 429 or 503) and should be tried again later.
+     */
+    public SearchOutboxResult retry(Long outboxId, String reason) {
+        retries.put(outboxId, reason);
+        return this;
+    }
+
+    /**
+     * The row can not be indexed as it is (e.g. a mapping error) and goes to the dead letters.
+     */
+    public SearchOutboxResult fail(Long outboxId, String reason) {
+        failures.put(outboxId, reason);
+        return this;
+    }
+
+    /**
+     * The row was a partial update of a document which does not exist (yet), it is turned into a full index.
+     */
+    public SearchOutboxResult reindex(Long outboxId) {
+        reindexes.add(outboxId);
+        return this;
+    }
+
+    public Map<Long, String> getRetries() {
+        return Collections.unmodifiableMap(retries);
+    }
+
+    public Map<Long, String> getFailures() {
+        return Collections.unmodifiableMap(failures);
+    }
+
+    public Set<Long> getReindexes() {
+        return Collections.unmodifiableSet(reindexes);
+    }
+
+    public boolean isEmpty() {
+        return retries.isEmpty() && failures.isEmpty() && reindexes.isEmpty();
+    }
+}
@@ -0,0 +1,150 @@
+package com.leadlet.service.search;
+
+import com.leadlet.domain.enumeration.QueryOperatorType;
+import com.leadlet.service.dto.SearchFilterDTO;
+import com.leadlet.service.dto.SearchQueryDTO;
+import com.leadlet.web.rest.errors.CustomParameterizedException;
+import com.leadlet.web.rest.errors.ErrorConstants;
+import org.elasticsearch.index.query.BoolQueryBuilder;
+import org.elasticsearch.index.query.Operator;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.index.query.RangeQueryBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Compiles a {@link SearchQueryDTO} into a bool query.
+ * <p>
+ * The account and every structured filter are non scoring clauses in filter context, the cluster caches them and
+ * reuses them across searches. Only the query string, when there is one, is parsed and scores the documents. It
+ * has to pass the {@link SearchQueryGuard} first.
+ */
+@Component
+public class SearchQueryCompiler {
+
+    public static final String APP_ACCOUNT_ID = "app_account_id";
+
+    static final Pattern FIELD_NAME = Pattern.compile("[a-z][a-z0-9_]*(\\.[a-z0-9_]+)*");
+
+    private final SearchQueryGuard searchQueryGuard;
+
+    public SearchQueryCompiler(SearchQueryGuard searchQueryGuard) {
+        this.searchQueryGuard = searchQueryGuard;
+    }
+
+    /**
+     * @param query        the search, may be null to match all documents of the account
+     * @param appAccountId the account the search is limited to
+     * @throws CustomParameterizedException if a filter is incomplete or names an invalid field, or the query string is
+     *                                      refused
+     */
+    public BoolQueryBuilder compile(SearchQueryDTO query, Long appAccountId) {
+        BoolQueryBuilder bool = QueryBuilders.boolQuery()
+            .filter(QueryBuilders.termQuery(APP_ACCOUNT_ID, appAccountId));
+        if (query == null) {
+            return bool;
+        }
+
+        if (query.getFilters() != null && !query.getFilters().isEmpty()) {
+            if (query.getOperator() == QueryOperatorType.OR && query.getFilters().size() > 1) {
+                BoolQueryBuilder any = QueryBuilders.boolQuery().minimumShouldMatch(1);
+                for (SearchFilterDTO filter : query.getFilters()) {
+                    any.should(compile(filter));
+                }
+                bool.filter(any);
+            } else {
+                for (SearchFilterDTO filter : query.getFilters()) {
+                    bool.filter(compile(filter));
+                }
+            }
+        }
+
+        if (StringUtils.hasText(query.getQuery())) {
+            bool.must(searchQueryGuard.check(query.getQuery()));
+        }
+        return bool;
+    }
+
+    /**
+     * @param filters the filters to combine with and, e.g. the selections of multi-select facets
+     * @return a bool query of the filters in filter context, without the account
+     * @throws CustomParameterizedException if a filter is incomplete or names an invalid field
+     */
+    public BoolQueryBuilder compileFilters(Collection<SearchFilterDTO> filters) {
+        BoolQueryBuilder bool = QueryBuilders.boolQuery();
+        for (SearchFilterDTO filter : filters) {
+            bool.filter(compile(filter));
+        }
+        return bool;
+    }
+
+    /**
+     * @return the query with its filters in a stable order, the same for equal queries however their filters were added
+     */
+    static String normalize(SearchQueryDTO query) {
+        if (query == null) {
+            return "";
+        }
+        List<String> filters = new ArrayList<>();
+        if (query.getFilters() != null) {
+            for (SearchFilterDTO filter : query.getFilters()) {
+                filters.add(String.valueOf(filter));
+            }
+            Collections.sort(filters);
+        }
+        String text = query.getQuery() == null ? "" : query.getQuery().trim();
+        return query.getOperator() + "/" + filters + "/" + text;
+    }
+
+    private QueryBuilder compile(SearchFilterDTO filter) {
+        String field = filter.getDataField();
+        if (field == null || !FIELD_NAME.matcher(field).matches() || filter.getOperator() == null) {
+            throw invalid(filter);
+        }
+        Object values = filter.getValues();
+        switch (filter.getOperator()) {
+            case EQUALS:
+                if (values == null || values instanceof Collection) {
+                    throw invalid(filter);
+                }
+                return QueryBuilders.termQuery(field, values);
+            case IN:
+                if (!(values instanceof Collection) || ((Collection<?>) values).isEmpty()) {
+                    throw invalid(filter);
+                }
+                return QueryBuilders.termsQuery(field, (Collection<?>) values);
+            case CONTAINS:
+                if (values == null || values instanceof Collection) {
+                    throw invalid(filter);
+                }
+                return QueryBuilders.matchQuery(field, values).operator(Operator.AND);
+            case RANGE:
+                if (!(values instanceof List) || ((List<?>) values).size() != 2) {
+                    throw invalid(filter);
+                }
+                List<?> bounds = (List<?>) values;
+                RangeQueryBuilder range = QueryBuilders.rangeQuery(field);
+                if (bounds.get(0) != null) {
+                    range.gte(bounds.get(0));
+                }
+                if (bounds.get(1) != null) {
+                    range.lte(bounds.get(1));
+                }
+                return range;
+            default:
+                throw invalid(filter);
+        }
+    }
+
+    private CustomParameterizedException invalid(SearchFilterDTO filter) {
+        return new CustomParameterizedException(ErrorConstants.ERR_INVALID_SEARCH_FILTER,
+            String.valueOf(filter.getDataField()), String.valueOf(filter.getOperator()));
+    }
+}
@@ -0,0 +1,181 @@
+package com.leadlet.service.search;
+
+import com.leadlet.config.ApplicationProperties;
+import com.leadlet.service.dto.FacetDefinitionDTO;
+import com.leadlet.web.rest.errors.CustomParameterizedException;
+import com.leadlet.web.rest.errors.ErrorConstants;
+import org.apache.lucene.analysis.core.WhitespaceAnalyzer;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.queryparser.classic.ParseException;
+import org.apache.lucene.queryparser.classic.QueryParser;
+import org.apache.lucene.search.*;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.index.query.QueryStringQueryBuilder;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.springframework.stereotype.Component;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Keeps user supplied query strings from running away with the shared cluster.
+ * <p>
+ * A query string is parsed before it is sent and refused when it contains constructs which have to visit every term
+ * of a field: leading wildcards, regular expressions and fuzzy terms on large fields, or when it has more clauses
+ * than allowed. What remains is sent with bounded fuzzy expansion, and every search gets the timeout of the account's
+ * budget. Only searches whose first collected documents are their top hits also stop after the budget's number of
+ * documents per shard, on any other sort a shard would return the best of the documents it happened to collect.
+ */
+@Component
+public class SearchQueryGuard {
+
+    /**
+     * Stands for the default fields of the index while parsing, terms without a field end up in it.
+     */
+    private static final String DEFAULT_FIELD = "_default";
+
+    /**
+     * Calendar units and whole hours or days, finer buckets over the dates of an account would be too many.
+     */
+    private static final Pattern DATE_INTERVAL = Pattern.compile("hour|day|week|month|quarter|year|1[hdwMqy]|[1-9][0-9]*[hd]");
+
+    private static final int FUZZY_MAX_EXPANSIONS = 10;
+    private static final int FUZZY_PREFIX_LENGTH = 1;
+
+    private final ApplicationProperties.Search.Guard properties;
+    private final Set<String> largeFields;
+
+    public SearchQueryGuard(ApplicationProperties applicationProperties) {
+        this.properties = applicationProperties.getSearch().getGuard();
+        this.largeFields = new HashSet<>(properties.getLargeFields());
+        this.largeFields.add(DEFAULT_FIELD);
+    }
+
+    /**
+     * @return the query string query for the text
+     * @throws CustomParameterizedException if the text does not parse or is too expensive
+     */
+    public QueryStringQueryBuilder check(String text) {
+        QueryParser parser = new QueryParser(DEFAULT_FIELD, new WhitespaceAnalyzer());
+        // parsed so they can be refused with a proper message
+        parser.setAllowLeadingWildcard(true);
+        Query query;
+        try {
+            query = parser.parse(text);
+        } catch (ParseException | BooleanQuery.TooManyClauses e) {
+            throw new CustomParameterizedException(ErrorConstants.ERR_INVALID_SEARCH_QUERY, text);
+        }
+        int clauses = inspect(query);
+        if (clauses > properties.getMaxClauses()) {
+            throw refused("tooManyClauses", String.valueOf(clauses));
+        }
+        return new QueryStringQueryBuilder(text)
+            .allowLeadingWildcard(false)
+            .fuzzyMaxExpansions(FUZZY_MAX_EXPANSIONS)
+            .fuzzyPrefixLength(FUZZY_PREFIX_LENGTH);
+    }
+
+    /**
+     * @throws CustomParameterizedException if there are more facets than allowed, or one of them is incomplete, not
+     *                                      on a field name, has the id of another or parameters its type does not take
+     */
+    public void checkFacets(List<FacetDefinitionDTO> facets) {
+        if (facets == null || facets.isEmpty()) {
+            throw new CustomParameterizedException(ErrorConstants.ERR_INVALID_FACET, "none");
+        }
+        if (facets.size() > properties.getMaxFacets()) {
+            throw refused("tooManyFacets", String.valueOf(facets.size()));
+        }
+        Set<String> ids = new HashSet<>();
+        for (FacetDefinitionDTO facet : facets) {
+            if (facet == null || facet.getId() == null || facet.getType() == null || facet.getDataField() == null
+                || !SearchQueryCompiler.FIELD_NAME.matcher(facet.getDataField()).matches() || !ids.add(facet.getId())
+                || !hasValidParameters(facet)) {
+                throw new CustomParameterizedException(ErrorConstants.ERR_INVALID_FACET, String.valueOf(facet));
+            }
+        }
+    }
+
+    private static boolean hasValidParameters(FacetDefinitionDTO facet) {
+        switch (facet.getType()) {
+            case HISTOGRAM:
+                if (facet.getInterval() == null) {
+                    return false;
+                }
+                try {
+                    double interval = Double.parseDouble(facet.getInterval());
+                    return interval > 0 && !Double.isInfinite(interval);
+                } catch (NumberFormatException e) {
+                    return false;
+                }
+            case DATE_HISTOGRAM:
+                return facet.getInterval() != null && DATE_INTERVAL.matcher(facet.getInterval()).matches();
+            case PERCENTILES:
+                if (facet.getPercents() == null) {
+                    return true;
+                }
+                return !facet.getPercents().isEmpty() && facet.getPercents().stream()
+                    .allMatch(percent -> percent != null && percent >= 0 && percent <= 100);
+            default:
+                return true;
+        }
+    }
+
+    /**
+     * Limit the time and work a search of the account may cost on every shard. To be called once the search is
+     * complete, the number of collected documents is only limited for searches in index order and for counts without
+     * sort, and neither when they have aggregations or a post filter.
+     *
+     * @param indexOrder whether the hits are sorted like the documents in the index
+     */
+    public SearchSourceBuilder limit(SearchSourceBuilder source, Long appAccountId, boolean indexOrder) {
+        ApplicationProperties.Search.Guard.Budget budget = properties.getBudgets().getOrDefault(appAccountId,
+            properties.getBudget());
+        source.timeout(TimeValue.timeValueMillis(budget.getTimeout()));
+        boolean count = source.size() == 0 && (source.sorts() == null || source.sorts().isEmpty());
+        if ((indexOrder || count) && source.aggregations() == null && source.postFilter() == null) {
+            source.terminateAfter(budget.getTerminateAfter());
+        }
+        return source;
+    }
+
+    /**
+     * @return the number of leaf clauses
+     */
+    private int inspect(Query query) {
+        if (query instanceof BooleanQuery) {
+            int clauses = 0;
+            for (BooleanClause clause : (BooleanQuery) query) {
+                clauses += inspect(clause.getQuery());
+            }
+            return clauses;
+        }
+        if (query instanceof BoostQuery) {
+            return inspect(((BoostQuery) query).getQuery());
+        }
+        if (query instanceof RegexpQuery) {
+            throw refused("regexp", ((RegexpQuery) query).getField());
+        }
+        if (query instanceof FuzzyQuery) {
+            Term term = ((FuzzyQuery) query).getTerm();
+            if (largeFields.contains(term.field())) {
+                throw refused("fuzzy", term.text());
+            }
+        }
+        if (query instanceof WildcardQuery || query instanceof PrefixQuery) {
+            Term term = query instanceof WildcardQuery ? ((WildcardQuery) query).getTerm() : ((PrefixQuery) query).getPrefix();
+            // field:* only asks whether the field exists
+            boolean exists = query instanceof WildcardQuery && "*".equals(term.text()) && !DEFAULT_FIELD.equals(term.field());
+            if (!exists && (term.text().isEmpty() || term.text().charAt(0) == '*' || term.text().charAt(0) == '?')) {
+                throw refused("leadingWildcard", term.text());
+            }
+        }
+        return 1;
+    }
+
+    private CustomParameterizedException refused(String construct, String value) {
+        return new CustomParameterizedException(ErrorConstants.ERR_EXPENSIVE_SEARCH_QUERY, construct, value);
+    }
+}
@@ -0,0 +1,103 @@
+package com.leadlet.service.search;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+
+/**
+ * Number of documents in an id range, the sum of their {@code (id, last modification)} checksums and the lowest and
+ * highest id actually present, as computed on one side of the reconciliation.
+ * <p>
+ * The checksum of a single document is {@link #term(long, Instant, ZoneId)}. The same formula is written three
+ * times: here, in the JPQL of the repositories and in {@link #SCRIPT} for Elasticsearch, they have to be kept in
+ * sync. It only uses the calendar fields of the modification time down to the second because that is what the
+ * database can extract portably, which is why the zone the database stores the time in matters.
+ */
+public final class SearchRangeDigest {
+
+    /**
+     * Painless version of {@link #term(long, Instant, ZoneId)} over the {@code id} and {@code version} fields.
+     * Documents indexed before they were versioned count as modified in 1970 and so never match.
+     */
+    public static final String SCRIPT = "long id = doc['id'].value; long year = 0; long key = 0; " +
+        "if (doc['version'].size() == 0) { year = 1970; } " +
+        "else if (doc['version'].value > 0) { " +
+        "ZonedDateTime t = Instant.ofEpochMilli(doc['version'].value).atZone(ZoneId.of(params.zone)); " +
+        "year = t.getYear(); " +
+        "key = (((t.getMonthValue() * 31L + t.getDayOfMonth()) * 24 + t.getHour()) * 60 + t.getMinute()) * 60 + t.getSecond(); } " +
+        "long value = (id * 31 + year) * 1000003L + key; " +
+        "return (value % 1000000007L + 1000000007L) % 1000000007L;";
+
+    private static final long MODULUS = 1000000007L;
+
+    private final long count;
+    private final long checksum;
+    private final Long minId;
+    private final Long maxId;
+
+    public SearchRangeDigest(long count, long checksum, Long minId, Long maxId) {
+        this.count = count;
+        this.checksum = checksum;
+        this.minId = minId;
+        this.maxId = maxId;
+    }
+
+    /**
+     * @param row {@code count, checksum, min id, max id} as selected by the repositories
+     */
+    public static SearchRangeDigest of(Object[] row) {
+        return new SearchRangeDigest(((Number) row[0]).longValue(), row[1] != null ? ((Number) row[1]).longValue() : 0L,
+            (Long) row[2], (Long) row[3]);
+    }
+
+    /**
+     * Checksum of one document, {@code null} modification times count as zero.
+     */
+    public static long term(long id, Instant lastModifiedDate, ZoneId zone) {
+        long year = 0;
+        long key = 0;
+        if (lastModifiedDate != null) {
+            ZonedDateTime time = lastModifiedDate.atZone(zone);
+            year = time.getYear();
+            key = (((time.getMonthValue() * 31L + time.getDayOfMonth()) * 24 + time.getHour()) * 60 + time.getMinute()) * 60
+                + time.getSecond();
+        }
+        return Math.floorMod((id * 31 + year) * 1000003L + key, MODULUS);
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getChecksum() {
+        return checksum;
+    }
+
+    /**
+     * @return the lowest id in the range, {@code null} when it is empty
+     */
+    public Long getMinId() {
+        return minId;
+    }
+
+    /**
+     * @return the highest id in the range, {@code null} when it is empty
+     */
+    public Long getMaxId() {
+        return maxId;
+    }
+
+    public boolean matches(SearchRangeDigest other) {
+        return count == other.count && checksum == other.checksum;
+    }
+
+    @Override
+    public String toString() {
+        return "SearchRangeDigest{" +
+            "count=" + count +
+            ", checksum=" + checksum +
+            ", minId=" + minId +
+            ", maxId=" + maxId +
+            '}';
+    }
+}
@@ -0,0 +1,103 @@
+package com.leadlet.service.search;
+
+import com.leadlet.config.ApplicationProperties;
+import org.elasticsearch.action.DocWriteRequest;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Routes the documents of an account to the shard of its id, so that searches, which are always limited to one
+ * account, only hit that shard instead of all of them.
+ * <p>
+ * The documents of accounts configured with routing partitions are spread over the routing keys
+ * {@code <account id>-0} to {@code <account id>-<partitions - 1>} by their id, searches of those accounts go to the
+ * shards of all their keys. Changing the partitions of an account requires rebuilding its documents.
+ */
+@Component
+public class SearchRouting {
+
+    /**
+     * Computes the routing of a document in {@code _reindex}, with the partitions by account id as {@code params}.
+     */
+    public static final String SCRIPT = "String account = String.valueOf(ctx._source.app_account_id); " +
+        "def partitions = params[account]; " +
+        "ctx._routing = partitions == null ? account : account + '-' + (ctx._source.id % partitions);";
+
+    private final Map<Long, Integer> partitions;
+
+    /**
+     * Aliases still pointing to an index created without routing, while they are moved to a routed one. Read from
+     * the cluster by {@link SearchIndexManager} on every node.
+     */
+    private final Set<String> unrouted = ConcurrentHashMap.newKeySet();
+
+    public SearchRouting(ApplicationProperties applicationProperties) {
+        this.partitions = applicationProperties.getSearch().getRouting().getPartitions();
+    }
+
+    /**
+     * @return the routing key of a document
+     */
+    public String route(Long appAccountId, Long id) {
+        Integer count = partitions.get(appAccountId);
+        return count == null || count <= 1 ? String.valueOf(appAccountId) : appAccountId + "-" + id % count;
+    }
+
+    /**
+     * @return the routing of a search of one account in an index, null to search all shards
+     */
+    public String search(String index, Long appAccountId) {
+        if (appAccountId == null || unrouted.contains(index)) {
+            return null;
+        }
+        Integer count = partitions.get(appAccountId);
+        if (count == null || count <= 1) {
+            return String.valueOf(appAccountId);
+        }
+        StringJoiner routing = new StringJoiner(",");
+        for (int i = 0; i < count; i++) {
+            routing.add(appAccountId + "-" + i);
+        }
+        return routing.toString();
+    }
+
+    /**
+     * Drop the routing of a write to an index created without it, the document would end up on a second shard.
+     */
+    public void adapt(DocWriteRequest<?> action) {
+        if (unrouted.contains(action.index())) {
+            action.routing(null);
+        }
+    }
+
+    /**
+     * @return the partitions by account id, as parameters of {@link #SCRIPT}
+     */
+    public Map<String, Object> getScriptParams() {
+        Map<String, Object> params = new HashMap<>();
+        partitions.forEach((appAccountId, count) -> {
+            if (count > 1) {
+                params.put(String.valueOf(appAccountId), count);
+            }
+        });
+        return params;
+    }
+
+    Set<String> getUnrouted() {
+        return new HashSet<>(unrouted);
+    }
+
+    void setUnrouted(String alias, boolean unrouted) {
+        if (unrouted) {
+            this.unrouted.add(alias);
+        } else {
+            this.unrouted.remove(alias);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.leadlet.service.search;
+
+import com.carrotsearch.hppc.IntArrayList;
+import com.carrotsearch.hppc.LongArrayList;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Converts the DTOs of the list endpoints to and from the {@code view} object of the search documents.
+ * <p>
+ * The index writers store the DTO a list endpoint returns next to the searchable fields. The object is kept in
+ * {@code _source} but not indexed, so a page of search results is built from the hits alone, without loading the
+ * entities and their associations again. Documents written before the view existed have none, those entities are
+ * loaded from the database until the documents are rewritten.
+ */
+@Component
+public class SearchViews {
+
+    public static final String VIEW = "view";
+
+    private static final TypeReference<Map<String, Object>> VIEW_TYPE = new TypeReference<Map<String, Object>>() {
+    };
+
+    private final ObjectMapper objectMapper;
+
+    public SearchViews(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * @return the DTO as the object stored in the document
+     */
+    public Map<String, Object> write(Object dto) {
+        return objectMapper.convertValue(dto, VIEW_TYPE);
+    }
+
+    /**
+     * @param sources the sources of the hits, with their {@code id} and {@code view}
+     * @param type    the DTO stored in the view
+     * @param loader  loads the DTOs of hits without a view from the database, see {@link SearchHydrator#hydrate}
+     * @return the DTOs in the order of the hits, hits whose entity is gone are left out
+     */
+    public <T> List<T> read(List<Map<String, Object>> sources, Class<T> type, Function<LongArrayList, List<T>> loader) {
+        return read(sources, source -> source.containsKey(VIEW) ? objectMapper.convertValue(source.get(VIEW), type) : null,
+            loader);
+    }
+
+    /**
+     * @param reader builds the DTO of a hit from its source, null when the source does not hold enough of it
+     * @see #read(List, Class, Function)
+     */
+    public <T> List<T> read(List<Map<String, Object>> sources, Function<Map<String, Object>, T> reader,
+                            Function<LongArrayList, List<T>> loader) {
+        List<T> dtos = new ArrayList<>(sources.size());
+        LongArrayList missing = new LongArrayList();
+        IntArrayList missingPositions = new IntArrayList();
+        for (Map<String, Object> source : sources) {
+            T dto = reader.apply(source);
+            if (dto == null) {
+                missing.add(getId(source));
+                missingPositions.add(dtos.size());
+            }
+            dtos.add(dto);
+        }
+        if (missing.isEmpty()) {
+            return dtos;
+        }
+
+        List<T> loaded = loader.apply(missing);
+        for (int i = 0; i < missingPositions.size(); i++) {
+            dtos.set(missingPositions.get(i), loaded.get(i));
+        }
+        dtos.removeIf(Objects::isNull);
+        return dtos;
+    }
+
+    public static long getId(Map<String, Object> source) {
+        return ((Number) source.get("id")).longValue();
+    }
+}
@@ -0,0 +1,67 @@
+package com.leadlet.service.search;
+
+import com.leadlet.domain.enumeration.SearchEntityType;
+import com.leadlet.repository.TimelineRepository;
+import com.leadlet.service.dto.TimelineSearchIndexDTO;
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.index.VersionType;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds the documents of the {@link SearchEntityType#TIMELINE} index.
+ */
+@Component
+public class TimelineIndexWriter implements SearchIndexWriter {
+
+    private final TimelineRepository timelineRepository;
+    private final SearchRouting searchRouting;
+
+    public TimelineIndexWriter(TimelineRepository timelineRepository, SearchRouting searchRouting) {
+        this.timelineRepository = timelineRepository;
+        this.searchRouting = searchRouting;
+    }
+
+    @Override
+    public SearchEntityType getEntityType() {
+        return SearchEntityType.TIMELINE;
+    }
+
+    @Override
+    public List<DocWriteRequest<?>> write(List<Long> ids) throws IOException {
+        List<DocWriteRequest<?>> requests = new ArrayList<>(ids.size());
+        for (TimelineSearchIndexDTO row : timelineRepository.findSearchIndexRowsByIdIn(ids)) {
+            requests.add(new IndexRequest(getEntityType().getIndex(), getEntityType().getType(), String.valueOf(row.getId()))
+                .routing(searchRouting.route(row.getAppAccountId(), row.getId()))
+                .source(row.getBuilder()).versionType(VersionType.EXTERNAL_GTE).version(row.getVersion()));
+        }
+        return requests;
+    }
+
+    @Override
+    public SearchRangeDigest digest(Long appAccountId, long fromId, long toId) {
+        return SearchRangeDigest.of(timelineRepository.findSearchDigest(appAccountId, fromId, toId).get(0));
+    }
+
+    @Override
+    public Map<Long, Instant> findVersions(Long appAccountId, long fromId, long toId) {
+        Map<Long, Instant> versions = new HashMap<>();
+        for (Object[] row : timelineRepository.findSearchVersions(appAccountId, fromId, toId)) {
+            versions.put((Long) row[0], (Instant) row[1]);
+        }
+        return versions;
+    }
+
+    @Override
+    public List<Long> findIds(Long appAccountId, long afterId, long toId, int limit) {
+        return timelineRepository.findIdsForReindex(appAccountId, afterId, toId, new PageRequest(0, limit));
+    }
+}
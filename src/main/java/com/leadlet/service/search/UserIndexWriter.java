@@ -0,0 +1,75 @@
+package com.leadlet.service.search;
+
+import com.leadlet.domain.User;
+import com.leadlet.domain.enumeration.SearchEntityType;
+import com.leadlet.repository.UserRepository;
+import com.leadlet.service.dto.UserSearchIndexDTO;
+import com.leadlet.service.mapper.UserMapper;
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.index.VersionType;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds the documents of the {@link SearchEntityType#USER} index.
+ */
+@Component
+public class UserIndexWriter implements SearchIndexWriter {
+
+    private final UserRepository userRepository;
+    private final SearchRouting searchRouting;
+    private final UserMapper userMapper;
+    private final SearchViews searchViews;
+
+    public UserIndexWriter(UserRepository userRepository, SearchRouting searchRouting, UserMapper userMapper,
+                           SearchViews searchViews) {
+        this.userRepository = userRepository;
+        this.searchRouting = searchRouting;
+        this.userMapper = userMapper;
+        this.searchViews = searchViews;
+    }
+
+    @Override
+    public SearchEntityType getEntityType() {
+        return SearchEntityType.USER;
+    }
+
+    @Override
+    public List<DocWriteRequest<?>> write(List<Long> ids) throws IOException {
+        List<DocWriteRequest<?>> requests = new ArrayList<>(ids.size());
+        for (User user : userRepository.findDistinctByIdIn(ids)) {
+            UserSearchIndexDTO row = new UserSearchIndexDTO(user).setView(searchViews.write(userMapper.toDto(user)));
+            requests.add(new IndexRequest(getEntityType().getIndex(), getEntityType().getType(), String.valueOf(row.getId()))
+                .routing(searchRouting.route(row.getAppAccountId(), row.getId()))
+                .source(row.getBuilder()).versionType(VersionType.EXTERNAL_GTE).version(row.getVersion()));
+        }
+        return requests;
+    }
+
+    @Override
+    public SearchRangeDigest digest(Long appAccountId, long fromId, long toId) {
+        return SearchRangeDigest.of(userRepository.findSearchDigest(appAccountId, fromId, toId).get(0));
+    }
+
+    @Override
+    public Map<Long, Instant> findVersions(Long appAccountId, long fromId, long toId) {
+        Map<Long, Instant> versions = new HashMap<>();
+        for (Object[] row : userRepository.findSearchVersions(appAccountId, fromId, toId)) {
+            versions.put((Long) row[0], (Instant) row[1]);
+        }
+        return versions;
+    }
+
+    @Override
+    public List<Long> findIds(Long appAccountId, long afterId, long toId, int limit) {
+        return userRepository.findIdsForReindex(appAccountId, afterId, toId, new PageRequest(0, limit));
+    }
+}
@@ -0,0 +1,4 @@
+/**
+ * Components that keep the Elasticsearch indices in sync with the database and query them.
+ */
+package com.leadlet.service.search;
@@ -3,6 +3,7 @@ package com.leadlet.web.rest;
 import com.codahale.metrics.annotation.Timed;
 import com.leadlet.service.ActivityService;
 import com.leadlet.service.dto.ActivityDTO;
+import com.leadlet.service.dto.SearchQueryDTO;
 import com.leadlet.web.rest.util.HeaderUtil;
 import com.leadlet.web.rest.util.PaginationUtil;
 import io.github.jhipster.web.util.ResponseUtil;
@@ -82,14 +83,33 @@ public class ActivityResource {
 
     @GetMapping("/activities")
     @Timed
-    public ResponseEntity<List<ActivityDTO>> getActivities(@ApiParam String q, @ApiParam Pageable pageable) throws URISyntaxException, IOException {
+    public ResponseEntity<List<ActivityDTO>> getActivities(@ApiParam String q, @ApiParam Pageable pageable,
+                                                           @RequestParam(required = false) String cursor) throws URISyntaxException, IOException {
 
-        Page<ActivityDTO> page = activityService.search(q, pageable);
-        HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(page, "/api/activities/search");
+        Page<ActivityDTO> page = activityService.search(new SearchQueryDTO().setQuery(q), pageable, cursor);
+        HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(page, "/api/activities");
         return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
 
     }
 
+    /**
+     * POST  /activities/search : search the activities with structured filters.
+     *
+     * @param searchQuery the filters, and a query string only when needed
+     * @param pageable    the pagination information
+     * @param cursor      the cursor of the next link, continues after the previous page instead of skipping pages
+     * @return the ResponseEntity with status 200 (OK) and the list of activities in body
+     */
+    @PostMapping("/activities/search")
+    @Timed
+    public ResponseEntity<List<ActivityDTO>> searchActivities(@RequestBody SearchQueryDTO searchQuery, @ApiParam Pageable pageable,
+                                                              @RequestParam(required = false) String cursor) throws IOException {
+        log.debug("REST request to search Activities : {}", searchQuery);
+        Page<ActivityDTO> page = activityService.search(searchQuery, pageable, cursor);
+        HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(page, "/api/activities/search");
+        return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
+    }
+
     /**
      * GET  /activities/:id : get the "id" activity.
      *
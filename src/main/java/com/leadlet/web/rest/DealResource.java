@@ -3,6 +3,7 @@ package com.leadlet.web.rest;
 import com.codahale.metrics.annotation.Timed;
 import com.leadlet.service.DealService;
 import com.leadlet.service.dto.*;
+import com.leadlet.service.search.FacetedPage;
 import com.leadlet.web.rest.util.HeaderUtil;
 import com.leadlet.web.rest.util.PaginationUtil;
 import io.swagger.annotations.ApiParam;
@@ -66,12 +67,58 @@ public class DealResource {
 
     @GetMapping("/deals")
     @Timed
-    public ResponseEntity<List<DetailedDealDTO>> getDeals(@ApiParam String q, @ApiParam Pageable pageable) throws URISyntaxException, IOException {
+    public ResponseEntity<List<DetailedDealDTO>> getDeals(@ApiParam String q, @ApiParam Pageable pageable,
+                                                          @RequestParam(required = false) String cursor,
+                                                          @RequestParam(defaultValue = "false") boolean exactTotal) throws URISyntaxException, IOException {
 
-        Page<DetailedDealDTO> page = dealService.query(q, pageable);
+        Page<DetailedDealDTO> page = dealService.query(new SearchQueryDTO().setQuery(q), pageable, cursor, exactTotal);
+        HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(page, "/api/deals");
+        return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
+
+    }
+
+    /**
+     * POST  /deals/search : search the deals with structured filters.
+     *
+     * @param searchQuery the filters, and a query string only when needed
+     * @param pageable    the pagination information
+     * @param cursor      the cursor of the next link, continues after the previous page instead of skipping pages
+     * @param exactTotal  whether X-Total-Count has to be exact, see {@link #getDeals}
+     * @return the ResponseEntity with status 200 (OK) and the list of deals in body
+     */
+    @PostMapping("/deals/search")
+    @Timed
+    public ResponseEntity<List<DetailedDealDTO>> searchDeals(@RequestBody SearchQueryDTO searchQuery, @ApiParam Pageable pageable,
+                                                             @RequestParam(required = false) String cursor,
+                                                             @RequestParam(defaultValue = "false") boolean exactTotal) throws IOException {
+        log.debug("REST request to search Deals : {}", searchQuery);
+        Page<DetailedDealDTO> page = dealService.query(searchQuery, pageable, cursor, exactTotal);
         HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(page, "/api/deals/search");
         return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
+    }
 
+    /**
+     * POST  /deals/search/faceted : search the deals and compute the facets of the view with them. The values
+     * selected in the facets filter the deals, and every facet counts the deals matching the other selections.
+     *
+     * @param facetSearch the search, as for {@link #searchDeals}, and the facets
+     * @param pageable    the pagination information
+     * @param cursor      the cursor of the next link, see {@link #searchDeals}
+     * @param exactTotal  whether X-Total-Count has to be exact, see {@link #getDeals}
+     * @return the ResponseEntity with status 200 (OK) and the deals with the facets in body
+     */
+    @PostMapping("/deals/search/faceted")
+    @Timed
+    public ResponseEntity<FacetedSearchResultDTO<DetailedDealDTO>> searchDealsFaceted(@RequestBody FacetSearchDTO facetSearch,
+                                                                                      @ApiParam Pageable pageable,
+                                                                                      @RequestParam(required = false) String cursor,
+                                                                                      @RequestParam(defaultValue = "false") boolean exactTotal) throws IOException {
+        log.debug("REST request to search Deals with facets : {}", facetSearch);
+        FacetedPage<DetailedDealDTO> page = dealService.query(facetSearch.getQuery(), pageable, cursor, exactTotal,
+            facetSearch.getFacets());
+        HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(page, "/api/deals/search/faceted");
+        return new ResponseEntity<>(new FacetedSearchResultDTO<DetailedDealDTO>().setContent(page.getContent())
+            .setFacets(page.getFacets()), headers, HttpStatus.OK);
     }
 
 
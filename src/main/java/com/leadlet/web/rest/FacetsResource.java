@@ -1,7 +1,10 @@
 package com.leadlet.web.rest;
 
+import com.codahale.metrics.annotation.Timed;
 import com.leadlet.service.ElasticsearchService;
 import com.leadlet.service.dto.FacetDTO;
+import com.leadlet.service.dto.FacetSearchDTO;
+import com.leadlet.service.dto.SearchQueryDTO;
 import io.swagger.annotations.ApiParam;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -9,10 +12,13 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.io.IOException;
+import java.util.List;
 
 /**
  * REST controller for managing Stage.
@@ -33,16 +39,33 @@ public class FacetsResource {
 
     @GetMapping("/facets/terms/{id}/{index}")
     public ResponseEntity<FacetDTO> getDistinctTerms(@PathVariable String id, @PathVariable String index, @ApiParam String field, @ApiParam String q) throws IOException {
-        FacetDTO facet = filterService.getFieldTerms(id, index, field ,q);
+        FacetDTO facet = filterService.getFieldTerms(id, index, field, new SearchQueryDTO().setQuery(q));
 
         return new ResponseEntity<>(facet, HttpStatus.OK);
     }
 
     @GetMapping("/facets/range/{id}/{index}")
     public ResponseEntity<FacetDTO> getFieldRange(@PathVariable String id, @PathVariable String index, @ApiParam String field, @ApiParam String q) throws IOException {
-        FacetDTO facet = filterService.getFieldRange(id, index, field ,q);
+        FacetDTO facet = filterService.getFieldRange(id, index, field, new SearchQueryDTO().setQuery(q));
 
         return new ResponseEntity<>(facet, HttpStatus.OK);
     }
 
+    /**
+     * POST  /facets/:index : compute all facets of a view in one search. Facets with selected values are
+     * multi-select, every facet counts the documents matching the selections of the other ones.
+     *
+     * @param index       the index to search
+     * @param facetSearch the search and the facets to compute for it
+     * @return the ResponseEntity with status 200 (OK) and the facets in the order of their definitions in body
+     */
+    @PostMapping("/facets/{index}")
+    @Timed
+    public ResponseEntity<List<FacetDTO>> getFacets(@PathVariable String index, @RequestBody FacetSearchDTO facetSearch) throws IOException {
+        log.debug("REST request to get facets of {} : {}", index, facetSearch);
+        List<FacetDTO> facets = filterService.getFacets(index, facetSearch.getQuery(), facetSearch.getFacets());
+
+        return new ResponseEntity<>(facets, HttpStatus.OK);
+    }
+
 }
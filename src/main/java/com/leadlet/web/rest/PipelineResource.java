@@ -1,8 +1,11 @@
 package com.leadlet.web.rest;
 
 import com.codahale.metrics.annotation.Timed;
+import com.leadlet.service.DealService;
 import com.leadlet.service.PipelineService;
+import com.leadlet.service.dto.DetailedDealDTO;
 import com.leadlet.service.dto.PipelineDTO;
+import com.leadlet.service.dto.StageBoardDTO;
 import com.leadlet.web.rest.util.HeaderUtil;
 import com.leadlet.web.rest.util.PaginationUtil;
 import io.github.jhipster.web.util.ResponseUtil;
@@ -16,6 +19,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.List;
@@ -34,8 +38,11 @@ public class PipelineResource {
 
     private final PipelineService pipelineService;
 
-    public PipelineResource(PipelineService pipelineService) {
+    private final DealService dealService;
+
+    public PipelineResource(PipelineService pipelineService, DealService dealService) {
         this.pipelineService = pipelineService;
+        this.dealService = dealService;
     }
 
     /**
@@ -108,6 +115,42 @@ public class PipelineResource {
         return ResponseUtil.wrapOrNotFound(Optional.ofNullable(pipelineDTO));
     }
 
+    /**
+     * GET  /pipelines/:id/board : get the board of the "id" pipeline.
+     *
+     * @param id   the id of the pipeline
+     * @param size the number of deals per stage
+     * @return the ResponseEntity with status 200 (OK) and with body the stages with their first deals by priority,
+     * their deal count and value by currency, and the cursor of their next deals
+     */
+    @GetMapping("/pipelines/{id}/board")
+    @Timed
+    public ResponseEntity<List<StageBoardDTO>> getPipelineBoard(@PathVariable Long id,
+                                                                @RequestParam(defaultValue = "10") int size) throws IOException {
+        log.debug("REST request to get the board of Pipeline : {}", id);
+        return new ResponseEntity<>(dealService.getBoard(id, size), HttpStatus.OK);
+    }
+
+    /**
+     * GET  /pipelines/:id/board/:stageId : get the next deals of a stage of the board.
+     *
+     * @param id      the id of the pipeline
+     * @param stageId the id of the stage
+     * @param size    the number of deals
+     * @param cursor  the next cursor of the stage on the board, or of the next link
+     * @return the ResponseEntity with status 200 (OK) and the list of deals in body
+     */
+    @GetMapping("/pipelines/{id}/board/{stageId}")
+    @Timed
+    public ResponseEntity<List<DetailedDealDTO>> getPipelineBoardDeals(@PathVariable Long id, @PathVariable Long stageId,
+                                                                       @RequestParam(defaultValue = "10") int size,
+                                                                       @RequestParam(required = false) String cursor) throws IOException {
+        log.debug("REST request to get the board deals of Stage {} of Pipeline : {}", stageId, id);
+        Page<DetailedDealDTO> page = dealService.getBoardDeals(id, stageId, size, cursor);
+        HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(page, "/api/pipelines/" + id + "/board/" + stageId);
+        return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
+    }
+
     /**
      * DELETE  /pipelines/:id : delete the "id" pipeline.
      *
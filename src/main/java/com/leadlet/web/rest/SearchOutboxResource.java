@@ -0,0 +1,65 @@
+package com.leadlet.web.rest;
+
+import com.codahale.metrics.annotation.Timed;
+import com.leadlet.domain.SearchOutbox;
+import com.leadlet.service.SearchOutboxService;
+import com.leadlet.web.rest.util.HeaderUtil;
+import com.leadlet.web.rest.util.PaginationUtil;
+import io.swagger.annotations.ApiParam;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * REST controller for inspecting and replaying search outbox rows which could not be indexed.
+ */
+@RestController
+@RequestMapping("/management/search-outbox")
+public class SearchOutboxResource {
+
+    private final Logger log = LoggerFactory.getLogger(SearchOutboxResource.class);
+
+    private final SearchOutboxService searchOutboxService;
+
+    public SearchOutboxResource(SearchOutboxService searchOutboxService) {
+        this.searchOutboxService = searchOutboxService;
+    }
+
+    /**
+     * GET  /failed : get a page of dead lettered outbox rows.
+     *
+     * @param pageable the pagination information
+     * @return the ResponseEntity with status 200 (OK) and the list of failed rows with their last error in body
+     */
+    @GetMapping("/failed")
+    @Timed
+    public ResponseEntity<List<SearchOutbox>> getAllFailed(@ApiParam Pageable pageable) {
+        log.debug("REST request to get a page of failed search outbox rows");
+        Page<SearchOutbox> page = searchOutboxService.findAllFailed(pageable);
+        HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(page, "/management/search-outbox/failed");
+        return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
+    }
+
+    /**
+     * POST  /failed/replay : put dead lettered outbox rows back into the queue.
+     *
+     * @param ids the ids of the rows to replay, all failed rows when missing or empty
+     * @return the ResponseEntity with status 200 (OK) and the number of replayed rows in body
+     */
+    @PostMapping("/failed/replay")
+    @Timed
+    public ResponseEntity<Integer> replayFailed(@RequestBody(required = false) List<Long> ids) {
+        log.debug("REST request to replay failed search outbox rows : {}", ids);
+        int replayed = searchOutboxService.replay(ids);
+        return ResponseEntity.ok()
+            .headers(HeaderUtil.createAlert("leadletApiApp.searchOutbox.replayed", String.valueOf(replayed)))
+            .body(replayed);
+    }
+}
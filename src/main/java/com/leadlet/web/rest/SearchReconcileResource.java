@@ -0,0 +1,57 @@
+package com.leadlet.web.rest;
+
+import com.codahale.metrics.annotation.Timed;
+import com.leadlet.service.SearchReconcileService;
+import com.leadlet.service.dto.SearchReconcileReportDTO;
+import io.github.jhipster.web.util.ResponseUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.concurrent.Executor;
+
+/**
+ * REST controller for running the reconciliation of the search indices with the database and reading its report.
+ */
+@RestController
+@RequestMapping("/management/search-reconcile")
+public class SearchReconcileResource {
+
+    private final Logger log = LoggerFactory.getLogger(SearchReconcileResource.class);
+
+    private final SearchReconcileService searchReconcileService;
+    private final Executor searchJobExecutor;
+
+    public SearchReconcileResource(SearchReconcileService searchReconcileService,
+                                   @Qualifier("searchJobExecutor") Executor searchJobExecutor) {
+        this.searchReconcileService = searchReconcileService;
+        this.searchJobExecutor = searchJobExecutor;
+    }
+
+    /**
+     * GET  /search-reconcile : get the report of the running or the last reconciliation.
+     *
+     * @return the ResponseEntity with status 200 (OK) and the report in body, or with status 404 (Not Found)
+     */
+    @GetMapping
+    @Timed
+    public ResponseEntity<SearchReconcileReportDTO> getReport() {
+        log.debug("REST request to get the search reconciliation report");
+        return ResponseUtil.wrapOrNotFound(searchReconcileService.getLastReport());
+    }
+
+    /**
+     * POST  /search-reconcile : start a reconciliation in the background, ignored while one is running.
+     *
+     * @return the ResponseEntity with status 202 (Accepted)
+     */
+    @PostMapping
+    @Timed
+    public ResponseEntity<Void> reconcile() {
+        log.debug("REST request to start a search reconciliation");
+        searchJobExecutor.execute(searchReconcileService::reconcile);
+        return ResponseEntity.accepted().build();
+    }
+}
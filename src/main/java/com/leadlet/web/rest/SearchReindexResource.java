@@ -0,0 +1,126 @@
+package com.leadlet.web.rest;
+
+import com.codahale.metrics.annotation.Timed;
+import com.leadlet.domain.enumeration.SearchEntityType;
+import com.leadlet.service.SearchReindexService;
+import com.leadlet.service.dto.SearchReindexJobDTO;
+import com.leadlet.web.rest.util.HeaderUtil;
+import com.leadlet.web.rest.util.PaginationUtil;
+import io.github.jhipster.web.util.ResponseUtil;
+import io.swagger.annotations.ApiParam;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * REST controller for rebuilding search indices from the database and following the progress of the rebuilds.
+ */
+@RestController
+@RequestMapping("/management/search-reindex")
+public class SearchReindexResource {
+
+    private final Logger log = LoggerFactory.getLogger(SearchReindexResource.class);
+
+    private static final String ENTITY_NAME = "searchReindexJob";
+
+    private final SearchReindexService searchReindexService;
+
+    public SearchReindexResource(SearchReindexService searchReindexService) {
+        this.searchReindexService = searchReindexService;
+    }
+
+    /**
+     * POST  /search-reindex : start rebuilding an index.
+     *
+     * @param entityType   the index to rebuild
+     * @param appAccountId the account to rebuild, all accounts when missing
+     * @return the ResponseEntity with status 201 (Created) and the job in body, or with status 400 (Bad Request) if
+     * a rebuild of the index is already running
+     * @throws URISyntaxException if the Location URI syntax is incorrect
+     */
+    @PostMapping
+    @Timed
+    public ResponseEntity<SearchReindexJobDTO> start(@RequestParam SearchEntityType entityType,
+                                                     @RequestParam(required = false) Long appAccountId)
+        throws URISyntaxException {
+        log.debug("REST request to rebuild search index {} of account {}", entityType, appAccountId);
+        if (searchReindexService.isRunning(entityType)) {
+            return ResponseEntity.badRequest().headers(HeaderUtil.createFailureAlert(ENTITY_NAME, "running",
+                "A rebuild of this index is already running")).body(null);
+        }
+        SearchReindexJobDTO result = searchReindexService.start(entityType, appAccountId);
+        return ResponseEntity.created(new URI("/management/search-reindex/" + result.getId()))
+            .headers(HeaderUtil.createEntityCreationAlert(ENTITY_NAME, result.getId().toString()))
+            .body(result);
+    }
+
+    /**
+     * POST  /search-reindex/:id/resume : continue a failed, cancelled or interrupted rebuild.
+     *
+     * @param id the id of the job
+     * @return the ResponseEntity with status 200 (OK) and the job in body, or with status 400 (Bad Request) if the
+     * rebuild still runs on another node or another rebuild of the index is running
+     */
+    @PostMapping("/{id}/resume")
+    @Timed
+    public ResponseEntity<SearchReindexJobDTO> resume(@PathVariable Long id) {
+        log.debug("REST request to resume search index rebuild : {}", id);
+        try {
+            return ResponseEntity.ok(searchReindexService.resume(id));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.badRequest().headers(HeaderUtil.createFailureAlert(ENTITY_NAME, "running",
+                e.getMessage())).body(null);
+        }
+    }
+
+    /**
+     * POST  /search-reindex/:id/cancel : stop a rebuild after the pages in flight.
+     *
+     * @param id the id of the job
+     * @return the ResponseEntity with status 200 (OK) and the job in body
+     */
+    @PostMapping("/{id}/cancel")
+    @Timed
+    public ResponseEntity<SearchReindexJobDTO> cancel(@PathVariable Long id) {
+        log.debug("REST request to cancel search index rebuild : {}", id);
+        return ResponseEntity.ok(searchReindexService.cancel(id));
+    }
+
+    /**
+     * GET  /search-reindex : get all the rebuilds.
+     *
+     * @param pageable the pagination information
+     * @return the ResponseEntity with status 200 (OK) and the list of jobs with their progress in body
+     */
+    @GetMapping
+    @Timed
+    public ResponseEntity<List<SearchReindexJobDTO>> getAllJobs(@ApiParam Pageable pageable) {
+        log.debug("REST request to get a page of search index rebuilds");
+        Page<SearchReindexJobDTO> page = searchReindexService.findAll(pageable);
+        HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(page, "/management/search-reindex");
+        return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
+    }
+
+    /**
+     * GET  /search-reindex/:id : get a rebuild with its progress, throughput and estimated end.
+     *
+     * @param id the id of the job
+     * @return the ResponseEntity with status 200 (OK) and the job in body, or with status 404 (Not Found)
+     */
+    @GetMapping("/{id}")
+    @Timed
+    public ResponseEntity<SearchReindexJobDTO> getJob(@PathVariable Long id) {
+        log.debug("REST request to get search index rebuild : {}", id);
+        return ResponseUtil.wrapOrNotFound(Optional.ofNullable(searchReindexService.findOne(id)));
+    }
+}
@@ -2,6 +2,7 @@ package com.leadlet.web.rest;
 
 import com.codahale.metrics.annotation.Timed;
 import com.leadlet.service.TimelineService;
+import com.leadlet.service.dto.SearchQueryDTO;
 import com.leadlet.service.dto.TimelineDTO;
 import com.leadlet.web.rest.util.PaginationUtil;
 import io.swagger.annotations.ApiParam;
@@ -38,16 +39,41 @@ public class TimelineResource {
      * GET  /timelines : get all the timelines.
      *
      * @param pageable the pagination information
+     * @param cursor the cursor of the next link, continues after the previous page instead of skipping pages
+     * @param exactTotal whether X-Total-Count has to be exact, otherwise it only tells whether there is a next page
+     *                   when the timelines are sorted newest first
      * @return the ResponseEntity with status 200 (OK) and the list of timelines in body
      */
     @GetMapping("/timeLines")
     @Timed
-    public ResponseEntity<List<TimelineDTO>> getTimelines(@ApiParam String q, @ApiParam Pageable pageable) throws IOException {
+    public ResponseEntity<List<TimelineDTO>> getTimelines(@ApiParam String q, @ApiParam Pageable pageable,
+                                                          @RequestParam(required = false) String cursor,
+                                                          @RequestParam(defaultValue = "false") boolean exactTotal) throws IOException {
         log.debug("REST request to get a page of Timelines");
-        Page<TimelineDTO> page = timelineService.query(q,pageable);
+        Page<TimelineDTO> page = timelineService.query(new SearchQueryDTO().setQuery(q), pageable, cursor, exactTotal);
         HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(page, "/api/timeLines");
         return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
     }
 
+    /**
+     * POST  /timeLines/search : search the timelines with structured filters.
+     *
+     * @param searchQuery the filters, and a query string only when needed
+     * @param pageable    the pagination information
+     * @param cursor      the cursor of the next link, see {@link #getTimelines}
+     * @param exactTotal  whether X-Total-Count has to be exact, see {@link #getTimelines}
+     * @return the ResponseEntity with status 200 (OK) and the list of timelines in body
+     */
+    @PostMapping("/timeLines/search")
+    @Timed
+    public ResponseEntity<List<TimelineDTO>> searchTimelines(@RequestBody SearchQueryDTO searchQuery, @ApiParam Pageable pageable,
+                                                             @RequestParam(required = false) String cursor,
+                                                             @RequestParam(defaultValue = "false") boolean exactTotal) throws IOException {
+        log.debug("REST request to search Timelines : {}", searchQuery);
+        Page<TimelineDTO> page = timelineService.query(searchQuery, pageable, cursor, exactTotal);
+        HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(page, "/api/timeLines/search");
+        return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
+    }
+
 }
 
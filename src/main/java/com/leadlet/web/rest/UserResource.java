@@ -7,6 +7,7 @@ import com.leadlet.repository.UserRepository;
 import com.leadlet.security.AuthoritiesConstants;
 import com.leadlet.service.MailService;
 import com.leadlet.service.UserService;
+import com.leadlet.service.dto.SearchQueryDTO;
 import com.leadlet.service.dto.UserDTO;
 import com.leadlet.service.dto.UserUpdateDTO;
 import com.leadlet.service.mapper.UserMapper;
@@ -147,11 +148,12 @@ public class UserResource {
      */
     @GetMapping("/users")
     @Timed
-    public ResponseEntity<List<UserDTO>> getUsers(@ApiParam String q, @ApiParam Pageable pageable) throws IOException {
+    public ResponseEntity<List<UserDTO>> getUsers(@ApiParam String q, @ApiParam Pageable pageable,
+                                                  @RequestParam(required = false) String cursor) throws IOException {
         log.debug("REST request to get a page of Users");
 
         // TODO fix
-        Page<UserDTO> page = userService.search(q, pageable);
+        Page<UserDTO> page = userService.search(new SearchQueryDTO().setQuery(q), pageable, cursor);
         HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(page, "/api/users");
         return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
     }
@@ -8,6 +8,12 @@ public final class ErrorConstants {
     public static final String ERR_METHOD_NOT_SUPPORTED = "error.methodNotSupported";
     public static final String ERR_ENTITY_NOT_FOUND = "error.entityNotFound";
     public static final String ERR_INTERNAL_SERVER_ERROR = "error.internalServerError";
+    public static final String ERR_INVALID_SEARCH_FILTER = "error.invalidSearchFilter";
+    public static final String ERR_INVALID_SEARCH_QUERY = "error.invalidSearchQuery";
+    public static final String ERR_EXPENSIVE_SEARCH_QUERY = "error.expensiveSearchQuery";
+    public static final String ERR_INVALID_SEARCH_CURSOR = "error.invalidSearchCursor";
+    public static final String ERR_INVALID_FACET = "error.invalidFacet";
+    public static final String ERR_INVALID_STAGE = "error.invalidStage";
 
     private ErrorConstants() {
     }
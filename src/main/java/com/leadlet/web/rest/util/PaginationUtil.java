@@ -1,9 +1,19 @@
 package com.leadlet.web.rest.util;
 
+import com.leadlet.service.search.CursorPage;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpHeaders;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
 import org.springframework.web.util.UriComponentsBuilder;
 
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
 /**
  * Utility class for handling pagination.
  *
@@ -13,6 +23,11 @@ import org.springframework.web.util.UriComponentsBuilder;
  */
 public final class PaginationUtil {
 
+    /**
+     * Parameters of the links to a cursor page which are not carried over from the request.
+     */
+    private static final Set<String> PAGING_PARAMETERS = new HashSet<>(Arrays.asList("cursor", "page", "size", "sort"));
+
     private PaginationUtil() {
     }
 
@@ -21,7 +36,19 @@ public final class PaginationUtil {
         HttpHeaders headers = new HttpHeaders();
         headers.add("X-Total-Count", Long.toString(page.getTotalElements()));
         String link = "";
-        if ((page.getNumber() + 1) < page.getTotalPages()) {
+        if (page instanceof CursorPage) {
+            // the next page continues after the last hit, a cursor page has no number to go back to or jump from
+            CursorPage cursorPage = (CursorPage) page;
+            if (cursorPage.getNextCursor() != null) {
+                link = "<" + generateCursorUri(baseUrl, cursorPage.getNextCursor(), page.getSize(), page.getSort()) + ">; rel=\"next\",";
+            }
+            if (!cursorPage.isPositional()) {
+                link += "<" + requestUri(baseUrl).queryParam("page", 0).queryParam("size", page.getSize()).toUriString()
+                    + ">; rel=\"first\"";
+                headers.add(HttpHeaders.LINK, link);
+                return headers;
+            }
+        } else if ((page.getNumber() + 1) < page.getTotalPages()) {
             link = "<" + generateUri(baseUrl, page.getNumber() + 1, page.getSize()) + ">; rel=\"next\",";
         }
         // prev link
@@ -42,4 +69,36 @@ public final class PaginationUtil {
     private static String generateUri(String baseUrl, int page, int size) {
         return UriComponentsBuilder.fromUriString(baseUrl).queryParam("page", page).queryParam("size", size).toUriString();
     }
+
+    /**
+     * A cursor only fits the search it was taken from, so the sort and the other parameters of the request go along
+     * with it.
+     */
+    private static String generateCursorUri(String baseUrl, String cursor, int size, Sort sort) {
+        UriComponentsBuilder builder = requestUri(baseUrl).queryParam("cursor", cursor).queryParam("size", size);
+        if (sort != null) {
+            for (Sort.Order order : sort) {
+                builder.queryParam("sort", order.getProperty() + "," + order.getDirection().name().toLowerCase());
+            }
+        }
+        return builder.toUriString();
+    }
+
+    /**
+     * @return the base url with the parameters of the current request but the paging ones, e.g. the query string and
+     * the filters of the search
+     */
+    private static UriComponentsBuilder requestUri(String baseUrl) {
+        UriComponentsBuilder builder = UriComponentsBuilder.fromUriString(baseUrl);
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes instanceof ServletRequestAttributes) {
+            for (Map.Entry<String, String[]> parameter : ((ServletRequestAttributes) attributes).getRequest()
+                .getParameterMap().entrySet()) {
+                if (!PAGING_PARAMETERS.contains(parameter.getKey())) {
+                    builder.queryParam(parameter.getKey(), (Object[]) parameter.getValue());
+                }
+            }
+        }
+        return builder;
+    }
 }
@@ -3,6 +3,7 @@ package com.leadlet.repository;
 
 import com.leadlet.LeadletApiApp;
 import com.leadlet.domain.*;
+import com.leadlet.service.search.SearchRangeDigest;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -12,6 +13,8 @@ import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityManager;
+import java.time.Instant;
+import java.time.ZoneId;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -77,4 +80,28 @@ public class DealRepositoryTest {
 
     }
 
+    @Test
+    public void searchDigestMatchesChecksumFormula(){
+
+        Deal deal = new Deal();
+        deal.setTitle("deal title");
+        deal.setStage(stage);
+        deal.setPipeline(pipeline);
+        deal.setContact(contact);
+        deal.setPriority(100);
+        deal.setAppAccount(appAccount);
+        Deal saved = dealRepository.saveAndFlush(deal);
+        entityManager.clear();
+
+        Instant lastModifiedDate = dealRepository.findOne(saved.getId()).getLastModifiedDate();
+        SearchRangeDigest digest = SearchRangeDigest.of(
+            dealRepository.findSearchDigest(appAccount.getId(), 0L, Long.MAX_VALUE).get(0));
+
+        assertThat(digest.getCount()).isEqualTo(1);
+        assertThat(digest.getMinId()).isEqualTo(saved.getId());
+        assertThat(digest.getMaxId()).isEqualTo(saved.getId());
+        assertThat(digest.getChecksum())
+            .isEqualTo(SearchRangeDigest.term(saved.getId(), lastModifiedDate, ZoneId.systemDefault()));
+    }
+
 }
@@ -0,0 +1,62 @@
+package com.leadlet.repository;
+
+
+import com.leadlet.LeadletApiApp;
+import com.leadlet.domain.SearchReindexJob;
+import com.leadlet.domain.enumeration.SearchEntityType;
+import com.leadlet.domain.enumeration.SearchReindexStatus;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = LeadletApiApp.class)
+@Transactional
+public class SearchReindexJobRepositoryTest {
+    @Autowired
+    SearchReindexJobRepository searchReindexJobRepository;
+
+    @Test
+    public void refusesASecondRunningJobOfAnIndex() {
+        searchReindexJobRepository.saveAndFlush(running(SearchEntityType.DEAL, null));
+        searchReindexJobRepository.saveAndFlush(running(SearchEntityType.ACTIVITY, null));
+        searchReindexJobRepository.saveAndFlush(new SearchReindexJob(SearchEntityType.DEAL, 1L)
+            .setStatus(SearchReindexStatus.COMPLETED));
+
+        assertThatThrownBy(() -> searchReindexJobRepository.saveAndFlush(running(SearchEntityType.DEAL, 1L)))
+            .isInstanceOf(DataIntegrityViolationException.class);
+    }
+
+    @Test
+    public void takesOverOnlyARunningJobWhoseLeaseExpired() {
+        Instant now = Instant.now();
+        SearchReindexJob live = searchReindexJobRepository.saveAndFlush(running(SearchEntityType.DEAL, null)
+            .setHeartbeatDate(now.minusSeconds(10)));
+        SearchReindexJob stale = searchReindexJobRepository.saveAndFlush(running(SearchEntityType.ACTIVITY, null)
+            .setHeartbeatDate(now.minusSeconds(120)));
+        Instant expiredBefore = now.minusSeconds(60);
+
+        assertThat(searchReindexJobRepository.takeOver(live.getId(), now, expiredBefore, SearchReindexStatus.RUNNING))
+            .isEqualTo(0);
+        assertThat(searchReindexJobRepository.takeOver(stale.getId(), now, expiredBefore, SearchReindexStatus.RUNNING))
+            .isEqualTo(1);
+        // the first node to take it over renewed the lease, the next one is refused
+        assertThat(searchReindexJobRepository.takeOver(stale.getId(), now, expiredBefore, SearchReindexStatus.RUNNING))
+            .isEqualTo(0);
+    }
+
+    private static SearchReindexJob running(SearchEntityType entityType, Long appAccountId) {
+        return new SearchReindexJob(entityType, appAccountId).setStatus(SearchReindexStatus.RUNNING)
+            .setRunningEntityType(entityType);
+    }
+}
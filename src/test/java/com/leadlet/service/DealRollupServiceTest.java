@@ -0,0 +1,137 @@
+package com.leadlet.service;
+
+
+import com.leadlet.LeadletApiApp;
+import com.leadlet.domain.*;
+import com.leadlet.domain.enumeration.CurrencyType;
+import com.leadlet.repository.DealRepository;
+import com.leadlet.repository.DealStageRollupRepository;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = LeadletApiApp.class)
+@Transactional
+public class DealRollupServiceTest {
+    @Autowired
+    DealRollupService dealRollupService;
+
+    @Autowired
+    DealRepository dealRepository;
+
+    @Autowired
+    DealStageRollupRepository dealStageRollupRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private AppAccount appAccount;
+    private Pipeline pipeline;
+    private Stage stage;
+    private Stage otherStage;
+
+    @Before
+    public void setup() {
+
+        appAccount = new AppAccount();
+        appAccount.setName("appAccount");
+        entityManager.persist(appAccount);
+
+        pipeline = new Pipeline();
+        pipeline.setName("pipeline");
+        pipeline.setAppAccount(appAccount);
+        entityManager.persist(pipeline);
+
+        stage = saveStage("stage-1");
+        otherStage = saveStage("stage-2");
+        entityManager.flush();
+    }
+
+    @Test
+    public void totalsFollowTheDealWrites(){
+
+        Deal first = saveDeal(100.0, CurrencyType.USD);
+        dealRollupService.dealCreated(first);
+        Deal second = saveDeal(50.0, CurrencyType.USD);
+        dealRollupService.dealCreated(second);
+        Deal third = saveDeal(20.0, CurrencyType.EURO);
+        dealRollupService.dealCreated(third);
+
+        dealRollupService.dealChanged(second, pipeline.getId(), otherStage.getId(), second.getDealValue());
+        second.setStage(otherStage);
+        DealValue value = new DealValue().setPotentialValue(30.0).setCurrency(CurrencyType.EURO);
+        dealRollupService.dealChanged(third, pipeline.getId(), stage.getId(), value);
+        third.setDealValue(value);
+        dealRollupService.dealDeleted(first);
+        dealRepository.delete(first);
+
+        Map<String, Object[]> totals = totals();
+        assertThat(totals).hasSize(2);
+        assertThat(totals.get(otherStage.getId() + "/USD")).containsExactly(1L, 50.0);
+        assertThat(totals.get(stage.getId() + "/EURO")).containsExactly(1L, 30.0);
+    }
+
+    @Test
+    public void verificationRepairsDrift(){
+
+        saveDeal(100.0, CurrencyType.USD);
+        saveDeal(50.0, CurrencyType.USD);
+        saveDeal(null, null);
+
+        assertThat(dealRollupService.verify()).isGreaterThanOrEqualTo(2);
+        assertThat(dealRollupService.verify()).isEqualTo(0);
+
+        Map<String, Object[]> totals = totals();
+        assertThat(totals).hasSize(2);
+        assertThat(totals.get(stage.getId() + "/USD")).containsExactly(2L, 150.0);
+        assertThat(totals.get(stage.getId() + "/null")).containsExactly(1L, 0.0);
+    }
+
+    /**
+     * @return number of deals and sum of the values by {@code stage id/currency}
+     */
+    private Map<String, Object[]> totals() {
+        List<Object[]> rows = dealStageRollupRepository.findStageTotalsByPipelineId(appAccount.getId(), pipeline.getId());
+        Map<String, Object[]> totals = new HashMap<>();
+        for (Object[] row : rows) {
+            totals.put(row[0] + "/" + row[1], new Object[]{row[2], row[3]});
+        }
+        return totals;
+    }
+
+    private Stage saveStage(String name) {
+        Stage stage = new Stage();
+        stage.setName(name);
+        stage.setPipeline(pipeline);
+        stage.setAppAccount(appAccount);
+        entityManager.persist(stage);
+        return stage;
+    }
+
+    private Deal saveDeal(Double potentialValue, CurrencyType currency) {
+        Deal deal = new Deal();
+        deal.setTitle("deal title");
+        deal.setStage(stage);
+        deal.setPipeline(pipeline);
+        deal.setPriority(100);
+        deal.setAppAccount(appAccount);
+        if (currency != null) {
+            deal.setDealValue(new DealValue().setPotentialValue(potentialValue).setCurrency(currency));
+        }
+        return dealRepository.saveAndFlush(deal);
+    }
+
+}
@@ -0,0 +1,108 @@
+package com.leadlet.service;
+
+
+import com.leadlet.LeadletApiApp;
+import com.leadlet.domain.*;
+import com.leadlet.security.AppUserDetail;
+import com.leadlet.service.dto.DetailedDealDTO;
+import com.leadlet.web.rest.errors.CustomParameterizedException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.io.IOException;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = LeadletApiApp.class)
+@Transactional
+public class DealServiceTest {
+    @Autowired
+    DealService dealService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private AppAccount appAccount;
+    private Deal deal;
+
+    @Before
+    public void setup() {
+
+        appAccount = saveAppAccount("appAccount");
+        Pipeline pipeline = savePipeline(appAccount);
+
+        deal = new Deal();
+        deal.setTitle("deal title");
+        deal.setStage(saveStage(appAccount, pipeline));
+        deal.setPipeline(pipeline);
+        deal.setPriority(100);
+        deal.setAppAccount(appAccount);
+        entityManager.persist(deal);
+        entityManager.flush();
+
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+            new AppUserDetail(appAccount.getId(), "user", "password", Collections.emptyList()), "password"));
+    }
+
+    @After
+    public void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    public void movesTheDealIntoThePipelineOfItsStage() throws IOException {
+        Pipeline otherPipeline = savePipeline(appAccount);
+        Stage stage = saveStage(appAccount, otherPipeline);
+
+        DetailedDealDTO result = dealService.updateStage(deal.getId(), stage.getId());
+
+        assertThat(result.getStage().getId()).isEqualTo(stage.getId());
+        assertThat(result.getPipeline().getId()).isEqualTo(otherPipeline.getId());
+    }
+
+    @Test
+    public void refusesTheStageOfAnotherAccount() {
+        AppAccount otherAccount = saveAppAccount("otherAccount");
+        Stage stage = saveStage(otherAccount, savePipeline(otherAccount));
+
+        assertThatThrownBy(() -> dealService.updateStage(deal.getId(), stage.getId()))
+            .isInstanceOf(CustomParameterizedException.class);
+    }
+
+    private AppAccount saveAppAccount(String name) {
+        AppAccount account = new AppAccount();
+        account.setName(name);
+        entityManager.persist(account);
+        return account;
+    }
+
+    private Pipeline savePipeline(AppAccount account) {
+        Pipeline pipeline = new Pipeline();
+        pipeline.setName("pipeline");
+        pipeline.setAppAccount(account);
+        entityManager.persist(pipeline);
+        return pipeline;
+    }
+
+    private Stage saveStage(AppAccount account, Pipeline pipeline) {
+        Stage stage = new Stage();
+        stage.setName("stage");
+        stage.setPipeline(pipeline);
+        stage.setAppAccount(account);
+        entityManager.persist(stage);
+        return stage;
+    }
+}
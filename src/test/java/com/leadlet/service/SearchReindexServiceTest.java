@@ -0,0 +1,46 @@
+package com.leadlet.service;
+
+
+import com.leadlet.LeadletApiApp;
+import com.leadlet.domain.SearchReindexJob;
+import com.leadlet.domain.enumeration.SearchEntityType;
+import com.leadlet.domain.enumeration.SearchReindexStatus;
+import com.leadlet.repository.SearchReindexJobRepository;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = LeadletApiApp.class)
+@Transactional
+public class SearchReindexServiceTest {
+    @Autowired
+    SearchReindexService searchReindexService;
+
+    @Autowired
+    SearchReindexJobRepository searchReindexJobRepository;
+
+    @Test
+    public void refusesToResumeAJobRunningOnAnotherNode() {
+        SearchReindexJob job = searchReindexJobRepository.saveAndFlush(new SearchReindexJob(SearchEntityType.DEAL, null)
+            .setTarget("leadlet-deal-v7")
+            .setStatus(SearchReindexStatus.RUNNING)
+            .setRunningEntityType(SearchEntityType.DEAL)
+            .setHeartbeatDate(Instant.now()));
+
+        assertThatThrownBy(() -> searchReindexService.resume(job.getId()))
+            .isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> searchReindexService.migrate(SearchEntityType.DEAL, "leadlet-deal-v7"))
+            .isInstanceOf(IllegalStateException.class);
+        assertThat(searchReindexService.findOne(job.getId()).getStatus()).isEqualTo(SearchReindexStatus.RUNNING);
+    }
+}
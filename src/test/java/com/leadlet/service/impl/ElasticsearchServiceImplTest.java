@@ -0,0 +1,198 @@
+package com.leadlet.service.impl;
+
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.leadlet.config.ApplicationProperties;
+import com.leadlet.domain.AppAccount;
+import com.leadlet.domain.Deal;
+import com.leadlet.domain.DealValue;
+import com.leadlet.domain.Pipeline;
+import com.leadlet.domain.Stage;
+import com.leadlet.domain.enumeration.CurrencyType;
+import com.leadlet.domain.enumeration.FacetType;
+import com.leadlet.security.AppUserDetail;
+import com.leadlet.service.dto.DealSearchIndexDTO;
+import com.leadlet.service.dto.FacetDTO;
+import com.leadlet.service.dto.FacetDefinitionDTO;
+import com.leadlet.service.dto.HistogramFacetDTO;
+import com.leadlet.service.dto.SearchQueryDTO;
+import com.leadlet.service.dto.StatsFacetDTO;
+import com.leadlet.service.search.CursorPage;
+import com.leadlet.service.search.SearchFacetCache;
+import com.leadlet.service.search.SearchQueryCompiler;
+import com.leadlet.service.search.SearchQueryGuard;
+import com.leadlet.service.search.SearchRouting;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.http.HttpHost;
+import org.elasticsearch.client.RestClient;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.common.Strings;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs facets against a stub of the search endpoint, which records the request and answers with aggregations.
+ */
+public class ElasticsearchServiceImplTest {
+
+    private static final String INDEX = "leadlet-deal";
+
+    private static final String FACETS_RESPONSE = "{\"took\":1,\"timed_out\":false," +
+        "\"_shards\":{\"total\":1,\"successful\":1,\"skipped\":0,\"failed\":0}," +
+        "\"hits\":{\"total\":3,\"max_score\":0.0,\"hits\":[]}," +
+        "\"aggregations\":{" +
+        "\"stats#facet_0\":{\"count\":3,\"min\":100.0,\"max\":400.0,\"avg\":250.0,\"sum\":750.0}," +
+        "\"histogram#facet_1\":{\"buckets\":[{\"key\":0.0,\"doc_count\":1},{\"key\":200.0,\"doc_count\":2}]}}}";
+
+    /**
+     * A full page of one hit in index order, the keyword app_account_id is sorted by its string value.
+     */
+    private static final String HITS_RESPONSE = "{\"took\":1,\"timed_out\":false," +
+        "\"_shards\":{\"total\":1,\"successful\":1,\"skipped\":0,\"failed\":0}," +
+        "\"hits\":{\"total\":2,\"max_score\":null,\"hits\":[{\"_index\":\"leadlet-deal-v6\",\"_type\":\"deal\"," +
+        "\"_id\":\"42\",\"_score\":null,\"sort\":[\"1\",1539856800000,42]}]}}";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final List<String> requests = new ArrayList<>();
+    private String response = FACETS_RESPONSE;
+
+    private HttpServer server;
+    private RestHighLevelClient client;
+    private ElasticsearchServiceImpl elasticsearchService;
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            requests.add(read(exchange.getRequestBody()));
+            byte[] body = response.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json; charset=UTF-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        client = new RestHighLevelClient(RestClient.builder(new HttpHost("localhost", server.getAddress().getPort())));
+
+        ApplicationProperties properties = new ApplicationProperties();
+        SearchQueryGuard guard = new SearchQueryGuard(properties);
+        elasticsearchService = new ElasticsearchServiceImpl(client, null, new SearchRouting(properties),
+            new SearchQueryCompiler(guard), guard,
+            new SearchFacetCache(new ConcurrentMapCacheManager(), properties, new MetricRegistry()));
+
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+            new AppUserDetail(1L, "user", "password", Collections.emptyList()), "password"));
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        SecurityContextHolder.clearContext();
+        client.close();
+        server.stop(0);
+    }
+
+    @Test
+    public void computesStatsAndHistogramOfThePotentialValue() throws IOException {
+        List<FacetDTO> facets = elasticsearchService.getFacets(INDEX, new SearchQueryDTO(), Arrays.asList(
+            new FacetDefinitionDTO().setId("value").setType(FacetType.STATS).setDataField("potential_value"),
+            new FacetDefinitionDTO().setId("values").setType(FacetType.HISTOGRAM).setDataField("potential_value")
+                .setInterval("200")));
+
+        JsonNode aggregations = objectMapper.readTree(requests.get(0)).path("aggregations");
+        assertThat(aggregations.path("facet_0").path("stats").path("field").asText()).isEqualTo("potential_value");
+        assertThat(aggregations.path("facet_1").path("histogram").path("field").asText()).isEqualTo("potential_value");
+        assertThat(aggregations.path("facet_1").path("histogram").path("interval").asDouble()).isEqualTo(200.0);
+
+        StatsFacetDTO stats = (StatsFacetDTO) facets.get(0);
+        assertThat(stats.getId()).isEqualTo("value");
+        assertThat(stats.getCount()).isEqualTo(3);
+        assertThat(stats.getSum()).isEqualTo(750.0);
+        assertThat(stats.getMax()).isEqualTo(400.0);
+
+        HistogramFacetDTO histogram = (HistogramFacetDTO) facets.get(1);
+        assertThat(histogram.getBuckets()).hasSize(2);
+        assertThat(histogram.getBuckets().get(1).getKey().doubleValue()).isEqualTo(200.0);
+        assertThat(histogram.getBuckets().get(1).getCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void continuesAnIndexOrderedListAfterItsCursor() throws IOException {
+        response = HITS_RESPONSE;
+        Pageable pageable = new PageRequest(0, 1, new Sort(Sort.Direction.DESC, "created_date"));
+
+        CursorPage<Long> first = elasticsearchService.getEntityIds(INDEX, new SearchQueryDTO(), pageable, null, false);
+        assertThat(first.getContent()).containsExactly(42L);
+        assertThat(first.getNextCursor()).isNotNull();
+
+        elasticsearchService.getEntityIds(INDEX, new SearchQueryDTO(), pageable, first.getNextCursor(), false);
+        JsonNode searchAfter = objectMapper.readTree(requests.get(1)).path("search_after");
+        assertThat(searchAfter.get(0).asText()).isEqualTo("1");
+        assertThat(searchAfter.get(1).asLong()).isEqualTo(1539856800000L);
+        assertThat(searchAfter.get(2).asLong()).isEqualTo(42L);
+    }
+
+    @Test
+    public void mapsEveryFieldOfTheDealDocument() throws IOException {
+        JsonNode properties;
+        try (InputStream in = new ClassPathResource("config/elasticsearch/" + INDEX + ".json").getInputStream()) {
+            properties = objectMapper.readTree(in).path("mappings").path("deal").path("properties");
+        }
+        assertThat(properties.path("potential_value").path("type").asText()).isEqualTo("double");
+        assertThat(properties.path("currency").path("type").asText()).isEqualTo("keyword");
+
+        JsonNode document = objectMapper.readTree(Strings.toString(new DealSearchIndexDTO(deal()).getBuilder()));
+        assertThat(document.path("potential_value").asDouble()).isEqualTo(250.0);
+        assertThat(document.path("currency").asText()).isEqualTo("USD");
+        for (Iterator<String> fields = document.fieldNames(); fields.hasNext(); ) {
+            String field = fields.next();
+            // the mapping is not dynamic, a field it lacks could not be searched
+            assertThat(properties.has(field)).as(field).isTrue();
+        }
+    }
+
+    private static Deal deal() {
+        AppAccount appAccount = new AppAccount();
+        appAccount.setId(1L);
+        Pipeline pipeline = new Pipeline();
+        pipeline.setId(2L);
+        Stage stage = new Stage();
+        stage.setId(3L);
+        Deal deal = new Deal().setId(4L).setTitle("deal").setPriority(0).setPipeline(pipeline).setStage(stage)
+            .setDealValue(new DealValue().setPotentialValue(250.0).setCurrency(CurrencyType.USD));
+        deal.setAppAccount(appAccount);
+        return deal;
+    }
+
+    private static String read(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        for (int read; (read = in.read(buffer)) != -1; ) {
+            out.write(buffer, 0, read);
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
@@ -3,7 +3,6 @@ package com.leadlet.service.mapper;
 
 import com.leadlet.LeadletApiApp;
 import com.leadlet.domain.*;
-import com.leadlet.domain.enumeration.SyncStatus;
 import com.leadlet.service.dto.DealDTO;
 import org.junit.Before;
 import org.junit.Test;
@@ -34,7 +33,6 @@ public class DealMapperTest {
 
         deal = new Deal();
         deal.setId(1L);
-        deal.setSyncStatus(SyncStatus.NOT_SYNCED);
 
         Product p1 = new Product();
         p1.setId(1L);
@@ -0,0 +1,53 @@
+package com.leadlet.service.search;
+
+import com.leadlet.service.dto.SearchQueryDTO;
+import com.leadlet.web.rest.errors.CustomParameterizedException;
+import org.junit.Test;
+import org.springframework.data.domain.Sort;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class SearchCursorTest {
+
+    private static final Sort SORT = new Sort(Sort.Direction.ASC, "priority");
+
+    private final String fingerprint = SearchCursor.fingerprint("leadlet-deal", new SearchQueryDTO().setQuery("acme"),
+        null, SORT);
+
+    @Test
+    public void decodesTheValuesOfItsSearch() {
+        String cursor = SearchCursor.encode(fingerprint, new Object[]{3, 42L});
+
+        assertThat(SearchCursor.decode(cursor, fingerprint, new boolean[]{false, true})).containsExactly(3, 42);
+    }
+
+    @Test
+    public void refusesTheCursorOfAnotherSearch() {
+        String cursor = SearchCursor.encode(fingerprint, new Object[]{3, 42L});
+        String other = SearchCursor.fingerprint("leadlet-deal", new SearchQueryDTO().setQuery("other"), null, SORT);
+
+        assertThatThrownBy(() -> SearchCursor.decode(cursor, other, new boolean[]{false, true}))
+            .isInstanceOf(CustomParameterizedException.class);
+    }
+
+    @Test
+    public void decodesTheKeywordValuesOfTheIndexOrder() {
+        // app_account_id is a keyword sorted by its string value, created_date and id are numbers
+        String cursor = SearchCursor.encode(fingerprint, new Object[]{"1", 1539856800000L, 42L});
+
+        assertThat(SearchCursor.decode(cursor, fingerprint, new boolean[]{false, true, true}))
+            .containsExactly("1", 1539856800000L, 42);
+    }
+
+    @Test
+    public void refusesANumericSortValueWhichIsNotANumber() {
+        // an id, which is always a number
+        String cursor = SearchCursor.encode(fingerprint, new Object[]{3, "42"});
+
+        assertThatThrownBy(() -> SearchCursor.decode(cursor, fingerprint, new boolean[]{false, true}))
+            .isInstanceOf(CustomParameterizedException.class);
+        assertThatThrownBy(() -> SearchCursor.decode("not a cursor", fingerprint, new boolean[]{false, true}))
+            .isInstanceOf(CustomParameterizedException.class);
+    }
+}
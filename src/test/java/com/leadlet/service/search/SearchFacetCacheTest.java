@@ -0,0 +1,71 @@
+package com.leadlet.service.search;
+
+import com.codahale.metrics.MetricRegistry;
+import com.leadlet.config.ApplicationProperties;
+import com.leadlet.domain.enumeration.FacetType;
+import com.leadlet.service.dto.FacetDTO;
+import com.leadlet.service.dto.FacetDefinitionDTO;
+import com.leadlet.service.dto.SearchQueryDTO;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SearchFacetCacheTest {
+
+    private static final String INDEX = "leadlet-deal";
+
+    private final List<FacetDefinitionDTO> facets = Collections.singletonList(
+        new FacetDefinitionDTO().setId("stage").setType(FacetType.TERMS).setDataField("stage_id"));
+    private final AtomicInteger searches = new AtomicInteger();
+
+    private SearchFacetCache cache;
+
+    @Before
+    public void setUp() {
+        ApplicationProperties properties = new ApplicationProperties();
+        properties.getSearch().getFacetCache().setRefreshInterval(0);
+        cache = new SearchFacetCache(new ConcurrentMapCacheManager(), properties, new MetricRegistry());
+    }
+
+    @Test
+    public void keepsTheFacetsUntilTheAccountWrites() throws IOException {
+        get(1L, "open");
+        get(1L, "open");
+        assertThat(searches.get()).isEqualTo(1);
+
+        cache.invalidate(INDEX, 2L);
+        get(1L, "open");
+        assertThat(searches.get()).isEqualTo(1);
+
+        cache.invalidate(INDEX, 1L);
+        get(1L, "open");
+        assertThat(searches.get()).isEqualTo(2);
+
+        cache.invalidate(INDEX);
+        get(1L, "open");
+        assertThat(searches.get()).isEqualTo(3);
+    }
+
+    @Test
+    public void separatesAccountsAndQueries() throws IOException {
+        get(1L, "open");
+        get(2L, "open");
+        get(1L, " open ");
+        get(1L, "won");
+        assertThat(searches.get()).isEqualTo(3);
+    }
+
+    private List<FacetDTO> get(Long appAccountId, String query) throws IOException {
+        return cache.get(INDEX, appAccountId, new SearchQueryDTO().setQuery(query), facets, () -> {
+            searches.incrementAndGet();
+            return Collections.singletonList(new FacetDTO().setId("stage"));
+        });
+    }
+}
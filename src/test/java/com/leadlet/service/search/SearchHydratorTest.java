@@ -0,0 +1,42 @@
+package com.leadlet.service.search;
+
+import com.carrotsearch.hppc.LongArrayList;
+import com.leadlet.config.ApplicationProperties;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SearchHydratorTest {
+
+    @Test
+    public void keepsTheOrderOfTheHitsAcrossChunks() {
+        ApplicationProperties properties = new ApplicationProperties();
+        properties.getSearch().getHydration().setChunkSize(2);
+        List<List<Long>> chunks = new ArrayList<>();
+        Function<List<Long>, List<Long>> loader = ids -> {
+            chunks.add(new ArrayList<>(ids));
+            List<Long> reversed = new ArrayList<>(ids);
+            Collections.reverse(reversed);
+            return reversed;
+        };
+
+        List<String> dtos = new SearchHydrator(properties)
+            .hydrate(LongArrayList.from(5, 3, 9, 1, 7), loader, Long::longValue, id -> "dto" + id);
+
+        assertThat(dtos).containsExactly("dto5", "dto3", "dto9", "dto1", "dto7");
+        assertThat(chunks).hasSize(3);
+    }
+
+    @Test
+    public void leavesMissingEntitiesEmpty() {
+        List<String> dtos = new SearchHydrator(new ApplicationProperties())
+            .hydrate(LongArrayList.from(4, 8, 6), ids -> Collections.singletonList(6L), Long::longValue, id -> "dto" + id);
+
+        assertThat(dtos).containsExactly(null, null, "dto6");
+    }
+}
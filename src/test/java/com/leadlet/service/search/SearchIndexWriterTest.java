@@ -0,0 +1,141 @@
+package com.leadlet.service.search;
+
+
+import com.leadlet.LeadletApiApp;
+import com.leadlet.domain.*;
+import com.leadlet.domain.enumeration.PhoneType;
+import org.elasticsearch.action.DocWriteRequest;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = LeadletApiApp.class)
+@Transactional
+public class SearchIndexWriterTest {
+    @Autowired
+    DealIndexWriter dealIndexWriter;
+
+    @Autowired
+    ActivityIndexWriter activityIndexWriter;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private final List<Long> dealIds = new ArrayList<>();
+    private final List<Long> activityIds = new ArrayList<>();
+
+    @Before
+    public void setup() {
+
+        AppAccount appAccount = new AppAccount();
+        appAccount.setName("appAccount");
+        entityManager.persist(appAccount);
+
+        Pipeline pipeline = new Pipeline();
+        pipeline.setName("pipeline");
+        pipeline.setAppAccount(appAccount);
+        entityManager.persist(pipeline);
+
+        Stage stage = new Stage();
+        stage.setName("stage-1");
+        stage.setPipeline(pipeline);
+        stage.setAppAccount(appAccount);
+        entityManager.persist(stage);
+
+        ActivityType type = new ActivityType();
+        type.setName("call");
+        type.setIcon("phone");
+        type.setAppAccount(appAccount);
+        entityManager.persist(type);
+
+        for (int i = 0; i < 3; i++) {
+            Contact contact = new Contact();
+            contact.setName("contact-" + i);
+            contact.setAppAccount(appAccount);
+            entityManager.persist(contact);
+            for (int j = 0; j < 2; j++) {
+                ContactPhone phone = new ContactPhone();
+                phone.setPhone("555-000" + i + j);
+                phone.setType(PhoneType.WORK);
+                phone.setContact(contact);
+                entityManager.persist(phone);
+            }
+
+            User agent = new User();
+            agent.setLogin("agent" + i + "@leadlet.com");
+            agent.setPassword("$2a$10$gSAhZrxMllrbgj/kkK9UceBPpChGWJA7SYIb1Mqo.n5aNLq1/oRrC");
+            agent.setActivated(true);
+            agent.setAuthorities(Collections.singleton(entityManager.find(Authority.class, "ROLE_AGENT")));
+            agent.setAppAccount(appAccount);
+            entityManager.persist(agent);
+
+            Deal deal = new Deal();
+            deal.setTitle("deal-" + i);
+            deal.setStage(stage);
+            deal.setPipeline(pipeline);
+            deal.setContact(contact);
+            deal.setAgent(agent);
+            deal.setPriority(i);
+            deal.setAppAccount(appAccount);
+            entityManager.persist(deal);
+            dealIds.add(deal.getId());
+
+            Activity activity = new Activity();
+            activity.setTitle("activity-" + i);
+            activity.setStart(Instant.now());
+            activity.setEnd(Instant.now());
+            activity.setType(type);
+            activity.setDeal(deal);
+            activity.setContact(contact);
+            activity.setAgent(agent);
+            activity.setAppAccount(appAccount);
+            entityManager.persist(activity);
+            activityIds.add(activity.getId());
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    public void writesTheDealsOfABatchWithOneQuery() throws IOException {
+        Statistics statistics = statistics();
+
+        List<DocWriteRequest<?>> requests = dealIndexWriter.write(dealIds);
+
+        assertThat(requests).hasSize(dealIds.size());
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void writesTheActivitiesOfABatchWithOneQuery() throws IOException {
+        Statistics statistics = statistics();
+
+        List<DocWriteRequest<?>> requests = activityIndexWriter.write(activityIds);
+
+        assertThat(requests).hasSize(activityIds.size());
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    private Statistics statistics() {
+        Statistics statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        return statistics;
+    }
+}
@@ -0,0 +1,108 @@
+package com.leadlet.service.search;
+
+import com.leadlet.config.ApplicationProperties;
+import com.leadlet.domain.enumeration.QueryOperatorType;
+import com.leadlet.domain.enumeration.SearchFilterType;
+import com.leadlet.service.dto.SearchFilterDTO;
+import com.leadlet.service.dto.SearchQueryDTO;
+import com.leadlet.web.rest.errors.CustomParameterizedException;
+import org.elasticsearch.index.query.BoolQueryBuilder;
+import org.elasticsearch.index.query.RangeQueryBuilder;
+import org.elasticsearch.index.query.TermQueryBuilder;
+import org.elasticsearch.index.query.TermsQueryBuilder;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SearchQueryCompilerTest {
+
+    private final SearchQueryCompiler compiler = new SearchQueryCompiler(new SearchQueryGuard(new ApplicationProperties()));
+
+    @Test
+    public void accountIsAlwaysAFilter() {
+        BoolQueryBuilder query = compiler.compile(null, 7L);
+
+        assertThat(query.must()).isEmpty();
+        assertThat(query.filter()).containsExactly(new TermQueryBuilder("app_account_id", 7L));
+    }
+
+    @Test
+    public void structuredFiltersDoNotScore() {
+        SearchQueryDTO searchQuery = new SearchQueryDTO()
+            .setOperator(QueryOperatorType.AND)
+            .setFilters(new LinkedHashSet<>(Arrays.asList(
+                new SearchFilterDTO().setDataField("stage_id").setOperator(SearchFilterType.IN)
+                    .setValues(Arrays.asList(1, 2)),
+                new SearchFilterDTO().setDataField("potential_value").setOperator(SearchFilterType.RANGE)
+                    .setValues(Arrays.asList(100, null)))));
+
+        BoolQueryBuilder query = compiler.compile(searchQuery, 7L);
+
+        assertThat(query.must()).isEmpty();
+        assertThat(query.filter()).containsExactly(
+            new TermQueryBuilder("app_account_id", 7L),
+            new TermsQueryBuilder("stage_id", Arrays.asList(1, 2)),
+            new RangeQueryBuilder("potential_value").gte(100));
+    }
+
+    @Test
+    public void selectionsAreCombinedWithoutTheAccount() {
+        BoolQueryBuilder query = compiler.compileFilters(Arrays.asList(
+            new SearchFilterDTO().setDataField("stage_id").setOperator(SearchFilterType.EQUALS).setValues(3),
+            new SearchFilterDTO().setDataField("priority").setOperator(SearchFilterType.IN).setValues(Arrays.asList(1, 2))));
+
+        assertThat(query.must()).isEmpty();
+        assertThat(query.filter()).containsExactly(
+            new TermQueryBuilder("stage_id", 3),
+            new TermsQueryBuilder("priority", Arrays.asList(1, 2)));
+    }
+
+    @Test
+    public void queryStringOnlyWhenGiven() {
+        BoolQueryBuilder query = compiler.compile(new SearchQueryDTO().setQuery("deal_title:acme"), 7L);
+
+        assertThat(query.must()).hasSize(1);
+        assertThat(query.filter()).hasSize(1);
+    }
+
+    @Test(expected = CustomParameterizedException.class)
+    public void rejectsInvalidFieldNames() {
+        compiler.compile(new SearchQueryDTO().setFilters(Collections.singleton(
+            new SearchFilterDTO().setDataField("_source").setOperator(SearchFilterType.EQUALS).setValues("x"))), 7L);
+    }
+
+    @Test(expected = CustomParameterizedException.class)
+    public void rejectsLeadingWildcards() {
+        compiler.compile(new SearchQueryDTO().setQuery("deal_title:*acme"), 7L);
+    }
+
+    @Test(expected = CustomParameterizedException.class)
+    public void rejectsRegularExpressions() {
+        compiler.compile(new SearchQueryDTO().setQuery("deal_title:/ac.*e/"), 7L);
+    }
+
+    @Test(expected = CustomParameterizedException.class)
+    public void rejectsFuzzyTermsOnDefaultFields() {
+        compiler.compile(new SearchQueryDTO().setQuery("acme~2"), 7L);
+    }
+
+    @Test(expected = CustomParameterizedException.class)
+    public void rejectsTooManyClauses() {
+        StringBuilder query = new StringBuilder("stage_id:0");
+        for (int i = 1; i <= 64; i++) {
+            query.append(" OR stage_id:").append(i);
+        }
+        compiler.compile(new SearchQueryDTO().setQuery(query.toString()), 7L);
+    }
+
+    @Test
+    public void acceptsExistsAndTrailingWildcards() {
+        BoolQueryBuilder query = compiler.compile(new SearchQueryDTO().setQuery("lost_reason:* AND deal_title:acm*"), 7L);
+
+        assertThat(query.must()).hasSize(1);
+    }
+}
@@ -0,0 +1,35 @@
+package com.leadlet.service.search;
+
+import com.leadlet.config.ApplicationProperties;
+import org.elasticsearch.search.aggregations.AggregationBuilders;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.elasticsearch.search.internal.SearchContext;
+import org.elasticsearch.search.sort.SortOrder;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SearchQueryGuardTest {
+
+    private final SearchQueryGuard guard = new SearchQueryGuard(new ApplicationProperties());
+
+    @Test
+    public void stopsSearchesInIndexOrderEarly() {
+        SearchSourceBuilder source = guard.limit(new SearchSourceBuilder().size(20), 1L, true);
+
+        assertThat(source.terminateAfter()).isEqualTo(100000);
+        assertThat(source.timeout()).isNotNull();
+    }
+
+    @Test
+    public void onlyTimesOutSearchesInOtherOrders() {
+        SearchSourceBuilder sorted = guard.limit(new SearchSourceBuilder().size(20).sort("priority", SortOrder.ASC), 1L,
+            false);
+        SearchSourceBuilder aggregated = guard.limit(new SearchSourceBuilder().size(0)
+            .aggregation(AggregationBuilders.terms("facet_0").field("stage_id")), 1L, false);
+
+        assertThat(sorted.terminateAfter()).isEqualTo(SearchContext.DEFAULT_TERMINATE_AFTER);
+        assertThat(sorted.timeout()).isNotNull();
+        assertThat(aggregated.terminateAfter()).isEqualTo(SearchContext.DEFAULT_TERMINATE_AFTER);
+    }
+}
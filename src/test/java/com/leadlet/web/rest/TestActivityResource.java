@@ -25,7 +25,6 @@ import java.util.Arrays;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
 import static org.mockito.Matchers.any;
-import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
@@ -72,7 +71,7 @@ public class TestActivityResource {
 
         Page<ActivityDTO> activities = new PageImpl<>(Arrays.asList(activity1, activity2));
 
-        when(activityService.search(anyString(), any())).thenReturn(activities);
+        when(activityService.search(any(), any(), any())).thenReturn(activities);
 
         mockMvc.perform(get("/api/activities")
             .contentType(MediaType.APPLICATION_JSON))